@@ -6,13 +6,13 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 /**
  * 체계기정 Time클라스의 Year 2038문제를 대책하기 위하여 새롭게 작성한 Time클라스
+ * 날자계산은 모두 정수연산(Julian day)으로 진행하며 시간대 offset 은 {@link ZoneOffsetCache}를 통해 얻는다.
+ * RecurrenceProcessor 의 반복자로 쓰이므로 normalize(), toMillis()등에서 객체를 만들지 않는다.
  * @see android.text.format.Time
  */
 public class Time {
@@ -90,14 +90,14 @@ public class Time {
         set(timeMillis);
     }
 
+    /**
+     * 날자마당들로부터 요일, 년의 날자, gmtoff 를 계산한다.
+     */
     private void calculate(){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, 0, 0);
-
-        Calendar mCalendar = new GregorianCalendar();
-        mCalendar.set(dateTime.getYear(), dateTime.getMonthOfYear(), dateTime.getDayOfMonth());
-        TimeZone mTimeZone = mCalendar.getTimeZone();
-        gmtoff = mTimeZone.getRawOffset()/1000;
-        weekDay = dateTime.getDayOfWeek() % 7;
+        final int julianDay = getJulianDay(year, month + 1, monthDay);
+        weekDay = julianDayToWeekDay(julianDay);
+        yearDay = julianDay - getJulianDay(year, 1, 1);
+        gmtoff = ZoneOffsetCache.get().getRawOffsetSeconds();
     }
 
     public void set(int new_second, int new_minute, int new_hour,
@@ -132,108 +132,70 @@ public class Time {
         calculate();
     }
     public void set(long timeMillis) {
-        final DateTime dateTime = new DateTime(timeMillis);
-
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
-        minute = dateTime.getMinuteOfHour();
-        second = dateTime.getSecondOfMinute();
-        calculate();
+        //기정시간대의 지역시간으로 변환한다.
+        setLocalMillis(timeMillis + ZoneOffsetCache.get().getOffsetFromUtc(timeMillis));
     }
     public void setToNow() {
-        DateTime dateTime = DateTime.now();
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
-        minute = dateTime.getMinuteOfHour();
-        second = dateTime.getSecondOfMinute();
-        calculate();
+        set(System.currentTimeMillis());
     }
     public void plusDays(int numDays){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.plusDays(numDays);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
+        setDateFromJulianDay(getJulianDay(year, month + 1, monthDay) + numDays);
         calculate();
     }
     public void minusDays(int numDays) {
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.minusDays(numDays);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        calculate();
+        plusDays(-numDays);
     }
     public void plusMonths(int numMonths){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.plusMonths(numMonths);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
+        //월의 날자수를 넘어서면 마지막날로 맞춘다.
+        final int totalMonths = year * 12 + month + numMonths;
+        year = Math.floorDiv(totalMonths, 12);
+        month = Math.floorMod(totalMonths, 12);
+        monthDay = Math.min(monthDay, monthLength(year, month));
         calculate();
     }
     public void minusMonths(int numMonths){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.minusMonths(numMonths);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        calculate();
+        plusMonths(-numMonths);
     }
     public void plusMinutes(int numMinutes){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.plusMinutes(numMinutes);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
-        minute = dateTime.getMinuteOfHour();
-        calculate();
+        addSeconds((long) numMinutes * ONE_MINUTE_SECONDS);
     }
     public void plusSeconds(int numSeconds){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute, second);
-        dateTime = dateTime.plusSeconds(numSeconds);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
-        minute = dateTime.getMinuteOfHour();
-        second = dateTime.getSecondOfMinute();
-        calculate();
+        addSeconds(numSeconds);
     }
 
     public void minusSeconds(int numSeconds){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute, second);
-        dateTime = dateTime.minusSeconds(numSeconds);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
-        minute = dateTime.getMinuteOfHour();
-        second = dateTime.getSecondOfMinute();
-        calculate();
+        addSeconds(-(long) numSeconds);
     }
     public void plusHours(int numHours){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        dateTime = dateTime.plusHours(numHours);
-        year = dateTime.getYear();
-        month = dateTime.getMonthOfYear() - 1;
-        monthDay = dateTime.getDayOfMonth();
-        hour = dateTime.getHourOfDay();
+        addSeconds((long) numHours * ONE_HOUR_SECONDS);
     }
+
+    /**
+     * 시계시간에 초를 더한다.
+     * @param seconds 더할 초수(음수이면 던다)
+     */
+    private void addSeconds(long seconds) {
+        final long totalSeconds = (long) hour * ONE_HOUR_SECONDS + minute * ONE_MINUTE_SECONDS + second + seconds;
+        final int dayCount = (int) Math.floorDiv(totalSeconds, ONE_DAY_SECONDS);
+        final int secondOfDay = (int) Math.floorMod(totalSeconds, ONE_DAY_SECONDS);
+
+        hour = secondOfDay / ONE_HOUR_SECONDS;
+        minute = (secondOfDay % ONE_HOUR_SECONDS) / ONE_MINUTE_SECONDS;
+        second = secondOfDay % ONE_MINUTE_SECONDS;
+        if(dayCount != 0)
+            setDateFromJulianDay(getJulianDay(year, month + 1, monthDay) + dayCount);
+        calculate();
+    }
+
     public long toMillis(boolean ignoreDist){
-        final DateTime dateTime;
-        if(allDay || (timezone != null && timezone.equals("UTC"))) {
-            dateTime = new DateTime(DateTimeZone.UTC).withDate(year, month + 1, monthDay).withMillisOfDay(0);
+        final long dayMillis = (long) (getJulianDay(year, month + 1, monthDay) - EPOCH_JULIAN_DAY) * DateUtils.DAY_IN_MILLIS;
+        if(allDay || (timezone != null && timezone.equals(TIMEZONE_UTC))) {
+            return dayMillis;
         }
-        else {
-            dateTime = new DateTime(year, month + 1, monthDay, hour, minute, 0);
-        }
-        return dateTime.getMillis();
+
+        //초는 리용하지 않는다.
+        final long localMillis = dayMillis + hour * DateUtils.HOUR_IN_MILLIS + minute * DateUtils.MINUTE_IN_MILLIS;
+        return localMillis - ZoneOffsetCache.get().getOffsetFromLocal(localMillis);
     }
 
     /**
@@ -243,67 +205,34 @@ public class Time {
      */
     public long normalize(boolean ignoreDist){
         //First set right hour, minute, second
-        int totalSecond = hour * ONE_HOUR_SECONDS + minute * ONE_MINUTE_SECONDS + second;
-        int dayCount = 0;
-        if(totalSecond < 0) {
-            while (totalSecond < 0)
-            {
-                dayCount --;
-                totalSecond += ONE_DAY_SECONDS;
-            }
-        }
-        else {
-            while (totalSecond > ONE_DAY_SECONDS)
-            {
-                dayCount ++;
-                totalSecond -= ONE_DAY_SECONDS;
-            }
-        }
-        hour = totalSecond / ONE_HOUR_SECONDS;
-        minute = (totalSecond % ONE_HOUR_SECONDS) / ONE_MINUTE_SECONDS;
-        second = (totalSecond % ONE_HOUR_SECONDS) % ONE_MINUTE_SECONDS;
+        final long totalSeconds = (long) hour * ONE_HOUR_SECONDS + (long) minute * ONE_MINUTE_SECONDS + second;
+        final int dayCount = (int) Math.floorDiv(totalSeconds, ONE_DAY_SECONDS);
+        final int secondOfDay = (int) Math.floorMod(totalSeconds, ONE_DAY_SECONDS);
+        hour = secondOfDay / ONE_HOUR_SECONDS;
+        minute = (secondOfDay % ONE_HOUR_SECONDS) / ONE_MINUTE_SECONDS;
+        second = secondOfDay % ONE_MINUTE_SECONDS;
 
         //Then set day, month, year
-        monthDay += dayCount;
-        if(month < 0) {
-            while (month < 0) {
-                month += 12;
-                year ++;
-            }
-        }
-        else {
-            while (month > 11){
-                month -= 12;
-                year --;
-            }
-        }
-
-        if(monthDay < 1) {
-            DateTime dateTime = new DateTime(year, month + 1, 1, 0, 0);
-            dateTime = dateTime.minusDays(Math.abs(monthDay - 1));
-            year = dateTime.getYear();
-            month = dateTime.getMonthOfYear() - 1;
-            monthDay = dateTime.getDayOfMonth();
-        }
-        else {
-            DateTime dateTime = new DateTime(year, month + 1, 1, 0, 0);
-            dateTime = dateTime.plusDays(monthDay - 1);
-            year = dateTime.getYear();
-            month = dateTime.getMonthOfYear() - 1;
-            monthDay = dateTime.getDayOfMonth();
-        }
+        year += Math.floorDiv(month, 12);
+        month = Math.floorMod(month, 12);
+        setDateFromJulianDay(getJulianDay(year, month + 1, 1) + monthDay - 1 + dayCount);
         calculate();
 
         return toMillis(ignoreDist);
     }
 
     public static int compare(Time a, Time b) {
-        DateTime time1 = new DateTime(a.year, a.month + 1, a.monthDay, a.hour, a.minute);
-        DateTime time2 = new DateTime(b.year, b.month + 1, b.monthDay, b.hour, b.minute);
-        if(time1.isAfter(time2))
-            return 1;
-        if(time1.isBefore(time2))
-            return -1;
+        //분까지만 비교한다.
+        if(a.year != b.year)
+            return a.year < b.year ? -1 : 1;
+        if(a.month != b.month)
+            return a.month < b.month ? -1 : 1;
+        if(a.monthDay != b.monthDay)
+            return a.monthDay < b.monthDay ? -1 : 1;
+        if(a.hour != b.hour)
+            return a.hour < b.hour ? -1 : 1;
+        if(a.minute != b.minute)
+            return a.minute < b.minute ? -1 : 1;
         return 0;
     }
 
@@ -443,13 +372,16 @@ public class Time {
     }
 
     public int getWeekNumber() {
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        return dateTime.getWeekOfWeekyear();
+        //ISO 8601 주번호: 그 주의 목요일이 속한 년의 몇번째 주인가
+        final int julianDay = getJulianDay(year, month + 1, monthDay);
+        final int isoWeekDay = (julianDayToWeekDay(julianDay) + 6) % 7;    //월요일=0
+        final int thursday = julianDay - isoWeekDay + 3;
+        final int thursdayYear = julianDayToYear(thursday);
+        return (thursday - getJulianDay(thursdayYear, 1, 1)) / 7 + 1;
     }
 
     public int getDayOfWeek(){
-        DateTime dateTime = new DateTime(year, month + 1, monthDay, hour, minute);
-        return dateTime.getDayOfWeek()%7;
+        return julianDayToWeekDay(getJulianDay(year, month + 1, monthDay));
     }
 
     public void clear(String timezoneId) {
@@ -484,10 +416,15 @@ public class Time {
 
     public void switchTimezone(String timezone) {
         this.timezone = timezone;
-        if(this.timezone.equals("UTC")){
-            DateTime dateTime = new DateTime(toMillis(false), DateTimeZone.UTC);
-            set(dateTime.getSecondOfMinute(), dateTime.getMinuteOfHour(), dateTime.getHourOfDay(),
-                    dateTime.getDayOfMonth(), dateTime.getMonthOfYear() - 1, dateTime.getYear());
+        if(this.timezone.equals(TIMEZONE_UTC)){
+            //UTC 에서 toMillis()는 날자의 0시를 돌려준다.
+            final int julianDay = getJulianDay(year, month + 1, monthDay);
+            second = 0;
+            minute = 0;
+            hour = 0;
+            setDateFromJulianDay(julianDay);
+            allDay = false;
+            normalize(false);
         }
     }
 
@@ -590,9 +527,11 @@ public class Time {
      * @param day 일
      */
     public static int getJulianDay(int year, int month, int day) {
-        DateTime dateTime = new DateTime(DateTimeZone.UTC).withDate(year, month, day).withMillisOfDay(0);
-        long julianDay = dateTime.getMillis() / DateUtils.DAY_IN_MILLIS;
-        return (int) julianDay + EPOCH_JULIAN_DAY;
+        //객체를 만들지 않고 정수연산만으로 계산한다. (Fliegel - Van Flandern)
+        final int a = (14 - month) / 12;
+        final int y = year + 4800 - a;
+        final int m = month + 12 * a - 3;
+        return day + (153 * m + 2) / 5 + 365 * y + y / 4 - y / 100 + y / 400 - 32045;
     }
     public static int getJulianDay(Time time) {
         return getJulianDay(time.year, time.month + 1, time.monthDay);
@@ -602,29 +541,153 @@ public class Time {
     }
 
     public static boolean isLastWeek(Time time) {
-        Time nextWeek = new Time(time);
-        nextWeek.plusDays(7);
-        return nextWeek.month != time.month;
+        return time.monthDay + 7 > monthLength(time.year, time.month);
     }
 
     public long setJulianDay(int julianDay) {
-        // Don't bother with the GMT offset since we don't know the correct
-        // value for the given Julian day.  Just get close and then adjust
-        // the day.
-        long millis = (julianDay - EPOCH_JULIAN_DAY) * DateUtils.DAY_IN_MILLIS;
-        set(millis);
-        // Figure out how close we are to the requested Julian day.
-        // We can't be off by more than a day.
-        int approximateDay = getJulianDay(this);
-        int diff = julianDay - approximateDay;
-        plusDays(diff);
+        setDateFromJulianDay(julianDay);
 
         // Set the time to 12am and re-normalize.
         hour = 0;
         minute = 0;
         second = 0;
-        millis = normalize(true);
+        calculate();
+
+        return toMillis(true);
+    }
+
+    /**
+     * 지역시간(기정시간대의 시계시간을 UTC 로 본 미리초)으로 마당들을 설정한다.
+     */
+    private void setLocalMillis(long localMillis) {
+        final long days = Math.floorDiv(localMillis, DateUtils.DAY_IN_MILLIS);
+        final int secondOfDay = (int) (Math.floorMod(localMillis, DateUtils.DAY_IN_MILLIS) / 1000);
+
+        setDateFromJulianDay((int) days + EPOCH_JULIAN_DAY);
+        hour = secondOfDay / ONE_HOUR_SECONDS;
+        minute = (secondOfDay % ONE_HOUR_SECONDS) / ONE_MINUTE_SECONDS;
+        second = secondOfDay % ONE_MINUTE_SECONDS;
+        calculate();
+    }
+
+    /**
+     * Julian day 로부터 년, 월, 일을 설정한다. (Richards)
+     */
+    private void setDateFromJulianDay(int julianDay) {
+        final int a = julianDay + 32044;
+        final int b = (4 * a + 3) / 146097;
+        final int c = a - 146097 * b / 4;
+        final int d = (4 * c + 3) / 1461;
+        final int e = c - 1461 * d / 4;
+        final int m = (5 * e + 2) / 153;
 
-        return millis;
+        monthDay = e - (153 * m + 2) / 5 + 1;
+        month = m + 2 - 12 * (m / 10);
+        year = 100 * b + d - 4800 + m / 10;
+    }
+
+    private static int julianDayToYear(int julianDay) {
+        final int a = julianDay + 32044;
+        final int b = (4 * a + 3) / 146097;
+        final int c = a - 146097 * b / 4;
+        final int d = (4 * c + 3) / 1461;
+        final int e = c - 1461 * d / 4;
+        final int m = (5 * e + 2) / 153;
+        return 100 * b + d - 4800 + m / 10;
+    }
+
+    /**
+     * @return 요일(0-6, 일요일=0)
+     */
+    private static int julianDayToWeekDay(int julianDay) {
+        return (julianDay + 1) % 7;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0));
+    }
+
+    /**
+     * @param month 월(0-11)
+     */
+    private static int monthLength(int year, int month) {
+        if(month == 1)
+            return isLeapYear(year) ? 29 : 28;
+        return DAYS_PER_MONTH[month];
+    }
+
+    /**
+     * 기정시간대의 offset 을 구간별로 기억해두는 cache
+     * offset 이 변하지 않는 구간(두 전환시각사이)안에서는 시간대 규칙을 다시 계산하지 않는다.
+     * 기정시간대가 바뀌였거나 구간을 벗어날때에만 새 객체를 만든다.
+     */
+    static final class ZoneOffsetCache {
+        private static volatile ZoneOffsetCache sCache;
+
+        private final DateTimeZone mZone;
+        private final int mRawOffsetSeconds;
+
+        //offset 이 mOffset 으로 고정되여있는 UTC 구간 [mValidFrom, mValidTo)
+        private final long mValidFrom;
+        private final long mValidTo;
+        private final int mOffset;
+
+        private ZoneOffsetCache(DateTimeZone zone, int rawOffsetSeconds, long instant) {
+            mZone = zone;
+            mRawOffsetSeconds = rawOffsetSeconds;
+            mOffset = zone.getOffset(instant);
+
+            final long previous = zone.previousTransition(instant + 1);
+            mValidFrom = previous > instant ? Long.MIN_VALUE : previous + 1;
+            final long next = zone.nextTransition(instant);
+            mValidTo = next <= instant ? Long.MAX_VALUE : next;
+        }
+
+        /**
+         * @return 기정시간대에 해당한 cache
+         */
+        static ZoneOffsetCache get() {
+            final DateTimeZone zone = DateTimeZone.getDefault();
+            ZoneOffsetCache cache = sCache;
+            if(cache == null || cache.mZone != zone) {
+                final long now = System.currentTimeMillis();
+                cache = new ZoneOffsetCache(zone, zone.getStandardOffset(now) / 1000, now);
+                sCache = cache;
+            }
+            return cache;
+        }
+
+        int getRawOffsetSeconds() {
+            return mRawOffsetSeconds;
+        }
+
+        /**
+         * @param utcMillis UTC 시간
+         * @return 지역시간 - UTC 시간 (미리초)
+         */
+        int getOffsetFromUtc(long utcMillis) {
+            if(utcMillis >= mValidFrom && utcMillis < mValidTo)
+                return mOffset;
+
+            final ZoneOffsetCache cache = new ZoneOffsetCache(mZone, mRawOffsetSeconds, utcMillis);
+            sCache = cache;
+            return cache.mOffset;
+        }
+
+        /**
+         * @param localMillis 지역시간
+         * @return 지역시간 - UTC 시간 (미리초)
+         */
+        int getOffsetFromLocal(long localMillis) {
+            //전환시각에서 하루이상 떨어져있으면 구간의 offset 이 그대로 답이다.
+            final long utcMillis = localMillis - mOffset;
+            if(utcMillis - DateUtils.DAY_IN_MILLIS >= mValidFrom && utcMillis + DateUtils.DAY_IN_MILLIS < mValidTo)
+                return mOffset;
+
+            //전환시각 근처에서는 없는 시간, 겹치는 시간을 DateTimeZone 의 규칙대로 처리한다.
+            //다음 호출을 위하여 이 시각의 구간을 새로 기억해둔다.
+            getOffsetFromUtc(utcMillis);
+            return mZone.getOffsetFromLocal(localMillis);
+        }
     }
 }
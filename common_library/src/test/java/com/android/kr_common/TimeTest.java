@@ -0,0 +1,55 @@
+package com.android.kr_common;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link Time}의 set(), toMillis() 결과를 Joda 와 비교하는 시험
+ * 호출당 할당량은 external/calendar/benchmark 의 TimeAllocationBenchmark 로 잰다.
+ */
+public class TimeTest {
+    private DateTimeZone mDefaultZone;
+
+    @Before
+    public void setUp() {
+        mDefaultZone = DateTimeZone.getDefault();
+        DateTimeZone.setDefault(DateTimeZone.forID("America/New_York"));
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeZone.setDefault(mDefaultZone);
+    }
+
+    @Test
+    public void toMillis_matchesJoda() {
+        //1970년부터 100년사이의 임의의 시간들을 Joda 결과와 비교한다. (여름시간 전환포함)
+        DateTimeZone zone = DateTimeZone.getDefault();
+        Random random = new Random(0);
+        Time time = new Time();
+        for (int i = 0; i < 100000; i ++) {
+            long millis = Math.floorMod(random.nextLong(), 100L * 365 * 24 * 3600 * 1000) / 60000 * 60000;
+            time.set(millis);
+
+            DateTime dateTime = new DateTime(millis);
+            assertEquals(dateTime.getYear(), time.year);
+            assertEquals(dateTime.getMonthOfYear() - 1, time.month);
+            assertEquals(dateTime.getDayOfMonth(), time.monthDay);
+            assertEquals(dateTime.getHourOfDay(), time.hour);
+            assertEquals(dateTime.getDayOfWeek() % 7, time.weekDay);
+            assertEquals(dateTime.getWeekOfWeekyear(), time.getWeekNumber());
+
+            //여름시간이 끝나면서 두번 나타나는 시간은 앞의것으로 변환되므로 제외한다.
+            long localMillis = millis + zone.getOffset(millis);
+            if(zone.getOffsetFromLocal(localMillis) == zone.getOffset(millis))
+                assertEquals(millis, time.toMillis(false));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.android.calendarcommon2;
+
+/**
+ * Inputs shared by the benchmarks.  The rules are taken from the correctness
+ * tests (EventRecurrenceTest, RecurrenceProcessorTest) so that the numbers
+ * describe the same cases those tests cover.  They are kept here, in the
+ * benchmark module only, so that the tests stay as they are.
+ */
+final class BenchmarkFixtures {
+    /** Timezone used by RecurrenceProcessorTest; deliberately not UTC. */
+    static final String TIMEZONE = "America/Los_Angeles";
+
+    /** DTSTART shared by the expansion benchmarks. */
+    static final String DTSTART = "20100104T100000";
+
+    /** Expansion range: one year, as a month/agenda/widget load would see it. */
+    static final String RANGE_START = "20110101T000000";
+    static final String RANGE_END = "20120101T000000";
+
+    /** Rules from EventRecurrenceTest, one per parser feature. */
+    static final String[] PARSE_RRULES = new String[] {
+        "FREQ=DAILY;COUNT=10;INTERVAL=2",
+        "FREQ=DAILY;UNTIL=112233T223344Z",
+        "FREQ=DAILY;BYDAY=1SU,-2MO,+33TU,WE,TH,FR,SA",
+        "FREQ=WEEKLY;WKST=SU;INTERVAL=2;BYDAY=MO,TU,WE,TH,FR",
+        "FREQ=WEEKLY;WKST=MO;UNTIL=20100129T130000Z;INTERVAL=1;BYDAY=MO,TU,WE,",
+        "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1",
+        "FREQ=YEARLY;BYDAY=-1SU;BYMONTH=10",
+        "FREQ=YEARLY;BYMONTHDAY=18;BYMONTH=10;INTERVAL=0;",
+    };
+
+    /** Rules of the kind the app writes itself, all handled by EventRecurrence.parseCommon(). */
+    static final String[] COMMON_RRULES = new String[] {
+        "FREQ=DAILY",
+        "FREQ=DAILY;COUNT=10;INTERVAL=2",
+        "FREQ=WEEKLY;WKST=SU;BYDAY=MO,TU,WE,TH,FR",
+        "FREQ=WEEKLY;WKST=MO;UNTIL=20100129T130000Z;INTERVAL=2;BYDAY=MO,WE",
+        "FREQ=MONTHLY;WKST=SU;BYDAY=-1SU",
+        "FREQ=MONTHLY;COUNT=12;BYDAY=2TH",
+        "FREQ=YEARLY;WKST=SU",
+    };
+
+    /**
+     * Rules used by RecurrenceProcessorTest.performanceTextExpand(), expanded
+     * from PERFORMANCE_START (also the DTSTART) to PERFORMANCE_END.
+     */
+    static final String PERFORMANCE_START = "20010101T000000";
+    static final String PERFORMANCE_END = "20090101T000000";
+    static final String[] PERFORMANCE_RRULES = new String[] {
+        "FREQ=DAILY;COUNT=100",
+        "FREQ=DAILY;INTERVAL=2;UNTIL=20080101T000000Z",
+        "FREQ=YEARLY;UNTIL=20090131T090000Z;BYMONTH=1;BYDAY=SU,MO,TU,WE,TH,FR,SA",
+        "FREQ=WEEKLY;INTERVAL=2;WKST=SU",
+        "FREQ=WEEKLY;COUNT=100;WKST=SU;BYDAY=MO,TU,WE,TH,FR",
+        "FREQ=MONTHLY;COUNT=100;BYDAY=1FR",
+        "FREQ=MONTHLY;INTERVAL=2;COUNT=100;BYDAY=1SU,-1SU",
+        "FREQ=MONTHLY;BYMONTHDAY=1,15",
+        "FREQ=MONTHLY;INTERVAL=3;COUNT=100;BYMONTHDAY=10,11,12,13,14",
+        "FREQ=YEARLY;COUNT=100;BYMONTH=6,7,8",
+        "FREQ=YEARLY;INTERVAL=2;BYMONTH=1,2,3,6,7,8",
+        "FREQ=YEARLY;COUNT=100;BYYEARDAY=1,100,200",
+        "FREQ=YEARLY;BYDAY=2MO",
+        "FREQ=YEARLY;BYWEEKNO=2,3,4;BYDAY=MO",
+        "FREQ=YEARLY;BYMONTH=3,4,5;BYDAY=TH",
+        "FREQ=MONTHLY;BYDAY=FR;BYMONTHDAY=13",
+        "FREQ=MONTHLY;BYDAY=SA;BYMONTHDAY=7,8,9,10,11,12,13",
+        "FREQ=YEARLY;INTERVAL=2;BYMONTH=11;BYDAY=TU;BYMONTHDAY=2,3,4,5,6,7,8",
+        "FREQ=WEEKLY;INTERVAL=2;COUNT=100;BYDAY=TU,SU;WKST=MO",
+        "FREQ=WEEKLY;INTERVAL=2;COUNT=100;BYDAY=TU,SU;WKST=SU",
+    };
+
+    /**
+     * Returns the expansion rule for a benchmark parameter.  The monthly
+     * BYSETPOS rules are the ones RecurrenceProcessorTest uses for "first and
+     * last weekday of the month".
+     */
+    static String getExpandRrule(String kind) {
+        switch (kind) {
+            case "DAILY":
+                return "FREQ=DAILY";
+            case "WEEKLY":
+                return "FREQ=WEEKLY;WKST=SU;BYDAY=MO,TU,WE,TH,FR";
+            case "MONTHLY_BYSETPOS":
+                return "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=1,-1";
+            default:
+                throw new IllegalArgumentException("Unknown rule " + kind);
+        }
+    }
+
+    /** RDATE/EXDATE lists of the size Exchange and Google exceptions produce. */
+    static final String RDATE = TIMEZONE + ";20110301T100000,20110415T100000,20110520T100000,"
+            + "20110704T100000,20110912T100000,20111124T100000";
+    static final String EXDATE = TIMEZONE + ";20110103T100000,20110117T100000,"
+            + "20110221T100000,20110530T100000,20110905T100000,20111010T100000,"
+            + "20111111T100000,20111226T100000";
+
+    /**
+     * Builds a VCALENDAR with a VTIMEZONE and {@code eventCount} recurring
+     * VEVENTs, with folded DESCRIPTION lines as exported by common servers.
+     */
+    static String buildCalendar(int eventCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("BEGIN:VCALENDAR\r\n")
+                .append("PRODID:-//Google Inc//Google Calendar 70.9054//EN\r\n")
+                .append("VERSION:2.0\r\n")
+                .append("CALSCALE:GREGORIAN\r\n")
+                .append("METHOD:PUBLISH\r\n")
+                .append("BEGIN:VTIMEZONE\r\n")
+                .append("TZID:").append(TIMEZONE).append("\r\n")
+                .append("BEGIN:DAYLIGHT\r\n")
+                .append("TZOFFSETFROM:-0800\r\n")
+                .append("TZOFFSETTO:-0700\r\n")
+                .append("TZNAME:PDT\r\n")
+                .append("DTSTART:19700308T020000\r\n")
+                .append("RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=2SU\r\n")
+                .append("END:DAYLIGHT\r\n")
+                .append("BEGIN:STANDARD\r\n")
+                .append("TZOFFSETFROM:-0700\r\n")
+                .append("TZOFFSETTO:-0800\r\n")
+                .append("TZNAME:PST\r\n")
+                .append("DTSTART:19701101T020000\r\n")
+                .append("RRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=1SU\r\n")
+                .append("END:STANDARD\r\n")
+                .append("END:VTIMEZONE\r\n");
+        for (int i = 0; i < eventCount; i++) {
+            sb.append("BEGIN:VEVENT\r\n")
+                    .append("DTSTART;TZID=").append(TIMEZONE).append(":").append(DTSTART)
+                    .append("\r\n")
+                    .append("DTEND;TZID=").append(TIMEZONE).append(":20100104T110000\r\n")
+                    .append("RRULE:")
+                    .append(PERFORMANCE_RRULES[i % PERFORMANCE_RRULES.length]).append("\r\n")
+                    .append("EXDATE;TZID=").append(TIMEZONE).append(":20100111T100000\r\n")
+                    .append("DTSTAMP:20110301T120000Z\r\n")
+                    .append("UID:").append(i).append("-benchmark@example.com\r\n")
+                    .append("CREATED:20100101T080000Z\r\n")
+                    .append("DESCRIPTION:Weekly review of the open items. Bring the updated\r\n")
+                    .append("  schedule\\, the budget numbers and the list of blockers for the\r\n")
+                    .append("  next release.\r\n")
+                    .append("LAST-MODIFIED:20110301T120000Z\r\n")
+                    .append("LOCATION:Room ").append(i).append("\r\n")
+                    .append("SEQUENCE:0\r\n")
+                    .append("STATUS:CONFIRMED\r\n")
+                    .append("SUMMARY:Meeting ").append(i).append("\r\n")
+                    .append("TRANSP:OPAQUE\r\n")
+                    .append("BEGIN:VALARM\r\n")
+                    .append("ACTION:DISPLAY\r\n")
+                    .append("DESCRIPTION:Reminder\r\n")
+                    .append("TRIGGER:-PT10M\r\n")
+                    .append("END:VALARM\r\n")
+                    .append("END:VEVENT\r\n");
+        }
+        sb.append("END:VCALENDAR\r\n");
+        return sb.toString();
+    }
+
+    private BenchmarkFixtures() {
+    }
+}
@@ -0,0 +1,92 @@
+package com.android.calendarcommon2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of RRULE strings and construction of a RecurrenceSet, as done for
+ * every recurring event the app loads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventRecurrenceBenchmark {
+
+    /** parse() as the app calls it; after the first iteration every rule comes from the cache. */
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.PARSE_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            recurrence.parse(rule);
+            bh.consume(recurrence);
+        }
+    }
+
+    /** The hand-written parser for common rules, falling back to the full parser. */
+    @Benchmark
+    public void parseUncached(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.PARSE_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            if (!recurrence.parseCommon(rule)) {
+                recurrence.parseFull(rule);
+            }
+            bh.consume(recurrence);
+        }
+    }
+
+    /** The full parser alone, as parse() worked before the cache and the common-rule parser. */
+    @Benchmark
+    public void parseFull(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.PARSE_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            recurrence.parseFull(rule);
+            bh.consume(recurrence);
+        }
+    }
+
+    /** Rules that the common-rule parser handles, each parsed both ways. */
+    @Benchmark
+    public void parseCommonRules(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.COMMON_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            recurrence.parseCommon(rule);
+            bh.consume(recurrence);
+        }
+    }
+
+    @Benchmark
+    public void parseFullCommonRules(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.COMMON_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            recurrence.parseFull(rule);
+            bh.consume(recurrence);
+        }
+    }
+
+    @Benchmark
+    public void parseAndToString(Blackhole bh) {
+        for (String rule : BenchmarkFixtures.PARSE_RRULES) {
+            EventRecurrence recurrence = new EventRecurrence();
+            recurrence.parse(rule);
+            bh.consume(recurrence.toString());
+        }
+    }
+
+    @Benchmark
+    public RecurrenceSet recurrenceSet() {
+        return new RecurrenceSet(BenchmarkFixtures.getExpandRrule("WEEKLY"), null, null, null);
+    }
+
+    @Benchmark
+    public RecurrenceSet recurrenceSetWithDates() {
+        return new RecurrenceSet(BenchmarkFixtures.getExpandRrule("WEEKLY"),
+                BenchmarkFixtures.RDATE, null, BenchmarkFixtures.EXDATE);
+    }
+}
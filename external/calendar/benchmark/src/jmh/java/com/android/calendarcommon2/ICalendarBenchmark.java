@@ -0,0 +1,57 @@
+package com.android.calendarcommon2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of whole .ics files, as done by the import path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ICalendarBenchmark {
+
+    @Param({"1", "100"})
+    public int events;
+
+    private String mCalendar;
+
+    @Setup
+    public void setUp() throws ICalendar.FormatException {
+        mCalendar = BenchmarkFixtures.buildCalendar(events);
+        // fail fast if the fixture stops being valid
+        ICalendar.Component calendar = ICalendar.parseCalendar(mCalendar);
+        if (calendar.getComponents().size() != events + 1) {
+            throw new IllegalStateException("Unexpected calendar " + calendar);
+        }
+    }
+
+    @Benchmark
+    public ICalendar.Component parseCalendar() throws ICalendar.FormatException {
+        return ICalendar.parseCalendar(mCalendar);
+    }
+
+    @Benchmark
+    public List<ICalendar.Component> parseEvents() throws Exception {
+        final List<ICalendar.Component> events = new ArrayList<ICalendar.Component>();
+        ICalendar.parseComponents(new StringReader(mCalendar), ICalendar.Component.VEVENT,
+                new ICalendar.ComponentCallback() {
+            @Override
+            public void onComponent(ICalendar.Component component) {
+                events.add(component);
+            }
+        });
+        return events;
+    }
+}
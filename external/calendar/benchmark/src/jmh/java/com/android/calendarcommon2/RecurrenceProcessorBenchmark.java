@@ -0,0 +1,96 @@
+package com.android.calendarcommon2;
+
+import com.android.kr_common.Time;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expansion of recurrences over a one year range.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecurrenceProcessorBenchmark {
+
+    @Param({"DAILY", "WEEKLY", "MONTHLY_BYSETPOS"})
+    public String rule;
+
+    private final RecurrenceProcessor mProcessor = new RecurrenceProcessor();
+    private Time mDtstart;
+    private RecurrenceSet mRecurrence;
+    private RecurrenceSet mRecurrenceWithDates;
+    private long mRangeStart;
+    private long mRangeEnd;
+    private Time mPerformanceDtstart;
+    private RecurrenceSet[] mPerformanceRecurrences;
+    private long mPerformanceRangeStart;
+    private long mPerformanceRangeEnd;
+
+    @Setup
+    public void setUp() throws Exception {
+        String tz = BenchmarkFixtures.TIMEZONE;
+        mDtstart = new Time(tz);
+        mDtstart.parse(BenchmarkFixtures.DTSTART);
+
+        Time time = new Time(tz);
+        time.parse(BenchmarkFixtures.RANGE_START);
+        mRangeStart = time.toMillis(false /* use isDst */);
+        time.parse(BenchmarkFixtures.RANGE_END);
+        mRangeEnd = time.toMillis(false /* use isDst */);
+
+        String rrule = BenchmarkFixtures.getExpandRrule(rule);
+        mRecurrence = new RecurrenceSet(rrule, null, null, null);
+        mRecurrenceWithDates = new RecurrenceSet(rrule, BenchmarkFixtures.RDATE, null,
+                BenchmarkFixtures.EXDATE);
+
+        mPerformanceDtstart = new Time(tz);
+        mPerformanceDtstart.parse(BenchmarkFixtures.PERFORMANCE_START);
+        time.parse(BenchmarkFixtures.PERFORMANCE_START);
+        mPerformanceRangeStart = time.toMillis(false /* use isDst */);
+        time.parse(BenchmarkFixtures.PERFORMANCE_END);
+        mPerformanceRangeEnd = time.toMillis(false /* use isDst */);
+        String[] rrules = BenchmarkFixtures.PERFORMANCE_RRULES;
+        mPerformanceRecurrences = new RecurrenceSet[rrules.length];
+        for (int i = 0; i < rrules.length; i++) {
+            mPerformanceRecurrences[i] = new RecurrenceSet(rrules[i], null, null, null);
+        }
+    }
+
+    @Benchmark
+    public long[] expand() throws DateException {
+        return mProcessor.expand(mDtstart, mRecurrence, mRangeStart, mRangeEnd);
+    }
+
+    @Benchmark
+    public long[] expandWithDates() throws DateException {
+        return mProcessor.expand(mDtstart, mRecurrenceWithDates, mRangeStart, mRangeEnd);
+    }
+
+    /** What the alarm and widget code needs: only the next few occurrences. */
+    @Benchmark
+    public long[] nextOccurrences() throws DateException {
+        return mProcessor.getNextOccurrences(mDtstart, mRecurrence, mRangeStart, 5);
+    }
+
+    /**
+     * One pass of the loop in RecurrenceProcessorTest.performanceTextExpand().
+     * It does not depend on the rule parameter.
+     */
+    @Benchmark
+    public void expandPerformanceRules(Blackhole bh) throws DateException {
+        for (RecurrenceSet recurrence : mPerformanceRecurrences) {
+            bh.consume(mProcessor.expand(mPerformanceDtstart, recurrence,
+                    mPerformanceRangeStart, mPerformanceRangeEnd));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.android.kr_common;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation of {@link Time#normalize} and {@link Time#toMillis} in the
+ * default timezone, read from the gc profiler's gc.alloc.rate.norm.
+ * toMillisJoda() does what toMillis() did before Time stopped building Joda
+ * objects, so the two show how much the allocation dropped.
+ *
+ * Crossing a DST transition makes Time's offset cache look up the next
+ * interval, which allocates, so the dates stay between 1 January and
+ * 1 March 2021 in America/New_York.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeAllocationBenchmark {
+    private static final String TIMEZONE = "America/New_York";
+    private static final int PINNED_YEAR = 2021;
+
+    private DateTimeZone mDefaultZone;
+    private Time mTime;
+    private int mDay;
+
+    @Setup
+    public void setUp() {
+        mDefaultZone = DateTimeZone.getDefault();
+        DateTimeZone.setDefault(DateTimeZone.forID(TIMEZONE));
+        mTime = new Time();
+        mTime.set(0, 0, 12, 1, 0, PINNED_YEAR);
+        mTime.normalize(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        DateTimeZone.setDefault(mDefaultZone);
+    }
+
+    @Benchmark
+    public long normalize() {
+        // Back to January every call so the date never runs into March.
+        mTime.year = PINNED_YEAR;
+        mTime.month = 0;
+        mTime.monthDay = 1 + (mDay++ % 60);
+        return mTime.normalize(false);
+    }
+
+    @Benchmark
+    public long toMillis() {
+        mTime.minute = (mTime.minute + 1) % 60;
+        return mTime.toMillis(false);
+    }
+
+    @Benchmark
+    public long toMillisJoda() {
+        mTime.minute = (mTime.minute + 1) % 60;
+        return new DateTime(mTime.year, mTime.month + 1, mTime.monthDay, mTime.hour,
+                mTime.minute, 0).getMillis();
+    }
+}
@@ -0,0 +1,63 @@
+package com.android.kr_common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Time} operations the recurrence expansion runs in its inner
+ * loop.  The same steps as RecurrenceProcessorTest.performanceTestNormalize().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeArithmeticBenchmark {
+    private static final String TIMEZONE = "America/Los_Angeles";
+
+    private Time mTime;
+    private long mMillis;
+
+    @Setup
+    public void setUp() throws Exception {
+        mTime = new Time(TIMEZONE);
+        mTime.parse("20090404T100000");
+        mMillis = mTime.toMillis(false /* use isDst */);
+    }
+
+    @Benchmark
+    public long normalize() {
+        mTime.plusMonths(1);
+        mTime.plusDays(100);
+        mTime.normalize(true);
+        mTime.minusMonths(1);
+        mTime.minusDays(100);
+        return mTime.normalize(true);
+    }
+
+    @Benchmark
+    public long toMillis() {
+        return mTime.toMillis(false /* use isDst */);
+    }
+
+    @Benchmark
+    public int setMillis() {
+        mTime.set(mMillis);
+        return mTime.monthDay;
+    }
+
+    @Benchmark
+    public String format2445() {
+        return mTime.format2445();
+    }
+
+    @Benchmark
+    public boolean parse() throws Exception {
+        return mTime.parse("20090404T100000");
+    }
+}
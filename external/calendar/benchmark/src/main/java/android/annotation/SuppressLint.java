@@ -0,0 +1,9 @@
+package android.annotation;
+
+/**
+ * Plain JVM stand-in for the framework annotation, so that the shared
+ * sources compile outside of Android.
+ */
+public @interface SuppressLint {
+    String[] value();
+}
@@ -0,0 +1,41 @@
+package android.content;
+
+import java.util.HashMap;
+
+/**
+ * Plain JVM stand-in for the framework class; only what the shared sources use.
+ */
+public final class ContentValues {
+    private final HashMap<String, Object> mValues = new HashMap<String, Object>();
+
+    public void put(String key, String value) {
+        mValues.put(key, value);
+    }
+
+    public void put(String key, Integer value) {
+        mValues.put(key, value);
+    }
+
+    public void put(String key, Long value) {
+        mValues.put(key, value);
+    }
+
+    public boolean containsKey(String key) {
+        return mValues.containsKey(key);
+    }
+
+    public String getAsString(String key) {
+        Object value = mValues.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    public Long getAsLong(String key) {
+        Object value = mValues.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    public Integer getAsInteger(String key) {
+        Object value = mValues.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+}
@@ -0,0 +1,17 @@
+package android.database;
+
+/**
+ * Plain JVM stand-in for the framework interface; only what the shared
+ * sources use.
+ */
+public interface Cursor {
+    int getColumnIndex(String columnName);
+
+    boolean isNull(int columnIndex);
+
+    String getString(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+}
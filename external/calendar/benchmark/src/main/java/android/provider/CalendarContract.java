@@ -0,0 +1,24 @@
+package android.provider;
+
+/**
+ * Plain JVM stand-in for the framework class; only the column names the
+ * shared sources use.
+ */
+public final class CalendarContract {
+    private CalendarContract() {
+    }
+
+    public static final class Events {
+        public static final String DTSTART = "dtstart";
+        public static final String DURATION = "duration";
+        public static final String EVENT_TIMEZONE = "eventTimezone";
+        public static final String ALL_DAY = "allDay";
+        public static final String RRULE = "rrule";
+        public static final String RDATE = "rdate";
+        public static final String EXRULE = "exrule";
+        public static final String EXDATE = "exdate";
+
+        private Events() {
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package android.text.format;
+
+/**
+ * Plain JVM stand-in for the framework class; only what the shared sources use.
+ */
+public final class DateUtils {
+    public static final long SECOND_IN_MILLIS = 1000;
+    public static final long MINUTE_IN_MILLIS = SECOND_IN_MILLIS * 60;
+    public static final long HOUR_IN_MILLIS = MINUTE_IN_MILLIS * 60;
+    public static final long DAY_IN_MILLIS = HOUR_IN_MILLIS * 24;
+
+    private DateUtils() {
+    }
+}
@@ -0,0 +1,10 @@
+package android.util;
+
+/**
+ * Plain JVM stand-in for the framework class.
+ */
+public class TimeFormatException extends RuntimeException {
+    public TimeFormatException(String s) {
+        super(s);
+    }
+}
@@ -23,6 +23,8 @@ import android.util.TimeFormatException;
 
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Event recurrence utility functions.
@@ -124,6 +126,11 @@ public class EventRecurrence {
         sParseFreqMap.put("YEARLY", YEARLY);
     }
 
+    /** FREQ values indexed by their integer constant, for parseCommon() */
+    private static final String[] FREQ_NAMES = {
+        null, "SECONDLY", "MINUTELY", "HOURLY", "DAILY", "WEEKLY", "MONTHLY", "YEARLY"
+    };
+
     /** maps a two-character weekday string to an integer constant */
     private static final HashMap<String,Integer> sParseWeekdayMap = new HashMap<>();
     static {
@@ -145,6 +152,23 @@ public class EventRecurrence {
     /** If set, require that only one of {UNTIL,COUNT} is present.  Breaks compat w/ old parser. */
     private static final boolean ONLY_ONE_UNTIL_COUNT = false;
 
+    /** Number of parsed rules kept by {@link #parse}. */
+    private static final int PARSE_CACHE_SIZE = 64;
+
+    /**
+     * Recently parsed rules, least recently used first, keyed by the rule string exactly as it
+     * was passed to parse().  The cached objects are never handed out: parse() copies them into
+     * the caller's object, arrays included, so callers may modify the result freely.  Rules that
+     * fail to parse are not cached.
+     */
+    private static final LinkedHashMap<String, EventRecurrence> sParseCache =
+            new LinkedHashMap<String, EventRecurrence>(PARSE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EventRecurrence> eldest) {
+                    return size() > PARSE_CACHE_SIZE;
+                }
+            };
+
 
     /**
      * Thrown when a recurrence string provided can not be parsed according
@@ -518,6 +542,272 @@ public class EventRecurrence {
      * @param recur The recurrence rule to parse (in un-folded form).
      */
     public void parse(String recur) {
+        EventRecurrence cached;
+        synchronized (sParseCache) {
+            cached = sParseCache.get(recur);
+        }
+        if (cached != null) {
+            copyParsedFields(cached);
+            return;
+        }
+
+        // Parse into a fresh object so that only the arrays set by this rule get cached.
+        EventRecurrence parsed = new EventRecurrence();
+        try {
+            if (!parsed.parseCommon(recur)) {
+                parsed.parseFull(recur);
+            }
+        } catch (RuntimeException e) {
+            // Parse again in place, leaving this object as the parser has always left it.
+            parseFull(recur);
+            throw e;
+        }
+        synchronized (sParseCache) {
+            sParseCache.put(recur, parsed);
+        }
+        copyParsedFields(parsed);
+    }
+
+    /** Drops all the rules cached by {@link #parse}. */
+    static void clearParseCache() {
+        synchronized (sParseCache) {
+            sParseCache.clear();
+        }
+    }
+
+    /**
+     * Copies the fields set by the parser from another recurrence, leaving startDate alone.
+     * Like the parser, this only replaces the arrays that are set in the other object; they are
+     * copied so the two objects never share them.
+     */
+    private void copyParsedFields(EventRecurrence other) {
+        freq = other.freq;
+        until = other.until;
+        count = other.count;
+        interval = other.interval;
+        wkst = other.wkst;
+
+        bysecondCount = other.bysecondCount;
+        if (other.bysecond != null) bysecond = other.bysecond.clone();
+        byminuteCount = other.byminuteCount;
+        if (other.byminute != null) byminute = other.byminute.clone();
+        byhourCount = other.byhourCount;
+        if (other.byhour != null) byhour = other.byhour.clone();
+        bydayCount = other.bydayCount;
+        if (other.byday != null) byday = other.byday.clone();
+        if (other.bydayNum != null) bydayNum = other.bydayNum.clone();
+        bymonthdayCount = other.bymonthdayCount;
+        if (other.bymonthday != null) bymonthday = other.bymonthday.clone();
+        byyeardayCount = other.byyeardayCount;
+        if (other.byyearday != null) byyearday = other.byyearday.clone();
+        byweeknoCount = other.byweeknoCount;
+        if (other.byweekno != null) byweekno = other.byweekno.clone();
+        bymonthCount = other.bymonthCount;
+        if (other.bymonth != null) bymonth = other.bymonth.clone();
+        bysetposCount = other.bysetposCount;
+        if (other.bysetpos != null) bysetpos = other.bysetpos.clone();
+    }
+
+    /**
+     * Parses the rules produced by the app and by most other calendars without splitting or
+     * upper-casing the string: upper-case FREQ, UNTIL, COUNT, INTERVAL, BYDAY and WKST parts
+     * only, each at most once.  Anything else, including input the full parser would reject
+     * or log about, makes this return false without touching any field, so the caller can
+     * fall back to {@link #parseFull}.  When it returns true the fields hold exactly what
+     * parseFull() would have produced.
+     *
+     * @param recur The recurrence rule to parse (in un-folded form).
+     * @return true if the rule was parsed.
+     */
+    boolean parseCommon(String recur) {
+        final int length = recur.length();
+        int parsedFreq = 0;
+        String parsedUntil = null;
+        int parsedCount = 0;
+        int parsedInterval = 0;
+        int parsedWkst = MO;
+        int[] parsedByday = null;
+        int[] parsedBydayNum = null;
+        int parseFlags = 0;
+
+        int start = 0;
+        while (start < length) {
+            int end = recur.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end == start) {
+                // empty part, e.g. ";;"
+                start = end + 1;
+                continue;
+            }
+            final int equalIndex = recur.indexOf('=', start);
+            if (equalIndex <= start || equalIndex >= end - 1) {
+                return false;
+            }
+            final int valueStart = equalIndex + 1;
+
+            final int flag;
+            if (recur.startsWith("FREQ", start) && equalIndex - start == 4) {
+                flag = PARSED_FREQ;
+                parsedFreq = parseFreq(recur, valueStart, end);
+                if (parsedFreq == 0) {
+                    return false;
+                }
+            } else if (recur.startsWith("UNTIL", start) && equalIndex - start == 5) {
+                flag = PARSED_UNTIL;
+                for (int i = valueStart; i < end; i++) {
+                    final char c = recur.charAt(i);
+                    if ((c < '0' || c > '9') && (c < 'A' || c > 'Z')) {
+                        return false;
+                    }
+                }
+                parsedUntil = recur.substring(valueStart, end);
+            } else if (recur.startsWith("COUNT", start) && equalIndex - start == 5) {
+                flag = PARSED_COUNT;
+                parsedCount = parseDigits(recur, valueStart, end);
+                if (parsedCount < 0) {
+                    return false;
+                }
+            } else if (recur.startsWith("INTERVAL", start) && equalIndex - start == 8) {
+                flag = PARSED_INTERVAL;
+                parsedInterval = parseDigits(recur, valueStart, end);
+                if (parsedInterval < 1) {
+                    return false;
+                }
+            } else if (recur.startsWith("BYDAY", start) && equalIndex - start == 5) {
+                flag = PARSED_BYDAY;
+                int entries = 1;
+                for (int i = valueStart; i < end; i++) {
+                    if (recur.charAt(i) == ',') {
+                        entries++;
+                    }
+                }
+                parsedByday = new int[entries];
+                parsedBydayNum = new int[entries];
+                int entryStart = valueStart;
+                for (int i = 0; i < entries; i++) {
+                    int entryEnd = recur.indexOf(',', entryStart);
+                    if (entryEnd < 0 || entryEnd > end) {
+                        entryEnd = end;
+                    }
+                    final int wdayStart = entryEnd - 2;
+                    if (wdayStart < entryStart) {
+                        return false;
+                    }
+                    if (wdayStart > entryStart) {
+                        final boolean negative = recur.charAt(entryStart) == '-';
+                        final int num = parseDigits(recur,
+                                negative ? entryStart + 1 : entryStart, wdayStart);
+                        if (num < 1 || num > 53) {
+                            return false;
+                        }
+                        parsedBydayNum[i] = negative ? -num : num;
+                    }
+                    final int wday = parseWeekday(recur, wdayStart, entryEnd);
+                    if (wday == 0) {
+                        return false;
+                    }
+                    parsedByday[i] = wday;
+                    entryStart = entryEnd + 1;
+                }
+            } else if (recur.startsWith("WKST", start) && equalIndex - start == 4) {
+                flag = PARSED_WKST;
+                parsedWkst = parseWeekday(recur, valueStart, end);
+                if (parsedWkst == 0) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            if ((parseFlags & flag) != 0) {
+                return false;
+            }
+            parseFlags |= flag;
+            start = end + 1;
+        }
+
+        if ((parseFlags & PARSED_FREQ) == 0
+                || (parseFlags & (PARSED_UNTIL | PARSED_COUNT)) == (PARSED_UNTIL | PARSED_COUNT)) {
+            return false;
+        }
+
+        resetFields();
+        freq = parsedFreq;
+        until = parsedUntil;
+        count = parsedCount;
+        interval = parsedInterval;
+        wkst = parsedWkst;
+        if (parsedByday != null) {
+            byday = parsedByday;
+            bydayNum = parsedBydayNum;
+            bydayCount = parsedByday.length;
+        }
+        return true;
+    }
+
+    /**
+     * Parses one of the FREQ values without allocating.
+     *
+     * @return The FREQ constant, or 0 if the range is not a known value.
+     */
+    private static int parseFreq(String str, int start, int end) {
+        for (int freq = SECONDLY; freq <= YEARLY; freq++) {
+            final String name = FREQ_NAMES[freq];
+            if (end - start == name.length() && str.startsWith(name, start)) {
+                return freq;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parses a two-letter weekday ("SU", "MO", etc.) without allocating.
+     *
+     * @return The weekday constant, or 0 if the range is not a weekday.
+     */
+    private static int parseWeekday(String str, int start, int end) {
+        if (end - start != 2) {
+            return 0;
+        }
+        final char c0 = str.charAt(start);
+        final char c1 = str.charAt(start + 1);
+        switch (c0) {
+            case 'S': return c1 == 'U' ? SU : c1 == 'A' ? SA : 0;
+            case 'M': return c1 == 'O' ? MO : 0;
+            case 'T': return c1 == 'U' ? TU : c1 == 'H' ? TH : 0;
+            case 'W': return c1 == 'E' ? WE : 0;
+            case 'F': return c1 == 'R' ? FR : 0;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Parses an unsigned decimal number of at most 9 digits.
+     *
+     * @return The value, or -1 if the range is empty, too long or not all digits.
+     */
+    private static int parseDigits(String str, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Parses any rfc2445 recurrence rule string; the uncached general case of {@link #parse}.
+     *
+     * @param recur The recurrence rule to parse (in un-folded form).
+     */
+    void parseFull(String recur) {
         /*
          * From RFC 2445 section 4.3.10:
          *
@@ -18,6 +18,8 @@ package com.android.calendarcommon2;
 
 import android.util.Log;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -391,83 +393,284 @@ public class ICalendar {
         }
     }
 
+    /**
+     * Receives the components and properties of an iCalendar object as they
+     * are parsed by {@link #parse(Reader, ParseHandler)}.  The parser does not
+     * keep anything itself, so a handler that does not build a tree only needs
+     * as much memory as the current line.
+     */
+    public interface ParseHandler {
+        /**
+         * Called for each BEGIN line.
+         * @param name The name of the component that begins.
+         */
+        void onBeginComponent(String name) throws FormatException;
+
+        /**
+         * Called for each property of the current component.  The property is
+         * not reused by the parser, so the handler may keep it.
+         * @param property The property, with its parameters and value.
+         */
+        void onProperty(Property property) throws FormatException;
+
+        /**
+         * Called for each END line that matches the current component.
+         * @param name The name of the component that ends.
+         */
+        void onEndComponent(String name) throws FormatException;
+    }
+
+    /**
+     * Receives the components found by
+     * {@link #parseComponents(Reader, String, ComponentCallback)}.
+     */
+    public interface ComponentCallback {
+        /**
+         * Called once a requested component and all of its children have been
+         * parsed.  The component is not added to its parent.
+         * @param component The parsed component.
+         */
+        void onComponent(Component component) throws FormatException;
+    }
+
+    private static final int LINE_BEGIN = 0;
+    private static final int LINE_END = 1;
+    private static final int LINE_PROPERTY = 2;
+
     private static final class ParserState {
         // public int lineNumber = 0;
-        public String line; // TODO: just point to original text
+        public CharSequence line; // only valid until the next line is read
         public int index;
+        public String componentName; // result of a BEGIN or END line
+        public Property property; // result of a property line
     }
 
-    // use factory method
-    private ICalendar() {
+    /**
+     * Reads unfolded lines from a CharSequence or a Reader in one pass.
+     * It's supposed to be \r\n, but not everyone does that, so "\r\n", "\r"
+     * and "\n" all end a line.  We deal with line folding by joining a line
+     * with the next one if that starts with a space.  The RFC specifies
+     * "\r\n " to be folded, but we handle "\n " and "\r " too because we can
+     * get those.
+     */
+    private static final class LineReader {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final CharSequence mText;
+        private final Reader mReader;
+        private final char[] mBuffer;
+        private int mPosition;
+        private int mLimit;
+        private final StringBuilder mLine = new StringBuilder(128);
+
+        LineReader(CharSequence text) {
+            mText = text;
+            mReader = null;
+            mBuffer = null;
+            mLimit = text.length();
+        }
+
+        LineReader(Reader reader) {
+            mText = null;
+            mReader = reader;
+            mBuffer = new char[BUFFER_SIZE];
+        }
+
+        /**
+         * Returns the next unfolded line, possibly empty, or null at the end
+         * of the input.  The same builder is reused for every line.
+         */
+        StringBuilder readLine() throws IOException {
+            final StringBuilder line = mLine;
+            line.setLength(0);
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            for (; c >= 0; c = read()) {
+                if (c != '\r' && c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                if (c == '\r' && peek() == '\n') {
+                    ++mPosition;
+                }
+                if (peek() != ' ') {
+                    break;
+                }
+                // folded line, skip the space and keep going
+                ++mPosition;
+            }
+            return line;
+        }
+
+        private int read() throws IOException {
+            final int c = peek();
+            if (c >= 0) {
+                ++mPosition;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (mPosition < mLimit) {
+                return mText != null ? mText.charAt(mPosition) : mBuffer[mPosition];
+            }
+            if (mReader == null) {
+                return -1;
+            }
+            int count;
+            do {
+                count = mReader.read(mBuffer, 0, mBuffer.length);
+            } while (count == 0);
+            mPosition = 0;
+            mLimit = Math.max(count, 0);
+            return count > 0 ? mBuffer[0] : -1;
+        }
     }
 
-    // TODO: get rid of this -- handle all of the parsing in one pass through
-    // the text.
-    private static String normalizeText(String text) {
-        // it's supposed to be \r\n, but not everyone does that
-        text = text.replaceAll("\r\n", "\n");
-        text = text.replaceAll("\r", "\n");
+    /**
+     * Builds the component tree returned by
+     * {@link #parseComponent(Component, String)}.
+     */
+    private static final class TreeBuilder implements ParseHandler {
+        private Component mRoot;
+        private Component mCurrent;
+
+        TreeBuilder(Component component) {
+            mRoot = component;
+            mCurrent = component;
+        }
+
+        @Override
+        public void onBeginComponent(String name) {
+            Component child = new Component(name, mCurrent);
+            if (mCurrent != null) {
+                mCurrent.addChild(child);
+            }
+            mCurrent = child;
+            // if the provided component was null, we will return the root
+            if (mRoot == null) {
+                mRoot = child;
+            }
+        }
 
-        // we deal with line folding, by replacing all "\n " strings
-        // with nothing.  The RFC specifies "\r\n " to be folded, but
-        // we handle "\n " and "\r " too because we can get those.
-        text = text.replaceAll("\n ", "");
+        @Override
+        public void onProperty(Property property) {
+            mCurrent.addProperty(property);
+        }
 
-        return text;
+        @Override
+        public void onEndComponent(String name) {
+            mCurrent = mCurrent.getParent();
+        }
     }
 
     /**
-     * Parses text into an iCalendar component.  Parses into the provided
-     * component, if not null, or parses into a new component.  In the latter
-     * case, expects a BEGIN as the first line.  Returns the provided or newly
-     * created top-level component.
+     * Hands out every component with the requested name, with its children,
+     * as soon as its END has been parsed.  The enclosing components keep only
+     * their own properties, so {@link Component#getParent()} stays useful.
      */
-    // TODO: use an index into the text, so we can make this a recursive
-    // function?
-    private static Component parseComponentImpl(Component component,
-                                                String text)
-            throws FormatException {
-        Component current = component;
+    private static final class ComponentSplitter implements ParseHandler {
+        private final String mName;
+        private final ComponentCallback mCallback;
+        private Component mCurrent;
+        private Component mFound;
+
+        ComponentSplitter(String name, ComponentCallback callback) {
+            mName = name;
+            mCallback = callback;
+        }
+
+        @Override
+        public void onBeginComponent(String name) {
+            Component child = new Component(name, mCurrent);
+            if (mFound != null) {
+                mCurrent.addChild(child);
+            } else if (mName.equals(name)) {
+                mFound = child;
+            }
+            mCurrent = child;
+        }
+
+        @Override
+        public void onProperty(Property property) {
+            mCurrent.addProperty(property);
+        }
+
+        @Override
+        public void onEndComponent(String name) throws FormatException {
+            Component component = mCurrent;
+            mCurrent = component.getParent();
+            if (component == mFound) {
+                mFound = null;
+                mCallback.onComponent(component);
+            }
+        }
+    }
+
+    // use factory method
+    private ICalendar() {
+    }
+
+    /**
+     * Parses the lines of the reader in a single pass, passing components and
+     * properties to the handler.  Lines that cannot be parsed are skipped, but
+     * exceptions thrown by the handler are propagated.
+     * @param open The names of the components that are open before the first
+     * line, outermost first.  Kept up to date while parsing, so that an END
+     * must match the innermost open component and properties must be within
+     * one.
+     */
+    private static void parseImpl(LineReader reader, ParseHandler handler,
+                                  ArrayList<String> open)
+            throws FormatException, IOException {
         ParserState state = new ParserState();
         state.index = 0;
 
-        // split into lines
-        String[] lines = text.split("\n");
-
         // each line is of the format:
         // name *(";" param) ":" value
-        for (String line : lines) {
+        StringBuilder line;
+        while ((line = reader.readLine()) != null) {
+            if (line.length() == 0) {
+                continue;
+            }
+            final int type;
             try {
-                current = parseLine(line, state, current);
-                // if the provided component was null, we will return the root
-                // NOTE: in this case, if the first line is not a BEGIN, a
-                // FormatException will get thrown.   
-                if (component == null) {
-                    component = current;
-                }
+                type = parseLine(line, state, open);
             } catch (FormatException fe) {
                 if (false) {
                     Log.v(TAG, "Cannot parse " + line, fe);
                 }
                 // for now, we ignore the parse error.  Google Calendar seems
                 // to be emitting some misformatted iCalendar objects.
+                continue;
+            }
+
+            if (type == LINE_BEGIN) {
+                open.add(state.componentName);
+                handler.onBeginComponent(state.componentName);
+            } else if (type == LINE_END) {
+                open.remove(open.size() - 1);
+                handler.onEndComponent(state.componentName);
+            } else {
+                handler.onProperty(state.property);
+                state.property = null;
             }
-            continue;
         }
-        return component;
     }
 
     /**
-     * Parses a line into the provided component.  Creates a new component if
-     * the line is a BEGIN, adding the newly created component to the provided
-     * parent.  Returns whatever component is the current one (to which new
-     * properties will be added) in the parse.
+     * Parses a line.  For a BEGIN or END line, stores the name of the
+     * component in the state; otherwise stores the new property.  Only the
+     * name, the parameters and the value are copied out of the line.
+     * @return One of LINE_BEGIN, LINE_END or LINE_PROPERTY.
      */
-    private static Component parseLine(String line, ParserState state,
-                                       Component component)
+    private static int parseLine(CharSequence line, ParserState state,
+                                 ArrayList<String> open)
             throws FormatException {
         state.line = line;
-        int len = state.line.length();
+        int len = line.length();
 
         // grab the name
         char c = 0;
@@ -477,35 +680,28 @@ public class ICalendar {
                 break;
             }
         }
-        String name = line.substring(0, state.index);
+        final int nameLength = state.index;
 
-        if (component == null) {
-            if (!Component.BEGIN.equals(name)) {
-                throw new FormatException("Expected BEGIN");
-            }
+        boolean begin = nameEquals(line, nameLength, Component.BEGIN);
+        if (open.isEmpty() && !begin) {
+            throw new FormatException("Expected BEGIN");
         }
 
-        Property property;
-        if (Component.BEGIN.equals(name)) {
+        if (begin) {
             // start a new component
-            String componentName = extractValue(state);
-            Component child = new Component(componentName, component);
-            if (component != null) {
-                component.addChild(child);
-            }
-            return child;
-        } else if (Component.END.equals(name)) {
+            state.componentName = extractValue(state);
+            return LINE_BEGIN;
+        } else if (nameEquals(line, nameLength, Component.END)) {
             // finish the current component
             String componentName = extractValue(state);
-            if (component == null ||
-                    !componentName.equals(component.getName())) {
+            if (!componentName.equals(open.get(open.size() - 1))) {
                 throw new FormatException("Unexpected END " + componentName);
             }
-            return component.getParent();
-        } else {
-            property = new Property(name);
+            state.componentName = componentName;
+            return LINE_END;
         }
 
+        Property property = new Property(line.subSequence(0, nameLength).toString());
         if (c == ';') {
             Parameter parameter = null;
             while ((parameter = extractParameter(state)) != null) {
@@ -514,8 +710,20 @@ public class ICalendar {
         }
         String value = extractValue(state);
         property.setValue(value);
-        component.addProperty(property);
-        return component;
+        state.property = property;
+        return LINE_PROPERTY;
+    }
+
+    private static boolean nameEquals(CharSequence line, int length, String name) {
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (line.charAt(i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -524,12 +732,12 @@ public class ICalendar {
      */
     private static String extractValue(ParserState state)
             throws FormatException {
-        String line = state.line;
+        CharSequence line = state.line;
         if (state.index >= line.length() || line.charAt(state.index) != ':') {
             throw new FormatException("Expected ':' before end of line in "
                     + line);
         }
-        String value = line.substring(state.index + 1);
+        String value = line.subSequence(state.index + 1, line.length()).toString();
         state.index = line.length() - 1;
         return value;
     }
@@ -540,7 +748,7 @@ public class ICalendar {
      */
     private static Parameter extractParameter(ParserState state)
             throws FormatException {
-        String text = state.line;
+        CharSequence text = state.line;
         int len = text.length();
         Parameter parameter = null;
         int startIndex = -1;
@@ -553,8 +761,8 @@ public class ICalendar {
                         throw new FormatException("Expected '=' within "
                                 + "parameter in " + text);
                     }
-                    parameter.value = text.substring(equalIndex + 1,
-                                                     state.index);
+                    parameter.value = text.subSequence(equalIndex + 1,
+                                                       state.index).toString();
                 }
                 return parameter; // may be null
             } else if (c == ';') {
@@ -563,8 +771,8 @@ public class ICalendar {
                         throw new FormatException("Expected '=' within "
                                 + "parameter in " + text);
                     }
-                    parameter.value = text.substring(equalIndex + 1,
-                                                     state.index);
+                    parameter.value = text.subSequence(equalIndex + 1,
+                                                       state.index).toString();
                     return parameter;
                 } else {
                     parameter = new Parameter();
@@ -576,7 +784,7 @@ public class ICalendar {
                     throw new FormatException("Expected ';' before '=' in "
                             + text);
                 }
-                parameter.name = text.substring(startIndex + 1, equalIndex);
+                parameter.name = text.subSequence(startIndex + 1, equalIndex).toString();
             } else if (c == '"') {
                 if (parameter == null) {
                     throw new FormatException("Expected parameter before '\"' in " + text);
@@ -587,11 +795,14 @@ public class ICalendar {
                 if (state.index > equalIndex + 1) {
                     throw new FormatException("Parameter value cannot contain a '\"' in " + text);
                 }
-                final int endQuote = text.indexOf('"', state.index + 1);
-                if (endQuote < 0) {
+                int endQuote = state.index + 1;
+                while (endQuote < len && text.charAt(endQuote) != '"') {
+                    ++endQuote;
+                }
+                if (endQuote >= len) {
                     throw new FormatException("Expected closing '\"' in " + text);
                 }
-                parameter.value = text.substring(state.index + 1, endQuote);
+                parameter.value = text.subSequence(state.index + 1, endQuote).toString();
                 state.index = endQuote + 1;
                 return parameter;
             }
@@ -616,6 +827,24 @@ public class ICalendar {
         return calendar;
     }
 
+    /**
+     * Parses the text of the reader into an iCalendar object.  The top-level
+     * component must be of type VCALENDAR.
+     * @param reader The reader to parse, not closed by this method.
+     * @return The top-level VCALENDAR component.
+     * @throws FormatException Thrown if the text could not be parsed into an
+     * iCalendar VCALENDAR object.
+     * @throws IOException Thrown if the reader fails.
+     */
+    public static Component parseCalendar(Reader reader)
+            throws FormatException, IOException {
+        Component calendar = parseComponent(null, reader);
+        if (calendar == null || !Component.VCALENDAR.equals(calendar.getName())) {
+            throw new FormatException("Expected " + Component.VCALENDAR);
+        }
+        return calendar;
+    }
+
     /**
      * Parses the provided text into an iCalendar event.  The top-level
      * component must be of type VEVENT.
@@ -654,7 +883,87 @@ public class ICalendar {
      */
     public static Component parseComponent(Component component, String text)
         throws FormatException {
-        text = normalizeText(text);
-        return parseComponentImpl(component, text);
+        TreeBuilder builder = new TreeBuilder(component);
+        try {
+            parseImpl(new LineReader(text), builder, openComponents(component));
+        } catch (IOException e) {
+            // not thrown when reading from a CharSequence
+            throw new AssertionError(e);
+        }
+        return builder.mRoot;
+    }
+
+    /**
+     * Parses the text of the reader, adding to the provided component.
+     * @param component The component to which the parsed iCalendar data should
+     * be added.
+     * @param reader The reader to parse, not closed by this method.
+     * @return The top-level component.
+     * @throws FormatException Thrown if the text could not be parsed as an
+     * iCalendar object.
+     * @throws IOException Thrown if the reader fails.
+     */
+    public static Component parseComponent(Component component, Reader reader)
+            throws FormatException, IOException {
+        TreeBuilder builder = new TreeBuilder(component);
+        parseImpl(new LineReader(reader), builder, openComponents(component));
+        return builder.mRoot;
+    }
+
+    /**
+     * Parses the provided text without building a component tree, passing
+     * every component and property to the handler as it is parsed.
+     * @param text The text to be parsed.
+     * @param handler The handler that receives the parsed data.
+     * @throws FormatException Thrown by the handler.
+     */
+    public static void parse(CharSequence text, ParseHandler handler)
+            throws FormatException {
+        try {
+            parseImpl(new LineReader(text), handler, new ArrayList<String>());
+        } catch (IOException e) {
+            // not thrown when reading from a CharSequence
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Parses the text of the reader without building a component tree,
+     * passing every component and property to the handler as it is parsed.
+     * @param reader The reader to parse, not closed by this method.
+     * @param handler The handler that receives the parsed data.
+     * @throws FormatException Thrown by the handler.
+     * @throws IOException Thrown if the reader fails.
+     */
+    public static void parse(Reader reader, ParseHandler handler)
+            throws FormatException, IOException {
+        parseImpl(new LineReader(reader), handler, new ArrayList<String>());
+    }
+
+    /**
+     * Parses the text of the reader, passing every component with the given
+     * name (e.g., each VEVENT of a VCALENDAR) to the callback as soon as it
+     * has been parsed.  Only one such component is in memory at a time.
+     * @param reader The reader to parse, not closed by this method.
+     * @param name The name of the components to hand out.
+     * @param callback The callback that receives the components.
+     * @throws FormatException Thrown by the callback.
+     * @throws IOException Thrown if the reader fails.
+     */
+    public static void parseComponents(Reader reader, String name,
+                                       ComponentCallback callback)
+            throws FormatException, IOException {
+        parse(reader, new ComponentSplitter(name, callback));
+    }
+
+    /**
+     * Returns the names of the component and its ancestors, outermost first.
+     */
+    private static ArrayList<String> openComponents(Component component) {
+        ArrayList<String> open = new ArrayList<String>();
+        for (Component c = component; c != null; c = c.getParent()) {
+            open.add(0, c.getName());
+        }
+        return open;
     }
 }
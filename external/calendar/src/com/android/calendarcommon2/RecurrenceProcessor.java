@@ -20,6 +20,7 @@ package com.android.calendarcommon2;
 import com.android.kr_common.Time;
 import android.util.Log;
 
+import java.util.Arrays;
 import java.util.TreeSet;
 
 public class RecurrenceProcessor
@@ -30,9 +31,55 @@ public class RecurrenceProcessor
     private StringBuilder mStringBuilder = new StringBuilder();
     private Time mGenerated = new Time(Time.TIMEZONE_UTC);
     private DaySet mDays = new DaySet(false);
+    private SortedLongArray mDateValues = new SortedLongArray();
     // Give up after this many loops.  This is roughly 1 second of expansion.
     private static final int MAX_ALLOWED_ITERATIONS = 2000;
 
+    // Why the expansion of a single rule stopped.
+    private static final int EXPAND_RANGE_END = 0;  // reached the end of the range
+    private static final int EXPAND_RULE_END = 1;   // passed UNTIL or reached COUNT
+    private static final int EXPAND_GAVE_UP = 2;    // hit MAX_ALLOWED_ITERATIONS
+
+    // Span of the first window used by the streaming expansion; it doubles
+    // after every window up to MAX_WINDOW_MILLIS.
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long MAX_WINDOW_MILLIS = 8 * 366 * DAY_MILLIS;
+
+    /**
+     * Receives occurrences from
+     * {@link #expand(Time, RecurrenceSet, long, long, OccurrenceVisitor)}
+     * in ascending order.
+     */
+    public interface OccurrenceVisitor {
+        /**
+         * @param millis the occurrence, in UTC milliseconds
+         * @return true to keep expanding, false to stop
+         */
+        boolean onOccurrence(long millis);
+    }
+
+    /**
+     * Where the streaming expansion of one rule stopped, so that the next
+     * window resumes from there instead of expanding again from DTSTART.
+     */
+    private static class RuleCursor {
+        // start of the period to generate next, in the event's timezone
+        final Time iterator;
+        // whether DTSTART counts toward COUNT; decided once for the whole range
+        final boolean countDtstart;
+        boolean started;
+        // occurrences counted before the period at iterator
+        int count;
+        int failsafe;
+        // EXPAND_RULE_END or EXPAND_GAVE_UP once the rule is done
+        int result = EXPAND_RANGE_END;
+
+        RuleCursor(String timezone, boolean countDtstart) {
+            iterator = new Time(timezone);
+            this.countDtstart = countDtstart;
+        }
+    }
+
     public RecurrenceProcessor()
     {
     }
@@ -656,12 +703,13 @@ bysetpos:
             rangeEndDateValue = Long.MAX_VALUE;
         }
 
-        TreeSet<Long> dtSet = new TreeSet<Long>();
+        SortedLongArray dtSet = mDateValues;
+        dtSet.clear();
 
         if (recur.rrules != null) {
             for (EventRecurrence rrule : recur.rrules) {
-                expand(dtstart, rrule, rangeStartDateValue,
-                        rangeEndDateValue, true /* add */, dtSet);
+                expandRule(dtstart, rrule, rangeStartDateValue,
+                        rangeEndDateValue, true /* add */, dtSet, null);
             }
         }
         if (recur.rdates != null) {
@@ -675,8 +723,8 @@ bysetpos:
         }
         if (recur.exrules != null) {
             for (EventRecurrence exrule : recur.exrules) {
-                expand(dtstart, exrule, rangeStartDateValue,
-                        rangeEndDateValue, false /* remove */, dtSet);
+                expandRule(dtstart, exrule, rangeStartDateValue,
+                        rangeEndDateValue, false /* remove */, dtSet, null);
             }
         }
         if (recur.exdates != null) {
@@ -700,14 +748,222 @@ bysetpos:
         // ensure that the dates are valid.
         int len = dtSet.size();
         long[] dates = new long[len];
-        int i = 0;
-        for (Long val: dtSet) {
-            setTimeFromLongValue(mIterator, val);
-            dates[i++] = mIterator.toMillis(true /* ignore isDst */);
+        for (int i = 0; i < len; i++) {
+            setTimeFromLongValue(mIterator, dtSet.get(i));
+            dates[i] = mIterator.toMillis(true /* ignore isDst */);
         }
         return dates;
     }
 
+    /**
+     * Expands the recurrence like {@link #expand(Time, RecurrenceSet, long, long)}
+     * but hands each occurrence to the visitor in ascending order instead of
+     * collecting them all first.  The range is expanded in windows that
+     * double in size, so a visitor that stops early (for example after the
+     * first few occurrences) only pays for the windows it actually needed.
+     *
+     * Unlike the array version, an open-ended recurrence with no range end
+     * does not throw; the expansion continues until the visitor returns
+     * false or MAX_ALLOWED_ITERATIONS periods have been generated.
+     *
+     * @param dtstart a Time object representing the first occurrence
+     * @param recur the recurrence rules, including RRULE, RDATES, EXRULE, and
+     * EXDATES
+     * @param rangeStartMillis the beginning of the range to expand, in UTC
+     * milliseconds
+     * @param rangeEndMillis the non-inclusive end of the range to expand, in
+     * UTC milliseconds; use -1 for the entire range.
+     * @param visitor receives the occurrences, in UTC milliseconds
+     * @throws DateException
+     */
+    public void expand(Time dtstart,
+            RecurrenceSet recur,
+            long rangeStartMillis,
+            long rangeEndMillis,
+            OccurrenceVisitor visitor) throws DateException {
+        String timezone = dtstart.timezone;
+        mIterator.clear(timezone);
+        mGenerated.clear(timezone);
+
+        long lastRdate = Long.MIN_VALUE;
+        if (recur.rdates != null) {
+            for (long dt : recur.rdates) {
+                lastRdate = Math.max(lastRdate, dt);
+            }
+        }
+
+        // Each rule keeps its position and running COUNT across windows.  Like
+        // the array version, DTSTART counts toward an RRULE's COUNT only when it
+        // falls inside the whole range, whichever window it lands in.
+        mIterator.set(rangeStartMillis);
+        long rangeStartDateValue = normDateTimeComparisonValue(mIterator);
+        long rangeEndDateValue = Long.MAX_VALUE;
+        if (rangeEndMillis != -1) {
+            mIterator.set(rangeEndMillis);
+            rangeEndDateValue = normDateTimeComparisonValue(mIterator);
+        }
+        unsafeNormalize(dtstart);
+        long dtstartDateValue = normDateTimeComparisonValue(dtstart);
+        boolean dtstartInRange = dtstartDateValue >= rangeStartDateValue
+                && dtstartDateValue < rangeEndDateValue;
+        RuleCursor[] rruleCursors = newCursors(recur.rrules, timezone, dtstartInRange);
+        RuleCursor[] exruleCursors = newCursors(recur.exrules, timezone, false);
+
+        SortedLongArray dtSet = mDateValues;
+        long windowStart = rangeStartMillis;
+        long windowSpan = getInitialWindowMillis(recur);
+        while (true) {
+            long windowEnd = windowStart + windowSpan;
+            if (windowEnd < windowStart) {
+                windowEnd = Long.MAX_VALUE;
+            }
+            if (rangeEndMillis != -1 && windowEnd > rangeEndMillis) {
+                windowEnd = rangeEndMillis;
+            }
+
+            mIterator.set(windowStart);
+            long windowStartDateValue = normDateTimeComparisonValue(mIterator);
+            mIterator.set(windowEnd);
+            long windowEndDateValue = normDateTimeComparisonValue(mIterator);
+
+            dtSet.clear();
+            boolean rulesEnded = true;
+            if (recur.rrules != null) {
+                for (int i = 0; i < recur.rrules.length; i++) {
+                    int result = expandRule(dtstart, recur.rrules[i], windowStartDateValue,
+                            windowEndDateValue, true /* add */, dtSet, rruleCursors[i]);
+                    if (result == EXPAND_RANGE_END) {
+                        rulesEnded = false;
+                    }
+                }
+            }
+            if (recur.rdates != null) {
+                for (long dt : recur.rdates) {
+                    mIterator.set(dt);
+                    long dtvalue = normDateTimeComparisonValue(mIterator);
+                    if (dtvalue >= windowStartDateValue && dtvalue < windowEndDateValue) {
+                        dtSet.add(dtvalue);
+                    }
+                }
+            }
+            if (!dtSet.isEmpty() && recur.exrules != null) {
+                for (int i = 0; i < recur.exrules.length; i++) {
+                    expandRule(dtstart, recur.exrules[i], windowStartDateValue,
+                            windowEndDateValue, false /* remove */, dtSet, exruleCursors[i]);
+                }
+            }
+            if (!dtSet.isEmpty() && recur.exdates != null) {
+                for (long dt : recur.exdates) {
+                    mIterator.set(dt);
+                    dtSet.remove(normDateTimeComparisonValue(mIterator));
+                }
+            }
+
+            int len = dtSet.size();
+            for (int i = 0; i < len; i++) {
+                setTimeFromLongValue(mIterator, dtSet.get(i));
+                if (!visitor.onOccurrence(mIterator.toMillis(true /* ignore isDst */))) {
+                    return;
+                }
+            }
+
+            if (windowEnd == rangeEndMillis || windowEnd == Long.MAX_VALUE) {
+                return;
+            }
+            if (rulesEnded && windowEnd > lastRdate) {
+                return;
+            }
+            windowStart = windowEnd;
+            windowSpan = Math.min(windowSpan * 2, MAX_WINDOW_MILLIS);
+        }
+    }
+
+    private static RuleCursor[] newCursors(EventRecurrence[] rules, String timezone,
+            boolean countDtstart) {
+        if (rules == null) {
+            return null;
+        }
+        RuleCursor[] cursors = new RuleCursor[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            cursors[i] = new RuleCursor(timezone, countDtstart);
+        }
+        return cursors;
+    }
+
+    /**
+     * Returns up to {@code count} occurrences at or after the given time.
+     *
+     * @param dtstart a Time object representing the first occurrence
+     * @param recur the recurrence
+     * @param startMillis the earliest occurrence wanted, in UTC milliseconds
+     * @param count the maximum number of occurrences to return
+     * @return the occurrences in ascending order, never null
+     * @throws DateException
+     */
+    public long[] getNextOccurrences(Time dtstart, RecurrenceSet recur,
+            long startMillis, final int count) throws DateException {
+        final long[] result = new long[Math.max(count, 0)];
+        final int[] found = new int[1];
+        if (count > 0) {
+            expand(dtstart, recur, startMillis, -1, new OccurrenceVisitor() {
+                @Override
+                public boolean onOccurrence(long millis) {
+                    result[found[0]++] = millis;
+                    return found[0] < count;
+                }
+            });
+        }
+        return found[0] == count ? result : Arrays.copyOf(result, found[0]);
+    }
+
+    /**
+     * Returns the first occurrence strictly after the given time.
+     *
+     * @param dtstart a Time object representing the first occurrence
+     * @param recur the recurrence
+     * @param afterMillis the time to search from, in UTC milliseconds
+     * @return the occurrence in UTC milliseconds, or -1 if there is none
+     * @throws DateException
+     */
+    public long getFirstOccurrenceAfter(Time dtstart, RecurrenceSet recur,
+            final long afterMillis) throws DateException {
+        final long[] first = { -1 };
+        expand(dtstart, recur, afterMillis, -1, new OccurrenceVisitor() {
+            @Override
+            public boolean onOccurrence(long millis) {
+                if (millis > afterMillis) {
+                    first[0] = millis;
+                    return false;
+                }
+                return true;
+            }
+        });
+        return first[0];
+    }
+
+    /**
+     * Picks the first streaming window so that it usually holds a handful of
+     * occurrences of the coarsest rule.
+     */
+    private static long getInitialWindowMillis(RecurrenceSet recur) {
+        int freq = EventRecurrence.DAILY;
+        if (recur.rrules != null) {
+            for (EventRecurrence rrule : recur.rrules) {
+                freq = Math.max(freq, rrule.freq);
+            }
+        }
+        switch (freq) {
+            case EventRecurrence.WEEKLY:
+                return 31 * DAY_MILLIS;
+            case EventRecurrence.MONTHLY:
+                return 366 * DAY_MILLIS;
+            case EventRecurrence.YEARLY:
+                return 4 * 366 * DAY_MILLIS;
+            default:
+                return 7 * DAY_MILLIS;
+        }
+    }
+
     /**
      * Run the recurrence algorithm.  Processes events defined in the local
      * timezone of the event.  Return a list of iCalendar DATETIME
@@ -736,9 +992,48 @@ bysetpos:
             long rangeEndDateValue,
             boolean add,
             TreeSet<Long> out) throws DateException {
+        SortedLongArray values = new SortedLongArray(out.size() + 16);
+        if (!add) {
+            for (long value : out) {
+                values.add(value);
+            }
+        }
+        expandRule(dtstart, r, rangeStartDateValue, rangeEndDateValue, add, values, null);
+        if (!add) {
+            out.clear();
+        }
+        for (int i = 0; i < values.size(); i++) {
+            out.add(values.get(i));
+        }
+    }
+
+    /**
+     * Same as {@link #expand(Time, EventRecurrence, long, long, boolean, TreeSet)}
+     * but fills a primitive sorted buffer.
+     *
+     * @param cursor null to expand from DTSTART; otherwise the position and
+     * running count to resume from, updated for the next window
+     * @return why the expansion stopped: EXPAND_RANGE_END, EXPAND_RULE_END or
+     * EXPAND_GAVE_UP
+     */
+    private int expandRule(Time dtstart,
+            EventRecurrence r,
+            long rangeStartDateValue,
+            long rangeEndDateValue,
+            boolean add,
+            SortedLongArray out,
+            RuleCursor cursor) throws DateException {
+        if (cursor != null && cursor.result != EXPAND_RANGE_END) {
+            return cursor.result;
+        }
+        boolean resume = cursor != null && cursor.started;
+        int result = EXPAND_RANGE_END;
         unsafeNormalize(dtstart);
         long dtstartDateValue = normDateTimeComparisonValue(dtstart);
-        int count = 0;
+        boolean countDtstart = cursor != null ? cursor.countDtstart
+                : add && dtstartDateValue >= rangeStartDateValue
+                        && dtstartDateValue < rangeEndDateValue;
+        int count = resume ? cursor.count : 0;
 
         // add the dtstart instance to the recurrence, if within range.
         // For example, if dtstart is Mar 1, 2010 and the range is Jan 1 - Apr 1,
@@ -749,13 +1044,20 @@ bysetpos:
         //
         // NOTE: if DTSTART is not synchronized with the recurrence rule, the first instance
         //       we return will not fit the RRULE pattern.
-        if (add && dtstartDateValue >= rangeStartDateValue
-                && dtstartDateValue < rangeEndDateValue) {
-            out.add(dtstartDateValue);
-            ++count;
+        //
+        // When streaming, countDtstart covers the whole range rather than this
+        // window, and the count carried in the cursor already includes it.
+        if (countDtstart) {
+            if (dtstartDateValue >= rangeStartDateValue
+                    && dtstartDateValue < rangeEndDateValue) {
+                out.add(dtstartDateValue);
+            }
+            if (!resume) {
+                ++count;
+            }
         }
 
-        Time iterator = mIterator;
+        Time iterator = cursor != null ? cursor.iterator : mIterator;
         Time until = mUntil;
         StringBuilder sb = mStringBuilder;
         Time generated = mGenerated;
@@ -818,16 +1120,18 @@ bysetpos:
             int bysecondCount = r.bysecondCount;
             boolean usebysecond = useBYX(freq, EventRecurrence.SECONDLY, bysecondCount);
 
-            // initialize the iterator
-            iterator.set(dtstart);
-            if (freqField == Time.MONTH) {
-                if (useDays) {
-                    // if it's monthly, and we're going to be generating
-                    // days, set the iterator day field to 1 because sometimes
-                    // we'll skip months if it's greater than 28.
-                    // XXX Do we generate days for MONTHLY w/ BYHOUR?  If so,
-                    // we need to do this then too.
-                    iterator.monthDay = 1;
+            // initialize the iterator, unless resuming where the last window stopped
+            if (!resume) {
+                iterator.set(dtstart);
+                if (freqField == Time.MONTH) {
+                    if (useDays) {
+                        // if it's monthly, and we're going to be generating
+                        // days, set the iterator day field to 1 because sometimes
+                        // we'll skip months if it's greater than 28.
+                        // XXX Do we generate days for MONTHLY w/ BYHOUR?  If so,
+                        // we need to do this then too.
+                        iterator.monthDay = 1;
+                    }
                 }
             }
 
@@ -864,13 +1168,20 @@ bysetpos:
 
             // go until the end of the range or we're done with this event
             boolean eventEnded = false;
-            int failsafe = 0; // Avoid infinite loops
+            int failsafe = resume ? cursor.failsafe : 0; // Avoid infinite loops
+            // count and failsafe at the start of the current period, where a
+            // cursor resumes if the period runs past the range end
+            int periodCount = count;
+            int periodFailsafe = failsafe;
             events: {
                 while (true) {
                     int monthIndex = 0;
+                    periodCount = count;
+                    periodFailsafe = failsafe;
                     if (failsafe++ > MAX_ALLOWED_ITERATIONS) { // Give up after about 1 second of processing
                         Log.w(TAG, "Recurrence processing stuck with r=" + r + " rangeStart="
                                   + rangeStartDateValue + " rangeEnd=" + rangeEndDateValue);
+                        result = EXPAND_GAVE_UP;
                         break;
                     }
 
@@ -1007,9 +1318,7 @@ bysetpos:
                                                 // If dtstartDateValue is outside the range or add
                                                 // is not set, then we must increment count here.
                                                 if (!(dtstartDateValue == genDateValue
-                                                        && add
-                                                        && dtstartDateValue >= rangeStartDateValue
-                                                        && dtstartDateValue < rangeEndDateValue)) {
+                                                        && countDtstart)) {
                                                     ++count;
                                                 }
                                                 // one reason we can stop is that
@@ -1021,6 +1330,7 @@ bysetpos:
                                                             + " generated="
                                                             + genDateValue);
                                                     }
+                                                    result = EXPAND_RULE_END;
                                                     break events;
                                                 }
                                                 // or we're past rangeEnd
@@ -1030,6 +1340,10 @@ bysetpos:
                                                                 + rangeEndDateValue
                                                                 + " generated=" + generated);
                                                     }
+                                                    if (cursor != null) {
+                                                        cursor.count = periodCount;
+                                                        cursor.failsafe = periodFailsafe;
+                                                    }
                                                     break events;
                                                 }
 
@@ -1046,6 +1360,7 @@ bysetpos:
                                                 // another is that count is high enough
                                                 if (r.count > 0 && r.count == count) {
                                                     //Log.i(TAG, "stopping b/c count=" + count);
+                                                    result = EXPAND_RULE_END;
                                                     break events;
                                                 }
                                             }
@@ -1124,6 +1439,11 @@ bysetpos:
         } catch (Exception e) {
             e.printStackTrace();
         }
+        if (cursor != null) {
+            cursor.started = true;
+            cursor.result = result;
+        }
+        return result;
     }
 
     /**
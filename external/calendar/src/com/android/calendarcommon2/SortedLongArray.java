@@ -0,0 +1,97 @@
+package com.android.calendarcommon2;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of primitive longs backed by a growable array.  Used by
+ * {@link RecurrenceProcessor} instead of a boxed TreeSet so that adding and
+ * subtracting (EXRULE/EXDATE) date values does not allocate per element.
+ * Inserts are O(n) in the worst case but expansion generates values in
+ * nearly ascending order, so they are usually appends.
+ */
+class SortedLongArray {
+    private long[] mValues;
+    private int mSize;
+
+    SortedLongArray() {
+        this(16);
+    }
+
+    SortedLongArray(int initialCapacity) {
+        mValues = new long[Math.max(initialCapacity, 1)];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    long get(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mValues[index];
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Adds the value if not already present.
+     * @return true if the set changed
+     */
+    boolean add(long value) {
+        // fast path: values are usually generated in ascending order
+        if (mSize == 0 || mValues[mSize - 1] < value) {
+            ensureCapacity(mSize + 1);
+            mValues[mSize++] = value;
+            return true;
+        }
+        int index = indexOf(value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -(index + 1);
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * Removes the value if present.
+     * @return true if the set changed
+     */
+    boolean remove(long value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        return true;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    private int indexOf(long value) {
+        return Arrays.binarySearch(mValues, 0, mSize, value);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mValues.length) {
+            mValues = Arrays.copyOf(mValues, Math.max(capacity, mValues.length * 2));
+        }
+    }
+}
@@ -23,6 +23,7 @@ import android.test.suitebuilder.annotation.Suppress;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
@@ -886,4 +887,58 @@ public class EventRecurrenceTest extends TestCase {
             assertTrue("Expected throw on " + rule, didThrow);
         }
     }
+
+    /**
+     * The common-rule parser must either decline a rule or produce exactly what the full
+     * parser produces.
+     */
+    @SmallTest
+    public void testParseCommonMatchesParseFull() {
+        final String[] extra = {
+            "FREQ=WEEKLY;BYDAY=MO,TU,WE,",                     // trailing comma
+            "FREQ=WEEKLY;BYDAY=,",
+            "FREQ=MONTHLY;BYDAY=-1SU;WKST=SU",
+            "FREQ=MONTHLY;BYDAY=053TH",
+            "FREQ=DAILY;INTERVAL=0",                            // forced to 1
+            "FREQ=DAILY;COUNT=0",
+            "FREQ=DAILY;COUNT=1;UNTIL=20120101",                // both COUNT and UNTIL
+            "freq=daily",
+        };
+        ArrayList<String> rules = new ArrayList<String>(Arrays.asList(GOOD_RRULES));
+        rules.addAll(Arrays.asList(extra));
+        for (String rule : rules) {
+            EventRecurrence common = new EventRecurrence();
+            if (!common.parseCommon(rule)) {
+                continue;
+            }
+            EventRecurrence full = new EventRecurrence();
+            full.parseFull(rule);
+            assertEquals(rule, full, common);
+            assertEquals(rule, full.toString(), common.toString());
+        }
+
+        for (String rule : BAD_RRULES) {
+            assertFalse(rule, new EventRecurrence().parseCommon(rule));
+        }
+    }
+
+    /**
+     * Rules served from the parse cache must not share state between callers.
+     */
+    @SmallTest
+    public void testParseCacheReturnsCopies() {
+        final String rule = "FREQ=WEEKLY;BYDAY=MO,TU;WKST=SU";
+        EventRecurrence.clearParseCache();
+
+        EventRecurrence first = new EventRecurrence();
+        first.parse(rule);
+        first.byday[0] = EventRecurrence.FR;
+        first.interval = 3;
+
+        EventRecurrence second = new EventRecurrence();
+        second.parse(rule);
+        assertEquals(EventRecurrence.MO, second.byday[0]);
+        assertEquals(0, second.interval);
+        assertNotSame(first.byday, second.byday);
+    }
 }
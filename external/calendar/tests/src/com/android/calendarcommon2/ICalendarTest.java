@@ -0,0 +1,110 @@
+package com.android.calendarcommon2;
+
+import junit.framework.TestCase;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ICalendarTest extends TestCase {
+
+    private static final String CALENDAR =
+            "BEGIN:VCALENDAR\r\n"
+            + "X-WR-CALNAME:Work\r\n"
+            + "BEGIN:VEVENT\r\n"
+            + "DTSTART;TZID=Europe/Berlin:20200101T100000\r\n"
+            + "SUMMARY:Folded\r\n"
+            + "  summary\r\n"
+            + "BEGIN:VALARM\r\n"
+            + "TRIGGER:-PT5M\r\n"
+            + "END:VALARM\r\n"
+            + "END:VEVENT\r\n"
+            + "BEGIN:VEVENT\n"
+            + "SUMMARY;LANGUAGE=\"en\":Second\r"
+            + "bad line\n"
+            + "END:VEVENT\n"
+            + "END:VCALENDAR\n";
+
+    @SmallTest
+    public void testParseCalendar() throws Exception {
+        ICalendar.Component calendar = ICalendar.parseCalendar(CALENDAR);
+        assertEquals("Work", calendar.getFirstProperty("X-WR-CALNAME").getValue());
+
+        List<ICalendar.Component> events = calendar.getComponents();
+        assertEquals(2, events.size());
+
+        ICalendar.Component first = events.get(0);
+        assertEquals("Folded summary", first.getFirstProperty("SUMMARY").getValue());
+        ICalendar.Property start = first.getFirstProperty(ICalendar.Property.DTSTART);
+        assertEquals("20200101T100000", start.getValue());
+        assertEquals("Europe/Berlin", start.getFirstParameter("TZID").value);
+        assertEquals(ICalendar.Component.VALARM, first.getComponents().get(0).getName());
+
+        ICalendar.Component second = events.get(1);
+        assertEquals("Second", second.getFirstProperty("SUMMARY").getValue());
+        assertEquals("en", second.getFirstProperty("SUMMARY").getFirstParameter("LANGUAGE").value);
+        // the malformed line is skipped
+        assertEquals(1, second.getPropertyNames().size());
+    }
+
+    @SmallTest
+    public void testParseReaderMatchesString() throws Exception {
+        String expected = ICalendar.parseCalendar(CALENDAR).toString();
+        assertEquals(expected,
+                ICalendar.parseCalendar(new StringReader(CALENDAR)).toString());
+    }
+
+    @SmallTest
+    public void testParseHandler() throws Exception {
+        final StringBuilder events = new StringBuilder();
+        ICalendar.parse(new StringReader(CALENDAR), new ICalendar.ParseHandler() {
+            @Override
+            public void onBeginComponent(String name) {
+                events.append('+').append(name).append(' ');
+            }
+
+            @Override
+            public void onProperty(ICalendar.Property property) {
+                events.append(property.getName()).append(' ');
+            }
+
+            @Override
+            public void onEndComponent(String name) {
+                events.append('-').append(name).append(' ');
+            }
+        });
+        assertEquals("+VCALENDAR X-WR-CALNAME +VEVENT DTSTART SUMMARY +VALARM TRIGGER"
+                + " -VALARM -VEVENT +VEVENT SUMMARY -VEVENT -VCALENDAR ", events.toString());
+    }
+
+    @SmallTest
+    public void testParseComponents() throws Exception {
+        final List<ICalendar.Component> events = new ArrayList<ICalendar.Component>();
+        ICalendar.parseComponents(new StringReader(CALENDAR), ICalendar.Component.VEVENT,
+                new ICalendar.ComponentCallback() {
+            @Override
+            public void onComponent(ICalendar.Component component) {
+                events.add(component);
+            }
+        });
+
+        assertEquals(2, events.size());
+        ICalendar.Component first = events.get(0);
+        assertEquals("Folded summary", first.getFirstProperty("SUMMARY").getValue());
+        assertEquals(1, first.getComponents().size());
+        // the events are not kept in the calendar, but its properties are
+        ICalendar.Component calendar = first.getParent();
+        assertNull(calendar.getComponents());
+        assertEquals("Work", calendar.getFirstProperty("X-WR-CALNAME").getValue());
+    }
+
+    @SmallTest
+    public void testUnexpectedEndIgnored() throws Exception {
+        ICalendar.Component event = ICalendar.parseEvent(
+                "BEGIN:VEVENT\nEND:VALARM\nSUMMARY:a\nEND:VEVENT\nSUMMARY:b\n");
+        assertEquals(1, event.getProperties("SUMMARY").size());
+        assertEquals("a", event.getFirstProperty("SUMMARY").getValue());
+    }
+}
@@ -27,6 +27,7 @@ import android.util.Log;
 import android.util.TimeFormatException;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.TreeSet;
 
 public class RecurrenceProcessorTest extends TestCase {
@@ -2417,6 +2418,145 @@ public class RecurrenceProcessorTest extends TestCase {
                 null /* last */);
     }
 
+    /**
+     * The streaming expansion and the next/first helpers must return the
+     * same occurrences as the array expansion.
+     * @throws Exception
+     */
+    @SmallTest
+    public void testStreamingExpand() throws Exception {
+        String tz = "America/Los_Angeles";
+        Time dtstart = new Time(tz);
+        Time rangeStart = new Time(tz);
+        Time rangeEnd = new Time(tz);
+        dtstart.parse("20060101T090000");
+        rangeStart.parse("20060215T000000");
+        rangeEnd.parse("20080101T000000");
+        long start = rangeStart.toMillis(false /* use isDst */);
+        long end = rangeEnd.toMillis(false /* use isDst */);
+
+        String[][] recurrences = {
+                { "FREQ=DAILY;INTERVAL=3", null, tz + ";20060110T090000,20060307T090000" },
+                { "FREQ=WEEKLY;BYDAY=MO,WE,FR", null, tz + ";20060301T090000" },
+                { "FREQ=WEEKLY;UNTIL=20060401T000000Z", tz + ";20070501T090000", null },
+                { "FREQ=MONTHLY;BYDAY=MO,TU,WE,TH,FR;BYSETPOS=-1", null, null },
+                { "FREQ=YEARLY;BYMONTH=3;BYDAY=2SU", null, null },
+        };
+
+        RecurrenceProcessor rp = new RecurrenceProcessor();
+        for (String[] r : recurrences) {
+            RecurrenceSet recur = new RecurrenceSet(r[0], r[1], null /* exrule */, r[2]);
+            long[] expected = rp.expand(dtstart, recur, start, end);
+
+            final long[] actual = new long[expected.length + 1];
+            final int[] count = new int[1];
+            rp.expand(dtstart, recur, start, end, new RecurrenceProcessor.OccurrenceVisitor() {
+                @Override
+                public boolean onOccurrence(long millis) {
+                    actual[count[0]++] = millis;
+                    return count[0] < actual.length;
+                }
+            });
+            assertEquals(r[0], expected.length, count[0]);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(r[0], expected[i], actual[i]);
+            }
+
+            long[] next = rp.getNextOccurrences(dtstart, recur, start, 2);
+            assertEquals(r[0], expected[0], next[0]);
+            assertEquals(r[0], expected[1], next[1]);
+            assertEquals(r[0], expected[1],
+                    rp.getFirstOccurrenceAfter(dtstart, recur, expected[0]));
+        }
+
+        RecurrenceSet counted = new RecurrenceSet("FREQ=DAILY;COUNT=10", null, null, null);
+        assertEquals(10, rp.getNextOccurrences(dtstart, counted, 0, 50).length);
+        assertEquals(-1, rp.getFirstOccurrenceAfter(dtstart, counted, end));
+    }
+
+    /**
+     * COUNT must not depend on how the streaming expansion splits the range
+     * into windows, including when DTSTART does not match the rule and when
+     * EXRULE/EXDATE remove occurrences.
+     *
+     * @throws Exception
+     */
+    @SmallTest
+    public void testStreamingExpandCount() throws Exception {
+        String tz = "America/Los_Angeles";
+        Time dtstart = new Time(tz);
+        dtstart.parse("20050704T140000");  // a Monday
+        long dtstartMillis = dtstart.toMillis(false /* use isDst */);
+
+        String[][] recurrences = {
+                { "FREQ=WEEKLY;INTERVAL=2;COUNT=100;BYDAY=TU,SU;WKST=MO", null, null },
+                { "FREQ=DAILY;COUNT=30;BYDAY=SA,SU", null, null },
+                { "FREQ=MONTHLY;COUNT=24;BYMONTHDAY=15", null,
+                        tz + ";20050815T140000,20060115T140000" },
+                { "FREQ=WEEKLY;COUNT=50;BYDAY=MO,WE,FR", "FREQ=WEEKLY;COUNT=10;BYDAY=WE",
+                        tz + ";20050704T140000,20051104T140000" },
+                { "FREQ=YEARLY;COUNT=5;BYMONTH=7;BYDAY=1TU", "FREQ=YEARLY;COUNT=2",
+                        tz + ";20070703T140000" },
+        };
+        String[][] ranges = {
+                { "20050704T140000", null },
+                { "20050705T000000", null },
+                { "20050704T140000", "20060704T000000" },
+                { "20051001T000000", "20070601T000000" },
+        };
+
+        RecurrenceProcessor rp = new RecurrenceProcessor();
+        Time time = new Time(tz);
+        for (String[] r : recurrences) {
+            RecurrenceSet recur = new RecurrenceSet(r[0], null /* rdate */, r[1], r[2]);
+            for (String[] range : ranges) {
+                time.parse(range[0]);
+                long start = time.toMillis(false /* use isDst */);
+                long end = -1;
+                if (range[1] != null) {
+                    time.parse(range[1]);
+                    end = time.toMillis(false /* use isDst */);
+                }
+                String msg = r[0] + " " + r[1] + " " + range[0] + "-" + range[1];
+                long[] expected = rp.expand(dtstart, recur, start, end);
+
+                final ArrayList<Long> actual = new ArrayList<Long>();
+                rp.expand(dtstart, recur, start, end, new RecurrenceProcessor.OccurrenceVisitor() {
+                    @Override
+                    public boolean onOccurrence(long millis) {
+                        actual.add(millis);
+                        return true;
+                    }
+                });
+                assertEquals(msg, expected.length, actual.size());
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(msg, expected[i], (long) actual.get(i));
+                }
+
+                if (end == -1) {
+                    long[] next = rp.getNextOccurrences(dtstart, recur, start, 7);
+                    assertEquals(msg, Math.min(7, expected.length), next.length);
+                    for (int i = 0; i < next.length; i++) {
+                        assertEquals(msg, expected[i], next[i]);
+                    }
+                }
+            }
+        }
+
+        // The reported case: DTSTART plus 99 occurrences of the rule.
+        RecurrenceSet recur = new RecurrenceSet(recurrences[0][0], null, null, null);
+        assertEquals(100, rp.expand(dtstart, recur, dtstartMillis, -1).length);
+        final int[] count = new int[1];
+        rp.expand(dtstart, recur, dtstartMillis, -1, new RecurrenceProcessor.OccurrenceVisitor() {
+            @Override
+            public boolean onOccurrence(long millis) {
+                count[0]++;
+                return true;
+            }
+        });
+        assertEquals(100, count[0]);
+    }
+
 
     // These recurrence rules are used in the loop that measures the performance
     // of recurrence expansion.
@@ -53,6 +53,7 @@ import com.android.calendar.agenda.AgendaFragment;
 import com.android.calendar.alerts.AlertService;
 import com.android.calendar.customize.ImageTextView;
 import com.android.calendar.event.EventInfoActivity;
+import com.android.calendar.event.EventManager;
 import com.android.calendar.helper.CalendarController;
 import com.android.calendar.helper.CalendarController.EventHandler;
 import com.android.calendar.helper.CalendarController.EventInfo;
@@ -156,6 +157,8 @@ public class AllInOneActivity extends AppCompatActivity implements EventHandler,
 
         @Override
         public void onChange(boolean selfChange) {
+            //다시 그리기전에 보관된 일정들을 먼저 지운다.
+            EventManager.invalidateCache();
             eventsChanged();
         }
     };
@@ -12,6 +12,8 @@ import android.widget.TextView;
 import androidx.annotation.Nullable;
 import androidx.core.content.res.ResourcesCompat;
 
+import org.joda.time.DateTime;
+
 import com.android.calendar.event.EventTypeManager;
 import com.android.calendar.utils.Utils;
 import com.android.calendar.event.EventManager;
@@ -75,8 +77,9 @@ public class AgendaItemView extends LinearLayout {
         mImageView.setImageDrawable(drawable);
 
         //날자 textview 설정
-        String timeString = AgendaFragment.getDateString(event.startTime) + " "
-                + Utils.getWeekDayString(getContext(), event.startTime.getDayOfWeek(), false);
+        final DateTime startTime = event.getStartTime();
+        String timeString = AgendaFragment.getDateString(startTime) + " "
+                + Utils.getWeekDayString(getContext(), startTime.getDayOfWeek(), false);
         mTimeView.setText(timeString);
 
         final int timeViewColor;
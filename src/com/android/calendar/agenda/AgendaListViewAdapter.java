@@ -46,7 +46,7 @@ public class AgendaListViewAdapter extends ListAdapter<EventManager.OneEvent, Ag
                 @Override
                 public boolean areContentsTheSame(
                         @NonNull EventManager.OneEvent oldEvent, @NonNull EventManager.OneEvent newEvent) {
-                    return oldEvent.startTime.getMillis() == newEvent.startTime.getMillis() &&
+                    return oldEvent.startMillis == newEvent.startMillis &&
                             oldEvent.title.equals(newEvent.title) &&
                             oldEvent.type == newEvent.type;
                 }
@@ -93,7 +93,7 @@ public class AgendaListViewAdapter extends ListAdapter<EventManager.OneEvent, Ag
             public void onClick(View v) {
                 //일정정보화면으로 이행한다.
                 mController.sendEventRelatedEvent(CalendarController.EventType.VIEW_EVENT, event.id,
-                        event.startTime.getMillis(), event.endTime.getMillis(),
+                        event.startMillis, event.endMillis,
                         -1);
             }
         });
@@ -143,12 +143,14 @@ public class AgendaListViewAdapter extends ListAdapter<EventManager.OneEvent, Ag
             EventManager.OneEvent event = getItem(i);
             final long startMillis, endMillis;
             if(event.allDay){
-                startMillis = new DateTime(event.startTime.getYear(), event.startTime.getMonthOfYear(), event.startTime.getDayOfMonth(), 0, 0).getMillis();
-                endMillis = new DateTime(event.endTime.getYear(), event.endTime.getMonthOfYear(), event.endTime.getDayOfMonth(), 0, 0).getMillis() - 1;
+                final DateTime startTime = event.getStartTime();
+                final DateTime endTime = event.getEndTime();
+                startMillis = new DateTime(startTime.getYear(), startTime.getMonthOfYear(), startTime.getDayOfMonth(), 0, 0).getMillis();
+                endMillis = new DateTime(endTime.getYear(), endTime.getMonthOfYear(), endTime.getDayOfMonth(), 0, 0).getMillis() - 1;
             }
             else{
-                startMillis = event.startTime.getMillis();
-                endMillis = event.endTime.getMillis();
+                startMillis = event.startMillis;
+                endMillis = event.endMillis;
             }
 
             if((startMillis >= curDayMillis && startMillis < nextDayMillis) ||
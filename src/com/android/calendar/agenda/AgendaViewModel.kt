@@ -56,6 +56,7 @@ class AgendaViewModel(application: Application, private val handle: SavedStateHa
              */
             if(contentObserver == null) {
                 contentObserver = getApplication<Application>().contentResolver.registerObserver(CalendarContract.Events.CONTENT_URI) {
+                    EventManager.invalidateCache()
                     loadEvents()
                 }
             }
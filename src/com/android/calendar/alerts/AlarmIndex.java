@@ -0,0 +1,267 @@
+package com.android.calendar.alerts;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.Arrays;
+
+/**
+ * {@link AlarmScheduler}가 다음 미리알림시각을 찾을때 리용하는 색인
+ * 앞으로의 (미리알림시각, 일정 id) 쌍들을 최소 heap 으로 보관하며 다시 scan 할때에는 변한 일정들의 항목만 다시 만든다.
+ *  - 일정마다 판본(version)을 두고 heap 항목에도 판본을 기억한다. 일정이 변하면 판본을 올려서 이전 항목들을 무효로 한다.
+ *  - 무효인 항목과 지나간 항목들은 heap 의 꼭대기에 올라올때 지운다.
+ * 일정이 변하였을때({@link #invalidate}), 시간대가 바뀌였을때, 마지막 scan 으로부터 하루가 지났을때 다시 scan 하여야 한다.
+ * 모든 함수들은 이 객체로 동기화하여 호출하여야 한다. Provider query 는 이 객체를 잡지 않고 하며
+ * scan 을 시작할때의 {@link #getGeneration}을 {@link #update}에 넘겨서 그사이의 변화를 놓치지 않게 한다.
+ */
+class AlarmIndex {
+    private static final long RESCAN_INTERVAL_MS = 24 * 60 * 60 * 1000;
+    private static final int[] NO_MINUTES = new int[0];
+
+    //Heap 항목들: 미리알림시각, 일정 id, 항목을 만들때의 일정판본
+    private long[] mAlarmTimes = new long[16];
+    private int[] mEventIds = new int[16];
+    private int[] mVersions = new int[16];
+    private int mSize = 0;
+
+    //일정 id 별 scan 범위안의 시작시간들(지역시간, 정렬된것)
+    private final SparseArray<long[]> mStartTimes = new SparseArray<>();
+    //일정 id 별 미리알림 분들
+    private final SparseArray<int[]> mReminderMinutes = new SparseArray<>();
+    //일정 id 별 현재 판본, 0 은 쓰지 않는다.
+    private final SparseIntArray mEventVersions = new SparseIntArray();
+    private int mNextVersion = 1;
+
+    private long mScanTime = -1;            //마지막 scan 시각, scan 하지 않았으면 -1
+    private long mHorizon = Long.MIN_VALUE; //이 시각까지의 미리알림들은 모두 색인에 있다.
+    private int mMaxReminderMinutes = -1;   //제일 긴 미리알림(분), 모르면 -1
+    private String mTimeZone = null;        //scan 할때의 시간대
+    private boolean mDirty = true;          //scan 한 뒤에 일정이 변하였으면 true
+    private int mGeneration = 0;            //{@link #invalidate}될때마다 증가한다.
+
+    /**
+     * 일정, 미리알림들이 변하였음을 알린다. 다음번에 다시 scan 하며 미리알림들도 다시 읽는다.
+     */
+    synchronized void invalidate() {
+        mDirty = true;
+        mGeneration++;
+    }
+
+    /**
+     * @return 무효화된 회수, scan 을 시작할때 얻어서 {@link #update}에 넘긴다.
+     */
+    int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * @return scan 한 뒤에 일정이 변하였으면 true, 이때는 모든 일정의 미리알림을 다시 읽어야 한다.
+     */
+    boolean isDirty() {
+        return mDirty;
+    }
+
+    /**
+     * @param currentMillis 현재시간
+     * @param timeZone 현재 시간대
+     * @return 다시 scan 해야 하면 true
+     */
+    boolean needsScan(long currentMillis, String timeZone) {
+        return mDirty || mScanTime < 0 || currentMillis < mScanTime
+                || currentMillis - mScanTime >= RESCAN_INTERVAL_MS
+                || !timeZone.equals(mTimeZone);
+    }
+
+    /**
+     * @return 마지막으로 읽은 제일 긴 미리알림(분), 모르면 -1
+     */
+    int getMaxReminderMinutes() {
+        return mDirty ? -1 : mMaxReminderMinutes;
+    }
+
+    /**
+     * @param eventId 일정 id
+     * @return 일정의 미리알림들을 이미 읽었으면 true
+     */
+    boolean hasReminders(int eventId) {
+        return !mDirty && mReminderMinutes.indexOfKey(eventId) >= 0;
+    }
+
+    /**
+     * Scan 결과를 반영한다. 시작시간이나 미리알림이 변한 일정들의 heap 항목만 다시 만든다.
+     * @param scanTime scan 시각(현재시간)
+     * @param horizon 이 시각까지의 미리알림들은 scan 결과에 모두 들어있다.
+     * @param timeZone scan 할때의 시간대
+     * @param maxReminderMinutes 제일 긴 미리알림(분)
+     * @param startTimes 일정 id 별 시작시간들(지역시간, 정렬된것)
+     * @param reminders 새로 읽은 일정 id 별 미리알림 분들, 여기에 없는 일정은 이전에 읽은 미리알림을 쓴다.
+     * @param generation scan 을 시작할때의 {@link #getGeneration}, 그사이에 무효화되였으면 다음번에 다시 scan 한다.
+     * @param fullScan scan 을 시작할때 {@link #isDirty}였으면 true, 이때는 reminders 에 없는 일정에 미리알림이 없다.
+     */
+    void update(long scanTime, long horizon, String timeZone, int maxReminderMinutes,
+            SparseArray<long[]> startTimes, SparseArray<int[]> reminders, int generation,
+            boolean fullScan) {
+        //없어진 일정들은 판본을 지워서 항목들을 무효로 한다.
+        for (int i = mStartTimes.size() - 1; i >= 0; i--) {
+            final int eventId = mStartTimes.keyAt(i);
+            if (startTimes.indexOfKey(eventId) < 0) {
+                mStartTimes.removeAt(i);
+                mReminderMinutes.delete(eventId);
+                mEventVersions.delete(eventId);
+            }
+        }
+
+        int liveCount = 0;
+        for (int i = 0; i < startTimes.size(); i++) {
+            final int eventId = startTimes.keyAt(i);
+            final long[] starts = startTimes.valueAt(i);
+            int[] minutes = reminders.get(eventId);
+            if (minutes == null) {
+                minutes = fullScan ? NO_MINUTES : mReminderMinutes.get(eventId, NO_MINUTES);
+            }
+            liveCount += starts.length * minutes.length;
+
+            if (mEventVersions.get(eventId) != 0
+                    && Arrays.equals(starts, mStartTimes.get(eventId))
+                    && Arrays.equals(minutes, mReminderMinutes.get(eventId))) {
+                continue;
+            }
+
+            final int version = mNextVersion++;
+            mEventVersions.put(eventId, version);
+            mStartTimes.put(eventId, starts);
+            mReminderMinutes.put(eventId, minutes);
+            for (long start : starts) {
+                for (int minute : minutes) {
+                    final long alarmTime = start - minute * 60 * 1000L;
+                    if (alarmTime > scanTime) {
+                        push(alarmTime, eventId, version);
+                    }
+                }
+            }
+        }
+
+        //무효인 항목들이 많이 쌓였으면 heap 을 다시 만든다.
+        if (mSize > 2 * liveCount + 16) {
+            rebuild(scanTime);
+        }
+
+        mScanTime = scanTime;
+        mHorizon = horizon;
+        mTimeZone = timeZone;
+        mMaxReminderMinutes = maxReminderMinutes;
+        mDirty = generation != mGeneration;
+    }
+
+    /**
+     * @return 이 시각까지의 미리알림들은 모두 색인에 있다.
+     */
+    long getHorizon() {
+        return mHorizon;
+    }
+
+    /**
+     * 지나간 항목, 무효인 항목들을 지우고 제일 가까운 미리알림시각을 돌려준다.
+     * @param currentMillis 현재시간
+     * @return 현재시간 이후의 제일 가까운 미리알림시각, 없으면 Long.MAX_VALUE
+     */
+    long peekAlarmTime(long currentMillis) {
+        while (mSize > 0) {
+            if (mAlarmTimes[0] > currentMillis && mEventVersions.get(mEventIds[0]) == mVersions[0]) {
+                return mAlarmTimes[0];
+            }
+            pop();
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return {@link #peekAlarmTime}이 돌려준 미리알림의 일정 id, 없으면 0
+     */
+    int peekEventId() {
+        return mSize > 0 ? mEventIds[0] : 0;
+    }
+
+    /**
+     * @return heap 의 항목개수(무효인 항목 포함)
+     */
+    int size() {
+        return mSize;
+    }
+
+    private void rebuild(long scanTime) {
+        mSize = 0;
+        for (int i = 0; i < mStartTimes.size(); i++) {
+            final int eventId = mStartTimes.keyAt(i);
+            final int version = mEventVersions.get(eventId);
+            final int[] minutes = mReminderMinutes.get(eventId, NO_MINUTES);
+            for (long start : mStartTimes.valueAt(i)) {
+                for (int minute : minutes) {
+                    final long alarmTime = start - minute * 60 * 1000L;
+                    if (alarmTime > scanTime) {
+                        push(alarmTime, eventId, version);
+                    }
+                }
+            }
+        }
+    }
+
+    private void push(long alarmTime, int eventId, int version) {
+        if (mSize == mAlarmTimes.length) {
+            final int capacity = mSize * 2;
+            mAlarmTimes = Arrays.copyOf(mAlarmTimes, capacity);
+            mEventIds = Arrays.copyOf(mEventIds, capacity);
+            mVersions = Arrays.copyOf(mVersions, capacity);
+        }
+
+        //새 항목을 끝에 넣고 우로 올린다.
+        int index = mSize++;
+        while (index > 0) {
+            final int parent = (index - 1) / 2;
+            if (mAlarmTimes[parent] <= alarmTime) {
+                break;
+            }
+            set(index, parent);
+            index = parent;
+        }
+        mAlarmTimes[index] = alarmTime;
+        mEventIds[index] = eventId;
+        mVersions[index] = version;
+    }
+
+    private void pop() {
+        final int last = --mSize;
+        if (last == 0) {
+            return;
+        }
+
+        //마지막 항목을 꼭대기에서부터 아래로 내린다.
+        final long alarmTime = mAlarmTimes[last];
+        final int eventId = mEventIds[last];
+        final int version = mVersions[last];
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && mAlarmTimes[child + 1] < mAlarmTimes[child]) {
+                child++;
+            }
+            if (alarmTime <= mAlarmTimes[child]) {
+                break;
+            }
+            set(index, child);
+            index = child;
+        }
+        mAlarmTimes[index] = alarmTime;
+        mEventIds[index] = eventId;
+        mVersions[index] = version;
+    }
+
+    private void set(int to, int from) {
+        mAlarmTimes[to] = mAlarmTimes[from];
+        mEventIds[to] = mEventIds[from];
+        mVersions[to] = mVersions[from];
+    }
+}
@@ -24,6 +24,7 @@ import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
@@ -35,13 +36,13 @@ import androidx.core.content.ContextCompat;
 import android.text.format.DateUtils;
 import com.android.kr_common.Time;
 import android.util.Log;
+import android.util.SparseArray;
 
 import com.android.calendar.utils.Utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Query를 통해 event, reminder들을 얻고 AlarmManager 로 BroadCast 를 예약한다.
@@ -72,78 +73,242 @@ public class AlarmScheduler {
     private static final int INSTANCES_INDEX_EVENTID = 0;
     private static final int INSTANCES_INDEX_BEGIN = 1;
     private static final int INSTANCES_INDEX_ALL_DAY = 2;
-    private static final String REMINDERS_WHERE = Reminders.METHOD + "=1 AND "
+    private static final String REMINDERS_METHOD_WHERE = Reminders.METHOD + "=1";
+    private static final String REMINDERS_WHERE = REMINDERS_METHOD_WHERE + " AND "
             + Reminders.EVENT_ID + " IN ";
+    private static final String REMINDERS_MAX_SORT = Reminders.MINUTES + " DESC LIMIT 1";
     private static final int REMINDERS_INDEX_EVENT_ID = 0;
     private static final int REMINDERS_INDEX_MINUTES = 1;
     private static final int REMINDERS_INDEX_METHOD = 2;
-    // The reminders query looks like "SELECT ... AND eventId IN 101,102,202,...".  This
+    // The reminders query looks like "SELECT ... AND eventId IN (?,?,...)".  This
     // sets the max # of events in the query before batching into multiple queries, to
-    // limit the SQL query length.
-    private static final int REMINDER_QUERY_BATCH_SIZE = 50;
+    // stay below the SQLite limit on bound arguments.
+    private static final int REMINDER_QUERY_BATCH_SIZE = 500;
 
     // We really need to query for reminder times that fall in some interval, but
     // the Reminders table only stores the reminder interval (10min, 15min, etc), and
     // we cannot do the join with the Events table to calculate the actual alert time
-    // from outside of the provider.  So the best we can do for now consider events
-    // whose start times begin within some interval (ie. 1 week out).  This means
-    // reminders which are configured for more than 1 week out won't fire on time.  We
-    // can minimize this to being only 1 day late by putting a 1 day max on the alarm time.
+    // from outside of the provider.  So we consider events whose start times begin within
+    // 1 week plus the longest reminder, which covers every alarm within the next week.
+    // Alarms further out are scheduled as a checkpoint at the end of that week.
     private static final long EVENT_LOOKAHEAD_WINDOW_MS = DateUtils.WEEK_IN_MILLIS;
-    private static final long MAX_ALARM_ELAPSED_MS = DateUtils.DAY_IN_MILLIS;
+    // Caps the window extension, in case some event has an unusually long reminder.
+    private static final long MAX_REMINDER_LOOKAHEAD_MS = 4 * DateUtils.WEEK_IN_MILLIS;
+
+    // 다음 미리알림을 찾기 위한 process 공용 색인, 달력 provider 의 변화를 감지하면 무효화된다.
+    private static AlarmIndex sAlarmIndex = null;
 
     /**
      * Schedules the nearest upcoming alarm, to refresh notifications.
      *
      * This is historically done in the provider but we dupe this here so the unbundled
-     * app will work on devices that have modified this portion of the provider.  This
-     * has the limitation of querying events within some interval from now (ie. looks at
-     * reminders for all events occurring in the next week).  This means for example,
-     * a 2 week notification will not fire on time.
+     * app will work on devices that have modified this portion of the provider.  The
+     * upcoming reminders are kept in an {@link AlarmIndex} that survives between calls,
+     * so refreshes that are not caused by a calendar change do not query the provider.
      */
     public static void scheduleNextAlarm(Context context) {
-        scheduleNextAlarm(context, AlertUtils.createAlarmManager(context),
+        scheduleNextAlarm(context, AlertUtils.createAlarmManager(context), getAlarmIndex(context),
                 REMINDER_QUERY_BATCH_SIZE, System.currentTimeMillis());
     }
 
+    /**
+     * 다음번에 색인을 다시 만들게 한다. 시간이 바뀌였을때처럼 provider 변화로 감지되지 않는 경우에 호출한다.
+     */
+    public static void invalidate() {
+        final AlarmIndex index;
+        synchronized (AlarmScheduler.class) {
+            index = sAlarmIndex;
+        }
+        if (index != null) {
+            index.invalidate();
+        }
+    }
+
+    private static synchronized AlarmIndex getAlarmIndex(Context context) {
+        if (sAlarmIndex == null) {
+            final AlarmIndex index = new AlarmIndex();
+            ContentObserver observer = new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    index.invalidate();
+                }
+            };
+            // Only changes to events and reminders move alarm times.  CalendarAlerts writes,
+            // including the ones made while an alarm fires, must not force a rescan.
+            final ContentResolver resolver = context.getApplicationContext().getContentResolver();
+            resolver.registerContentObserver(Events.CONTENT_URI, true, observer);
+            resolver.registerContentObserver(Reminders.CONTENT_URI, true, observer);
+            resolver.registerContentObserver(Instances.CONTENT_URI, true, observer);
+            sAlarmIndex = index;
+        }
+        return sAlarmIndex;
+    }
+
     // VisibleForTesting
     static void scheduleNextAlarm(Context context, AlarmManagerInterface alarmManager,
             int batchSize, long currentMillis) {
-        Cursor instancesCursor = null;
+        scheduleNextAlarm(context, alarmManager, new AlarmIndex(), batchSize, currentMillis);
+    }
+
+    // VisibleForTesting
+    static void scheduleNextAlarm(Context context, AlarmManagerInterface alarmManager,
+            AlarmIndex index, int batchSize, long currentMillis) {
+        final String timeZone = Time.getCurrentTimezone();
+        final boolean needsScan;
+        final int generation;
+        final boolean fullScan;
+        final int maxReminderMinutes;
+        synchronized (index) {
+            needsScan = index.needsScan(currentMillis, timeZone);
+            generation = index.getGeneration();
+            fullScan = index.isDirty();
+            maxReminderMinutes = index.getMaxReminderMinutes();
+        }
+
+        // The provider is queried without holding the index, so that invalidate() from the
+        // observer does not wait for the queries.  The result is applied under the lock.
+        if (needsScan && !scanUpcomingReminders(context, context.getContentResolver(), index,
+                batchSize, currentMillis, timeZone, generation, fullScan, maxReminderMinutes)) {
+            return;
+        }
+
+        final long nextAlarmTime;
+        final int nextAlarmEventId;
+        synchronized (index) {
+            final long alarmTime = index.peekAlarmTime(currentMillis);
+            if (alarmTime == Long.MAX_VALUE) {
+                if (AlertService.DEBUG) {
+                    Log.d(TAG, "No upcoming reminders found.");
+                }
+                return;
+            }
+
+            // Alarms past the horizon may be preceded by ones we have not seen, so wake up
+            // at the horizon instead and scan again.
+            nextAlarmTime = Math.min(alarmTime, index.getHorizon());
+            nextAlarmEventId = index.peekEventId();
+        }
+
+        // Schedule the alarm for the next reminder time.
+        if (nextAlarmTime > currentMillis) {
+            scheduleAlarm(context, nextAlarmEventId, nextAlarmTime, alarmManager);
+        }
+    }
+
+    /**
+     * Queries events starting within the lookahead window and their reminders, and updates
+     * the index with the result.  Reminders are only queried for events whose reminders the
+     * index does not know yet, or for all of them after a calendar change.  Must be called
+     * without holding the index; it is only locked to read and update it.
+     * @param generation the index generation when the scan started
+     * @param fullScan true if the index was dirty when the scan started
+     * @param maxReminderMinutes the longest reminder known to the index, or -1
+     * @return false if the calendar could not be read
+     */
+    private static boolean scanUpcomingReminders(Context context,
+            ContentResolver contentResolver, AlarmIndex index, int batchSize,
+            long currentMillis, String timeZone, int generation, boolean fullScan,
+            int maxReminderMinutes) {
+        if (Build.VERSION.SDK_INT >= 23 && ContextCompat.checkSelfPermission(context,
+                Manifest.permission.READ_CALENDAR)
+                != PackageManager.PERMISSION_GRANTED) {
+            //If permission is not granted then just return.
+            Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
+            return false;
+        }
+
+        if (maxReminderMinutes < 0) {
+            maxReminderMinutes = queryMaxReminderMinutes(contentResolver);
+        }
+        final long lookahead = EVENT_LOOKAHEAD_WINDOW_MS + Math.min(
+                maxReminderMinutes * DateUtils.MINUTE_IN_MILLIS, MAX_REMINDER_LOOKAHEAD_MS);
+
+        // Local start times of the upcoming instances, by event ID, in query order.
+        SparseArray<long[]> startTimes = new SparseArray<long[]>();
+        Cursor instancesCursor = queryUpcomingEvents(contentResolver, currentMillis, lookahead);
+        if (instancesCursor == null) {
+            return false;
+        }
         try {
-            instancesCursor = queryUpcomingEvents(context, context.getContentResolver(),
-                    currentMillis);
-            if (instancesCursor != null) {
-                queryNextReminderAndSchedule(instancesCursor, context,
-                        context.getContentResolver(), alarmManager, batchSize, currentMillis);
+            if (AlertService.DEBUG) {
+                Log.d(TAG, "Query result count for events starting within "
+                        + lookahead / DateUtils.DAY_IN_MILLIS + " days: "
+                        + instancesCursor.getCount());
+            }
+
+            Time timeObj = new Time();
+            while (instancesCursor.moveToNext()) {
+                int eventId = instancesCursor.getInt(INSTANCES_INDEX_EVENTID);
+                long begin = instancesCursor.getLong(INSTANCES_INDEX_BEGIN);
+                boolean allday = instancesCursor.getInt(INSTANCES_INDEX_ALL_DAY) != 0;
+                long localStartTime;
+                if (allday) {
+                    // Adjust allday to local time.
+                    localStartTime = Utils.convertAlldayUtcToLocal(timeObj, begin, timeZone);
+                } else {
+                    localStartTime = begin;
+                }
+
+                long[] starts = startTimes.get(eventId);
+                if (starts == null) {
+                    starts = new long[] { localStartTime };
+                } else {
+                    starts = Arrays.copyOf(starts, starts.length + 1);
+                    starts[starts.length - 1] = localStartTime;
+                }
+                startTimes.put(eventId, starts);
+
+                // Log for debugging.
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    timeObj.set(localStartTime);
+                    StringBuilder msg = new StringBuilder();
+                    msg.append("Events cursor result -- eventId:").append(eventId);
+                    msg.append(", allDay:").append(allday);
+                    msg.append(", start:").append(localStartTime);
+                    msg.append(" (").append(timeObj.format("%a, %b %d, %Y %I:%M%P")).append(")");
+                    Log.d(TAG, msg.toString());
+                }
             }
         } finally {
-            if (instancesCursor != null) {
-                instancesCursor.close();
+            instancesCursor.close();
+        }
+
+        for (int i = 0; i < startTimes.size(); i++) {
+            Arrays.sort(startTimes.valueAt(i));
+        }
+
+        // Reminders are only queried for events the index does not know yet.
+        ArrayList<Integer> reminderEventIds = new ArrayList<Integer>();
+        synchronized (index) {
+            for (int i = 0; i < startTimes.size(); i++) {
+                final int eventId = startTimes.keyAt(i);
+                if (fullScan || !index.hasReminders(eventId)) {
+                    reminderEventIds.add(eventId);
+                }
             }
         }
+
+        SparseArray<int[]> reminders = queryReminders(contentResolver, startTimes,
+                reminderEventIds, batchSize);
+        synchronized (index) {
+            index.update(currentMillis, currentMillis + EVENT_LOOKAHEAD_WINDOW_MS, timeZone,
+                    maxReminderMinutes, startTimes, reminders, generation, fullScan);
+        }
+        return true;
     }
 
     /**
-     * Queries events starting within a fixed interval from now.
+     * Queries events starting within the lookahead window from now.
      */
-    private static Cursor queryUpcomingEvents(Context context, ContentResolver contentResolver,
-            long currentMillis) {
+    private static Cursor queryUpcomingEvents(ContentResolver contentResolver,
+            long currentMillis, long lookahead) {
         Time time = new Time();
         time.normalize(false);
         long localOffset = time.gmtoff * 1000;
         final long localStartMin = currentMillis;
-        final long localStartMax = localStartMin + EVENT_LOOKAHEAD_WINDOW_MS;
+        final long localStartMax = localStartMin + lookahead;
         final long utcStartMin = localStartMin - localOffset;
-        final long utcStartMax = utcStartMin + EVENT_LOOKAHEAD_WINDOW_MS;
-
-        if (Build.VERSION.SDK_INT >= 23 && ContextCompat.checkSelfPermission(context,
-                Manifest.permission.READ_CALENDAR)
-                != PackageManager.PERMISSION_GRANTED) {
-            //If permission is not granted then just return.
-            Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
-            return null;
-        }
+        final long utcStartMax = utcStartMin + lookahead;
 
         // Expand Instances table range by a day on either end to account for
         // all-day events.
@@ -178,122 +343,76 @@ public class AlarmScheduler {
     }
 
     /**
-     * Queries for all the reminders of the events in the instancesCursor, and schedules
-     * the alarm for the next upcoming reminder.
+     * Queries the longest alert reminder, in minutes, to size the lookahead window.
      */
-    private static void queryNextReminderAndSchedule(Cursor instancesCursor, Context context,
-            ContentResolver contentResolver, AlarmManagerInterface alarmManager,
-            int batchSize, long currentMillis) {
-        if (AlertService.DEBUG) {
-            int eventCount = instancesCursor.getCount();
-            if (eventCount == 0) {
-                Log.d(TAG, "No events found starting within 1 week.");
-            } else {
-                Log.d(TAG, "Query result count for events starting within 1 week: " + eventCount);
+    private static int queryMaxReminderMinutes(ContentResolver contentResolver) {
+        int maxMinutes = 0;
+        Cursor cursor = contentResolver.query(Reminders.CONTENT_URI, REMINDERS_PROJECTION,
+                REMINDERS_METHOD_WHERE, null, REMINDERS_MAX_SORT);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    maxMinutes = Math.max(maxMinutes, cursor.getInt(REMINDERS_INDEX_MINUTES));
+                }
+            } finally {
+                cursor.close();
             }
         }
+        return maxMinutes;
+    }
 
-        // Put query results of all events starting within some interval into map of event ID to
-        // local start time.
-        Map<Integer, List<Long>> eventMap = new HashMap<Integer, List<Long>>();
-        Time timeObj = new Time();
-        long nextAlarmTime = Long.MAX_VALUE;
-        int nextAlarmEventId = 0;
-        instancesCursor.moveToPosition(-1);
-        while (!instancesCursor.isAfterLast()) {
-            int index = 0;
-            eventMap.clear();
-            StringBuilder eventIdsForQuery = new StringBuilder();
-            eventIdsForQuery.append('(');
-            while (index++ < batchSize && instancesCursor.moveToNext()) {
-                int eventId = instancesCursor.getInt(INSTANCES_INDEX_EVENTID);
-                long begin = instancesCursor.getLong(INSTANCES_INDEX_BEGIN);
-                boolean allday = instancesCursor.getInt(INSTANCES_INDEX_ALL_DAY) != 0;
-                long localStartTime;
-                if (allday) {
-                    // Adjust allday to local time.
-                    localStartTime = Utils.convertAlldayUtcToLocal(timeObj, begin,
-                            Time.getCurrentTimezone());
-                } else {
-                    localStartTime = begin;
-                }
-                List<Long> startTimes = eventMap.get(eventId);
-                if (startTimes == null) {
-                    startTimes = new ArrayList<Long>();
-                    eventMap.put(eventId, startTimes);
-                    eventIdsForQuery.append(eventId);
-                    eventIdsForQuery.append(",");
-                }
-                startTimes.add(localStartTime);
-
-                // Log for debugging.
-                if (Log.isLoggable(TAG, Log.DEBUG)) {
-                    timeObj.set(localStartTime);
-                    StringBuilder msg = new StringBuilder();
-                    msg.append("Events cursor result -- eventId:").append(eventId);
-                    msg.append(", allDay:").append(allday);
-                    msg.append(", start:").append(localStartTime);
-                    msg.append(" (").append(timeObj.format("%a, %b %d, %Y %I:%M%P")).append(")");
-                    Log.d(TAG, msg.toString());
-                }
-            }
-            if (eventIdsForQuery.charAt(eventIdsForQuery.length() - 1) == ',') {
-                eventIdsForQuery.deleteCharAt(eventIdsForQuery.length() - 1);
+    /**
+     * Queries the alert reminders of the given events, in batches of bound IN arguments.
+     * @param startTimes upcoming start times by event ID, only these events are kept
+     * @param eventIds events to query the reminders for
+     * @return sorted, distinct reminder minutes by event ID, for every queried event
+     */
+    private static SparseArray<int[]> queryReminders(ContentResolver contentResolver,
+            SparseArray<long[]> startTimes, List<Integer> eventIds, int batchSize) {
+        SparseArray<int[]> reminders = new SparseArray<int[]>();
+        for (int start = 0; start < eventIds.size(); start += batchSize) {
+            final int end = Math.min(start + batchSize, eventIds.size());
+            String[] args = new String[end - start];
+            StringBuilder where = new StringBuilder(REMINDERS_WHERE);
+            where.append('(');
+            for (int i = start; i < end; i++) {
+                final int eventId = eventIds.get(i);
+                reminders.put(eventId, new int[0]);
+                args[i - start] = String.valueOf(eventId);
+                where.append(i == start ? "?" : ",?");
             }
-            eventIdsForQuery.append(')');
+            where.append(')');
 
-            // Query the reminders table for the events found.
-            Cursor cursor = null;
+            Cursor cursor = contentResolver.query(Reminders.CONTENT_URI, REMINDERS_PROJECTION,
+                    where.toString(), args, null);
+            if (cursor == null) {
+                continue;
+            }
             try {
-                if (ContextCompat.checkSelfPermission(context,
-                        Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
-                    //If permission is not granted then just return.
-                    Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
-                    return;
-                }
-                cursor = contentResolver.query(Reminders.CONTENT_URI, REMINDERS_PROJECTION,
-                        REMINDERS_WHERE + eventIdsForQuery, null, null);
-
-                // Process the reminders query results to find the next reminder time.
-                cursor.moveToPosition(-1);
                 while (cursor.moveToNext()) {
                     int eventId = cursor.getInt(REMINDERS_INDEX_EVENT_ID);
+                    int[] minutes = reminders.get(eventId);
+                    if (minutes == null || startTimes.indexOfKey(eventId) < 0) {
+                        continue;
+                    }
                     int reminderMinutes = cursor.getInt(REMINDERS_INDEX_MINUTES);
-                    List<Long> startTimes = eventMap.get(eventId);
-                    if (startTimes != null) {
-                        for (Long startTime : startTimes) {
-                            long alarmTime = startTime -
-                                    reminderMinutes * DateUtils.MINUTE_IN_MILLIS;
-                            if (alarmTime > currentMillis && alarmTime < nextAlarmTime) {
-                                nextAlarmTime = alarmTime;
-                                nextAlarmEventId = eventId;
-                            }
-
-                            if (Log.isLoggable(TAG, Log.DEBUG)) {
-                                timeObj.set(alarmTime);
-                                StringBuilder msg = new StringBuilder();
-                                msg.append("Reminders cursor result -- eventId:").append(eventId);
-                                msg.append(", startTime:").append(startTime);
-                                msg.append(", minutes:").append(reminderMinutes);
-                                msg.append(", alarmTime:").append(alarmTime);
-                                msg.append(" (").append(timeObj.format("%a, %b %d, %Y %I:%M%P"))
-                                        .append(")");
-                                Log.d(TAG, msg.toString());
-                            }
-                        }
+                    if (Arrays.binarySearch(minutes, reminderMinutes) < 0) {
+                        minutes = Arrays.copyOf(minutes, minutes.length + 1);
+                        minutes[minutes.length - 1] = reminderMinutes;
+                        Arrays.sort(minutes);
+                        reminders.put(eventId, minutes);
+                    }
+
+                    if (Log.isLoggable(TAG, Log.DEBUG)) {
+                        Log.d(TAG, "Reminders cursor result -- eventId:" + eventId
+                                + ", minutes:" + reminderMinutes);
                     }
                 }
             } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
+                cursor.close();
             }
         }
-
-        // Schedule the alarm for the next reminder time.
-        if (nextAlarmTime < Long.MAX_VALUE) {
-            scheduleAlarm(context, nextAlarmEventId, nextAlarmTime, currentMillis, alarmManager);
-        }
+        return reminders;
     }
 
     /**
@@ -302,15 +421,7 @@ public class AlarmScheduler {
      * from the provider).
      */
     private static void scheduleAlarm(Context context, long eventId, long alarmTime,
-            long currentMillis, AlarmManagerInterface alarmManager) {
-        // Max out the alarm time to 1 day out, so an alert for an event far in the future
-        // (not present in our event query results for a limited range) can only be at
-        // most 1 day late.
-        long maxAlarmTime = currentMillis + MAX_ALARM_ELAPSED_MS;
-        if (alarmTime > maxAlarmTime) {
-            alarmTime = maxAlarmTime;
-        }
-
+            AlarmManagerInterface alarmManager) {
         // Add a slight delay (see comments on the member var).
         alarmTime += ALARM_DELAY_MS;
 
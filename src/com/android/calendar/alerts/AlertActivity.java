@@ -225,6 +225,7 @@ public class AlertActivity extends Activity implements OnClickListener {
             NotificationManager nm =
                     (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
             nm.cancelAll();
+            AlertService.onNotificationsCancelled(-1);
 
             //Alarm들을 없앤다.
             dismissFiredAlarms();
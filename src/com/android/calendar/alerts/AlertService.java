@@ -53,6 +53,7 @@ import android.util.Log;
 
 import com.android.calendar.utils.Utils;
 import com.android.calendar.settings.GeneralPreferences;
+import com.android.calendar.widgets.WidgetUpdateScheduler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -110,6 +111,17 @@ public class AlertService extends Service {
     private static final int MINUTE_MS = 60 * 1000;
     // The grace period before changing a notification's priority bucket.
     private static final int MIN_DEPRIORITIZE_GRACE_PERIOD_MS = 15 * MINUTE_MS;
+
+    // b/7652098: Add a delay after the provider-changed event before refreshing
+    // notifications to help issue with the unbundled app installed on HTC having
+    // stale notifications.
+    // Sync 도중에는 PROVIDER_CHANGED 가 련속 들어오므로 마지막 broadcast 로부터 이 시간동안 기다려서 한번만 갱신한다.
+    private static final long PROVIDER_CHANGED_DELAY_MS = 5 * DateUtils.SECOND_IN_MILLIS;
+    // broadcast 가 계속 들어와도 첫 broadcast 로부터 이 시간이 지나면 갱신한다.
+    private static final long PROVIDER_CHANGED_MAX_DELAY_MS = 30 * DateUtils.SECOND_IN_MILLIS;
+
+    // PROVIDER_CHANGED 를 합쳐서 갱신할때 ServiceHandler 에 보내는 통보문
+    private static final int MSG_PROVIDER_CHANGED = 1;
     // Shared prefs key for storing whether the EVENT_REMINDER event from the provider
     // was ever received.  Some OEMs modified this provider broadcast, so we had to
     // do the alarm scheduling here in the app, for the unbundled app's reminders to work.
@@ -117,8 +129,14 @@ public class AlertService extends Service {
     // alarm scheduling.
     private static final String PROVIDER_REMINDER_PREF_KEY =
             "preference_received_provider_reminder_broadcast";
-    private static final String SORT_ORDER_ALARMTIME_ASC =
-            CalendarContract.CalendarAlerts.ALARM_TIME + " ASC";
+    // 미리알림시각 하나만 얻는 정렬순서들, 쌓인 CalendarAlerts 행의 개수와 관계없이 한 행만 읽는다.
+    private static final String SORT_ORDER_FIRST_ALARMTIME =
+            CalendarContract.CalendarAlerts.ALARM_TIME + " ASC LIMIT 1";
+    private static final String SORT_ORDER_LAST_ALARMTIME =
+            CalendarContract.CalendarAlerts.ALARM_TIME + " DESC LIMIT 1";
+    private static final String[] ALARM_TIME_PROJECTION = new String[] {
+            CalendarContract.CalendarAlerts.ALARM_TIME
+    };
     private static final String WHERE_RESCHEDULE_MISSED_ALARMS =
             CalendarContract.CalendarAlerts.STATE
                     + "="
@@ -131,9 +149,25 @@ public class AlertService extends Service {
                     + ">?"
                     + " AND "
                     + CalendarContract.CalendarAlerts.END + ">=?";
+    private static final String WHERE_PENDING_ALARMS =
+            CalendarContract.CalendarAlerts.STATE
+                    + "="
+                    + CalendarContract.CalendarAlerts.STATE_SCHEDULED
+                    + " AND "
+                    + CalendarContract.CalendarAlerts.ALARM_TIME
+                    + ">=?"
+                    + " AND "
+                    + CalendarContract.CalendarAlerts.END + ">=?";
     private static Boolean sReceivedProviderReminderBroadcast = null;
+    private static long sProviderChangedDelayMs = PROVIDER_CHANGED_DELAY_MS;
+    private static long sProviderChangedMaxDelayMs = PROVIDER_CHANGED_MAX_DELAY_MS;
+    // 마지막으로 띄운 Notification 들, 변하지 않은 Notification 들을 다시 띄우지 않는데 리용한다.
+    private static final PostedNotifications sPostedNotifications = new PostedNotifications();
     private volatile Looper mServiceLooper;
     private volatile ServiceHandler mServiceHandler;
+    private RefreshDebouncer mProviderChangedDebouncer;
+    // 합쳐진 갱신이 끝날때까지 stopSelf 를 미룬 마지막 startId, 없으면 -1
+    private int mDeferredStartId = -1;
 
     static void dismissOldAlerts(Context context) {
         ContentResolver cr = context.getContentResolver();
@@ -178,7 +212,7 @@ public class AlertService extends Service {
 
             // If we shouldn't be showing notifications cancel any existing ones
             // and return.
-            nm.cancelAll();
+            cancelAll(nm, sPostedNotifications);
             return true;
         }
 
@@ -192,17 +226,51 @@ public class AlertService extends Service {
             }
 
             if (DEBUG) Log.d(TAG, "No fired or scheduled alerts");
-            nm.cancelAll();
+            cancelAll(nm, sPostedNotifications);
             return false;
         }
 
-        return generateAlerts(context, nm, AlertUtils.createAlarmManager(context), prefs,
-                alertCursor, currentTime, MAX_NOTIFICATIONS);
+        boolean result = generateAlerts(context, nm, AlertUtils.createAlarmManager(context), prefs,
+                alertCursor, currentTime, MAX_NOTIFICATIONS, sPostedNotifications);
+        if (DEBUG) {
+            Log.d(TAG, "Notifications: " + sPostedNotifications);
+        }
+        return result;
+    }
+
+    /**
+     * Notification 들을 직접 취소하였을때 불러서 다음번 갱신에서 다시 띄우도록 한다.
+     * @param notificationId 취소한 Notification id, 모두 취소하였으면 -1
+     */
+    static void onNotificationsCancelled(int notificationId) {
+        if (notificationId < 0) {
+            sPostedNotifications.forgetAll();
+        } else {
+            sPostedNotifications.forget(notificationId);
+        }
+    }
+
+    /**
+     * @return 마지막으로 띄운 Notification 들과 띄우기, 취소 개수들
+     */
+    static PostedNotifications getPostedNotifications() {
+        return sPostedNotifications;
     }
 
     public static boolean generateAlerts(Context context, NotificationMgr nm,
             AlarmManagerInterface alarmMgr, SharedPreferences prefs, Cursor alertCursor,
             final long currentTime, final int maxNotifications) {
+        return generateAlerts(context, nm, alarmMgr, prefs, alertCursor, currentTime,
+                maxNotifications, null);
+    }
+
+    /**
+     * @param posted 마지막으로 띄운 Notification 들, 주면 내용이 변한 Notification 들만 띄우고
+     *               띄운적이 있는 Notification 들만 취소한다. null 이면 모두 다시 띄운다.
+     */
+    static boolean generateAlerts(Context context, NotificationMgr nm,
+            AlarmManagerInterface alarmMgr, SharedPreferences prefs, Cursor alertCursor,
+            final long currentTime, final int maxNotifications, PostedNotifications posted) {
         if (DEBUG) {
             Log.d(TAG, "alertCursor count:" + alertCursor.getCount());
         }
@@ -221,7 +289,7 @@ public class AlertService extends Service {
 
         if (highPriorityEvents.size() + mediumPriorityEvents.size()
                 + lowPriorityEvents.size() == 0) {
-            nm.cancelAll();
+            cancelAll(nm, posted);
             return true;
         }
 
@@ -243,7 +311,7 @@ public class AlertService extends Service {
             String summaryText = AlertUtils.formatTimeLocation(context, info.startMillis,
                     info.allDay, info.location);
             postNotification(info, summaryText, context, true, notificationPrefs, nm,
-                    currentNotificationId++);
+                    currentNotificationId++, posted);
 
             // Keep concurrent events high priority (to appear higher in the notification list)
             // until 15 minutes into the event.
@@ -262,7 +330,7 @@ public class AlertService extends Service {
             String summaryText = AlertUtils.formatTimeLocation(context, info.startMillis,
                     info.allDay, info.location);
             postNotification(info, summaryText, context, false, notificationPrefs, nm,
-                    currentNotificationId++);
+                    currentNotificationId++, posted);
 
             // Refresh when concurrent event ends so it will drop into the expired digest.
             nextRefreshTime = Math.min(nextRefreshTime, getNextRefreshTime(info, currentTime));
@@ -272,37 +340,55 @@ public class AlertService extends Service {
         int numLowPriority = lowPriorityEvents.size();
         if (numLowPriority > 0) {
             String expiredDigestTitle = getDigestTitle(lowPriorityEvents);
-            NotificationWrapper notification;
+            String summaryText = null;
             if (numLowPriority == 1) {
-                // If only 1 expired event, display an "old-style" basic alert.
                 NotificationInfo info = lowPriorityEvents.get(0);
-                String summaryText = AlertUtils.formatTimeLocation(context, info.startMillis,
+                summaryText = AlertUtils.formatTimeLocation(context, info.startMillis,
                         info.allDay, info.location);
-                notification = AlertReceiver.makeBasicNotification(context, info.eventName,
-                        summaryText, info.startMillis, info.endMillis, info.eventId,
-                        AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID
-                );
-            } else {
-                // Multiple expired events are listed in a digest.
-                notification = AlertReceiver.makeDigestNotification(context,
-                    lowPriorityEvents, expiredDigestTitle, false);
             }
+            String digestKey = posted == null ? null : PostedNotifications.makeDigestKey(
+                    lowPriorityEvents, expiredDigestTitle, summaryText);
+
+            if (digestKey == null
+                    || posted.needsPost(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID, digestKey)) {
+                NotificationWrapper notification;
+                if (numLowPriority == 1) {
+                    // If only 1 expired event, display an "old-style" basic alert.
+                    NotificationInfo info = lowPriorityEvents.get(0);
+                    notification = AlertReceiver.makeBasicNotification(context, info.eventName,
+                            summaryText, info.startMillis, info.endMillis, info.eventId,
+                            AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID
+                    );
+                } else {
+                    // Multiple expired events are listed in a digest.
+                    notification = AlertReceiver.makeDigestNotification(context,
+                        lowPriorityEvents, expiredDigestTitle, false);
+                }
 
-            // Add options for a quiet update.
-            addNotificationOptions(notification, true, expiredDigestTitle,
-                    notificationPrefs.getDefaultVibrate(),
-                    notificationPrefs.getRingtoneAndSilence(),
-                    false); /* Do not show the LED for the expired events. */
+                // Add options for a quiet update.
+                addNotificationOptions(notification, true, expiredDigestTitle,
+                        notificationPrefs.getDefaultVibrate(),
+                        notificationPrefs.getRingtoneAndSilence(),
+                        false); /* Do not show the LED for the expired events. */
 
-            if (DEBUG) {
-              Log.d(TAG, "Quietly posting digest alarm notification, numEvents:" + numLowPriority
-                      + ", notificationId:" + AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID);
-          }
+                if (DEBUG) {
+                    Log.d(TAG, "Quietly posting digest alarm notification, numEvents:"
+                            + numLowPriority + ", notificationId:"
+                            + AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID);
+                }
 
-            // Post the new notification for the group.
-            nm.notify(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID, notification);
+                // Post the new notification for the group.
+                nm.notify(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID, notification);
+                if (posted != null) {
+                    posted.onPosted(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID, digestKey);
+                }
+            } else if (DEBUG) {
+                Log.d(TAG, "Digest notification unchanged, numEvents:" + numLowPriority);
+            }
         } else {
-            nm.cancel(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID);
+            if (posted == null || posted.needsCancel(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID)) {
+                nm.cancel(AlertUtils.EXPIRED_GROUP_NOTIFICATION_ID);
+            }
             if (DEBUG) {
                 Log.d(TAG, "No low priority events, canceling the digest notification.");
             }
@@ -310,12 +396,15 @@ public class AlertService extends Service {
 
         // Remove the notifications that are hanging around from the previous refresh.
         if (currentNotificationId <= maxNotifications) {
-            nm.cancelAllBetween(currentNotificationId, maxNotifications);
+            cancelAllBetween(nm, posted, currentNotificationId, maxNotifications);
             if (DEBUG) {
                 Log.d(TAG, "Canceling leftover notification IDs " + currentNotificationId + "-"
                         + maxNotifications);
             }
         }
+        if (posted != null) {
+            posted.onRefreshed();
+        }
 
         // Schedule the next silent refresh time so notifications will change
         // buckets (eg. drop into expired digest, etc).
@@ -483,9 +572,9 @@ public class AlertService extends Service {
                 if (AlertUtils.BYPASS_DB && ((currentTime - alarmTime) / MINUTE_MS < 1)) {
                     // To avoid re-firing alerts, only fire if alarmTime is very recent.  Otherwise
                     // we can get refires for non-dismissed alerts after app installation, or if the
-                    // SharedPrefs was cleared too early.  This means alerts that were timed while
+                    // fired alert store was cleared too early.  This means alerts that were timed while
                     // the phone was off may show up silently in the notification bar.
-                    boolean alreadyFired = AlertUtils.hasAlertFiredInSharedPrefs(context, eventId,
+                    boolean alreadyFired = AlertUtils.hasAlertFired(context, eventId,
                             beginTime, alarmTime);
                     if (!alreadyFired) {
                         newAlertOverride = true;
@@ -550,7 +639,7 @@ public class AlertService extends Service {
                     state = newState;
 
                     if (AlertUtils.BYPASS_DB) {
-                        AlertUtils.setAlertFiredInSharedPrefs(context, eventId, beginTime,
+                        AlertUtils.setAlertFired(context, eventId, beginTime,
                                 alarmTime);
                     }
                 }
@@ -679,7 +768,20 @@ public class AlertService extends Service {
 
     private static void postNotification(NotificationInfo info, String summaryText,
             Context context, boolean highPriority, NotificationPrefs prefs,
-            NotificationMgr notificationMgr, int notificationId) {
+            NotificationMgr notificationMgr, int notificationId, PostedNotifications posted) {
+
+        // 새 미리알림이 아니고 같은 내용이 이미 떠있으면 다시 띄우지 않는다.
+        String key = null;
+        if (posted != null) {
+            key = PostedNotifications.makeKey(info, summaryText, highPriority);
+            if (!info.newAlert && !posted.needsPost(notificationId, key)) {
+                if (DEBUG) {
+                    Log.d(TAG, "Notification unchanged, eventId:" + info.eventId
+                            + ", notificationId:" + notificationId);
+                }
+                return;
+            }
+        }
 
         String tickerText = getTickerText(info.eventName, info.location);
         NotificationWrapper notification = AlertReceiver.makeExpandingNotification(context,
@@ -702,6 +804,9 @@ public class AlertService extends Service {
 
         // Post the notification.
         notificationMgr.notify(notificationId, notification);
+        if (posted != null) {
+            posted.onPosted(notificationId, key);
+        }
 
         if (DEBUG) {
             Log.d(TAG, "Posting individual alarm notification, eventId:" + info.eventId
@@ -711,6 +816,31 @@ public class AlertService extends Service {
         }
     }
 
+    /**
+     * 모든 Notification 들을 취소한다. posted 를 주면 띄운적이 있는 Notification 들만 취소한다.
+     */
+    private static void cancelAll(NotificationMgr nm, PostedNotifications posted) {
+        if (posted == null) {
+            nm.cancelAll();
+        } else {
+            cancelAllBetween(nm, posted, 0, MAX_NOTIFICATIONS);
+            posted.onRefreshed();
+        }
+    }
+
+    private static void cancelAllBetween(NotificationMgr nm, PostedNotifications posted,
+            int from, int to) {
+        if (posted == null) {
+            nm.cancelAllBetween(from, to);
+            return;
+        }
+        for (int id = from; id <= to; id++) {
+            if (posted.needsCancel(id)) {
+                nm.cancel(id);
+            }
+        }
+    }
+
     private static String getTickerText(String eventName, String location) {
         String tickerText = eventName;
         if (!TextUtils.isEmpty(location)) {
@@ -755,6 +885,11 @@ public class AlertService extends Service {
      * Searches the CalendarAlerts table for alarms that should have fired but
      * have not and then reschedules them. This method can be called at boot
      * time to restore alarms that may have been lost due to a phone reboot.
+     * <p>
+     * Every scheduled alert whose alarm time has passed is handled by the same
+     * {@link #updateAlertNotification} pass, so only the latest missed alarm time
+     * needs to be rescheduled.  It is read with a single-row query, which takes the
+     * same time however many old CalendarAlerts rows there are.
      *
      * @param cr the ContentResolver
      * @param context the Context
@@ -762,13 +897,10 @@ public class AlertService extends Service {
      */
     private static void rescheduleMissedAlarms(ContentResolver cr, Context context,
                                                AlarmManagerInterface manager) {
-        // Get all the alerts that have been scheduled but have not fired
-        // and should have fired by now and are not too old.
+        // Get the latest alert that has been scheduled but has not fired
+        // and should have fired by now and is not too old.
         long now = System.currentTimeMillis();
         long ancient = now - DateUtils.DAY_IN_MILLIS;
-        String[] projection = new String[] {
-            CalendarContract.CalendarAlerts.ALARM_TIME,
-        };
 
         if (ContextCompat.checkSelfPermission(context,
                 Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
@@ -777,34 +909,57 @@ public class AlertService extends Service {
             return;
         }
 
+        long alarmTime = queryAlarmTime(cr, WHERE_RESCHEDULE_MISSED_ALARMS, new String[] {
+                Long.toString(now), Long.toString(ancient), Long.toString(now)
+        }, SORT_ORDER_LAST_ALARMTIME);
+        if (alarmTime >= 0) {
+            if (DEBUG) {
+                Log.w(TAG, "rescheduling missed alarm. alarmTime: " + alarmTime);
+            }
+            AlertUtils.scheduleAlarm(context, manager, alarmTime);
+        }
+    }
 
-        // TODO: construct an explicit SQL query so that we can add
-        // "GROUPBY" instead of doing a sort and de-dup
-        Cursor cursor = cr.query(CalendarAlerts.CONTENT_URI, projection,
-                WHERE_RESCHEDULE_MISSED_ALARMS, (new String[] {
-                        Long.toString(now), Long.toString(ancient), Long.toString(now)
-                }), SORT_ORDER_ALARMTIME_ASC);
-        if (cursor == null) {
+    /**
+     * 아직 울리지 않은 CalendarAlerts 행(미루기로 추가된 미리알림 등)들중 제일 가까운 미리알림시각으로 alarm 을 예약한다.
+     * 이 행들은 {@link AlarmScheduler}가 모르므로 시간이 바뀌였을때 다시 예약한다.
+     * @param cr ContentResolver
+     * @param context Context
+     * @param manager AlarmManager
+     */
+    private static void scheduleNextPendingAlarm(ContentResolver cr, Context context,
+            AlarmManagerInterface manager) {
+        if (ContextCompat.checkSelfPermission(context,
+                Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
+            Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
             return;
         }
 
-        if (DEBUG) {
-            Log.d(TAG, "missed alarms found: " + cursor.getCount());
+        final String now = Long.toString(System.currentTimeMillis());
+        long alarmTime = queryAlarmTime(cr, WHERE_PENDING_ALARMS, new String[] {now, now},
+                SORT_ORDER_FIRST_ALARMTIME);
+        if (alarmTime >= 0) {
+            if (DEBUG) {
+                Log.d(TAG, "scheduling next pending alarm. alarmTime: " + alarmTime);
+            }
+            AlertUtils.scheduleAlarm(context, manager, alarmTime);
         }
+    }
 
+    /**
+     * CalendarAlerts 에서 조건에 맞는 첫 행의 미리알림시각을 얻는다.
+     * @param sortOrder LIMIT 1 을 붙인 정렬순서
+     * @return 미리알림시각, 맞는 행이 없으면 -1
+     */
+    private static long queryAlarmTime(ContentResolver cr, String selection,
+            String[] selectionArgs, String sortOrder) {
+        Cursor cursor = cr.query(CalendarAlerts.CONTENT_URI, ALARM_TIME_PROJECTION, selection,
+                selectionArgs, sortOrder);
+        if (cursor == null) {
+            return -1;
+        }
         try {
-            long alarmTime = -1;
-
-            while (cursor.moveToNext()) {
-                long newAlarmTime = cursor.getLong(0);
-                if (alarmTime != newAlarmTime) {
-                    if (DEBUG) {
-                        Log.w(TAG, "rescheduling missed alarm. alarmTime: " + newAlarmTime);
-                    }
-                    AlertUtils.scheduleAlarm(context, manager, newAlarmTime);
-                    alarmTime = newAlarmTime;
-                }
-            }
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
         } finally {
             cursor.close();
         }
@@ -839,24 +994,20 @@ public class AlertService extends Service {
             }
         }
 
+        if (action.equals(Intent.ACTION_PROVIDER_CHANGED)) {
+            // Handler thread 를 막지 않고 갱신을 예약한다. 기다리는 갱신이 있으면 거기에 합친다.
+            // 알림갱신과 다음 alarm 예약은 doProviderChanged 에서 한다.
+            if (!mProviderChangedDebouncer.request() && DEBUG) {
+                Log.d(TAG, "Coalesced provider change: " + mProviderChangedDebouncer);
+            }
+            return;
+        }
+
         if (providerReminder ||
-                action.equals(Intent.ACTION_PROVIDER_CHANGED) ||
                 action.equals(android.provider.CalendarContract.ACTION_EVENT_REMINDER) ||
                 (action.equals(AlertReceiver.EVENT_REMINDER_APP_ACTION) &&
                  !Boolean.TRUE.equals(sReceivedProviderReminderBroadcast)) ||
                 action.equals(Intent.ACTION_LOCALE_CHANGED)) {
-
-            // b/7652098: Add a delay after the provider-changed event before refreshing
-            // notifications to help issue with the unbundled app installed on HTC having
-            // stale notifications.
-            if (action.equals(Intent.ACTION_PROVIDER_CHANGED)) {
-                try {
-                    Thread.sleep(5000);
-                } catch (Exception e) {
-                    // Ignore.
-                }
-            }
-
             updateAlertNotification(this);
         } else if (action.equals(Intent.ACTION_TIME_CHANGED)) {
             doTimeChanged();
@@ -866,6 +1017,25 @@ public class AlertService extends Service {
             Log.w(TAG, "Invalid action: " + action);
         }
 
+        scheduleNextAlarmIfNeeded();
+    }
+
+    /**
+     * 합쳐진 PROVIDER_CHANGED 들에 대하여 알림들을 한번 갱신한다.
+     */
+    private void doProviderChanged() {
+        mProviderChangedDebouncer.onRefresh();
+        if (DEBUG) {
+            Log.d(TAG, "Refreshing after provider change: " + mProviderChangedDebouncer);
+        }
+
+        updateAlertNotification(this);
+        scheduleNextAlarmIfNeeded();
+        // 합쳐진 일정변화에 대하여 widget 들도 한번만 갱신한다.
+        WidgetUpdateScheduler.requestUpdate(this);
+    }
+
+    private void scheduleNextAlarmIfNeeded() {
         // Schedule the alarm for the next upcoming reminder, if not done by the provider.
         if (sReceivedProviderReminderBroadcast == null || !sReceivedProviderReminderBroadcast) {
             Log.d(TAG, "Scheduling next alarm with AlarmScheduler. "
@@ -874,11 +1044,35 @@ public class AlertService extends Service {
         }
     }
 
+    /**
+     * PROVIDER_CHANGED 를 합치는 시간들을 설정한다. 다음에 창조되는 service 부터 적용된다.
+     * @param delayMs 마지막 broadcast 로부터 갱신까지 기다리는 시간(미리초)
+     * @param maxDelayMs 첫 broadcast 로부터 갱신까지 기다리는 최대시간(미리초)
+     */
+    // VisibleForTesting
+    static void setProviderChangedDelay(long delayMs, long maxDelayMs) {
+        sProviderChangedDelayMs = delayMs;
+        sProviderChangedMaxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * @return PROVIDER_CHANGED 요청, 합쳐진 요청, 실행된 갱신의 개수를 가진 debouncer, service 가 창조되지 않았으면 null
+     */
+    // VisibleForTesting
+    RefreshDebouncer getProviderChangedDebouncer() {
+        return mProviderChangedDebouncer;
+    }
+
     private void doTimeChanged() {
         ContentResolver cr = getContentResolver();
         // TODO Move this into Provider
-        rescheduleMissedAlarms(cr, this, AlertUtils.createAlarmManager(this));
+        AlarmManagerInterface alarmManager = AlertUtils.createAlarmManager(this);
+        rescheduleMissedAlarms(cr, this, alarmManager);
+        scheduleNextPendingAlarm(cr, this, alarmManager);
+        // 미리알림시각들을 새 시간으로 다시 계산한다.
+        AlarmScheduler.invalidate();
         updateAlertNotification(this);
+        WidgetUpdateScheduler.requestUpdate(this);
     }
 
     @Override
@@ -889,6 +1083,8 @@ public class AlertService extends Service {
 
         mServiceLooper = thread.getLooper();
         mServiceHandler = new ServiceHandler(mServiceLooper);
+        mProviderChangedDebouncer = new RefreshDebouncer(mServiceHandler, MSG_PROVIDER_CHANGED,
+                sProviderChangedDelayMs, sProviderChangedMaxDelayMs);
 
         // Flushes old fired alerts from internal storage, if needed.
         AlertUtils.flushOldAlertsFromInternalStorage(getApplication());
@@ -1062,10 +1258,24 @@ public class AlertService extends Service {
 
         @Override
         public void handleMessage(Message msg) {
-            processMessage(msg);
+            if (msg.what == MSG_PROVIDER_CHANGED) {
+                doProviderChanged();
+            } else {
+                processMessage(msg);
+                mDeferredStartId = Math.max(mDeferredStartId, msg.arg1);
+            }
+
+            // 예약된 갱신이 있으면 그것이 끝날때까지 service 를 멈추지 않는다.
+            // stopSelfResult 는 마지막 startId 일때만 멈추므로 미룬 startId 들가운데서 마지막것만 넘긴다.
+            if (mProviderChangedDebouncer.isPending() || mDeferredStartId < 0) {
+                return;
+            }
+
             // NOTE: We MUST not call stopSelf() directly, since we need to
             // make sure the wake lock acquired by AlertReceiver is released.
-            AlertReceiver.finishStartingService(AlertService.this, msg.arg1);
+            final int startId = mDeferredStartId;
+            mDeferredStartId = -1;
+            AlertReceiver.finishStartingService(AlertService.this, startId);
         }
     }
 }
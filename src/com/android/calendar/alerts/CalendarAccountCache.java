@@ -0,0 +1,165 @@
+package com.android.calendar.alerts;
+
+import android.Manifest;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.provider.CalendarContract.Calendars;
+import android.util.Log;
+import android.util.LongSparseArray;
+import android.util.Pair;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link GlobalDismissManager}가 리용하는 달력 id 별 계정 (계정형태, 계정이름) cache
+ * 달력의 계정은 거의 변하지 않으므로 한번 읽은 달력은 Calendars uri 에 등록된 {@link ContentObserver}가
+ * 변화를 알릴때까지 다시 query 하지 않는다. Cache 에 없는 달력들만 한번의 query 로 읽는다.
+ * 이미 구독한 계정이름들과 처리한 일정 id 들도 여기에 기억하며 달력이 변하면 함께 지운다.
+ * 모든 함수들은 이 객체로 동기화되여있다.
+ */
+class CalendarAccountCache {
+    private static final String TAG = "CalendarAccountCache";
+    //처리한 일정 id 를 이 개수보다 많이 기억하지 않는다.
+    private static final int MAX_HANDLED_EVENTS = 512;
+
+    private static CalendarAccountCache sInstance = null;
+
+    //달력 id 별 (계정형태, 계정이름)
+    private final LongSparseArray<Pair<String, String>> mAccounts = new LongSparseArray<>();
+    //계정구독까지 끝난 일정 id 들
+    private final Set<Long> mHandledEventIds = new HashSet<>();
+    //SharedPreferences 에 보관된 구독한 계정이름들, 읽지 않았으면 null
+    private Set<String> mKnownAccounts = null;
+
+    //무효화될때마다 증가한다. Query 도중에 무효화되였으면 그 결과는 보관하지 않는다.
+    private int mGeneration = 0;
+
+    static synchronized CalendarAccountCache getInstance(Context context) {
+        if (sInstance == null) {
+            final CalendarAccountCache cache = new CalendarAccountCache();
+            ContentObserver observer = new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    cache.invalidate();
+                }
+            };
+            context.getApplicationContext().getContentResolver().registerContentObserver(
+                    Calendars.CONTENT_URI, true, observer);
+            sInstance = cache;
+        }
+        return sInstance;
+    }
+
+    /**
+     * 달력들의 계정을 얻는다. Cache 에 없는 달력들만 provider 에 query 한다.
+     * @param context Context
+     * @param calendarIds 달력 id 들
+     * @return 달력 id 로부터 (계정형태, 계정이름)에로의 map, 권한이 없거나 달력이 없으면 그 달력은 빠진다.
+     */
+    Map<Long, Pair<String, String>> getAccounts(Context context, Set<Long> calendarIds) {
+        final Map<Long, Pair<String, String>> result = new HashMap<>();
+        final Set<Long> missing = new HashSet<>();
+        final int generation;
+        synchronized (this) {
+            for (Long id : calendarIds) {
+                final Pair<String, String> account = mAccounts.get(id);
+                if (account != null) {
+                    result.put(id, account);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+            generation = mGeneration;
+        }
+
+        final Map<Long, Pair<String, String>> loaded = query(context, missing);
+        result.putAll(loaded);
+        synchronized (this) {
+            if (generation == mGeneration) {
+                for (Map.Entry<Long, Pair<String, String>> entry : loaded.entrySet()) {
+                    mAccounts.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 일정들을 모두 이미 처리하였으면 true
+     */
+    synchronized boolean isHandled(Set<Long> eventIds) {
+        return mHandledEventIds.containsAll(eventIds);
+    }
+
+    /**
+     * 일정들의 계정구독이 끝났음을 기록한다.
+     */
+    synchronized void setHandled(Set<Long> eventIds) {
+        if (mHandledEventIds.size() + eventIds.size() > MAX_HANDLED_EVENTS) {
+            mHandledEventIds.clear();
+        }
+        mHandledEventIds.addAll(eventIds);
+    }
+
+    /**
+     * @return 구독한 계정이름들, 없으면 null
+     */
+    synchronized Set<String> getKnownAccounts() {
+        return mKnownAccounts;
+    }
+
+    /**
+     * @param accounts 구독한 계정이름들
+     */
+    synchronized void setKnownAccounts(Set<String> accounts) {
+        mKnownAccounts = accounts;
+    }
+
+    /**
+     * 기억한 달력계정들과 처리한 일정들을 지운다. 구독한 계정이름들은 달력과 관계없으므로 남겨둔다.
+     */
+    synchronized void invalidate() {
+        mAccounts.clear();
+        mHandledEventIds.clear();
+        mGeneration++;
+    }
+
+    private static Map<Long, Pair<String, String>> query(Context context, Set<Long> calendarIds) {
+        final Map<Long, Pair<String, String>> calendarsToAccounts = new HashMap<>();
+        if (ContextCompat.checkSelfPermission(context,
+                Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
+            //If permission is not granted then just return.
+            Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
+            return calendarsToAccounts;
+        }
+
+        ContentResolver resolver = context.getContentResolver();
+        Cursor cursor = resolver.query(Calendars.CONTENT_URI,
+                GlobalDismissManager.CALENDARS_PROJECTION,
+                GlobalDismissManager.buildMultipleIdQuery(calendarIds, Calendars._ID), null,
+                null);
+        if (cursor == null) {
+            return calendarsToAccounts;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                calendarsToAccounts.put(cursor.getLong(0),
+                        new Pair<>(cursor.getString(2), cursor.getString(1)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return calendarsToAccounts;
+    }
+}
@@ -105,6 +105,7 @@ public class DismissAlarmsService extends IntentService {
             NotificationManager nm =
                     (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
             nm.cancel(notificationId);
+            AlertService.onNotificationsCancelled(notificationId);
         }
 
         if (showEvent) {
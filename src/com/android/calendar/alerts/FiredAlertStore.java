@@ -0,0 +1,321 @@
+package com.android.calendar.alerts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 이미 울린 미리알림들을 (일정 id, 시작시간, 미리알림시각) 열쇠로 기억하는 저장소
+ *  - 파일에는 24 byte 고정길이 기록들을 덧붙여 쓴다. 기록을 추가할때 파일전체를 다시 쓰지 않는다.
+ *  - 기억기에는 열쇠순서로 정렬된 배렬들로 가지고 있으며 2분탐색으로 찾는다.
+ *  - 오래된 기록들은 미리알림시각으로 지우며 지울것이 있을때에만 파일을 다시 쓴다.
+ *  - 다시 쓰기는 {@link AtomicFile}로 하며 읽을때에도 AtomicFile 로 읽어서 다시 쓰다가 끊어졌으면 예비파일을 복구한다.
+ * 이전에 SharedPreferences 에 key 마다 보관하던 기록들은 처음 읽을때 옮겨오고 SharedPreferences 는 비운다.
+ * 모든 함수들은 이 객체로 동기화되여있다.
+ */
+class FiredAlertStore {
+    private static final String TAG = "FiredAlertStore";
+    private static final String FILE_NAME = "fired_alerts";
+    //기록 하나의 크기: 일정 id, 시작시간, 미리알림시각
+    private static final int RECORD_BYTES = 3 * 8;
+
+    private static FiredAlertStore sInstance = null;
+
+    private final Context mContext;
+    private final File mFile;
+    private final AtomicFile mAtomicFile;
+    //AtomicFile 이 다시 쓰는 동안 유지하는 예비파일
+    private final File mBackupFile;
+
+    //열쇠순서로 정렬된 기록들
+    private long[] mEventIds = new long[16];
+    private long[] mBeginTimes = new long[16];
+    private long[] mAlarmTimes = new long[16];
+    private int mSize = 0;
+
+    //제일 이른 미리알림시각, 기록이 없으면 Long.MAX_VALUE
+    private long mMinAlarmTime = Long.MAX_VALUE;
+    private boolean mLoaded = false;
+
+    static synchronized FiredAlertStore getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new FiredAlertStore(appContext, new File(appContext.getFilesDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    FiredAlertStore(Context context, File file) {
+        mContext = context;
+        mFile = file;
+        mAtomicFile = new AtomicFile(file);
+        mBackupFile = new File(file.getPath() + ".bak");
+    }
+
+    /**
+     * @return 미리알림이 이미 울렸으면 true
+     */
+    synchronized boolean contains(long eventId, long beginTime, long alarmTime) {
+        ensureLoaded();
+        return indexOf(eventId, beginTime, alarmTime) >= 0;
+    }
+
+    /**
+     * 미리알림이 울렸음을 기록한다. 이미 있는 기록이면 아무것도 하지 않는다.
+     */
+    synchronized void add(long eventId, long beginTime, long alarmTime) {
+        ensureLoaded();
+        if (!insert(eventId, beginTime, alarmTime)) {
+            return;
+        }
+
+        //예비파일이 남아있으면 기본파일은 다시 쓰다가 끊어진것일수 있다. 덧붙이지 않고 전체를 다시 쓴다.
+        if (mBackupFile.exists()) {
+            writeAll();
+            return;
+        }
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(mFile, true), RECORD_BYTES));
+            out.writeLong(eventId);
+            out.writeLong(beginTime);
+            out.writeLong(alarmTime);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append fired alert", e);
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * 미리알림시각이 주어진 시각과 같거나 이전인 기록들을 지운다.
+     * 그런 기록이 없으면 파일을 건드리지 않는다.
+     * @param cutoffTime 이 시각까지의 기록들을 지운다.
+     * @return 지운 기록개수
+     */
+    synchronized int expire(long cutoffTime) {
+        ensureLoaded();
+        if (mMinAlarmTime > cutoffTime) {
+            return 0;
+        }
+
+        int kept = 0;
+        long minAlarmTime = Long.MAX_VALUE;
+        for (int i = 0; i < mSize; i++) {
+            final long alarmTime = mAlarmTimes[i];
+            if (alarmTime <= cutoffTime) {
+                continue;
+            }
+            mEventIds[kept] = mEventIds[i];
+            mBeginTimes[kept] = mBeginTimes[i];
+            mAlarmTimes[kept] = alarmTime;
+            minAlarmTime = Math.min(minAlarmTime, alarmTime);
+            kept++;
+        }
+        final int removed = mSize - kept;
+        mSize = kept;
+        mMinAlarmTime = minAlarmTime;
+        writeAll();
+
+        if (AlertUtils.DEBUG) {
+            Log.d(TAG, "Expired " + removed + " fired alerts, " + kept + " left");
+        }
+        return removed;
+    }
+
+    /**
+     * @return 제일 이른 미리알림시각, 기록이 없으면 Long.MAX_VALUE
+     */
+    synchronized long getMinAlarmTime() {
+        ensureLoaded();
+        return mMinAlarmTime;
+    }
+
+    /**
+     * @return 기록개수
+     */
+    synchronized int size() {
+        ensureLoaded();
+        return mSize;
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        final boolean aligned = readAll();
+        if (migrateSharedPrefs() || !aligned) {
+            writeAll();
+            AlertUtils.getFiredAlertsTable(mContext).edit().clear().apply();
+        }
+    }
+
+    /**
+     * 파일의 기록들을 읽는다. 덧붙여 쓰다가 끊어진 마지막 기록은 버린다.
+     * 다시 쓰다가 끊어진 파일은 AtomicFile 이 예비파일로부터 복구한다.
+     * @return 파일이 기록단위로 끝나면 true, false 이면 다음 기록을 덧붙이기전에 파일을 다시 써야 한다.
+     */
+    private boolean readAll() {
+        DataInputStream in = null;
+        try {
+            final FileInputStream stream = mAtomicFile.openRead();
+            in = new DataInputStream(new BufferedInputStream(stream));
+            final long length = stream.getChannel().size();
+            for (long i = length / RECORD_BYTES; i > 0; i--) {
+                insert(in.readLong(), in.readLong(), in.readLong());
+            }
+            if (length % RECORD_BYTES != 0) {
+                Log.w(TAG, "Fired alert file has a partial record");
+                return false;
+            }
+        } catch (FileNotFoundException e) {
+            //아직 기록이 없다.
+        } catch (EOFException e) {
+            Log.w(TAG, "Fired alert file truncated");
+            return false;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read fired alerts", e);
+        } finally {
+            closeQuietly(in);
+        }
+        return true;
+    }
+
+    /**
+     * 파일을 현재 기록들로 다시 쓴다.
+     */
+    private void writeAll() {
+        final AtomicFile file = mAtomicFile;
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            for (int i = 0; i < mSize; i++) {
+                out.writeLong(mEventIds[i]);
+                out.writeLong(mBeginTimes[i]);
+                out.writeLong(mAlarmTimes[i]);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write fired alerts", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * SharedPreferences 에 "preference_alert_<일정 id>_<시작시간>_<미리알림시각>" 으로 보관된 기록들을 옮겨온다.
+     * @return SharedPreferences 에 무엇이든 있었으면 true
+     */
+    private boolean migrateSharedPrefs() {
+        final SharedPreferences prefs = AlertUtils.getFiredAlertsTable(mContext);
+        final Map<String, ?> entries = prefs.getAll();
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        final String prefix = AlertUtils.KEY_FIRED_ALERT_PREFIX;
+        for (String key : entries.keySet()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            final String[] parts = key.substring(prefix.length()).split("_");
+            if (parts.length != 3) {
+                continue;
+            }
+            try {
+                insert(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Ignoring malformed fired alert key " + key);
+            }
+        }
+        //기록이 아닌 key(마지막 정리시각)만 있어도 SharedPreferences 는 비운다.
+        return true;
+    }
+
+    /**
+     * 기록을 정렬된 자리에 넣는다.
+     * @return 새로 넣었으면 true, 이미 있으면 false
+     */
+    private boolean insert(long eventId, long beginTime, long alarmTime) {
+        int index = indexOf(eventId, beginTime, alarmTime);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+
+        if (mSize == mEventIds.length) {
+            final int capacity = mSize * 2;
+            mEventIds = Arrays.copyOf(mEventIds, capacity);
+            mBeginTimes = Arrays.copyOf(mBeginTimes, capacity);
+            mAlarmTimes = Arrays.copyOf(mAlarmTimes, capacity);
+        }
+        final int moved = mSize - index;
+        System.arraycopy(mEventIds, index, mEventIds, index + 1, moved);
+        System.arraycopy(mBeginTimes, index, mBeginTimes, index + 1, moved);
+        System.arraycopy(mAlarmTimes, index, mAlarmTimes, index + 1, moved);
+        mEventIds[index] = eventId;
+        mBeginTimes[index] = beginTime;
+        mAlarmTimes[index] = alarmTime;
+        mSize++;
+        mMinAlarmTime = Math.min(mMinAlarmTime, alarmTime);
+        return true;
+    }
+
+    /**
+     * 2분탐색으로 기록을 찾는다.
+     * @return 기록의 위치, 없으면 (-(넣을 위치) - 1)
+     */
+    private int indexOf(long eventId, long beginTime, long alarmTime) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            int cmp = Long.compare(mEventIds[mid], eventId);
+            if (cmp == 0) {
+                cmp = Long.compare(mBeginTimes[mid], beginTime);
+            }
+            if (cmp == 0) {
+                cmp = Long.compare(mAlarmTimes[mid], alarmTime);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                //무시한다.
+            }
+        }
+    }
+}
@@ -44,6 +44,7 @@ import com.android.krcalendar.R;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -59,8 +60,12 @@ public class GlobalDismissManager extends BroadcastReceiver {
     public static final String ACCOUNT_NAME = KEY_PREFIX + "account_name";
     static final String[] EVENT_PROJECTION = new String[] {
             Events._ID,
-            Events.CALENDAR_ID
+            Events.CALENDAR_ID,
+            Events._SYNC_ID
     };
+    private static final int EVENT_INDEX_ID = 0;
+    private static final int EVENT_INDEX_CALENDAR_ID = 1;
+    private static final int EVENT_INDEX_SYNC_ID = 2;
     static final String[] EVENT_SYNC_PROJECTION = new String[] {
             Events._ID,
             Events._SYNC_ID
@@ -78,6 +83,10 @@ public class GlobalDismissManager extends BroadcastReceiver {
     /**
      * Look for unknown accounts in a set of events and associate with them.
      * Returns immediately, processing happens in the background.
+     * <p>
+     * Events whose accounts were already handled since the last calendar change are
+     * skipped without a query, and calendar accounts come from {@link CalendarAccountCache},
+     * so a batch costs at most one event query.
      *
      * @param context application context
      * @param eventIds IDs for events that have posted notifications that may be
@@ -89,16 +98,22 @@ public class GlobalDismissManager extends BroadcastReceiver {
             Log.i(TAG, "no sender configured");
             return;
         }
-        Map<Long, Long> eventsToCalendars = lookupEventToCalendarMap(context, eventIds);
+        final CalendarAccountCache cache = CalendarAccountCache.getInstance(context);
+        if (eventIds.isEmpty() || cache.isHandled(eventIds)) {
+            return;
+        }
+
+        Map<Long, Pair<Long, String>> events = lookupEvents(context, eventIds);
         Set<Long> calendars = new LinkedHashSet<Long>();
-        calendars.addAll(eventsToCalendars.values());
+        for (Pair<Long, String> event : events.values()) {
+            calendars.add(event.first);
+        }
         if (calendars.isEmpty()) {
             Log.d(TAG, "found no calendars for events");
             return;
         }
 
-        Map<Long, Pair<String, String>> calendarsToAccounts =
-                lookupCalendarToAccountMap(context, calendars);
+        Map<Long, Pair<String, String>> calendarsToAccounts = cache.getAccounts(context, calendars);
 
         if (calendarsToAccounts.isEmpty()) {
             Log.d(TAG, "found no accounts for calendars");
@@ -114,15 +129,12 @@ public class GlobalDismissManager extends BroadcastReceiver {
         }
 
         // filter out accounts we already know about
-        SharedPreferences prefs =
-                context.getSharedPreferences(GLOBAL_DISMISS_MANAGER_PREFS,
-                        Context.MODE_PRIVATE);
-        Set<String> existingAccounts = prefs.getStringSet(ACCOUNT_KEY,
-                new HashSet<String>());
+        Set<String> existingAccounts = getKnownAccounts(context, cache);
         accounts.removeAll(existingAccounts);
 
         if (accounts.isEmpty()) {
             // nothing to do, we've already registered all the accounts.
+            cache.setHandled(eventIds);
             return;
         }
 
@@ -130,24 +142,37 @@ public class GlobalDismissManager extends BroadcastReceiver {
         CloudNotificationBackplane cnb =
                 ExtensionsFactory.getCloudNotificationBackplane();
         if (cnb.open(context)) {
+            boolean subscribedAll = true;
+            Set<String> knownAccounts = new HashSet<String>(existingAccounts);
             for (String account : accounts) {
                 try {
                     if (cnb.subscribeToGroup(senderId, account, account)) {
-                        existingAccounts.add(account);
+                        knownAccounts.add(account);
+                    } else {
+                        subscribedAll = false;
                     }
                 } catch (IOException e) {
                     // Try again, next time the account triggers and alert.
+                    subscribedAll = false;
                 }
             }
             cnb.close();
-            prefs.edit()
-            .putStringSet(ACCOUNT_KEY, existingAccounts)
-            .apply();
+            cache.setKnownAccounts(knownAccounts);
+            context.getSharedPreferences(GLOBAL_DISMISS_MANAGER_PREFS, Context.MODE_PRIVATE)
+                    .edit()
+                    .putStringSet(ACCOUNT_KEY, knownAccounts)
+                    .apply();
+            if (subscribedAll) {
+                cache.setHandled(eventIds);
+            }
         }
     }
 
     /**
      * Globally dismiss notifications that are backed by the same events.
+     * <p>
+     * The sync IDs are read by the same query that maps events to calendars and the
+     * dismissals are sent grouped by account over one backplane connection.
      *
      * @param context Context
      * @param alarmIds 사용자에 의해 dismiss 된 일정들에 대한 Id들
@@ -162,78 +187,94 @@ public class GlobalDismissManager extends BroadcastReceiver {
         for (AlarmId alarmId: alarmIds) {
             eventIds.add(alarmId.mEventId);
         }
-        // find the mapping between calendars and events
-        Map<Long, Long> eventsToCalendars = lookupEventToCalendarMap(context, eventIds);
+        // find the calendars and sync IDs of the events
+        Map<Long, Pair<Long, String>> events = lookupEvents(context, eventIds);
 
-        if (eventsToCalendars.isEmpty()) {
+        if (events.isEmpty()) {
             Log.d(TAG, "found no calendars for events");
             return;
         }
 
         Set<Long> calendars = new LinkedHashSet<Long>();
-        calendars.addAll(eventsToCalendars.values());
+        for (Pair<Long, String> event : events.values()) {
+            calendars.add(event.first);
+        }
 
         // find the accounts associated with those calendars
         Map<Long, Pair<String, String>> calendarsToAccounts =
-                lookupCalendarToAccountMap(context, calendars);
+                CalendarAccountCache.getInstance(context).getAccounts(context, calendars);
 
         if (calendarsToAccounts.isEmpty()) {
             Log.d(TAG, "found no accounts for calendars");
             return;
         }
 
-        // TODO group by account to reduce queries
-        Map<String, String> syncIdToAccount = new HashMap<String, String>();
-        Map<Long, String> eventIdToSyncId = new HashMap<Long, String>();
-        ContentResolver resolver = context.getContentResolver();
-        for (Long eventId : eventsToCalendars.keySet()) {
-            Long calendar = eventsToCalendars.get(eventId);
-            Pair<String, String> account = calendarsToAccounts.get(calendar);
-            if (GOOGLE_ACCOUNT_TYPE.equals(account.first)) {
-                Uri uri = asSync(Events.CONTENT_URI, account.first, account.second);
-                Cursor cursor = resolver.query(uri, EVENT_SYNC_PROJECTION,
-                        Events._ID + " = " + eventId, null, null);
-                try {
-                    cursor.moveToPosition(-1);
-                    int sync_id_idx = cursor.getColumnIndex(Events._SYNC_ID);
-                    if (sync_id_idx != -1) {
-                        while (cursor.moveToNext()) {
-                            String syncId = cursor.getString(sync_id_idx);
-                            syncIdToAccount.put(syncId, account.second);
-                            eventIdToSyncId.put(eventId, syncId);
-                        }
-                    }
-                } finally {
-                    cursor.close();
-                }
+        // group the dismissals by account, dropping duplicates
+        Map<String, Map<String, Bundle>> messagesByAccount =
+                new LinkedHashMap<String, Map<String, Bundle>>();
+        for (AlarmId alarmId: alarmIds) {
+            Pair<Long, String> event = events.get(alarmId.mEventId);
+            if (event == null || event.second == null) {
+                continue;
+            }
+            Pair<String, String> account = calendarsToAccounts.get(event.first);
+            if (account == null || !GOOGLE_ACCOUNT_TYPE.equals(account.first)) {
+                continue;
+            }
+            Map<String, Bundle> messages = messagesByAccount.get(account.second);
+            if (messages == null) {
+                messages = new LinkedHashMap<String, Bundle>();
+                messagesByAccount.put(account.second, messages);
+            }
+            String syncId = event.second;
+            String msgId = syncId + ":" + alarmId.mStart;
+            if (!messages.containsKey(msgId)) {
+                Bundle data = new Bundle();
+                data.putString(SYNC_ID, syncId);
+                data.putString(START_TIME, Long.toString(alarmId.mStart));
+                data.putString(ACCOUNT_NAME, account.second);
+                messages.put(msgId, data);
             }
         }
 
-        if (syncIdToAccount.isEmpty()) {
+        if (messagesByAccount.isEmpty()) {
             Log.d(TAG, "found no syncIds for events");
             return;
         }
 
-        // TODO group by account to reduce packets
         CloudNotificationBackplane cnb = ExtensionsFactory.getCloudNotificationBackplane();
         if (cnb.open(context)) {
-            for (AlarmId alarmId: alarmIds) {
-                String syncId = eventIdToSyncId.get(alarmId.mEventId);
-                String account = syncIdToAccount.get(syncId);
-                Bundle data = new Bundle();
-                data.putString(SYNC_ID, syncId);
-                data.putString(START_TIME, Long.toString(alarmId.mStart));
-                data.putString(ACCOUNT_NAME, account);
-                try {
-                    cnb.send(account, syncId + ":" + alarmId.mStart, data);
-                } catch (IOException e) {
-                    // TODO save a note to try again later
+            for (Map.Entry<String, Map<String, Bundle>> entry : messagesByAccount.entrySet()) {
+                String account = entry.getKey();
+                for (Map.Entry<String, Bundle> message : entry.getValue().entrySet()) {
+                    try {
+                        cnb.send(account, message.getKey(), message.getValue());
+                    } catch (IOException e) {
+                        // TODO save a note to try again later
+                    }
                 }
             }
             cnb.close();
         }
     }
 
+    /**
+     * 구독한 계정이름들을 얻는다. SharedPreferences 는 process 마다 한번만 읽는다.
+     */
+    private static Set<String> getKnownAccounts(Context context, CalendarAccountCache cache) {
+        Set<String> accounts = cache.getKnownAccounts();
+        if (accounts == null) {
+            SharedPreferences prefs =
+                    context.getSharedPreferences(GLOBAL_DISMISS_MANAGER_PREFS,
+                            Context.MODE_PRIVATE);
+            // The returned set must not be modified, keep a copy.
+            accounts = new HashSet<String>(prefs.getStringSet(ACCOUNT_KEY,
+                    new HashSet<String>()));
+            cache.setKnownAccounts(accounts);
+        }
+        return accounts;
+    }
+
     private static Uri asSync(Uri uri, String accountType, String account) {
         return uri
                 .buildUpon()
@@ -250,92 +291,53 @@ public class GlobalDismissManager extends BroadcastReceiver {
      * @param key row name for the table
      * @return a selection string suitable for a resolver query.
      */
-    private static String buildMultipleIdQuery(Set<Long> ids, String key) {
-        StringBuilder selection = new StringBuilder();
+    static String buildMultipleIdQuery(Set<Long> ids, String key) {
+        StringBuilder selection = new StringBuilder(key.length() + 8 + ids.size() * 8);
+        selection.append(key).append(" IN (");
         boolean first = true;
         for (Long id : ids) {
             if (first) {
                 first = false;
             } else {
-                selection.append(" OR ");
+                selection.append(',');
             }
-            selection.append(key);
-            selection.append("=");
             selection.append(id);
         }
-        return selection.toString();
+        return selection.append(')').toString();
     }
 
     /**
      * @param context application context
      * @param eventIds Event row IDs to query.
-     * @return a map from event to calendar
+     * @return a map from event to a pair (calendar ID, sync ID), empty if the
+     *         permission is not granted
      */
-    private static Map<Long, Long> lookupEventToCalendarMap(final Context context,
+    private static Map<Long, Pair<Long, String>> lookupEvents(final Context context,
             final Set<Long> eventIds) {
-        Map<Long, Long> eventsToCalendars = new HashMap<Long, Long>();
-        ContentResolver resolver = context.getContentResolver();
-        String eventSelection = buildMultipleIdQuery(eventIds, Events._ID);
+        Map<Long, Pair<Long, String>> events = new HashMap<Long, Pair<Long, String>>();
         if (ContextCompat.checkSelfPermission(context,
                 Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
             //If permission is not granted then just return.
             Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
-            return null;
+            return events;
         }
+        ContentResolver resolver = context.getContentResolver();
+        String eventSelection = buildMultipleIdQuery(eventIds, Events._ID);
         Cursor eventCursor = resolver.query(Events.CONTENT_URI, EVENT_PROJECTION,
                 eventSelection, null, null);
-        try {
-            eventCursor.moveToPosition(-1);
-            int calendar_id_idx = eventCursor.getColumnIndex(Events.CALENDAR_ID);
-            int event_id_idx = eventCursor.getColumnIndex(Events._ID);
-            if (calendar_id_idx != -1 && event_id_idx != -1) {
-                while (eventCursor.moveToNext()) {
-                    eventsToCalendars.put(eventCursor.getLong(event_id_idx),
-                            eventCursor.getLong(calendar_id_idx));
-                }
-            }
-        } finally {
-            eventCursor.close();
+        if (eventCursor == null) {
+            return events;
         }
-        return eventsToCalendars;
-    }
-
-    /**
-     * @param context application context
-     * @param calendars Calendar row IDs to query.
-     * @return a map from Calendar to a pair (account type, account name)
-     */
-    private static Map<Long, Pair<String, String>> lookupCalendarToAccountMap(final Context context,
-            Set<Long> calendars) {
-        Map<Long, Pair<String, String>> calendarsToAccounts =
-                new HashMap<Long, Pair<String, String>>();
-        ContentResolver resolver = context.getContentResolver();
-        String calendarSelection = buildMultipleIdQuery(calendars, Calendars._ID);
-        if (ContextCompat.checkSelfPermission(context,
-                Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
-            //If permission is not granted then just return.
-            Log.d(TAG, "Manifest.permission.READ_CALENDAR is not granted");
-            return null;
-        }
-        Cursor calendarCursor = resolver.query(Calendars.CONTENT_URI, CALENDARS_PROJECTION,
-                calendarSelection, null, null);
         try {
-            calendarCursor.moveToPosition(-1);
-            int calendar_id_idx = calendarCursor.getColumnIndex(Calendars._ID);
-            int account_name_idx = calendarCursor.getColumnIndex(Calendars.ACCOUNT_NAME);
-            int account_type_idx = calendarCursor.getColumnIndex(Calendars.ACCOUNT_TYPE);
-            if (calendar_id_idx != -1 && account_name_idx != -1 && account_type_idx != -1) {
-                while (calendarCursor.moveToNext()) {
-                    Long id = calendarCursor.getLong(calendar_id_idx);
-                    String name = calendarCursor.getString(account_name_idx);
-                    String type = calendarCursor.getString(account_type_idx);
-                    calendarsToAccounts.put(id, new Pair<String, String>(type, name));
-                }
+            while (eventCursor.moveToNext()) {
+                events.put(eventCursor.getLong(EVENT_INDEX_ID),
+                        new Pair<Long, String>(eventCursor.getLong(EVENT_INDEX_CALENDAR_ID),
+                                eventCursor.getString(EVENT_INDEX_SYNC_ID)));
             }
         } finally {
-            calendarCursor.close();
+            eventCursor.close();
         }
-        return calendarsToAccounts;
+        return events;
     }
 
     @SuppressLint("StaticFieldLeak")
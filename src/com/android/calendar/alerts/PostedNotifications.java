@@ -0,0 +1,148 @@
+package com.android.calendar.alerts;
+
+import android.util.SparseArray;
+
+import com.android.calendar.alerts.AlertService.NotificationInfo;
+
+import java.util.List;
+
+/**
+ * {@link AlertService#generateAlerts}가 마지막으로 띄운 Notification 들의 내용을 기억하는 클라스
+ * Notification id 별로 내용을 나타내는 열쇠문자렬을 보관하며 갱신할때 열쇠가 같은 Notification 은 다시 띄우지 않고
+ * 띄운적이 없는 id 는 취소하지 않는다.
+ *  - 처음(process 가 시작되였을때)에는 이전에 띄운 Notification 들을 모르므로 한번은 모두 취소한다.
+ *  - Notification 을 직접 취소하는 곳에서는 {@link #forget}, {@link #forgetAll}을 불러야 한다.
+ * 모든 함수들은 이 객체로 동기화되여있다.
+ */
+class PostedNotifications {
+    //id 별 띄운 Notification 의 열쇠
+    private final SparseArray<String> mKeys = new SparseArray<>();
+    //띄워진 Notification 들을 알고 있으면 true, false 이면 취소요청을 모두 통과시킨다.
+    private boolean mKnown = false;
+
+    //띄운 개수, 내용이 같아서 띄우지 않은 개수, 취소한 개수, 띄운적이 없어서 취소하지 않은 개수
+    private int mPostCount = 0;
+    private int mSkippedPostCount = 0;
+    private int mCancelCount = 0;
+    private int mSkippedCancelCount = 0;
+
+    /**
+     * @param id Notification id
+     * @param key Notification 의 열쇠
+     * @return 같은 열쇠의 Notification 이 이미 떠있지 않으면 true
+     */
+    synchronized boolean needsPost(int id, String key) {
+        if (key.equals(mKeys.get(id))) {
+            mSkippedPostCount++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Notification 을 띄웠음을 기록한다.
+     */
+    synchronized void onPosted(int id, String key) {
+        mKeys.put(id, key);
+        mPostCount++;
+    }
+
+    /**
+     * 취소하여야 하는지 알려주고 취소할것으로 기록한다.
+     * @param id Notification id
+     * @return 떠있을수 있으면 true
+     */
+    synchronized boolean needsCancel(int id) {
+        final int index = mKeys.indexOfKey(id);
+        if (index >= 0) {
+            mKeys.removeAt(index);
+        } else if (mKnown) {
+            mSkippedCancelCount++;
+            return false;
+        }
+        mCancelCount++;
+        return true;
+    }
+
+    /**
+     * 한번의 갱신이 끝났음을 알린다. 이때부터 떠있는 Notification 들은 모두 기록되여있다.
+     */
+    synchronized void onRefreshed() {
+        mKnown = true;
+    }
+
+    /**
+     * Notification 이 밖에서 취소되였음을 알린다.
+     */
+    synchronized void forget(int id) {
+        mKeys.delete(id);
+    }
+
+    /**
+     * 모든 Notification 들이 밖에서 취소되였음을 알린다.
+     */
+    synchronized void forgetAll() {
+        mKeys.clear();
+    }
+
+    int getPostCount() {
+        return mPostCount;
+    }
+
+    int getSkippedPostCount() {
+        return mSkippedPostCount;
+    }
+
+    int getCancelCount() {
+        return mCancelCount;
+    }
+
+    int getSkippedCancelCount() {
+        return mSkippedCancelCount;
+    }
+
+    /**
+     * 개별 Notification 의 열쇠를 만든다.
+     * @param info 일정정보
+     * @param summaryText 시간, 위치문자렬
+     * @param highPriority 높은 우선도이면 true
+     */
+    static String makeKey(NotificationInfo info, String summaryText, boolean highPriority) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append(highPriority ? 'H' : 'M');
+        appendInfo(sb, info);
+        sb.append('\u0000').append(info.description)
+                .append('\u0000').append(summaryText);
+        return sb.toString();
+    }
+
+    /**
+     * 지나간 일정들을 묶은 Notification 의 열쇠를 만든다.
+     * @param infos 일정정보들
+     * @param title 제목
+     * @param summaryText 일정이 하나일때의 시간, 위치문자렬, 여러개이면 null
+     */
+    static String makeDigestKey(List<NotificationInfo> infos, String title, String summaryText) {
+        final StringBuilder sb = new StringBuilder(64 * infos.size() + 64);
+        sb.append('D').append(title).append('\u0000').append(summaryText);
+        for (NotificationInfo info : infos) {
+            appendInfo(sb, info);
+        }
+        return sb.toString();
+    }
+
+    private static void appendInfo(StringBuilder sb, NotificationInfo info) {
+        sb.append('\u0000').append(info.eventId)
+                .append('\u0000').append(info.startMillis)
+                .append('\u0000').append(info.endMillis)
+                .append('\u0000').append(info.allDay)
+                .append('\u0000').append(info.eventName)
+                .append('\u0000').append(info.location);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "posted=" + mPostCount + ", skippedPosts=" + mSkippedPostCount
+                + ", cancelled=" + mCancelCount + ", skippedCancels=" + mSkippedCancelCount;
+    }
+}
@@ -0,0 +1,111 @@
+package com.android.calendar.alerts;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * 짧은 시간안에 여러번 들어오는 갱신요청들을 한번의 갱신으로 합치는 debouncer
+ * 요청이 들어오면 handler 에 지연된 통보문(what)을 보내며 그 통보문이 처리되기전에 들어온 요청들은 거기에 합쳐진다.
+ * 요청이 계속 들어와도 첫 요청으로부터 최대대기시간이 지나면 통보문이 처리되도록 한다.
+ * 모든 함수들은 handler 의 thread 에서 호출하여야 한다. (개수를 얻는 함수들은 제외)
+ */
+class RefreshDebouncer {
+    private final Handler mHandler;
+    private final int mWhat;
+
+    //마지막 요청으로부터 갱신까지 기다리는 시간(미리초)
+    private long mWindowMs;
+    //첫 요청으로부터 갱신까지 기다리는 최대시간(미리초)
+    private long mMaxWaitMs;
+
+    //기다리는 갱신의 첫 요청시각(SystemClock.uptimeMillis), 기다리는 갱신이 없으면 -1
+    private long mFirstRequestTime = -1;
+
+    //요청개수, 기다리는 갱신에 합쳐진 요청개수, 실행된 갱신개수
+    private volatile int mRequestCount = 0;
+    private volatile int mCoalescedCount = 0;
+    private volatile int mRefreshCount = 0;
+
+    /**
+     * @param handler 갱신통보문을 받을 handler
+     * @param what 갱신통보문의 what
+     * @param windowMs 마지막 요청으로부터 갱신까지 기다리는 시간(미리초)
+     * @param maxWaitMs 첫 요청으로부터 갱신까지 기다리는 최대시간(미리초)
+     */
+    RefreshDebouncer(Handler handler, int what, long windowMs, long maxWaitMs) {
+        mHandler = handler;
+        mWhat = what;
+        setWindow(windowMs, maxWaitMs);
+    }
+
+    /**
+     * 기다리는 시간들을 설정한다. 이미 예약된 갱신에는 다음 요청부터 적용된다.
+     * @param windowMs 마지막 요청으로부터 갱신까지 기다리는 시간(미리초)
+     * @param maxWaitMs 첫 요청으로부터 갱신까지 기다리는 최대시간(미리초), windowMs 보다 작으면 windowMs 로 한다.
+     */
+    void setWindow(long windowMs, long maxWaitMs) {
+        mWindowMs = Math.max(windowMs, 0);
+        mMaxWaitMs = Math.max(maxWaitMs, mWindowMs);
+    }
+
+    /**
+     * 갱신을 요청한다. 기다리는 갱신이 있으면 거기에 합치고 갱신시각을 뒤로 미룬다.
+     * @return 새 갱신을 예약하였으면 true, 기다리는 갱신에 합쳤으면 false
+     */
+    boolean request() {
+        final long now = SystemClock.uptimeMillis();
+        mRequestCount ++;
+
+        final boolean coalesced = mFirstRequestTime >= 0;
+        if (coalesced) {
+            mCoalescedCount ++;
+            mHandler.removeMessages(mWhat);
+        } else {
+            mFirstRequestTime = now;
+        }
+
+        mHandler.sendEmptyMessageAtTime(mWhat, Math.min(now + mWindowMs, mFirstRequestTime + mMaxWaitMs));
+        return !coalesced;
+    }
+
+    /**
+     * @return 예약된 갱신이 아직 실행되지 않았으면 true
+     */
+    boolean isPending() {
+        return mFirstRequestTime >= 0;
+    }
+
+    /**
+     * 갱신통보문을 받았을때 갱신을 실행하기전에 호출한다. 이후의 요청은 새 갱신으로 예약된다.
+     */
+    void onRefresh() {
+        mFirstRequestTime = -1;
+        mRefreshCount ++;
+    }
+
+    /**
+     * 예약된 갱신을 취소한다.
+     */
+    void cancel() {
+        mHandler.removeMessages(mWhat);
+        mFirstRequestTime = -1;
+    }
+
+    int getRequestCount() {
+        return mRequestCount;
+    }
+
+    int getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    int getRefreshCount() {
+        return mRefreshCount;
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + mRequestCount + ", coalesced=" + mCoalescedCount
+                + ", refreshes=" + mRefreshCount;
+    }
+}
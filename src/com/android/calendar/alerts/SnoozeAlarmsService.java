@@ -69,6 +69,7 @@ public class SnoozeAlarmsService extends IntentService {
                 NotificationManager nm =
                     (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
                 nm.cancel(notificationId);
+                AlertService.onNotificationsCancelled(notificationId);
             }
             if (ContextCompat.checkSelfPermission(this,
                     Manifest.permission.WRITE_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
@@ -16,8 +16,6 @@
 
 package com.android.calendar.event;
 
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.ContextWrapper;
@@ -42,8 +40,7 @@ import com.android.calendar.event.CalendarEventModel.ReminderEntry;
 import com.android.calendar.helper.CalendarController;
 import com.android.calendar.helper.CalendarController.EventInfo;
 import com.android.calendar.utils.Utils;
-import com.android.calendar.widgets.EventViewWidgetProvider;
-import com.android.calendar.widgets.MonthViewWidgetProvider;
+import com.android.calendar.widgets.WidgetUpdateScheduler;
 import com.android.kr_common.Time;
 import com.android.krcalendar.R;
 
@@ -53,7 +50,6 @@ import static android.provider.CalendarContract.EXTRA_EVENT_ALL_DAY;
 import static android.provider.CalendarContract.EXTRA_EVENT_BEGIN_TIME;
 import static android.provider.CalendarContract.EXTRA_EVENT_END_TIME;
 import static com.android.calendar.helper.CalendarController.EVENT_EDIT_ON_LAUNCH;
-import static com.android.calendar.widgets.EventViewWidgetProvider.NEXT_NOT_UPDATE;
 
 /**
  * 일정편집화면
@@ -81,22 +77,7 @@ public class EditEventActivity extends AbstractCalendarActivity {
         @Override
         public void onChange(boolean selfChange) {
             //일정변화가 일어났다는것을 Widget들에 알린다.
-            AppWidgetManager man = AppWidgetManager.getInstance(EditEventActivity.this);
-            int[] ids = man.getAppWidgetIds(
-                    new ComponentName(EditEventActivity.this, EventViewWidgetProvider.class));
-            Intent updateIntent = new Intent();
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-            updateIntent.putExtra(EventViewWidgetProvider.WIDGET_IDS_KEY, ids);
-            updateIntent.putExtra(NEXT_NOT_UPDATE, 0);
-            sendBroadcast(updateIntent);
-
-            ids = man.getAppWidgetIds(
-                    new ComponentName(EditEventActivity.this, MonthViewWidgetProvider.class));
-            updateIntent = new Intent();
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-            updateIntent.putExtra(MonthViewWidgetProvider.WIDGET_IDS_KEY, ids);
-            updateIntent.putExtra(NEXT_NOT_UPDATE, 0);
-            sendBroadcast(updateIntent);
+            WidgetUpdateScheduler.requestUpdate(EditEventActivity.this);
         }
     };
 
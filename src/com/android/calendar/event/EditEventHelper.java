@@ -726,21 +726,32 @@ public class EditEventHelper {
         b.withSelectionBackReference(0, eventIdIndex);
         ops.add(b.build());
 
+        //미리알림들을 추가한다.
+        addRemindersWithBackRef(ops, eventIdIndex, reminders);
+        return true;
+    }
+
+    /**
+     * 새로 창조되는 일정의 미리알림들을 추가하는 연산들을 만든다.
+     * @param ops 연산목록
+     * @param eventIdIndex 일정창조연산의 첨수 {@link ContentProviderOperation.Builder#withValueBackReference}
+     * @param reminders 추가할 미리알림들
+     */
+    public static void addRemindersWithBackRef(ArrayList<ContentProviderOperation> ops,
+            int eventIdIndex, ArrayList<ReminderEntry> reminders) {
         ContentValues values = new ContentValues();
         int len = reminders.size();
-
-        //미리알림들을 추가한다.
         for (int i = 0; i < len; i++) {
             ReminderEntry re = reminders.get(i);
 
             values.clear();
             values.put(Reminders.MINUTES, re.getMinutes());
             values.put(Reminders.METHOD, re.getMethod());
-            b = ContentProviderOperation.newInsert(Reminders.CONTENT_URI).withValues(values);
+            ContentProviderOperation.Builder b = ContentProviderOperation
+                    .newInsert(Reminders.CONTENT_URI).withValues(values);
             b.withValueBackReference(Reminders.EVENT_ID, eventIdIndex);
             ops.add(b.build());
         }
-        return true;
     }
 
     /**
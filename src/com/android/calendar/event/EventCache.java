@@ -0,0 +1,293 @@
+package com.android.calendar.event;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.provider.CalendarContract;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * 일정(Instances)들을 Julian day 범위별로 기억해두는 process 공용 cache
+ * 월, 일, 년보기와 widget들이 같은 날자범위를 여러번 요청할때 ContentProvider 에 다시 query 하지 않도록 한다.
+ * 겹치거나 이웃한 범위들은 하나의 범위로 합쳐서 보관하며
+ * Events/Instances uri 들에 등록된 한개의 {@link ContentObserver}에 의해 무효화된다.
+ * @see EventManager#getEventsInRange
+ */
+class EventCache {
+    //보관할수 있는 최대 날자수(대략 4년), 넘어서면 제일 오래동안 쓰이지 않은 범위부터 지운다.
+    private static final int MAX_CACHED_DAYS = 4 * 366;
+
+    /**
+     * 한개 날자범위와 그 범위에 걸치는 일정목록
+     */
+    private static class Window {
+        int startDay;
+        int endDay;
+        List<EventManager.OneEvent> events;
+        long lastAccess;
+
+        Window(int start, int end, List<EventManager.OneEvent> list) {
+            startDay = start;
+            endDay = end;
+            events = list;
+        }
+
+        int dayCount() {
+            return endDay - startDay + 1;
+        }
+    }
+
+    /**
+     * Query 결과와 같은 순서(begin ASC, end DESC, title ASC)로 일정들을 정렬하는 comparator
+     */
+    private static final Comparator<EventManager.OneEvent> EVENT_ORDER = new Comparator<EventManager.OneEvent>() {
+        @Override
+        public int compare(EventManager.OneEvent e1, EventManager.OneEvent e2) {
+            int result = Long.compare(e1.startMillis, e2.startMillis);
+            if(result != 0)
+                return result;
+            result = Long.compare(e2.endMillis, e1.endMillis);
+            if(result != 0)
+                return result;
+            if(e1.title == null)
+                return e2.title == null ? 0 : -1;
+            if(e2.title == null)
+                return 1;
+            return e1.title.compareTo(e2.title);
+        }
+    };
+
+    private static final List<Window> sWindows = new ArrayList<>();
+    //년별 월일정개수(년보기), 일정목록과 함께 무효화된다.
+    private static final SparseArray<int[]> sMonthCounts = new SparseArray<>();
+    private static long sAccessCounter = 0;
+
+    //다가오는 일정목록(시작시간순서), 그 목록을 query 한 기준시각과 개수제한, 없으면 null
+    private static List<EventManager.OneEvent> sUpcoming = null;
+    private static long sUpcomingFromMillis;
+    private static int sUpcomingLimit;
+
+    //무효화될때마다 증가한다. Query 도중에 무효화되였으면 그 결과는 보관하지 않는다.
+    private static int sGeneration = 0;
+
+    //Cache를 채울때의 시간대, Julian day 는 시간대에 따라 달라지므로 시간대가 바뀌면 cache를 비운다.
+    private static String sTimeZoneId = null;
+
+    private static ContentObserver sObserver = null;
+
+    private EventCache() {}
+
+    /**
+     * 일정변화를 감지하는 observer를 한번만 등록한다.
+     * @param context
+     */
+    static synchronized void registerObserver(Context context) {
+        if(sObserver != null)
+            return;
+
+        sObserver = new ContentObserver(null) {
+            @Override
+            public boolean deliverSelfNotifications() {
+                return true;
+            }
+
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate();
+            }
+        };
+
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        resolver.registerContentObserver(CalendarContract.Events.CONTENT_URI, true, sObserver);
+        resolver.registerContentObserver(CalendarContract.Instances.CONTENT_URI, true, sObserver);
+    }
+
+    /**
+     * 보관된 모든 일정들을 지운다.
+     */
+    static synchronized void invalidate() {
+        sWindows.clear();
+        sMonthCounts.clear();
+        sUpcoming = null;
+        sGeneration ++;
+    }
+
+    static synchronized int getGeneration() {
+        checkTimeZone();
+        return sGeneration;
+    }
+
+    /**
+     * 날자범위를 완전히 포함하는 보관된 범위가 있으면 그 범위의 일정들을 돌려준다.
+     * @param startDay 시작날자 (Julian day)
+     * @param endDay 마감날자 (Julian day)
+     * @return 일정목록, 보관된 범위가 없으면 null
+     */
+    static synchronized List<EventManager.OneEvent> getEvents(int startDay, int endDay) {
+        checkTimeZone();
+
+        for (Window window : sWindows) {
+            if(window.startDay <= startDay && window.endDay >= endDay) {
+                window.lastAccess = ++ sAccessCounter;
+                return filter(window.events, startDay, endDay);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Query 결과를 보관한다. 겹치거나 이웃한 범위들은 하나로 합친다.
+     * @param generation query 를 시작하기전에 {@link #getGeneration()}으로 얻은 값
+     * @param startDay 시작날자 (Julian day)
+     * @param endDay 마감날자 (Julian day)
+     * @param events query 결과 일정목록
+     */
+    static synchronized void putEvents(int generation, int startDay, int endDay, List<EventManager.OneEvent> events) {
+        if(generation != sGeneration)
+            return;
+
+        Window merged = new Window(startDay, endDay, events);
+        List<Window> overlapped = new ArrayList<>();
+        for (Window window : sWindows) {
+            if(window.startDay <= endDay + 1 && window.endDay >= startDay - 1) {
+                overlapped.add(window);
+            }
+        }
+
+        if(!overlapped.isEmpty()) {
+            //겹치는 일정들은 (id, begin)으로 구별하여 한번만 추가한다.
+            Set<String> keys = new HashSet<>();
+            List<EventManager.OneEvent> mergedEvents = new ArrayList<>(events);
+            for (EventManager.OneEvent event : events) {
+                keys.add(event.id + "_" + event.startMillis);
+            }
+
+            for (Window window : overlapped) {
+                sWindows.remove(window);
+                merged.startDay = Math.min(merged.startDay, window.startDay);
+                merged.endDay = Math.max(merged.endDay, window.endDay);
+                for (EventManager.OneEvent event : window.events) {
+                    if(keys.add(event.id + "_" + event.startMillis))
+                        mergedEvents.add(event);
+                }
+            }
+
+            Collections.sort(mergedEvents, EVENT_ORDER);
+            merged.events = mergedEvents;
+        }
+
+        merged.lastAccess = ++ sAccessCounter;
+        sWindows.add(merged);
+        trim();
+    }
+
+    /**
+     * 보관된 년의 월별 일정개수를 돌려준다.
+     * @param year 년
+     * @return 1-12월의 일정개수(복사본), 보관되지 않았으면 null
+     */
+    static synchronized int[] getMonthEventCounts(int year) {
+        checkTimeZone();
+        int[] counts = sMonthCounts.get(year);
+        return counts == null ? null : counts.clone();
+    }
+
+    /**
+     * 년의 월별 일정개수를 보관한다.
+     * @param generation query 를 시작하기전에 {@link #getGeneration()}으로 얻은 값
+     * @param year 년
+     * @param counts 1-12월의 일정개수
+     */
+    static synchronized void putMonthEventCounts(int generation, int year, int[] counts) {
+        if(generation != sGeneration)
+            return;
+        sMonthCounts.put(year, counts.clone());
+    }
+
+    /**
+     * 보관된 목록으로부터 기준시각이후에 시작하는 일정들을 돌려준다.
+     * 보관된 목록을 query 한 다음 시간이 지났어도 남은 일정들로 요청개수를 채울수 있거나
+     * 목록이 개수제한보다 짧았으면(그 뒤의 일정이 없으면) 다시 query 하지 않아도 된다.
+     * @param fromMillis 기준시각
+     * @param count 최대개수
+     * @return 일정목록, 보관된 목록으로 답할수 없으면 null
+     */
+    static synchronized List<EventManager.OneEvent> getUpcomingEvents(long fromMillis, int count) {
+        checkTimeZone();
+        if(sUpcoming == null || fromMillis < sUpcomingFromMillis)
+            return null;
+
+        List<EventManager.OneEvent> result = new ArrayList<>(count);
+        for (EventManager.OneEvent event : sUpcoming) {
+            if(event.startMillis > fromMillis) {
+                result.add(event);
+                if(result.size() == count)
+                    return result;
+            }
+        }
+        return sUpcoming.size() < sUpcomingLimit ? result : null;
+    }
+
+    /**
+     * 다가오는 일정목록을 보관한다.
+     * @param generation query 를 시작하기전에 {@link #getGeneration()}으로 얻은 값
+     * @param fromMillis query 의 기준시각
+     * @param limit query 의 개수제한
+     * @param events query 결과 일정목록
+     */
+    static synchronized void putUpcomingEvents(int generation, long fromMillis, int limit, List<EventManager.OneEvent> events) {
+        if(generation != sGeneration)
+            return;
+        sUpcoming = new ArrayList<>(events);
+        sUpcomingFromMillis = fromMillis;
+        sUpcomingLimit = limit;
+    }
+
+    /**
+     * 날자범위에 걸치는 일정들만 골라서 새 목록으로 돌려준다.
+     */
+    static List<EventManager.OneEvent> filter(List<EventManager.OneEvent> events, int startDay, int endDay) {
+        List<EventManager.OneEvent> result = new ArrayList<>();
+        for (EventManager.OneEvent event : events) {
+            if(event.startDay <= endDay && event.endDay >= startDay)
+                result.add(event);
+        }
+        return result;
+    }
+
+    /**
+     * 보관된 날자수가 한계를 넘으면 제일 오래동안 쓰이지 않은 범위부터 지운다.
+     */
+    private static void trim() {
+        int totalDays = 0;
+        for (Window window : sWindows) {
+            totalDays += window.dayCount();
+        }
+
+        while (totalDays > MAX_CACHED_DAYS && sWindows.size() > 1) {
+            Window oldest = sWindows.get(0);
+            for (Window window : sWindows) {
+                if(window.lastAccess < oldest.lastAccess)
+                    oldest = window;
+            }
+            sWindows.remove(oldest);
+            totalDays -= oldest.dayCount();
+        }
+    }
+
+    private static void checkTimeZone() {
+        String timeZoneId = TimeZone.getDefault().getID();
+        if(!timeZoneId.equals(sTimeZoneId)) {
+            sTimeZoneId = timeZoneId;
+            invalidate();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.android.calendar.event;
+
+import com.android.kr_common.Time;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 날자범위의 일정들을 날자(Julian day)별로 나누어 보관하는 색인
+ * 일정을 적재할때 한번만 구축하며 월보기의 한개 날자칸에 해당한 일정목록을 O(1)에 객체생성없이 얻을수 있게 한다.
+ * @see EventManager#getEventIndex
+ */
+public class EventDayIndex {
+    //일정이 하나도 없는 색인
+    public static final EventDayIndex EMPTY = new EventDayIndex(Collections.<EventManager.OneEvent>emptyList(), 0, -1);
+
+    private final int mFirstDay;    //색인의 첫 날자 (Julian day)
+    private final int mLastDay;     //색인의 마지막 날자 (Julian day)
+    private final List<EventManager.OneEvent>[] mDayEvents;    //날자별 일정목록
+    private final List<EventManager.OneEvent> mEvents;         //전체 일정목록
+
+    /**
+     * @param events 일정목록(query 결과 순서대로)
+     * @param firstDay 첫 날자 (Julian day)
+     * @param lastDay 마지막 날자 (Julian day)
+     */
+    @SuppressWarnings("unchecked")
+    EventDayIndex(List<EventManager.OneEvent> events, int firstDay, int lastDay) {
+        mFirstDay = firstDay;
+        mLastDay = lastDay;
+        mEvents = Collections.unmodifiableList(events);
+
+        final int dayCount = Math.max(lastDay - firstDay + 1, 0);
+        final List<EventManager.OneEvent>[] buckets = new List[dayCount];
+        for (EventManager.OneEvent event : events) {
+            final int start = Math.max(event.getFirstVisibleDay(), firstDay);
+            final int end = Math.min(event.getLastVisibleDay(), lastDay);
+            for (int day = start; day <= end; day ++) {
+                final int index = day - firstDay;
+                if(buckets[index] == null)
+                    buckets[index] = new ArrayList<>();
+                buckets[index].add(event);
+            }
+        }
+
+        //일정이 없는 날자들은 하나의 빈 목록을 공유한다.
+        for (int i = 0; i < dayCount; i ++) {
+            if(buckets[i] == null)
+                buckets[i] = Collections.emptyList();
+            else
+                buckets[i] = Collections.unmodifiableList(buckets[i]);
+        }
+        mDayEvents = buckets;
+    }
+
+    /**
+     * 날자에 있는 일정목록을 돌려준다.
+     * @param julianDay 날자 (Julian day)
+     * @return 일정목록, 범위밖의 날자이면 빈 목록
+     */
+    public List<EventManager.OneEvent> getEvents(int julianDay) {
+        if(julianDay < mFirstDay || julianDay > mLastDay)
+            return Collections.emptyList();
+        return mDayEvents[julianDay - mFirstDay];
+    }
+
+    /**
+     * @param year 년
+     * @param month 월(1-12)
+     * @param day 일
+     * @see #getEvents(int)
+     */
+    public List<EventManager.OneEvent> getEvents(int year, int month, int day) {
+        return getEvents(Time.getJulianDay(year, month, day));
+    }
+
+    /**
+     * @return 색인에 포함된 전체 일정목록
+     */
+    public List<EventManager.OneEvent> getAllEvents() {
+        return mEvents;
+    }
+}
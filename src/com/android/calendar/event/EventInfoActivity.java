@@ -15,8 +15,6 @@
  */
 package com.android.calendar.event;
 
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.Intent;
@@ -35,8 +33,7 @@ import com.android.calendar.activities.AbstractCalendarActivity;
 import com.android.calendar.event.CalendarEventModel.ReminderEntry;
 import com.android.calendar.helper.CalendarController;
 import com.android.calendar.utils.Utils;
-import com.android.calendar.widgets.EventViewWidgetProvider;
-import com.android.calendar.widgets.MonthViewWidgetProvider;
+import com.android.calendar.widgets.WidgetUpdateScheduler;
 import com.android.krcalendar.R;
 
 import java.util.ArrayList;
@@ -45,7 +42,6 @@ import java.util.List;
 import static android.provider.CalendarContract.EXTRA_EVENT_BEGIN_TIME;
 import static android.provider.CalendarContract.EXTRA_EVENT_END_TIME;
 import static com.android.calendar.helper.CalendarController.EXTRA_RECURRENCE_MODIFY_ALL;
-import static com.android.calendar.widgets.EventViewWidgetProvider.NEXT_NOT_UPDATE;
 
 /**
  * 일정정보화면
@@ -71,22 +67,7 @@ public class EventInfoActivity extends AbstractCalendarActivity implements Calen
         @Override
         public void onChange(boolean selfChange) {
             //일정변화가 일어났다는것을 Widget들에 알린다.
-            AppWidgetManager man = AppWidgetManager.getInstance(EventInfoActivity.this);
-            int[] ids = man.getAppWidgetIds(
-                    new ComponentName(EventInfoActivity.this, EventViewWidgetProvider.class));
-            Intent updateIntent = new Intent();
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-            updateIntent.putExtra(EventViewWidgetProvider.WIDGET_IDS_KEY, ids);
-            updateIntent.putExtra(NEXT_NOT_UPDATE, 0);
-            sendBroadcast(updateIntent);
-
-            ids = man.getAppWidgetIds(
-                    new ComponentName(EventInfoActivity.this, MonthViewWidgetProvider.class));
-            updateIntent = new Intent();
-            updateIntent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-            updateIntent.putExtra(MonthViewWidgetProvider.WIDGET_IDS_KEY, ids);
-            updateIntent.putExtra(NEXT_NOT_UPDATE, 0);
-            sendBroadcast(updateIntent);
+            WidgetUpdateScheduler.requestUpdate(EventInfoActivity.this);
 
             CalendarController.SendEventChangedToMainActivity();
         }
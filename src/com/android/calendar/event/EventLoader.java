@@ -0,0 +1,192 @@
+package com.android.calendar.event;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 월, 년보기 view 들이 일정을 적재할때 리용하는 process 공용 실행기
+ * View 마다 thread 를 새로 만들지 않고 크기가 제한된 thread pool 에서 적재를 진행한다.
+ *  - 같은 열쇠(key)의 적재가 진행중이면 다시 적재하지 않고 그 결과를 함께 받는다.
+ *  - 한 owner(view)가 새로 요청하면 이전 요청은 취소된다. 아무도 기다리지 않는 작업은 대기렬에서 지운다.
+ *  - 결과는 main thread 에서 owner 의 마지막 요청과 세대번호(generation)가 같을때만 전달한다.
+ * 따라서 재리용된 view 에 이전 월의 결과가 그려지지 않는다.
+ * 모든 함수들은 main thread 에서 호출하여야 한다.
+ */
+public final class EventLoader {
+    private static final String TAG = "EventLoader";
+
+    //동시에 실행하는 적재작업의 최대개수
+    private static final int POOL_SIZE = 2;
+    //할일이 없는 thread 를 끝내기까지의 시간(초)
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * 적재작업, 배경 thread 에서 실행된다.
+     * @param <T> 결과형
+     */
+    public interface Loader<T> {
+        T load();
+    }
+
+    /**
+     * 적재결과를 받는 callback, main thread 에서 호출된다.
+     * @param <T> 결과형
+     */
+    public interface Callback<T> {
+        void onLoaded(T result);
+    }
+
+    /**
+     * 한 owner 의 요청
+     */
+    private static final class Request {
+        final Object owner;
+        final int generation;
+        final Callback<Object> callback;
+        final Job job;
+
+        Request(Object owner, int generation, Callback<Object> callback, Job job) {
+            this.owner = owner;
+            this.generation = generation;
+            this.callback = callback;
+            this.job = job;
+        }
+    }
+
+    /**
+     * 한개 열쇠에 대한 적재작업, 여러 요청들이 결과를 함께 받는다.
+     */
+    private static final class Job implements Runnable {
+        final String key;
+        final Loader<?> loader;
+        final List<Request> requests = new ArrayList<>();
+        FutureTask<Void> task;
+
+        Job(String key, Loader<?> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Object result = null;
+            boolean loaded = false;
+            try {
+                result = loader.load();
+                loaded = true;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to load " + key, e);
+            } finally {
+                final Object finalResult = result;
+                final boolean finalLoaded = loaded;
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(Job.this, finalResult, finalLoaded);
+                    }
+                });
+            }
+        }
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor sExecutor;
+    static {
+        sExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "EventLoader #" + mCount.getAndIncrement());
+            }
+        });
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    //열쇠별 진행중인 작업
+    private static final HashMap<String, Job> sJobs = new HashMap<>();
+    //owner 별 마지막 요청, Request 가 owner 를 참조하므로 WeakHashMap 은 쓰지 않는다.
+    //요청은 deliver 나 cancel 에서 지워진다.
+    private static final HashMap<Object, Request> sRequests = new HashMap<>();
+    private static int sGeneration = 0;
+
+    private EventLoader() {}
+
+    /**
+     * 적재를 요청한다. owner 의 이전 요청은 취소된다.
+     * @param owner 결과를 받을 대상(보통 view)
+     * @param key 적재내용을 구별하는 열쇠, 같은 열쇠의 적재는 같은 결과를 돌려주어야 한다.
+     * @param loader 적재작업
+     * @param callback 결과를 받을 callback
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void load(Object owner, String key, Loader<T> loader, Callback<T> callback) {
+        cancel(owner);
+
+        //일정이 변한 뒤의 요청은 변하기 전에 시작한 작업과 합치지 않는다.
+        final String jobKey = key + "#" + EventCache.getGeneration();
+        Job job = sJobs.get(jobKey);
+        if(job == null) {
+            job = new Job(jobKey, loader);
+            job.task = new FutureTask<>(job, null);
+            sJobs.put(jobKey, job);
+            sExecutor.execute(job.task);
+        }
+
+        Request request = new Request(owner, ++ sGeneration, (Callback<Object>) callback, job);
+        job.requests.add(request);
+        sRequests.put(owner, request);
+    }
+
+    /**
+     * owner 의 요청을 취소한다. 그 작업을 기다리는 다른 요청이 없으면 작업도 취소한다.
+     * @param owner 결과를 받을 대상
+     */
+    public static void cancel(Object owner) {
+        Request request = sRequests.remove(owner);
+        if(request == null)
+            return;
+
+        Job job = request.job;
+        job.requests.remove(request);
+        if(job.requests.isEmpty() && sJobs.get(job.key) == job) {
+            sJobs.remove(job.key);
+            //이미 시작된 query 는 끝까지 실행하고 결과만 버린다.
+            job.task.cancel(false);
+            sExecutor.remove(job.task);
+        }
+    }
+
+    /**
+     * 작업의 결과를 아직 유효한 요청들에 전달한다.
+     * @param loaded 적재에 실패하였으면 false, 이때는 요청들만 지운다.
+     */
+    private static void deliver(Job job, Object result, boolean loaded) {
+        if(sJobs.get(job.key) == job)
+            sJobs.remove(job.key);
+
+        //callback 에서 다른 요청을 취소할수 있으므로 복사하여 순환한다.
+        for (Request request : new ArrayList<>(job.requests)) {
+            Request current = sRequests.get(request.owner);
+            if(current != null && current.generation == request.generation) {
+                sRequests.remove(request.owner);
+                if(loaded)
+                    request.callback.onLoaded(result);
+            }
+        }
+    }
+}
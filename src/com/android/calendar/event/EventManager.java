@@ -8,11 +8,14 @@ import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.CalendarContract;
+import android.text.format.DateUtils;
 
 import androidx.core.app.ActivityCompat;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
 import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -21,8 +24,6 @@ import java.util.List;
 import com.android.kr_common.Time;
 import com.android.krcalendar.R;
 
-import static com.android.calendar.event.EventTypeManager.APP_EVENT_TYPE_COUNT;
-
 /**
  * 일정관리와 관련한 함수들을 제공해주는 클라스
  */
@@ -34,6 +35,36 @@ public class EventManager {
     public static final int WEEK = 3;   //한주
     public static final int DAY = 4;    //하루
 
+    //월보기의 6주(42일) 격자에서 그달 앞에 보일수 있는 최대 날자수와 뒤에 보일수 있는 최대 날자수(28일인 달)
+    private static final int MONTH_GRID_LEADING_DAYS = 6;
+    private static final int MONTH_GRID_TRAILING_DAYS = 42 - 28;
+
+    //일정목록 query 의 projection
+    //Id, 형식, 제목, 설명, 하루종일, 시작시간, 마감시간, 위치, 시작시간(반복일정일때 첫일정의 시작시간, 아닐때는 BEGIN과 같음), 시작날자, 마감날자
+    private static final String[] EVENT_PROJECTION = new String[]{
+            CalendarContract.Instances.EVENT_ID, CalendarContract.Instances.EVENT_COLOR,
+            CalendarContract.Instances.TITLE, CalendarContract.Instances.DESCRIPTION,
+            CalendarContract.Instances.ALL_DAY,
+            CalendarContract.Instances.BEGIN, CalendarContract.Instances.END,
+            CalendarContract.Instances.EVENT_LOCATION,
+            CalendarContract.Instances.DTSTART,
+            CalendarContract.Instances.START_DAY, CalendarContract.Instances.END_DAY
+    };
+    private static final int INDEX_EVENT_ID = 0;
+    private static final int INDEX_EVENT_COLOR = 1;
+    private static final int INDEX_TITLE = 2;
+    private static final int INDEX_DESCRIPTION = 3;
+    private static final int INDEX_ALL_DAY = 4;
+    private static final int INDEX_BEGIN = 5;
+    private static final int INDEX_END = 6;
+    private static final int INDEX_EVENT_LOCATION = 7;
+    private static final int INDEX_DTSTART = 8;
+    private static final int INDEX_START_DAY = 9;
+    private static final int INDEX_END_DAY = 10;
+
+    //다가오는 일정목록을 보관할때 query 하는 최소개수
+    private static final int UPCOMING_QUERY_LIMIT = 8;
+
     /**
      * 날자비교를 기본용도로 정의한 클라스
      */
@@ -97,22 +128,80 @@ public class EventManager {
         public String title;
         public String description;
         public String location;
-        public DateTime startTime;
-        public DateTime endTime;
-        public DateTime realStartTimeRecurrence;
+        //시작시간, 마감시간, 시작시간(반복일정일때 첫일정의 시작시간) (미리초), 하루종일 일정이면 UTC 기준이다.
+        public final long startMillis;
+        public final long endMillis;
+        public final long realStartMillis;
         public boolean allDay;
 
-        public OneEvent(int _id, int _type, String _title, String _location, DateTime _startTime, DateTime _endTime,
-                        String _description, boolean _allDay, DateTime _realStartTime){
+        //시작, 마감날자 (Julian day), Instances 의 START_DAY, END_DAY
+        int startDay;
+        int endDay;
+
+        //미리초로부터 처음 요청될때 만드는 DateTime 객체들
+        //DateTime 은 불변객체이므로 여러 thread 에서 동시에 만들어도 결과는 같다.
+        private DateTime mStartTime;
+        private DateTime mEndTime;
+        private DateTime mRealStartTime;
+
+        public OneEvent(int _id, int _type, String _title, String _location, long _startMillis, long _endMillis,
+                        String _description, boolean _allDay, long _realStartMillis){
             id = _id;
             type = _type;
             title = _title;
             description = _description;
             location = _location;
-            startTime = _startTime;
-            endTime = _endTime;
+            startMillis = _startMillis;
+            endMillis = _endMillis;
             allDay = _allDay;
-            realStartTimeRecurrence = _realStartTime;
+            realStartMillis = _realStartMillis;
+        }
+
+        /**
+         * @return 시작시간, 하루종일 일정이면 UTC, 아니면 현재 시간대의 DateTime
+         */
+        public DateTime getStartTime(){
+            DateTime startTime = mStartTime;
+            if(startTime == null) {
+                startTime = toDateTime(startMillis);
+                mStartTime = startTime;
+            }
+            return startTime;
+        }
+
+        /**
+         * @return 마감시간, 하루종일 일정이면 UTC, 아니면 현재 시간대의 DateTime
+         */
+        public DateTime getEndTime(){
+            DateTime endTime = mEndTime;
+            if(endTime == null) {
+                endTime = toDateTime(endMillis);
+                mEndTime = endTime;
+            }
+            return endTime;
+        }
+
+        /**
+         * @return 시작시간(반복일정일때 첫일정의 시작시간), 하루종일 일정이면 UTC, 아니면 현재 시간대의 DateTime
+         */
+        public DateTime getRealStartTime(){
+            DateTime realStartTime = mRealStartTime;
+            if(realStartTime == null) {
+                realStartTime = toDateTime(realStartMillis);
+                mRealStartTime = realStartTime;
+            }
+            return realStartTime;
+        }
+
+        private DateTime toDateTime(long millis){
+            return allDay ? new DateTime(millis, DateTimeZone.UTC) : new DateTime(millis);
+        }
+
+        /**
+         * @return 시간이 보여지는 시간대의 시계시간을 UTC 로 본 미리초
+         */
+        private long toLocalMillis(long millis){
+            return allDay ? millis : millis + DateTimeZone.getDefault().getOffset(millis);
         }
 
         /**
@@ -128,6 +217,8 @@ public class EventManager {
             if(allDay)
                 return context.getResources().getString(R.string.all_day_label);
 
+            final DateTime startTime = getStartTime();
+            final DateTime endTime = getEndTime();
             OneDate curDate = new OneDate(year, month, day);
             String start, end;          //시작시간, 마감시간에 해당한 문자렬
             boolean fromStart = false;  //전날부터 시작한 일정인가?
@@ -217,17 +308,17 @@ public class EventManager {
             if(toEnd){
                 return context.getString(R.string.agenda_time_start) + ": " + start;
             }
-            if(startTime.getMillis() == endTime.getMillis())
+            if(startMillis == endMillis)
                 return start;
             return start + " ~ " + end;
         }
 
         /* 시작, 마감날자를 OneDate형으로 변환하여 돌려준다. */
         OneDate getStartDate(){
-            return new OneDate(startTime.getYear(), startTime.getMonthOfYear(), startTime.getDayOfMonth());
+            return new OneDate(getStartTime());
         }
         OneDate getEndDate(){
-            return new OneDate(endTime.getYear(), endTime.getMonthOfYear(), endTime.getDayOfMonth());
+            return new OneDate(getEndTime());
         }
 
         /**
@@ -247,8 +338,8 @@ public class EventManager {
                     return true;
                 }
                 if(date.isEqual(endDate)){
-                    if(endTime.getMinuteOfDay() == 0) {
-                        return endTime.getMillis() == startTime.getMillis();
+                    if(getEndTime().getMinuteOfDay() == 0) {
+                        return endMillis == startMillis;
                     }
                     return true;
                 }
@@ -259,6 +350,28 @@ public class EventManager {
             return containsDate(new OneDate(year, month, day));
         }
 
+        /**
+         * @return 일정이 보여지는 첫 날자 (Julian day), {@link #containsDate}와 같은 기준으로 계산한다.
+         */
+        int getFirstVisibleDay(){
+            //DateTime 을 만들지 않고 미리초로부터 계산한다.
+            return (int) Math.floorDiv(toLocalMillis(startMillis), DateUtils.DAY_IN_MILLIS) + Time.EPOCH_JULIAN_DAY;
+        }
+
+        /**
+         * @return 일정이 보여지는 마지막 날자 (Julian day), {@link #containsDate}와 같은 기준으로 계산한다.
+         */
+        int getLastVisibleDay(){
+            final long localEnd = toLocalMillis(endMillis);
+            int endDay = (int) Math.floorDiv(localEnd, DateUtils.DAY_IN_MILLIS) + Time.EPOCH_JULIAN_DAY;
+            if(allDay)
+                return endDay - 1;
+            //마감시간이 0시 0분이면 그 날자에는 보여주지 않는다.
+            if(Math.floorMod(localEnd, DateUtils.DAY_IN_MILLIS) < DateUtils.MINUTE_IN_MILLIS && endMillis != startMillis)
+                return endDay - 1;
+            return endDay;
+        }
+
         /**
          * 일정의 시작날자와 입력된 날자를 비교하여 같으면 true를 돌려준다.
          * @param year 년
@@ -266,6 +379,7 @@ public class EventManager {
          * @param day 일
          */
         public boolean startDateEquals(int year, int month, int day){
+            final DateTime startTime = getStartTime();
             return startTime.getYear() == year && startTime.getMonthOfYear() == month && startTime.getDayOfMonth() == day;
         }
 
@@ -275,11 +389,11 @@ public class EventManager {
         public boolean pastOrFutureCurrent(){
             DateTime curDateTime = new DateTime().withSecondOfMinute(0).withMillisOfSecond(0);
             if(!allDay) {
-                return endTime.getMillis() < curDateTime.getMillis();
+                return endMillis < curDateTime.getMillis();
             }
 
-            long endMillis = endTime.minusDays(1).withMillisOfDay(0).getMillis();
-            return endMillis < curDateTime.withMillisOfDay(0).getMillis();
+            long lastDayMillis = getEndTime().minusDays(1).withMillisOfDay(0).getMillis();
+            return lastDayMillis < curDateTime.withMillisOfDay(0).getMillis();
         }
     }
 
@@ -295,6 +409,128 @@ public class EventManager {
             return Collections.emptyList();
         }
 
+        //시작날자 - 끝날자 사이의 일정들을 돌려준다.
+        final int[] range = getDayRange(timeMillis, selectRange);
+        return getEventsInRange(context, range[0], range[1], "");
+    }
+
+    /**
+     * 시작날자로부터 시작하여 하루|한주|한달|한해 동안의 일정들을 날자별로 나눈 색인을 돌려준다.
+     * 월보기처럼 날자칸마다 일정을 찾아야 할때 {@link #getEventsFromDate}대신 리용한다.
+     * @param context
+     * @param timeMillis 시작시간
+     * @param selectRange 날자선택범위
+     * @return 날자별 일정색인
+     */
+    public static EventDayIndex getEventIndex(Context context, long timeMillis, int selectRange){
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
+            return EventDayIndex.EMPTY;
+        }
+
+        final int[] range = getDayRange(timeMillis, selectRange);
+        final List<OneEvent> events = getEventsInRange(context, range[0], range[1], "");
+        if(selectRange == MONTH) {
+            //월보기의 6주 격자에는 앞뒤달의 날자들도 보인다. 그 날자들까지 이어지는 일정들도 찾을수 있게 색인범위를 넓힌다.
+            return new EventDayIndex(events, range[0] - MONTH_GRID_LEADING_DAYS, range[1] + MONTH_GRID_TRAILING_DAYS);
+        }
+        return new EventDayIndex(events, range[0], range[1]);
+    }
+
+    /**
+     * 년의 월별 일정개수를 돌려준다. 년보기에서 리용한다.
+     * 일정객체들을 만들지 않고 Instances 의 BEGIN, END, ALL_DAY 만 읽어서 계산하며 결과는 년별로 보관한다.
+     * 여러달에 걸치는 일정은 걸치는 매 달에서 센다.
+     * @param context
+     * @param year 년
+     * @return 1-12월의 일정개수
+     */
+    public static int[] getMonthEventCounts(Context context, int year){
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
+            return new int[12];
+        }
+
+        EventCache.registerObserver(context);
+        int[] counts = EventCache.getMonthEventCounts(year);
+        if(counts != null)
+            return counts;
+
+        final int generation = EventCache.getGeneration();
+        counts = queryMonthEventCounts(context, year);
+        EventCache.putMonthEventCounts(generation, year, counts);
+        return counts;
+    }
+
+    /**
+     * ContentProvider 에 query 를 실행하여 년의 월별 일정개수를 계산한다.
+     * @see #getMonthEventCounts
+     */
+    private static int[] queryMonthEventCounts(Context context, int year){
+        //월들의 시작시간, 하루종일 일정은 UTC 로, 나머지 일정은 현재 시간대로 비교한다.
+        final long[] localMonthStarts = new long[13];
+        final long[] utcMonthStarts = new long[13];
+        for (int i = 0; i <= 12; i ++) {
+            LocalDate monthStart = new LocalDate(year + i / 12, i % 12 + 1, 1);
+            localMonthStarts[i] = monthStart.toDateTimeAtStartOfDay().getMillis();
+            utcMonthStarts[i] = monthStart.toDateTimeAtStartOfDay(DateTimeZone.UTC).getMillis();
+        }
+
+        final int[] range = getDayRange(localMonthStarts[0], YEAR);
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_BY_DAY_URI.buildUpon();
+        ContentUris.appendId(builder, range[0]);
+        ContentUris.appendId(builder, range[1]);
+
+        String[] projection = new String[] {
+                CalendarContract.Instances.BEGIN, CalendarContract.Instances.END,
+                CalendarContract.Instances.ALL_DAY
+        };
+
+        final int[] counts = new int[12];
+        Cursor cursor = context.getContentResolver().query(builder.build(), projection, null, null, null);
+        if(cursor == null)
+            return counts;
+
+        try {
+            while (cursor.moveToNext()) {
+                final long begin = cursor.getLong(0);
+                final boolean allDay = cursor.getInt(2) != 0;
+                final long[] monthStarts = allDay ? utcMonthStarts : localMonthStarts;
+
+                //하루종일 일정의 END 는 마지막날 다음날의 시작이다.
+                final long end = allDay ? cursor.getLong(1) - DateTimeConstants.MILLIS_PER_DAY : cursor.getLong(1);
+
+                final int startMonth = getMonthIndex(monthStarts, begin);
+                final int endMonth = getMonthIndex(monthStarts, end);
+                for (int month = Math.max(startMonth, 0); month <= Math.min(endMonth, 11); month ++) {
+                    counts[month] ++;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return counts;
+    }
+
+    /**
+     * 시간이 속한 월의 번호를 돌려준다.
+     * @param monthStarts 1월부터 다음해 1월까지 월들의 시작시간
+     * @param millis 시간
+     * @return 0-11, 년보다 앞이면 -1, 뒤이면 12
+     */
+    private static int getMonthIndex(long[] monthStarts, long millis) {
+        int month = -1;
+        while (month < 12 && millis >= monthStarts[month + 1]) {
+            month ++;
+        }
+        return month;
+    }
+
+    /**
+     * 날자선택범위의 시작날자, 마감날자를 계산한다.
+     * @param timeMillis 시작시간
+     * @param selectRange 날자선택범위
+     * @return {시작날자, 마감날자} (Julian day)
+     */
+    private static int[] getDayRange(long timeMillis, int selectRange){
         /* 시작날자, 마감날자들을 계산한다. */
         DateTime selectedTime = new DateTime(timeMillis);
         DateTime startTime;
@@ -336,8 +572,7 @@ public class EventManager {
             endDay = startDay;
         }
 
-        //시작날자 - 끝날자 사이의 일정들을 돌려준다.
-        return getEventsInRange(context, startDay, endDay, "");
+        return new int[] {startDay, endDay};
     }
 
     /**
@@ -353,21 +588,42 @@ public class EventManager {
             return Collections.emptyList();
         }
 
+        //검색어가 있으면 cache를 리용하지 않는다.
+        if(query != null && !query.isEmpty()) {
+            return queryEventsInRange(context, startDay, endDay, query);
+        }
+
+        //보관된 일정들이 있으면 그것을 돌려준다.
+        EventCache.registerObserver(context);
+        List<OneEvent> cached = EventCache.getEvents(startDay, endDay);
+        if(cached != null)
+            return cached;
+
+        //없으면 query 를 실행하고 결과를 보관한다.
+        final int generation = EventCache.getGeneration();
+        List<OneEvent> eventList = queryEventsInRange(context, startDay, endDay, null);
+        EventCache.putEvents(generation, startDay, endDay, eventList);
+        return new ArrayList<>(eventList);
+    }
+
+    /**
+     * 보관된 일정들을 모두 지운다.
+     * 일정변화를 감지한 observer 들이 다시 적재하기전에 호출하여 이전 일정들을 돌려주지 않도록 한다.
+     */
+    public static void invalidateCache() {
+        EventCache.invalidate();
+    }
+
+    /**
+     * ContentProvider 에 query 를 실행하여 날자범위의 일정목록을 돌려준다.
+     * @see #getEventsInRange
+     */
+    private static List<OneEvent> queryEventsInRange(Context context, int startDay, int endDay, String query){
         //시작, 마감날자(julian day)를 uri에 붙여준다.
         Uri.Builder builder = CalendarContract.Instances.CONTENT_BY_DAY_URI.buildUpon();
         ContentUris.appendId(builder, startDay);
         ContentUris.appendId(builder, endDay);
 
-        //Query함수를 실행하기 위해 파라메터들 설정
-        final String[] projection = new String[]{
-                CalendarContract.Instances.EVENT_ID, CalendarContract.Instances.EVENT_COLOR,
-                CalendarContract.Instances.TITLE, CalendarContract.Instances.DESCRIPTION,
-                CalendarContract.Instances.ALL_DAY,
-                CalendarContract.Instances.BEGIN, CalendarContract.Instances.END,
-                CalendarContract.Instances.EVENT_LOCATION,
-                CalendarContract.Instances.DTSTART
-        };  //Id, 형식, 제목, 설명, 시작시간, 마감시간, 위치, 하루종일, 시작시간(반복일정일때 첫일정의 시작시간, 아닐때는 BEGIN과 같음)
-
         //selection, selectionArgs 설정
         final String selection;
         final String[] selectionArgs;
@@ -385,63 +641,20 @@ public class EventManager {
         String sort = "begin ASC, end DESC, title ASC";
 
         Cursor cursor = context.getContentResolver().query(
-                builder.build(), projection, selection, selectionArgs, sort);
-
-        assert cursor != null;
-        cursor.moveToFirst();
+                builder.build(), EVENT_PROJECTION, selection, selectionArgs, sort);
 
         //일정들을 하나씩 얻어서 목록에 추가한다.
         List<OneEvent> eventList = new ArrayList<>();
-        for (int i = 0; i < cursor.getCount(); i++) {
-            //일정의 Id
-            int Id = cursor.getInt(0);
-
-            //일정형식
-            int type = EventTypeManager.EVENT_TYPE_DEFAULT;
-            if(!cursor.isNull(1)){
-
-                int temp = cursor.getInt(1);
-                for (int j = 0; j < APP_EVENT_TYPE_COUNT; j ++){
-                    if (EventTypeManager.APP_EVENT_TYPES[j].id == temp){
-                        type = temp;
-                        break;
-                    }
-                }
-            }
-
-            //제목, 설명, 하루종일
-            String title = cursor.getString(2);
-            String description = cursor.getString(3);
-            boolean allDay = cursor.getInt(4) != 0;
+        if(cursor == null)
+            return eventList;
 
-            //시작시간(begin)
-            long milliSeconds = Long.parseLong(cursor.getString(5));
-            final DateTime startDateTime;
-            if(allDay)
-                startDateTime = new DateTime(DateTimeZone.UTC).withMillis(milliSeconds);
-            else
-                startDateTime = new DateTime(milliSeconds);
-
-            //마감시간(end)
-            milliSeconds = Long.parseLong(cursor.getString(6));
-            final DateTime endDateTime;
-            if(allDay)
-                endDateTime = new DateTime(DateTimeZone.UTC).withMillis(milliSeconds);
-            else
-                endDateTime = new DateTime(milliSeconds);
-
-            //위치
-            String location = cursor.getString(7);
-            milliSeconds = Long.parseLong(cursor.getString(8));
-
-            //시작시간(dtStart)
-            DateTime realStartTime = new DateTime(milliSeconds);
-
-            //일정들을 목록에 추가한다.
-            eventList.add(new OneEvent(Id, type, title, description, startDateTime, endDateTime, location, allDay, realStartTime));
-            cursor.moveToNext();
+        try {
+            while (cursor.moveToNext()) {
+                eventList.add(readEvent(cursor, false));
+            }
+        } finally {
+            cursor.close();
         }
-        cursor.close();
 
         //결과목록을 돌려준다.
         return eventList;
@@ -449,6 +662,7 @@ public class EventManager {
 
     /**
      * 다가오는 일정목록을 돌려준다
+     * 몇개를 더 query 하여 {@link EventCache}에 보관하므로 앞의 일정이 시작된 다음에도 다시 query 하지 않는다.
      * @param context
      * @param count 최대개수
      * @return 일정목록
@@ -459,91 +673,83 @@ public class EventManager {
             return Collections.emptyList();
         }
 
+        DateTime startTime = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0);
+        EventCache.registerObserver(context);
+        List<OneEvent> cached = EventCache.getUpcomingEvents(startTime.getMillis(), count);
+        if(cached != null)
+            return cached;
+
+        final int generation = EventCache.getGeneration();
+        final int limit = Math.max(count, UPCOMING_QUERY_LIMIT);
+        List<OneEvent> upcomingEvents = queryUpcomingEvents(context, startTime, limit);
+        EventCache.putUpcomingEvents(generation, startTime.getMillis(), limit, upcomingEvents);
+        return upcomingEvents.size() > count ? new ArrayList<>(upcomingEvents.subList(0, count)) : upcomingEvents;
+    }
+
+    /**
+     * ContentProvider 에 query 를 실행하여 다가오는 일정목록을 돌려준다.
+     * @see #getUpcomingEvents
+     */
+    private static List<OneEvent> queryUpcomingEvents(Context context, DateTime startTime, int count){
         //Uri 설정
         Uri.Builder builder = CalendarContract.Instances.CONTENT_BY_DAY_URI.buildUpon();
-        DateTime startTime = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0);
         int startDay = Time.getJulianDay(startTime);    //오늘의 julian day얻기
         ContentUris.appendId(builder, startDay);            //오늘부터의
         ContentUris.appendId(builder, Integer.MAX_VALUE);   //일정들을 얻는다.
 
         //Query를 실행하기 위한 파라메터들 설정
-        String[] projection = new String[] {
-                CalendarContract.Instances.EVENT_ID, CalendarContract.Instances.EVENT_COLOR,
-                CalendarContract.Instances.TITLE, CalendarContract.Instances.DESCRIPTION,
-                CalendarContract.Instances.BEGIN, CalendarContract.Instances.END,
-                CalendarContract.Instances.EVENT_LOCATION, CalendarContract.Instances.ALL_DAY,
-                CalendarContract.Instances.DTSTART
-        };  //Id, 형식, 제목, 설명, 시작시간, 마감시간, 위치, 하루종일, 시작시간(반복일정일때 첫일정의 시작시간, 아닐때는 BEGIN과 같음)
         String selection = "begin > " + startTime.getMillis();  //현재시간이후
         String sortOrder = " begin LIMIT " + count;             //시작시간으로 정렬, 개수제한
 
         //Query실행
         Cursor cursor = context.getContentResolver().query(
-                builder.build(), projection, selection, null,  sortOrder);
-
-        assert cursor != null;
-        cursor.moveToFirst();
+                builder.build(), EVENT_PROJECTION, selection, null,  sortOrder);
 
         //일정들을 하나씩 얻어서 목록에 추가한다.
         List<OneEvent> upcomingEvents = new ArrayList<>();
-        for (int i = 0; i < cursor.getCount(); i++) {
-            //일정의 Id
-            int Id = cursor.getInt(0);
-
-            //일정형식
-            int type = EventTypeManager.EVENT_TYPE_DEFAULT;
-            if(!cursor.isNull(1)){
-                int temp = cursor.getInt(1);
-                for (int j = 0; j < APP_EVENT_TYPE_COUNT; j ++){
-                    if(EventTypeManager.APP_EVENT_TYPES[j].id == temp){
-                        type = temp;
-                        break;
-                    }
-                }
-            }
-
-            //제목
-            String title = cursor.getString(2);
-
-            //설명
-            String description = cursor.getString(3);
-
-            //시작, 마감시간
-            long startMillis = Long.parseLong(cursor.getString(4));
-            long endMillis = Long.parseLong(cursor.getString(5));
-
-            //위치
-            String location = cursor.getString(6);
-
-            //하루종일
-            boolean allDay = cursor.getInt(7) != 0;
+        if(cursor == null)
+            return upcomingEvents;
 
-            //시작시간
-            long originStartMillis = Long.parseLong(cursor.getString(8));
-
-            //시간(미리초)를 DateTime클라스로 변환하여 얻는다.
-            final DateTime startDateTime, endDateTime, realStartTime;
-            if(allDay) {
-                startDateTime = new DateTime(DateTimeZone.UTC).withMillis(startMillis);
-                endDateTime = new DateTime(DateTimeZone.UTC).withMillis(endMillis).minusDays(1);
-                realStartTime = new DateTime(DateTimeZone.UTC).withMillis(originStartMillis);
-            }
-            else {
-                startDateTime = new DateTime().withMillis(startMillis);
-                endDateTime = new DateTime().withMillis(endMillis);
-                realStartTime = new DateTime().withMillis(originStartMillis);
+        try {
+            while (cursor.moveToNext()) {
+                //하루종일 일정은 마감날자를 마지막날로 맞춘다.
+                upcomingEvents.add(readEvent(cursor, true));
             }
-
-            //OneEvent 객체를 구성하여 목록에 추가한다.
-            upcomingEvents.add(new OneEvent(Id, type, title, description, startDateTime, endDateTime, location, allDay, realStartTime));
-            cursor.moveToNext();
+        } finally {
+            cursor.close();
         }
-        cursor.close();
 
         //결과목록을 돌려준다.
         return upcomingEvents;
     }
 
+    /**
+     * Cursor 의 현재 행을 일정객체로 읽는다.
+     * 시간들은 getLong 으로 미리초 그대로 읽으며 DateTime 객체는 만들지 않는다.
+     * @param cursor {@link #EVENT_PROJECTION}으로 query 한 cursor
+     * @param allDayEndInclusive true 이면 하루종일 일정의 마감시간을 마지막날의 시작으로 한다.
+     * @return 일정
+     */
+    private static OneEvent readEvent(Cursor cursor, boolean allDayEndInclusive){
+        //일정형식, 일정색 마당에 보관되여있다.
+        int type = EventTypeManager.EVENT_TYPE_DEFAULT;
+        if(!cursor.isNull(INDEX_EVENT_COLOR))
+            type = EventTypeManager.getEventTypeId(cursor.getInt(INDEX_EVENT_COLOR));
+
+        final boolean allDay = cursor.getInt(INDEX_ALL_DAY) != 0;
+        long endMillis = cursor.getLong(INDEX_END);
+        if(allDay && allDayEndInclusive)
+            endMillis -= DateUtils.DAY_IN_MILLIS;
+
+        OneEvent event = new OneEvent(cursor.getInt(INDEX_EVENT_ID), type,
+                cursor.getString(INDEX_TITLE), cursor.getString(INDEX_DESCRIPTION),
+                cursor.getLong(INDEX_BEGIN), endMillis, cursor.getString(INDEX_EVENT_LOCATION),
+                allDay, cursor.getLong(INDEX_DTSTART));
+        event.startDay = cursor.getInt(INDEX_START_DAY);
+        event.endDay = cursor.getInt(INDEX_END_DAY);
+        return event;
+    }
+
     /**
      * 입력으로 들어오는 일정들가운데서 그날자에 있는 일정들을 목록으로 돌려준다.
      * @param events 일정목록
@@ -31,23 +31,43 @@ public class EventTypeManager {
             new OneEventType(EVENT_TYPE_EXAMINATION, R.string.event_type_examination, R.color.event_type_examination_color, R.drawable.ic_examination_icon),
     };
 
+    //식별자를 첨자로 하여 일정형식을 찾는 표, 일정을 읽을때마다 APP_EVENT_TYPES 를 검색하지 않도록 한다.
+    private static final OneEventType[] EVENT_TYPES_BY_ID;
+    static {
+        int maxId = 0;
+        for (int i = 0; i < APP_EVENT_TYPE_COUNT; i++) {
+            maxId = Math.max(maxId, APP_EVENT_TYPES[i].id);
+        }
+        EVENT_TYPES_BY_ID = new OneEventType[maxId + 1];
+        for (int i = 0; i < APP_EVENT_TYPE_COUNT; i++) {
+            EVENT_TYPES_BY_ID[APP_EVENT_TYPES[i].id] = APP_EVENT_TYPES[i];
+        }
+    }
+
     /**
      * 일정형식을 찾아서 돌려준다
      * @param eventTypeId 일정형식 식별자
      */
     public static OneEventType getEventTypeFromId(int eventTypeId){
-        //식별자에 해당한 일정형식을 검색한다.
-        for (int i = 0; i < APP_EVENT_TYPE_COUNT; i++) {
-            if (APP_EVENT_TYPES[i].id == eventTypeId) {
-                //그것을 돌려준다.
-                return APP_EVENT_TYPES[i];
-            }
-        }
+        //식별자에 해당한 일정형식을 돌려준다.
+        if(eventTypeId >= 0 && eventTypeId < EVENT_TYPES_BY_ID.length && EVENT_TYPES_BY_ID[eventTypeId] != null)
+            return EVENT_TYPES_BY_ID[eventTypeId];
 
         //찾지 못하면 기정의 일정형식을 돌려준다.
         return APP_EVENT_TYPES[0];
     }
 
+    /**
+     * 일정색(EVENT_COLOR)으로 보관된 값을 일정형식 식별자로 바꾼다.
+     * @param eventColor 일정색 마당의 값
+     * @return 앱의 일정형식이면 그 식별자, 아니면 {@link #EVENT_TYPE_DEFAULT}
+     */
+    public static int getEventTypeId(int eventColor){
+        if(eventColor >= 0 && eventColor < EVENT_TYPES_BY_ID.length && EVENT_TYPES_BY_ID[eventColor] != null)
+            return eventColor;
+        return EVENT_TYPE_DEFAULT;
+    }
+
     /**
      * 한개 일정형식을 구성하는 식별자, 제목, 색, 화상을 가진 model 클라스
      */
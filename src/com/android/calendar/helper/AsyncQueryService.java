@@ -43,8 +43,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * which calls the {@link ContentResolver} in a background thread. This supports
  * query/insert/update/delete and also batch mode i.e.
  * {@link ContentProviderOperation}. It also supports delay execution and cancel
- * which allows for time-limited undo. Note that there's one queue per
- * application which serializes all the calls.
+ * which allows for time-limited undo. Note that there's one write lane per
+ * application which serializes all the insert/update/delete/batch calls,
+ * while queries run on a separate small pool and are not blocked by them.
  */
 public class AsyncQueryService extends Handler {
     static final boolean localLOGV = false;
@@ -27,6 +27,7 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Message;
+import android.os.Process;
 import android.os.RemoteException;
 import android.os.SystemClock;
 import android.util.Log;
@@ -37,16 +38,47 @@ import com.android.calendar.helper.AsyncQueryService.Operation;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Delayed;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AsyncQueryService}의 조작들을 실행하는 service
+ * 조작들은 두개의 lane 에서 실행된다.
+ *  - 읽기 lane: query 들을 {@link #READ_THREADS}개의 thread 로 실행한다.
+ *  - 쓰기 lane: insert/update/delete/batch 들을 한개의 thread 로 예약시각순서대로 실행한다.
+ * 그러므로 오래 걸리는 applyBatch 가 일정읽기를 막지 않는다.
+ * 지연된 조작들은 시작되기전까지 {@link #cancelOperation}으로 취소할수 있다.
+ * Service 자체는 두 lane 에 남은 조작이 없을때까지 process 를 유지하는 역할만 한다.
+ */
 public class AsyncQueryServiceHelper extends IntentService {
     private static final String TAG = "AsyncQuery";
 
-    private static final PriorityQueue<OperationInfo> sWorkQueue =
-        new PriorityQueue<OperationInfo>();
+    //읽기 lane 의 thread 개수
+    private static final int READ_THREADS = 2;
+
+    private static final ScheduledThreadPoolExecutor sReadLane =
+            createLane("AsyncQuery-read", READ_THREADS);
+    private static final ScheduledThreadPoolExecutor sWriteLane =
+            createLane("AsyncQuery-write", 1);
+
+    //예약되였으나 아직 시작되지 않은 조작들, 실행이나 취소할때 먼저 지우는 쪽이 가진다.
+    private static final Set<OperationInfo> sPendingOperations =
+            Collections.newSetFromMap(new ConcurrentHashMap<OperationInfo, Boolean>());
+    //예약되였으나 끝나지 않은 조작개수, 0 이 되면 service 를 끝낸다.
+    private static int sActiveCount = 0;
+    private static final Object sIdleLock = new Object();
+
+    //조작형태별 실행개수, 예약시각으로부터 시작할때까지 기다린 시간의 합과 최대값(ms)
+    private static final long[] sWaitCounts = new long[Operation.EVENT_ARG_BATCH + 1];
+    private static final long[] sWaitTotalMillis = new long[Operation.EVENT_ARG_BATCH + 1];
+    private static final long[] sWaitMaxMillis = new long[Operation.EVENT_ARG_BATCH + 1];
 
     protected Class<AsyncQueryService> mService = AsyncQueryService.class;
 
@@ -58,20 +90,55 @@ public class AsyncQueryServiceHelper extends IntentService {
         super("AsyncQueryServiceHelper");
     }
 
+    private static ScheduledThreadPoolExecutor createLane(final String name, int threads) {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads,
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                r.run();
+                            }
+                        }, name + "-" + mCount.incrementAndGet());
+                    }
+                });
+        //취소된 지연조작들을 대기렬에 남겨두지 않는다.
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     /**
      * Queues the operation for execution
      *
      * @param context
      * @param args OperationInfo object describing the operation
      */
-    static public void queueOperation(Context context, OperationInfo args) {
+    static public void queueOperation(Context context, final OperationInfo args) {
         // Set the schedule time for execution based on the desired delay.
         args.calculateScheduledTime();
 
-        synchronized (sWorkQueue) {
-            sWorkQueue.add(args);
-            sWorkQueue.notify();
+        synchronized (sIdleLock) {
+            sActiveCount++;
         }
+        sPendingOperations.add(args);
+        final ScheduledThreadPoolExecutor lane =
+                args.op == Operation.EVENT_ARG_QUERY ? sReadLane : sWriteLane;
+        args.mFuture = lane.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (sPendingOperations.remove(args)) {
+                    try {
+                        execute(args);
+                    } finally {
+                        onOperationDone();
+                    }
+                }
+            }
+        }, Math.max(args.delayMillis, 0), TimeUnit.MILLISECONDS);
 
         context.startService(new Intent(context, AsyncQueryServiceHelper.class));
     }
@@ -85,24 +152,21 @@ public class AsyncQueryServiceHelper extends IntentService {
         long lastScheduleTime = Long.MIN_VALUE;
         Operation op = null;
 
-        synchronized (sWorkQueue) {
-            // Unknown order even for a PriorityQueue
-            for (OperationInfo info : sWorkQueue) {
-                if (info.delayMillis > 0 && lastScheduleTime < info.mScheduledTimeMillis) {
-                    if (op == null) {
-                        op = new Operation();
-                    }
+        for (OperationInfo info : sPendingOperations) {
+            if (info.delayMillis > 0 && lastScheduleTime < info.mScheduledTimeMillis) {
+                if (op == null) {
+                    op = new Operation();
+                }
 
-                    op.token = info.token;
-                    op.op = info.op;
-                    op.scheduledExecutionTime = info.mScheduledTimeMillis;
+                op.token = info.token;
+                op.op = info.op;
+                op.scheduledExecutionTime = info.mScheduledTimeMillis;
 
-                    lastScheduleTime = info.mScheduledTimeMillis;
-                }
+                lastScheduleTime = info.mScheduledTimeMillis;
             }
         }
 
-        if (AsyncQueryService.localLOGV) {
+        if (AsyncQueryService.localLOGV && op != null) {
             Log.d(TAG, "getLastCancelableOperation -> Operation:" + Operation.opToChar(op.op)
                     + " token:" + op.token);
         }
@@ -121,13 +185,13 @@ public class AsyncQueryServiceHelper extends IntentService {
      */
     static public int cancelOperation(int token) {
         int canceled = 0;
-        synchronized (sWorkQueue) {
-            Iterator<OperationInfo> it = sWorkQueue.iterator();
-            while (it.hasNext()) {
-                if (it.next().token == token) {
-                    it.remove();
-                    ++canceled;
+        for (OperationInfo info : sPendingOperations) {
+            if (info.token == token && sPendingOperations.remove(info)) {
+                if (info.mFuture != null) {
+                    info.mFuture.cancel(false);
                 }
+                onOperationDone();
+                ++canceled;
             }
         }
 
@@ -137,42 +201,80 @@ public class AsyncQueryServiceHelper extends IntentService {
         return canceled;
     }
 
-    @Override
-    protected void onHandleIntent(Intent intent) {
-        OperationInfo args;
+    /**
+     * @param op 조작형태 (Operation.EVENT_ARG_*)
+     * @return 실행한 조작개수
+     */
+    static long getOperationCount(int op) {
+        synchronized (sWaitCounts) {
+            return sWaitCounts[op];
+        }
+    }
 
-        if (AsyncQueryService.localLOGV) {
-            Log.d(TAG, "onHandleIntent: queue size=" + sWorkQueue.size());
+    /**
+     * @param op 조작형태 (Operation.EVENT_ARG_*)
+     * @return 예약시각으로부터 시작할때까지 기다린 평균시간(ms), 실행한 조작이 없으면 0
+     */
+    static long getAverageWaitMillis(int op) {
+        synchronized (sWaitCounts) {
+            return sWaitCounts[op] == 0 ? 0 : sWaitTotalMillis[op] / sWaitCounts[op];
         }
-        synchronized (sWorkQueue) {
-            while (true) {
-                /*
-                 * This method can be called with no work because of
-                 * cancellations
-                 */
-                if (sWorkQueue.size() == 0) {
-                    return;
-                } else if (sWorkQueue.size() == 1) {
-                    OperationInfo first = sWorkQueue.peek();
-                    long waitTime = first.mScheduledTimeMillis - SystemClock.elapsedRealtime();
-                    if (waitTime > 0) {
-                        try {
-                            sWorkQueue.wait(waitTime);
-                        } catch (InterruptedException e) {
-                        }
-                    }
-                }
+    }
 
-                args = sWorkQueue.poll();
-                if (args != null) {
-                    // Got work to do. Break out of waiting loop
-                    break;
+    /**
+     * @param op 조작형태 (Operation.EVENT_ARG_*)
+     * @return 예약시각으로부터 시작할때까지 기다린 최대시간(ms)
+     */
+    static long getMaxWaitMillis(int op) {
+        synchronized (sWaitCounts) {
+            return sWaitMaxMillis[op];
+        }
+    }
+
+    private static void recordWait(int op, long waitMillis) {
+        synchronized (sWaitCounts) {
+            sWaitCounts[op]++;
+            sWaitTotalMillis[op] += waitMillis;
+            sWaitMaxMillis[op] = Math.max(sWaitMaxMillis[op], waitMillis);
+        }
+    }
+
+    private static void onOperationDone() {
+        synchronized (sIdleLock) {
+            if (--sActiveCount == 0) {
+                sIdleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 두 lane 에 남은 조작이 없을때까지 service 를 유지한다.
+     */
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        synchronized (sIdleLock) {
+            if (AsyncQueryService.localLOGV) {
+                Log.d(TAG, "onHandleIntent: active=" + sActiveCount);
+            }
+            while (sActiveCount > 0) {
+                try {
+                    sIdleLock.wait();
+                } catch (InterruptedException e) {
+                    return;
                 }
             }
         }
+    }
+
+    /**
+     * 조작을 실행하고 결과를 handler 에 보낸다. Lane 의 thread 에서 호출된다.
+     */
+    private static void execute(OperationInfo args) {
+        final long waitMillis = SystemClock.elapsedRealtime() - args.mScheduledTimeMillis;
+        recordWait(args.op, Math.max(waitMillis, 0));
 
         if (AsyncQueryService.localLOGV) {
-            Log.d(TAG, "onHandleIntent: " + args);
+            Log.d(TAG, "execute: wait=" + waitMillis + "ms " + args);
         }
 
         ContentResolver resolver = args.resolver;
@@ -242,7 +344,7 @@ public class AsyncQueryServiceHelper extends IntentService {
             reply.arg1 = args.op;
 
             if (AsyncQueryService.localLOGV) {
-                Log.d(TAG, "onHandleIntent: op=" + Operation.opToChar(args.op) + ", token="
+                Log.d(TAG, "execute: op=" + Operation.opToChar(args.op) + ", token="
                         + reply.what);
             }
 
@@ -302,6 +404,9 @@ public class AsyncQueryServiceHelper extends IntentService {
          */
         private long mScheduledTimeMillis = 0;
 
+        //Lane 에 예약된 실행, 취소할때 쓴다.
+        private volatile Future<?> mFuture;
+
         // @VisibleForTesting
         void calculateScheduledTime() {
             mScheduledTimeMillis = SystemClock.elapsedRealtime() + delayMillis;
@@ -0,0 +1,375 @@
+package com.android.calendar.ics;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.provider.CalendarContract.Events;
+import android.provider.CalendarContract.Reminders;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import com.android.calendarcommon2.ICalendar;
+import com.android.calendarcommon2.RecurrenceSet;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * 날자범위의 일정들을 .ics 로 내보내는 클라스
+ * Events 표를 _id 순서로 {@link #PAGE_SIZE}개씩 나누어 query 하고 일정마다 VEVENT 를 흐름에 바로 쓴다.
+ * VCALENDAR 전체를 문자렬로 만들지 않으므로 내보내는 일정수와 관계없이 한 page 만큼의 기억기만 쓴다.
+ *  - 반복일정의 RRULE, RDATE, EXRULE, EXDATE, DURATION 은 {@link RecurrenceSet#populateComponent(Cursor, ICalendar.Component)}로 만든다.
+ *  - 반복일정의 례외일정은 원래 일정의 UID 와 RECURRENCE-ID 를 가진 VEVENT 로 쓴다.
+ *  - 미리알림들은 page 마다 한번 query 하여 VALARM 으로 쓴다.
+ * 배경 thread 에서 호출하여야 한다.
+ */
+public class IcsExporter {
+    private static final String TAG = "IcsExporter";
+
+    //한번에 query 하는 일정개수
+    private static final int PAGE_SIZE = 200;
+    private static final String PRODID = "-//com.android.krcalendar//Calendar//EN";
+    private static final String UID_HOST = "@com.android.krcalendar";
+
+    private static final String[] EVENT_PROJECTION = new String[] {
+            Events._ID,
+            Events.TITLE,
+            Events.DESCRIPTION,
+            Events.EVENT_LOCATION,
+            Events.DTSTART,
+            Events.DTEND,
+            Events.DURATION,
+            Events.EVENT_TIMEZONE,
+            Events.RRULE,
+            Events.RDATE,
+            Events.EXRULE,
+            Events.EXDATE,
+            Events.ALL_DAY,
+            Events.HAS_ALARM,
+            Events.UID_2445,
+            Events.ORIGINAL_ID,
+            Events.ORIGINAL_INSTANCE_TIME,
+            Events.ORIGINAL_ALL_DAY,
+            Events.STATUS,
+    };
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_TITLE = 1;
+    private static final int INDEX_DESCRIPTION = 2;
+    private static final int INDEX_EVENT_LOCATION = 3;
+    private static final int INDEX_DTSTART = 4;
+    private static final int INDEX_DTEND = 5;
+    private static final int INDEX_TIMEZONE = 7;
+    private static final int INDEX_RRULE = 8;
+    private static final int INDEX_RDATE = 9;
+    private static final int INDEX_ALL_DAY = 12;
+    private static final int INDEX_HAS_ALARM = 13;
+    private static final int INDEX_UID = 14;
+    private static final int INDEX_ORIGINAL_ID = 15;
+    private static final int INDEX_ORIGINAL_INSTANCE_TIME = 16;
+    private static final int INDEX_ORIGINAL_ALL_DAY = 17;
+    private static final int INDEX_STATUS = 18;
+
+    //범위에 걸치는 일정들, LAST_DATE 가 없는것은 끝이 없는 반복일정이다.
+    private static final String EVENT_SELECTION = Events._ID + ">? AND "
+            + Events.DELETED + "=0 AND "
+            + Events.DTSTART + "<? AND ("
+            + Events.LAST_DATE + " IS NULL OR " + Events.LAST_DATE + ">=?)";
+    private static final String CALENDAR_SELECTION = " AND " + Events.CALENDAR_ID + "=?";
+
+    private final ContentResolver mResolver;
+    private long mCalendarId = -1;
+    private volatile boolean mCancelled = false;
+
+    //page 마다 다시 쓰는 객체들
+    private final LongSparseArray<ArrayList<int[]>> mReminders = new LongSparseArray<>();
+    private final LongSparseArray<String> mOriginalUids = new LongSparseArray<>();
+    private final StringBuilder mBuilder = new StringBuilder(32);
+
+    public IcsExporter(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * 한 달력계정의 일정들만 내보낸다.
+     * @param calendarId 달력계정 Id, -1 이면 모든 달력계정
+     */
+    public void setCalendarId(long calendarId) {
+        mCalendarId = calendarId;
+    }
+
+    /**
+     * 내보내기를 취소한다. 다른 thread 에서 호출할수 있다.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * 날자범위에 걸치는 일정들을 .ics 로 쓴다. 흐름은 닫지 않는다.
+     * @param startMillis 범위의 시작시간(미리초)
+     * @param endMillis 범위의 마감시간(미리초)
+     * @param output 쓸 흐름
+     * @return 내보낸 일정개수, 취소되였으면 -1
+     */
+    public int export(long startMillis, long endMillis, OutputStream output) throws IOException {
+        final long start = System.currentTimeMillis();
+        IcsWriter writer = new IcsWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writer.beginComponent(ICalendar.Component.VCALENDAR);
+        writer.writeProperty("VERSION", "2.0");
+        writer.writeProperty("PRODID", PRODID);
+        writer.writeProperty("CALSCALE", "GREGORIAN");
+
+        String selection = EVENT_SELECTION;
+        String[] selectionArgs;
+        if(mCalendarId >= 0) {
+            selection += CALENDAR_SELECTION;
+            selectionArgs = new String[] {null, String.valueOf(endMillis), String.valueOf(startMillis),
+                    String.valueOf(mCalendarId)};
+        } else {
+            selectionArgs = new String[] {null, String.valueOf(endMillis), String.valueOf(startMillis)};
+        }
+
+        int count = 0;
+        long lastId = -1;
+        while (!mCancelled) {
+            selectionArgs[0] = String.valueOf(lastId);
+            Cursor cursor = mResolver.query(Events.CONTENT_URI, EVENT_PROJECTION, selection, selectionArgs,
+                    Events._ID + " ASC LIMIT " + PAGE_SIZE);
+            if(cursor == null)
+                break;
+
+            final int rows;
+            try {
+                rows = cursor.getCount();
+                if(rows == 0)
+                    break;
+                loadPage(cursor);
+
+                cursor.moveToPosition(-1);
+                while (cursor.moveToNext()) {
+                    writeEvent(writer, cursor);
+                    lastId = cursor.getLong(INDEX_ID);
+                }
+            } finally {
+                cursor.close();
+            }
+            count += rows;
+            if(rows < PAGE_SIZE)
+                break;
+        }
+
+        mReminders.clear();
+        mOriginalUids.clear();
+        if(mCancelled) {
+            writer.flush();
+            return -1;
+        }
+
+        writer.endComponent(ICalendar.Component.VCALENDAR);
+        writer.flush();
+        Log.i(TAG, "Exported " + count + " events in " + (System.currentTimeMillis() - start) + "ms");
+        return count;
+    }
+
+    /**
+     * Page 의 일정들의 미리알림과 례외일정의 원래 UID 들을 읽는다.
+     */
+    private void loadPage(Cursor cursor) {
+        mReminders.clear();
+        mOriginalUids.clear();
+
+        ArrayList<String> alarmIds = new ArrayList<>();
+        ArrayList<String> originalIds = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            if(cursor.getInt(INDEX_HAS_ALARM) != 0)
+                alarmIds.add(cursor.getString(INDEX_ID));
+            if(!cursor.isNull(INDEX_ORIGINAL_ID) && mOriginalUids.indexOfKey(cursor.getLong(INDEX_ORIGINAL_ID)) < 0) {
+                originalIds.add(cursor.getString(INDEX_ORIGINAL_ID));
+                mOriginalUids.put(cursor.getLong(INDEX_ORIGINAL_ID), null);
+            }
+        }
+
+        if(!alarmIds.isEmpty()) {
+            Cursor reminders = mResolver.query(Reminders.CONTENT_URI,
+                    new String[] {Reminders.EVENT_ID, Reminders.MINUTES, Reminders.METHOD},
+                    Reminders.EVENT_ID + " IN (" + makePlaceholders(alarmIds.size()) + ")",
+                    alarmIds.toArray(new String[0]), null);
+            if(reminders != null) {
+                try {
+                    while (reminders.moveToNext()) {
+                        final long eventId = reminders.getLong(0);
+                        ArrayList<int[]> list = mReminders.get(eventId);
+                        if(list == null) {
+                            list = new ArrayList<>();
+                            mReminders.put(eventId, list);
+                        }
+                        list.add(new int[] {reminders.getInt(1), reminders.getInt(2)});
+                    }
+                } finally {
+                    reminders.close();
+                }
+            }
+        }
+
+        if(!originalIds.isEmpty()) {
+            Cursor originals = mResolver.query(Events.CONTENT_URI,
+                    new String[] {Events._ID, Events.UID_2445},
+                    Events._ID + " IN (" + makePlaceholders(originalIds.size()) + ")",
+                    originalIds.toArray(new String[0]), null);
+            if(originals != null) {
+                try {
+                    while (originals.moveToNext()) {
+                        mOriginalUids.put(originals.getLong(0), originals.getString(1));
+                    }
+                } finally {
+                    originals.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 현재 행의 일정을 VEVENT 로 쓴다.
+     */
+    private void writeEvent(IcsWriter writer, Cursor cursor) throws IOException {
+        final long eventId = cursor.getLong(INDEX_ID);
+        final boolean allDay = cursor.getInt(INDEX_ALL_DAY) != 0;
+        final long dtstart = cursor.getLong(INDEX_DTSTART);
+        String timezone = cursor.getString(INDEX_TIMEZONE);
+        if(TextUtils.isEmpty(timezone))
+            timezone = null;
+
+        writer.beginComponent(ICalendar.Component.VEVENT);
+
+        //UID, 례외일정은 원래 일정의 UID
+        if(!cursor.isNull(INDEX_ORIGINAL_ID)) {
+            final long originalId = cursor.getLong(INDEX_ORIGINAL_ID);
+            writer.writeProperty("UID", getUid(originalId, mOriginalUids.get(originalId)));
+            final long originalTime = cursor.getLong(INDEX_ORIGINAL_INSTANCE_TIME);
+            if(cursor.getInt(INDEX_ORIGINAL_ALL_DAY) != 0)
+                writer.writeProperty("RECURRENCE-ID", "VALUE", "DATE", formatDate(originalTime));
+            else
+                writer.writeProperty("RECURRENCE-ID", formatUtc(originalTime));
+            if(cursor.getInt(INDEX_STATUS) == Events.STATUS_CANCELED)
+                writer.writeProperty("STATUS", "CANCELLED");
+        } else {
+            writer.writeProperty("UID", getUid(eventId, cursor.getString(INDEX_UID)));
+        }
+        writer.writeText("SUMMARY", cursor.getString(INDEX_TITLE));
+        writer.writeText("DESCRIPTION", cursor.getString(INDEX_DESCRIPTION));
+        writer.writeText("LOCATION", cursor.getString(INDEX_EVENT_LOCATION));
+
+        //반복일정은 RecurrenceSet 이 만든 속성들을 쓰고 DTSTART 만 시간대에 맞게 다시 쓴다.
+        //RecurrenceSet 은 현재 시간대로 시각을 표시하기때문이다.
+        final boolean recurring = !TextUtils.isEmpty(cursor.getString(INDEX_RRULE))
+                || !TextUtils.isEmpty(cursor.getString(INDEX_RDATE));
+        ICalendar.Component recurrence = null;
+        if(recurring) {
+            recurrence = new ICalendar.Component(ICalendar.Component.VEVENT, null);
+            if(!RecurrenceSet.populateComponent(cursor, recurrence))
+                recurrence = null;
+        }
+
+        if(allDay) {
+            writer.writeProperty(ICalendar.Property.DTSTART, "VALUE", "DATE", formatDate(dtstart));
+        } else if(recurrence != null && timezone != null && !timezone.equals(DateTimeZone.UTC.getID())) {
+            writer.writeProperty(ICalendar.Property.DTSTART, "TZID", timezone, formatLocal(dtstart, timezone));
+        } else {
+            writer.writeProperty(ICalendar.Property.DTSTART, formatUtc(dtstart));
+        }
+
+        if(recurrence != null) {
+            writer.writeProperties(recurrence, ICalendar.Property.DTSTART);
+        } else if(!cursor.isNull(INDEX_DTEND)) {
+            final long dtend = cursor.getLong(INDEX_DTEND);
+            if(allDay)
+                writer.writeProperty(ICalendar.Property.DTEND, "VALUE", "DATE", formatDate(dtend));
+            else
+                writer.writeProperty(ICalendar.Property.DTEND, formatUtc(dtend));
+        }
+
+        ArrayList<int[]> reminders = mReminders.get(eventId);
+        if(reminders != null) {
+            for (int[] reminder : reminders) {
+                writer.beginComponent(ICalendar.Component.VALARM);
+                writer.writeProperty("ACTION", "DISPLAY");
+                writer.writeProperty("TRIGGER", reminder[0] == 0 ? "PT0S" : "-PT" + reminder[0] + "M");
+                writer.writeText("DESCRIPTION", cursor.getString(INDEX_TITLE));
+                writer.endComponent(ICalendar.Component.VALARM);
+            }
+        }
+
+        writer.endComponent(ICalendar.Component.VEVENT);
+    }
+
+    private static String getUid(long eventId, String uid) {
+        return TextUtils.isEmpty(uid) ? eventId + UID_HOST : uid;
+    }
+
+    /**
+     * @return 20200101T100000Z 형식의 UTC 시각
+     */
+    private String formatUtc(long millis) {
+        return format(new LocalDateTime(millis, DateTimeZone.UTC), true) + "Z";
+    }
+
+    /**
+     * @return 20200101T100000 형식의 시간대의 지역시각
+     */
+    private String formatLocal(long millis, String timezone) {
+        DateTimeZone zone;
+        try {
+            zone = DateTimeZone.forID(timezone);
+        } catch (IllegalArgumentException e) {
+            zone = DateTimeZone.UTC;
+        }
+        return format(new LocalDateTime(millis, zone), true);
+    }
+
+    /**
+     * @return 20200101 형식의 날자, 하루종일일정의 시각은 UTC 0시이다.
+     */
+    private String formatDate(long millis) {
+        return format(new LocalDateTime(millis, DateTimeZone.UTC), false);
+    }
+
+    private String format(LocalDateTime time, boolean withTime) {
+        final StringBuilder sb = mBuilder;
+        sb.setLength(0);
+        appendNumber(sb, time.getYear(), 4);
+        appendNumber(sb, time.getMonthOfYear(), 2);
+        appendNumber(sb, time.getDayOfMonth(), 2);
+        if(withTime) {
+            sb.append('T');
+            appendNumber(sb, time.getHourOfDay(), 2);
+            appendNumber(sb, time.getMinuteOfHour(), 2);
+            appendNumber(sb, time.getSecondOfMinute(), 2);
+        }
+        return sb.toString();
+    }
+
+    private static void appendNumber(StringBuilder sb, int value, int digits) {
+        final String text = Integer.toString(value);
+        for (int i = text.length(); i < digits; i ++) {
+            sb.append('0');
+        }
+        sb.append(text);
+    }
+
+    private static String makePlaceholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i ++) {
+            if(i > 0)
+                sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
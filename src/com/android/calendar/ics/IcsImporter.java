@@ -0,0 +1,516 @@
+package com.android.calendar.ics;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.os.SystemClock;
+import android.provider.CalendarContract;
+import android.provider.CalendarContract.Events;
+import android.provider.CalendarContract.Reminders;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import com.android.calendar.event.CalendarEventModel.ReminderEntry;
+import com.android.calendar.event.EditEventHelper;
+import com.android.calendar.event.EventTypeManager;
+import com.android.calendarcommon2.DateException;
+import com.android.calendarcommon2.Duration;
+import com.android.calendarcommon2.ICalendar;
+import com.android.calendarcommon2.RecurrenceSet;
+import com.android.kr_common.Time;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * .ics 파일의 일정들을 달력에 들여오는 클라스
+ * 파일을 {@link ICalendar#parseComponents}로 흘려읽으면서 VEVENT 하나씩 Events, Reminders 의 ContentValues 로 바꾸고
+ * {@link ContentResolver#applyBatch}로 묶어서 넣는다. 파일전체나 모든 일정을 기억기에 가지고 있지 않는다.
+ *  - 미리알림 추가연산은 {@link EditEventHelper#addRemindersWithBackRef}처럼 일정추가연산을 back-reference 로 참조한다.
+ *    따라서 한 일정의 연산들은 언제나 같은 묶음에 들어간다.
+ *  - 묶음크기는 묶음 한개의 처리시간이 {@link #TARGET_CHUNK_MS} 근처에 있도록 조절한다.
+ * 배경 thread 에서 호출하여야 한다.
+ */
+public class IcsImporter {
+    private static final String TAG = "IcsImporter";
+
+    //묶음 한개의 목표 처리시간(미리초)
+    private static final long TARGET_CHUNK_MS = 250;
+    //묶음의 연산개수 (처음, 최소, 최대)
+    private static final int INITIAL_CHUNK_OPS = 200;
+    private static final int MIN_CHUNK_OPS = 50;
+    private static final int MAX_CHUNK_OPS = 1000;
+    //묶음의 대략적인 최대 문자수, Binder 의 transaction 크기(1MB)를 넘지 않도록 한다.
+    private static final int MAX_CHUNK_CHARS = 128 * 1024;
+
+    /**
+     * 들여오기 진행상황을 받는 listener, 묶음이 하나 처리될때마다 들여오기 thread 에서 호출된다.
+     */
+    public interface Listener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * 들여오기 진행상황과 성능
+     */
+    public static class Progress {
+        public int eventCount;      //들여온 일정개수
+        public int skippedCount;    //읽지 못하여 건너뛴 일정개수
+        public int reminderCount;   //들여온 미리알림개수
+        public int chunkCount;      //처리한 묶음개수
+        public int chunkOps;        //다음 묶음의 연산개수
+        public long bytesRead;      //읽은 byte 수
+        public long totalBytes;     //파일크기, 모르면 -1
+        public long elapsedMs;      //시작으로부터 지난 시간(미리초)
+        public long lastChunkMs;    //마지막 묶음의 처리시간(미리초)
+        public long maxChunkMs;     //제일 오랜 묶음의 처리시간(미리초)
+
+        /**
+         * @return 초당 들여온 일정개수
+         */
+        public float getEventsPerSecond() {
+            return elapsedMs > 0 ? eventCount * 1000f / elapsedMs : 0;
+        }
+
+        /**
+         * @return 0-1 사이의 진행률, 파일크기를 모르면 -1
+         */
+        public float getFraction() {
+            return totalBytes > 0 ? Math.min(1f, (float) bytesRead / totalBytes) : -1;
+        }
+
+        @Override
+        public String toString() {
+            return "events=" + eventCount + ", skipped=" + skippedCount
+                    + ", reminders=" + reminderCount + ", chunks=" + chunkCount
+                    + ", elapsed=" + elapsedMs + "ms, events/s=" + (int) getEventsPerSecond()
+                    + ", lastChunk=" + lastChunkMs + "ms, maxChunk=" + maxChunkMs + "ms";
+        }
+    }
+
+    /**
+     * 취소되였을때 해석을 끝내기 위한 례외
+     */
+    private static class CancelledException extends ICalendar.FormatException {
+        CancelledException() {
+            super("Cancelled");
+        }
+    }
+
+    /**
+     * 읽은 byte 수를 세는 흐름
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long mCount = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b >= 0)
+                mCount ++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if(count > 0)
+                mCount += count;
+            return count;
+        }
+
+        long getCount() {
+            return mCount;
+        }
+    }
+
+    private final ContentResolver mResolver;
+    private final long mCalendarId;
+    private Listener mListener;
+    private volatile boolean mCancelled = false;
+
+    //처리를 기다리는 연산들
+    private final ArrayList<ContentProviderOperation> mOps = new ArrayList<>();
+    private int mPendingChars = 0;
+    private int mPendingEvents = 0;
+    private int mPendingReminders = 0;
+
+    private Progress mProgress;
+    private CountingInputStream mInput;
+    private long mStartTime;
+
+    //일정마다 다시 쓰는 객체들
+    private final ContentValues mRecurrenceValues = new ContentValues();
+    private final ArrayList<ReminderEntry> mReminders = new ArrayList<>();
+    private final Duration mDuration = new Duration();
+    private final Time mTime = new Time();
+
+    /**
+     * @param resolver ContentResolver
+     * @param calendarId 일정들을 넣을 달력계정 Id
+     */
+    public IcsImporter(ContentResolver resolver, long calendarId) {
+        mResolver = resolver;
+        mCalendarId = calendarId;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 들여오기를 취소한다. 이미 넣은 묶음들은 남아있다. 다른 thread 에서 호출할수 있다.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * uri 의 .ics 파일을 들여온다.
+     * @param uri 파일의 uri (content://, file://)
+     * @return 들여오기 결과
+     */
+    public Progress importFrom(Uri uri) throws IOException, ICalendar.FormatException,
+            RemoteException, OperationApplicationException {
+        long totalBytes = -1;
+        try (AssetFileDescriptor descriptor = mResolver.openAssetFileDescriptor(uri, "r")) {
+            if(descriptor != null)
+                totalBytes = descriptor.getLength();
+        } catch (IOException | SecurityException e) {
+            //크기를 모르면 진행률만 보여주지 못한다.
+        }
+
+        InputStream input = mResolver.openInputStream(uri);
+        if(input == null)
+            throw new IOException("Cannot open " + uri);
+        try {
+            return importFrom(input, totalBytes);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 흐름의 .ics 자료를 들여온다. 흐름은 닫지 않는다.
+     * @param input UTF-8 로 된 .ics 자료
+     * @param totalBytes 자료의 크기, 모르면 -1
+     * @return 들여오기 결과
+     */
+    public Progress importFrom(InputStream input, long totalBytes) throws IOException,
+            ICalendar.FormatException, RemoteException, OperationApplicationException {
+        mProgress = new Progress();
+        mProgress.totalBytes = totalBytes;
+        mProgress.chunkOps = INITIAL_CHUNK_OPS;
+        mStartTime = SystemClock.elapsedRealtime();
+        mInput = new CountingInputStream(input);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(mInput, StandardCharsets.UTF_8));
+        try {
+            ICalendar.parseComponents(reader, ICalendar.Component.VEVENT, new ICalendar.ComponentCallback() {
+                @Override
+                public void onComponent(ICalendar.Component component) throws ICalendar.FormatException {
+                    if(mCancelled)
+                        throw new CancelledException();
+                    try {
+                        addEvent(component);
+                    } catch (RemoteException | OperationApplicationException e) {
+                        throw new ICalendar.FormatException("Failed to insert events", e);
+                    }
+                }
+            });
+            flush();
+        } catch (CancelledException e) {
+            mOps.clear();
+        } catch (ICalendar.FormatException e) {
+            //applyBatch 의 례외는 그대로 던진다.
+            if(e.getCause() instanceof RemoteException)
+                throw (RemoteException) e.getCause();
+            if(e.getCause() instanceof OperationApplicationException)
+                throw (OperationApplicationException) e.getCause();
+            throw e;
+        }
+
+        Log.i(TAG, "Imported " + mProgress);
+        return mProgress;
+    }
+
+    /**
+     * VEVENT 하나를 연산들로 바꾸어 추가한다. 묶음이 차면 먼저 처리한다.
+     */
+    private void addEvent(ICalendar.Component component) throws RemoteException, OperationApplicationException {
+        ContentValues values = buildEventValues(component);
+        if(values == null) {
+            mProgress.skippedCount ++;
+            return;
+        }
+        readReminders(component, mReminders);
+        values.put(Events.HAS_ALARM, mReminders.isEmpty() ? 0 : 1);
+
+        final int chars = estimateChars(values);
+        if(mOps.size() + 1 + mReminders.size() > mProgress.chunkOps
+                || mPendingChars + chars > MAX_CHUNK_CHARS) {
+            flush();
+        }
+
+        //일정마다 양보할수 있게 하여 큰 묶음이 provider 를 오래 잠그지 않도록 한다.
+        final int eventIdIndex = mOps.size();
+        mOps.add(ContentProviderOperation.newInsert(Events.CONTENT_URI)
+                .withValues(values)
+                .withYieldAllowed(true)
+                .build());
+        EditEventHelper.addRemindersWithBackRef(mOps, eventIdIndex, mReminders);
+
+        mPendingChars += chars;
+        mPendingEvents ++;
+        mPendingReminders += mReminders.size();
+    }
+
+    /**
+     * 기다리는 연산들을 한 묶음으로 처리하고 처리시간에 따라 다음 묶음의 크기를 조절한다.
+     */
+    private void flush() throws RemoteException, OperationApplicationException {
+        if(mOps.isEmpty())
+            return;
+
+        final long start = SystemClock.elapsedRealtime();
+        mResolver.applyBatch(CalendarContract.AUTHORITY, mOps);
+        final long chunkMs = SystemClock.elapsedRealtime() - start;
+
+        final Progress progress = mProgress;
+        progress.eventCount += mPendingEvents;
+        progress.reminderCount += mPendingReminders;
+        progress.chunkCount ++;
+        progress.lastChunkMs = chunkMs;
+        progress.maxChunkMs = Math.max(progress.maxChunkMs, chunkMs);
+        progress.bytesRead = mInput.getCount();
+        progress.elapsedMs = SystemClock.elapsedRealtime() - mStartTime;
+
+        //가득 찬 묶음이 빨리 끝났으면 늘이고 늦었으면 줄인다.
+        if(chunkMs > TARGET_CHUNK_MS * 2) {
+            progress.chunkOps = Math.max(MIN_CHUNK_OPS, progress.chunkOps / 2);
+        } else if(chunkMs < TARGET_CHUNK_MS / 2 && mOps.size() * 2 > progress.chunkOps) {
+            progress.chunkOps = Math.min(MAX_CHUNK_OPS, progress.chunkOps * 2);
+        }
+
+        mOps.clear();
+        mPendingChars = 0;
+        mPendingEvents = 0;
+        mPendingReminders = 0;
+
+        if(mListener != null)
+            mListener.onProgress(progress);
+    }
+
+    /**
+     * VEVENT 를 Events 의 ContentValues 로 바꾼다.
+     * @return 시작시간을 읽을수 없으면 null
+     */
+    private ContentValues buildEventValues(ICalendar.Component component) {
+        ICalendar.Property dtstart = component.getFirstProperty(ICalendar.Property.DTSTART);
+        if(dtstart == null || TextUtils.isEmpty(dtstart.getValue()))
+            return null;
+
+        final String tzid = getTimeZoneId(dtstart);
+        final long startMillis = parseDateTime(dtstart.getValue(), tzid);
+        if(startMillis == Long.MIN_VALUE)
+            return null;
+        final boolean allDay = mTime.allDay;
+        final String timezone = allDay || mTime.timezone.equals(Time.TIMEZONE_UTC) ? Time.TIMEZONE_UTC
+                : tzid != null ? tzid : DateTimeZone.getDefault().getID();
+
+        ContentValues values = new ContentValues();
+        values.put(Events.CALENDAR_ID, mCalendarId);
+        values.put(Events.TITLE, getText(component, "SUMMARY"));
+        values.put(Events.DESCRIPTION, getText(component, "DESCRIPTION"));
+        values.put(Events.EVENT_LOCATION, getText(component, "LOCATION"));
+        values.put(Events.UID_2445, getText(component, "UID"));
+        values.put(Events.EVENT_COLOR, EventTypeManager.EVENT_TYPE_DEFAULT);
+
+        //반복일정은 RecurrenceSet 으로 RRULE, RDATE, EXRULE, EXDATE, DURATION 을 얻는다.
+        mRecurrenceValues.clear();
+        if(RecurrenceSet.populateContentValues(component, mRecurrenceValues)) {
+            values.putAll(mRecurrenceValues);
+            //RecurrenceSet 은 TZID 를 무시하고 현재 시간대로 시작시간을 계산하므로 다시 설정한다.
+            values.put(Events.DTSTART, startMillis);
+            values.put(Events.EVENT_TIMEZONE, timezone);
+            //마감시간이 없는 하루종일일정은 하루동안이다.
+            if(allDay && "+P0S".equals(values.getAsString(Events.DURATION)))
+                values.put(Events.DURATION, "P1D");
+            return values;
+        }
+
+        long endMillis = Long.MIN_VALUE;
+        ICalendar.Property dtend = component.getFirstProperty(ICalendar.Property.DTEND);
+        if(dtend != null && !TextUtils.isEmpty(dtend.getValue())) {
+            endMillis = parseDateTime(dtend.getValue(), getTimeZoneId(dtend));
+        } else {
+            ICalendar.Property duration = component.getFirstProperty(ICalendar.Property.DURATION);
+            if(duration != null) {
+                try {
+                    mDuration.parse(duration.getValue());
+                    endMillis = startMillis + mDuration.getMillis();
+                } catch (DateException e) {
+                    endMillis = Long.MIN_VALUE;
+                }
+            }
+        }
+        if(endMillis == Long.MIN_VALUE || endMillis < startMillis) {
+            //RFC 5545: 마감시간이 없으면 하루종일일정은 하루, 그외는 시작시간에 끝난다.
+            endMillis = allDay ? startMillis + DateUtils.DAY_IN_MILLIS : startMillis;
+        }
+
+        values.put(Events.DTSTART, startMillis);
+        values.put(Events.DTEND, endMillis);
+        values.put(Events.EVENT_TIMEZONE, timezone);
+        values.put(Events.ALL_DAY, allDay ? 1 : 0);
+        return values;
+    }
+
+    /**
+     * DATE 혹은 DATE-TIME 값을 미리초로 바꾼다. 해석결과는 {@link #mTime}에 남는다.
+     * @param value 20200101, 20200101T100000, 20200101T100000Z 형식의 값
+     * @param tzid TZID 파라메터, 없으면 null(현재 시간대)
+     * @return 미리초, 읽을수 없으면 Long.MIN_VALUE
+     */
+    private long parseDateTime(String value, String tzid) {
+        final Time time = mTime;
+        try {
+            time.timezone = null;
+            time.parse(value);
+        } catch (Exception e) {
+            return Long.MIN_VALUE;
+        }
+
+        DateTimeZone zone;
+        if(time.allDay || Time.TIMEZONE_UTC.equals(time.timezone)) {
+            zone = DateTimeZone.UTC;
+        } else if(tzid != null) {
+            try {
+                zone = DateTimeZone.forID(tzid);
+            } catch (IllegalArgumentException e) {
+                zone = DateTimeZone.getDefault();
+            }
+        } else {
+            zone = DateTimeZone.getDefault();
+        }
+        if(time.timezone == null)
+            time.timezone = zone.getID();
+
+        try {
+            return new LocalDateTime(time.year, time.month + 1, time.monthDay, time.hour, time.minute, time.second)
+                    .toDateTime(zone).getMillis();
+        } catch (IllegalArgumentException e) {
+            //여름시간으로 넘어갈때 없는 시각이면 한시간 뒤로 한다.
+            try {
+                return new LocalDateTime(time.year, time.month + 1, time.monthDay, time.hour, time.minute, time.second)
+                        .plusHours(1).toDateTime(zone).getMillis();
+            } catch (IllegalArgumentException e2) {
+                return Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private static String getTimeZoneId(ICalendar.Property property) {
+        ICalendar.Parameter tzid = property.getFirstParameter("TZID");
+        return tzid == null ? null : tzid.value;
+    }
+
+    /**
+     * VEVENT 의 VALARM 들에서 일정시작 전의 미리알림들을 읽는다.
+     * 절대시각이나 마감시간에 대한 TRIGGER 는 달력의 미리알림으로 표현할수 없으므로 건너뛴다.
+     */
+    private void readReminders(ICalendar.Component event, ArrayList<ReminderEntry> reminders) {
+        reminders.clear();
+        List<ICalendar.Component> children = event.getComponents();
+        if(children == null)
+            return;
+
+        for (ICalendar.Component alarm : children) {
+            if(!ICalendar.Component.VALARM.equals(alarm.getName()))
+                continue;
+            ICalendar.Property trigger = alarm.getFirstProperty("TRIGGER");
+            if(trigger == null || trigger.getValue() == null)
+                continue;
+            ICalendar.Parameter valueType = trigger.getFirstParameter("VALUE");
+            ICalendar.Parameter related = trigger.getFirstParameter("RELATED");
+            if((valueType != null && !"DURATION".equalsIgnoreCase(valueType.value))
+                    || (related != null && !"START".equalsIgnoreCase(related.value)))
+                continue;
+
+            try {
+                mDuration.parse(trigger.getValue());
+            } catch (DateException e) {
+                continue;
+            }
+            final long millis = mDuration.getMillis();
+            if(millis > 0)
+                continue;
+
+            ICalendar.Property action = alarm.getFirstProperty("ACTION");
+            final int method = action != null && "EMAIL".equalsIgnoreCase(action.getValue())
+                    ? Reminders.METHOD_EMAIL : Reminders.METHOD_ALERT;
+            ReminderEntry reminder = ReminderEntry.valueOf((int) (-millis / (60 * 1000)), method);
+            if(!reminders.contains(reminder))
+                reminders.add(reminder);
+        }
+    }
+
+    /**
+     * TEXT 형식의 속성값을 escape 를 풀어서 돌려준다.
+     */
+    private static String getText(ICalendar.Component component, String name) {
+        ICalendar.Property property = component.getFirstProperty(name);
+        if(property == null)
+            return null;
+        return unescapeText(property.getValue());
+    }
+
+    /**
+     * RFC 5545 3.3.11 의 TEXT escape(\\, \; \, \n \N)를 푼다.
+     */
+    static String unescapeText(String value) {
+        if(value == null || value.indexOf('\\') < 0)
+            return value;
+
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i ++) {
+            char c = value.charAt(i);
+            if(c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++ i);
+                if(c == 'n' || c == 'N')
+                    c = '\n';
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static int estimateChars(ContentValues values) {
+        int chars = 256;
+        for (String key : new String[]{Events.TITLE, Events.DESCRIPTION, Events.EVENT_LOCATION, Events.RRULE,
+                Events.RDATE, Events.EXDATE}) {
+            String value = values.getAsString(key);
+            if(value != null)
+                chars += value.length();
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,167 @@
+package com.android.calendar.ics;
+
+import com.android.calendarcommon2.ICalendar;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * iCalendar 내용행들을 흐름에 바로 쓰는 클라스
+ * RFC 5545 3.1 에 따라 75 octet(UTF-8)보다 긴 행은 CRLF 와 공백으로 접어서 쓴다.
+ * 행마다 다시 쓰는 StringBuilder 하나만 가지고 있으므로 쓰는 자료의 크기와 관계없이 기억기를 적게 쓴다.
+ */
+class IcsWriter implements Closeable, Flushable {
+    private static final String CRLF = "\r\n";
+    private static final String BEGIN = "BEGIN";
+    private static final String END = "END";
+    //한 행의 최대 octet 수(CRLF 제외)
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final Writer mWriter;
+    private final StringBuilder mLine = new StringBuilder(256);
+
+    /**
+     * @param writer UTF-8 로 쓰는 writer, 버퍼를 가진 writer 를 주어야 한다.
+     */
+    IcsWriter(Writer writer) {
+        mWriter = writer;
+    }
+
+    void beginComponent(String name) throws IOException {
+        writeProperty(BEGIN, name);
+    }
+
+    void endComponent(String name) throws IOException {
+        writeProperty(END, name);
+    }
+
+    /**
+     * 파라메터가 없는 속성을 쓴다.
+     * @param name 속성이름
+     * @param value 속성값, null 이면 쓰지 않는다.
+     */
+    void writeProperty(String name, String value) throws IOException {
+        if(value == null)
+            return;
+        mLine.setLength(0);
+        mLine.append(name).append(':').append(value);
+        writeLine(mLine);
+    }
+
+    /**
+     * 파라메터 한개를 가진 속성을 쓴다.
+     */
+    void writeProperty(String name, String paramName, String paramValue, String value) throws IOException {
+        mLine.setLength(0);
+        mLine.append(name).append(';').append(paramName).append('=').append(paramValue)
+                .append(':').append(value);
+        writeLine(mLine);
+    }
+
+    /**
+     * TEXT 형식의 속성을 escape 하여 쓴다.
+     * @param name 속성이름
+     * @param value 속성값, null 이거나 비였으면 쓰지 않는다.
+     */
+    void writeText(String name, String value) throws IOException {
+        if(value == null || value.isEmpty())
+            return;
+        mLine.setLength(0);
+        mLine.append(name).append(':');
+        appendEscapedText(mLine, value);
+        writeLine(mLine);
+    }
+
+    /**
+     * Component 의 속성들을 쓴다.
+     * @param component 속성들을 가진 component
+     * @param skipName 쓰지 않을 속성이름, 없으면 null
+     */
+    void writeProperties(ICalendar.Component component, String skipName) throws IOException {
+        for (String name : component.getPropertyNames()) {
+            if(name.equals(skipName))
+                continue;
+            List<ICalendar.Property> properties = component.getProperties(name);
+            for (ICalendar.Property property : properties) {
+                mLine.setLength(0);
+                property.toString(mLine);
+                writeLine(mLine);
+            }
+        }
+    }
+
+    /**
+     * 한 행을 75 octet 마다 접어서 쓴다.
+     * 값안에 이미 접혀있는 부분(\r\n + 공백)은 풀어서 다시 접는다.
+     */
+    void writeLine(CharSequence line) throws IOException {
+        final Writer writer = mWriter;
+        final int length = line.length();
+        int octets = 0;
+        for (int i = 0; i < length; i ++) {
+            final char c = line.charAt(i);
+            if(c == '\r')
+                continue;
+            if(c == '\n') {
+                if(i + 1 < length && line.charAt(i + 1) == ' ')
+                    i ++;
+                continue;
+            }
+
+            //UTF-8 문자를 가르지 않도록 문자의 octet 수를 센다.
+            final boolean pair = Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(line.charAt(i + 1));
+            final int charOctets = pair ? 4 : c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if(octets + charOctets > MAX_LINE_OCTETS) {
+                writer.write(CRLF);
+                writer.write(' ');
+                octets = 1;
+            }
+            writer.write(c);
+            if(pair)
+                writer.write(line.charAt(++ i));
+            octets += charOctets;
+        }
+        writer.write(CRLF);
+    }
+
+    /**
+     * RFC 5545 3.3.11 에 따라 TEXT 값의 \ ; , 행바꾸기를 escape 하여 붙인다.
+     */
+    static void appendEscapedText(StringBuilder sb, String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i ++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                case ';':
+                case ',':
+                    sb.append('\\').append(c);
+                    break;
+                case '\r':
+                    if(i + 1 < length && value.charAt(i + 1) == '\n')
+                        i ++;
+                    sb.append("\\n");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
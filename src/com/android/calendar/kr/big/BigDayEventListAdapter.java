@@ -74,7 +74,7 @@ public class BigDayEventListAdapter extends RecyclerView.Adapter<BigDayEventList
             @Override
             public void onClick(View v) {
                 mController.sendEventRelatedEvent(CalendarController.EventType.VIEW_EVENT, event.id,
-                        event.startTime.getMillis(), event.endTime.getMillis(),
+                        event.startMillis, event.endMillis,
                         -1);
             }
         });
@@ -10,6 +10,7 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.calendar.utils.Utils;
+import com.android.calendar.event.EventDayIndex;
 import com.android.calendar.event.EventManager;
 import com.android.krcalendar.R;
 
@@ -36,8 +37,8 @@ public class BigMonthMainViewAdapter extends RecyclerView.Adapter<BigMonthMainVi
     private final int mMonth;       //월
     private final int mPosition;    //페지위치(0 혹은 1)
 
-    //일정목록
-    List<EventManager.OneEvent> mEventList;
+    //날자별 일정색인
+    EventDayIndex mEventIndex;
 
     public BigMonthMainViewAdapter(Context context, BigCalendarView.BigCalendarViewDelegate delegate, int year, int month, int viewWidth, int viewHeight, int position) {
         mContext = context;
@@ -49,7 +50,7 @@ public class BigMonthMainViewAdapter extends RecyclerView.Adapter<BigMonthMainVi
         mPosition = position;
 
         DateTime dateTime = new DateTime(year, month, 1, 0, 0);
-        mEventList = EventManager.getEvents(context, dateTime.getMillis(), EventManager.MONTH);
+        mEventIndex = EventManager.getEventIndex(context, dateTime.getMillis(), EventManager.MONTH);
     }
 
     @NonNull
@@ -74,7 +75,7 @@ public class BigMonthMainViewAdapter extends RecyclerView.Adapter<BigMonthMainVi
         else
             day = DAYS_ONE_PAGE + i + 1;
 
-        List<EventManager.OneEvent> eventList = EventManager.getEventsFromDate(mEventList, mYear, mMonth, day);
+        List<EventManager.OneEvent> eventList = mEventIndex.getEvents(mYear, mMonth, day);
         BigMonthMainItem view = viewHolder.itemView.findViewById(R.id.month_day_content_view);
         view.setup(mDelegate, mYear, mMonth, day, eventList);
 
@@ -21,12 +21,12 @@ import android.util.AttributeSet;
 
 import com.android.calendar.activities.AllInOneActivity;
 import com.android.calendar.utils.Utils;
+import com.android.calendar.event.EventDayIndex;
+import com.android.calendar.event.EventLoader;
 import com.android.calendar.event.EventManager;
 
 import org.joda.time.DateTime;
 
-import java.util.List;
-
 /**
  * @see CustomMonthView
  */
@@ -44,7 +44,8 @@ public abstract class BaseMonthView extends BaseView {
      */
     protected int mNextDiff;
 
-    List<EventManager.OneEvent> mEventList = null;
+    //날자별 일정색인
+    EventDayIndex mEventIndex = null;
 
     //Main activity
     AllInOneActivity mMainActivity;
@@ -79,19 +80,33 @@ public abstract class BaseMonthView extends BaseView {
     }
 
     /**
-     * thread를 통해 일정을 얻은 다음 재그리기를 진행
+     * {@link EventLoader}를 통해 일정을 얻은 다음 재그리기를 진행
+     * View 가 다른 월로 재리용되면 이전 월의 적재는 취소된다.
      */
     public void redrawMonthView() {
-        DateTime dateTime = new DateTime(mYear, mMonth, 1, 0, 0);
+        final long monthMillis = new DateTime(mYear, mMonth, 1, 0, 0).getMillis();
+        final Context context = getContext().getApplicationContext();
 
-        Thread thread = new Thread(new Runnable() {
+        EventLoader.load(this, "month:" + mYear + "-" + mMonth, new EventLoader.Loader<EventDayIndex>() {
+            @Override
+            public EventDayIndex load() {
+                return EventManager.getEventIndex(context, monthMillis, EventManager.MONTH);
+            }
+        }, new EventLoader.Callback<EventDayIndex>() {
             @Override
-            public void run() {
-                mEventList = EventManager.getEvents(getContext(), dateTime.getMillis(), EventManager.MONTH);
+            public void onLoaded(EventDayIndex result) {
+                mEventIndex = result;
                 invalidate();
             }
         });
-        thread.start();
+    }
+
+    /**
+     * 진행중인 일정적재를 취소한다.
+     * Adapter 가 view 를 재리용대기렬에 넣을때 호출한다.
+     */
+    public void cancelLoading() {
+        EventLoader.cancel(this);
     }
 
     /**
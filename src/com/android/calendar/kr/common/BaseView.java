@@ -116,12 +116,18 @@ public abstract class BaseView extends ViewGroup implements View.OnClickListener
 
     final float CLICK_OFFSET = getResources().getDimension(R.dimen.day_click_offset);
 
+    /**
+     * 날자칸 그리기에 함께 리용하는 문자렬, 색갈, 문자크기 cache
+     */
+    protected final MonthRenderCache mRenderCache;
+
     public BaseView(Context context) {
         this(context, null);
     }
 
     public BaseView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
+        mRenderCache = MonthRenderCache.getInstance(context);
         initPaint(context);
     }
 
@@ -197,8 +203,7 @@ public abstract class BaseView extends ViewGroup implements View.OnClickListener
     @SuppressWarnings("IntegerDivisionInFloatingPointContext")
     void updateItemHeight() {
         this.mItemHeight = mDelegate.getCalendarItemHeight();
-        Paint.FontMetrics metrics = mCurMonthTextPaint.getFontMetrics();
-        mTextBaseLine = mDelegate.getCalendarItemHeight() / 2 - metrics.descent + (metrics.bottom - metrics.top) / 2;
+        mTextBaseLine = mDelegate.getCalendarItemHeight() / 2 + mRenderCache.getBaseLineOffset(mCurMonthTextPaint);
     }
 
     /**
@@ -11,6 +11,7 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.animation.LinearInterpolator;
 import android.widget.ImageView;
@@ -19,6 +20,7 @@ import androidx.core.content.ContextCompat;
 
 import com.android.calendar.event.EventTypeManager;
 import com.android.calendar.utils.Utils;
+import com.android.calendar.event.EventLoader;
 import com.android.calendar.event.EventManager;
 
 import java.util.ArrayList;
@@ -67,6 +69,16 @@ public class CustomMonthView extends MonthView {
     List<Drawable> mTodayEventImages = new ArrayList<>();
     int mTodayImageSize = 0;
 
+    //일정형태별로 한번만 만들어 색을 입힌 일정화상들
+    private final SparseArray<Drawable> mEventTypeImages = new SparseArray<>();
+    //오늘일정 적재요청의 owner, 월일정 적재(this)와 따로 취소되여야 한다.
+    private final Object mTodayLoadOwner = new Object();
+    //적재를 요청한 날자와 적재가 끝난 날자(yyyyMMdd), 없으면 -1
+    private int mTodayRequestedDate = -1;
+    private int mTodayLoadedDate = -1;
+    //오늘일정들이 적재되면 animation 을 시작한다.
+    private boolean mTodayAnimationPending = false;
+
     //오늘일정 animation을 진행하는데 리용되는 변수들
     float mTodayX, mTodayY;
     int mAnimateImageIndex = 0;
@@ -181,6 +193,7 @@ public class CustomMonthView extends MonthView {
         float baselineY = mTextBaseLine + y;
 
         boolean isToday = calendar.isCurrentDay();
+        final String dayString = MonthRenderCache.getDayString(calendar.getDay());
 
         if(isToday && calendar.isCurrentMonth()){
 
@@ -201,15 +214,15 @@ public class CustomMonthView extends MonthView {
             else {
                 mCurDayTextPaint.setAlpha(255);
             }
-            canvas.drawText(String.valueOf(calendar.getDay()), cx, baselineY, mCurDayTextPaint);
+            canvas.drawText(dayString, cx, baselineY, mCurDayTextPaint);
             canvas.restore();
         }
         else if (isSelected && calendar.isCurrentMonth()) {
-            canvas.drawText(String.valueOf(calendar.getDay()), cx, baselineY,
+            canvas.drawText(dayString, cx, baselineY,
                     mSelectTextPaint);
         }
         else {
-            canvas.drawText(String.valueOf(calendar.getDay()), cx, baselineY,
+            canvas.drawText(dayString, cx, baselineY,
                     calendar.isCurrentMonth()? mCurMonthTextPaint : mOtherMonthTextPaint);
         }
     }
@@ -218,7 +231,17 @@ public class CustomMonthView extends MonthView {
      * 오늘 일정화상교체 animation을 보여준다.
      */
     public void startTodayAnimation() {
-        getTodayEventData();
+        //아직 적재되지 않았으면 적재가 끝난 다음 시작한다.
+        final int today = getDateKey(DateTime.now());
+        if(mTodayLoadedDate != today) {
+            mTodayAnimationPending = true;
+            if(mTodayRequestedDate != today)
+                loadTodayEvents();
+            return;
+        }
+        mTodayAnimationPending = false;
+        updateTodayImageSize();
+        updateTodayPosition();
         if(mTodayEventImages.isEmpty())
             return;
 
@@ -253,6 +276,7 @@ public class CustomMonthView extends MonthView {
      * 오늘의 일정화상 animation없애기
      */
     public void removeTodayAnimation() {
+        mTodayAnimationPending = false;
         if(mTodayAnimator != null)
             mTodayAnimator.end();
         removeAllViews();
@@ -547,24 +571,110 @@ public class CustomMonthView extends MonthView {
     }
 
     /**
-     * 오늘의 일정정보들을 얻기
+     * 이번달이면 월일정과 함께 오늘의 일정들도 다시 적재한다.
      */
-    public void getTodayEventData(){
-        getItemWidth();
-        mTodayImageSize = mRadius * 2 + dipToPx(getContext(), 3);
+    @Override
+    public void redrawMonthView() {
+        super.redrawMonthView();
+        if(isCurrentMonth(DateTime.now()))
+            loadTodayEvents();
+    }
 
-        mTodayEventImages.clear();
-        List<EventManager.OneEvent> eventList = EventManager.getEvents(getContext(), DateTime.now().getMillis(), EventManager.DAY);
-        for (EventManager.OneEvent event : eventList) {
-            EventTypeManager.OneEventType eventType = EventTypeManager.getEventTypeFromId(event.type);
+    @Override
+    public void cancelLoading() {
+        super.cancelLoading();
+        EventLoader.cancel(mTodayLoadOwner);
+        mTodayRequestedDate = mTodayLoadedDate;
+    }
 
-            final Drawable drawable;
-            drawable = ContextCompat.getDrawable(getContext(), eventType.imageResource).mutate();
-            Objects.requireNonNull(drawable).setTint(getResources().getColor(eventType.color, null));
+    /**
+     * {@link EventLoader}를 통해 오늘 일정들의 형태를 적재하고 일정화상목록을 만든다.
+     * 그리기마다 query 하지 않도록 적재는 일정이 변하였거나 날자가 바뀌였을때만 진행한다.
+     */
+    private void loadTodayEvents() {
+        final DateTime now = DateTime.now();
+        final int dateKey = getDateKey(now);
+        final long todayMillis = now.getMillis();
+        final Context context = getContext().getApplicationContext();
+
+        //적재가 끝나기전에 그리기때마다 다시 요청하지 않도록 먼저 기록한다.
+        mTodayRequestedDate = dateKey;
+        EventLoader.load(mTodayLoadOwner, "today:" + dateKey, new EventLoader.Loader<int[]>() {
+            @Override
+            public int[] load() {
+                List<EventManager.OneEvent> eventList = EventManager.getEvents(context, todayMillis, EventManager.DAY);
+                int[] types = new int[eventList.size()];
+                for (int i = 0; i < types.length; i ++) {
+                    types[i] = eventList.get(i).type;
+                }
+                return types;
+            }
+        }, new EventLoader.Callback<int[]>() {
+            @Override
+            public void onLoaded(int[] result) {
+                onTodayEventsLoaded(dateKey, result);
+            }
+        });
+    }
+
+    /**
+     * 적재된 오늘일정들로 일정화상목록을 바꾼다.
+     * @param dateKey 적재한 날자
+     * @param types 오늘 일정들의 형태
+     */
+    private void onTodayEventsLoaded(int dateKey, int[] types) {
+        mTodayLoadedDate = dateKey;
+        updateTodayImageSize();
+
+        //진행중인 animation 의 animator 들은 이전 목록의 번호를 가지고 있으므로 목록을 새로 만든다.
+        List<Drawable> images = new ArrayList<>(types.length);
+        for (int type : types) {
+            images.add(getEventTypeImage(type));
+        }
+        final boolean changed = !images.equals(mTodayEventImages);
+        mTodayEventImages = images;
+
+        if(mTodayAnimationPending || (changed && mTodayAnimator != null && mTodayAnimator.isRunning()))
+            startTodayAnimation();
+        else if(changed)
+            invalidate();
+    }
+
+    /**
+     * 일정형태의 화상을 돌려준다. 형태마다 한번만 화상을 만들고 색을 입힌다.
+     * @param type 일정형태
+     */
+    private Drawable getEventTypeImage(int type) {
+        Drawable drawable = mEventTypeImages.get(type);
+        if(drawable == null) {
+            EventTypeManager.OneEventType eventType = EventTypeManager.getEventTypeFromId(type);
+            drawable = Objects.requireNonNull(ContextCompat.getDrawable(getContext(), eventType.imageResource)).mutate();
+            drawable.setTint(getResources().getColor(eventType.color, null));
             drawable.setBounds(0, 0, mTodayImageSize, mTodayImageSize);
-            mTodayEventImages.add(drawable);
+            mEventTypeImages.put(type, drawable);
+        }
+        return drawable;
+    }
+
+    /**
+     * 날자칸크기에 맞게 일정화상크기를 계산하고 만들어둔 화상들의 크기를 바꾼다.
+     */
+    private void updateTodayImageSize() {
+        getItemWidth();
+        final int imageSize = mRadius * 2 + dipToPx(getContext(), 3);
+        if(imageSize == mTodayImageSize)
+            return;
+        mTodayImageSize = imageSize;
+        for (int i = 0; i < mEventTypeImages.size(); i ++) {
+            mEventTypeImages.valueAt(i).setBounds(0, 0, imageSize, imageSize);
         }
+    }
 
+    /**
+     * 오늘날자칸의 중심좌표를 계산한다.
+     */
+    private void updateTodayPosition() {
+        getItemWidth();
         int d = 0;
         for (int i = 0; i < mLineCount; i++) {
             for (int j = 0; j < 7; j++) {
@@ -580,6 +690,14 @@ public class CustomMonthView extends MonthView {
         }
     }
 
+    private boolean isCurrentMonth(DateTime dateTime) {
+        return dateTime.getYear() == mYear && dateTime.getMonthOfYear() == mMonth;
+    }
+
+    private static int getDateKey(DateTime dateTime) {
+        return dateTime.getYear() * 10000 + dateTime.getMonthOfYear() * 100 + dateTime.getDayOfMonth();
+    }
+
     /**
      * 그리기
      * @param canvas 그리기객체
@@ -588,11 +706,11 @@ public class CustomMonthView extends MonthView {
     public void dispatchDraw(Canvas canvas){
         getItemWidth();
         DateTime dateTime = DateTime.now();
-        boolean isCurrentMonth = dateTime.getYear() == mYear && dateTime.getMonthOfYear() == mMonth;
+        boolean isCurrentMonth = isCurrentMonth(dateTime);
 
-        //이번달이면 오늘의 일정정보들을 얻는다.
-        if(isCurrentMonth)
-            getTodayEventData();
+        //이번달인데 날자가 바뀌였으면 오늘의 일정정보들을 다시 적재한다.
+        if(isCurrentMonth && mTodayRequestedDate != getDateKey(dateTime))
+            loadTodayEvents();
         canvas.drawColor(Utils.getCommonBackgroundColor(getContext()));
         super.dispatchDraw(canvas);
 
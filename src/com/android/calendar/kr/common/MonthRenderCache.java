@@ -0,0 +1,165 @@
+package com.android.calendar.kr.common;
+
+import android.content.Context;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import com.android.krcalendar.R;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 월보기들이 날자칸을 그릴때 함께 리용하는 cache
+ * 그리기때마다 새로 만들거나 계산하던 값들을 한번만 만들어둔다.
+ *  - 날자문자렬 "1" ~ "31"
+ *  - 자원에서 읽는 색갈들과 요일문자렬들
+ *  - 문자크기별 baseline 과 날자문자렬들의 경계크기
+ * 모든 함수들은 UI thread 에서만 호출하여야 한다.
+ */
+public final class MonthRenderCache {
+    //날자문자렬들, 첨수가 날자이다.
+    private static final String[] DAY_STRINGS = new String[32];
+    static {
+        for (int i = 0; i < DAY_STRINGS.length; i ++) {
+            DAY_STRINGS[i] = String.valueOf(i).intern();
+        }
+    }
+
+    //요일문자렬 자원들(일요일부터)
+    private static final int[] WEEK_TEXT_IDS = new int[]{R.string.sun, R.string.mon, R.string.tue, R.string.wed,
+            R.string.thu, R.string.fri, R.string.sat};
+
+    private static MonthRenderCache sInstance = null;
+
+    //요일문자렬들을 읽은 Locale, 바뀌면 cache 를 다시 만든다.
+    private final Locale mLocale;
+    private final String[] mWeekTexts = new String[7];
+    private final int mPastEventColor;
+    private final int mFutureEventColor;
+    private final int mWeekendTextColor;
+
+    //baseline 을 계산한 문자크기, 서체와 그 FontMetrics 로부터 얻은 중심에서 baseline 까지의 거리
+    private float mMetricsTextSize = -1;
+    private Typeface mMetricsTypeface = null;
+    private float mBaseLineOffset;
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+
+    //날자문자렬들의 경계크기를 잰 문자크기, 서체, 재지 않은 날자는 -1
+    private float mBoundsTextSize = -1;
+    private Typeface mBoundsTypeface = null;
+    private final int[] mDayTextWidths = new int[DAY_STRINGS.length];
+    private final int[] mDayTextHeights = new int[DAY_STRINGS.length];
+    private final Rect mBounds = new Rect();
+
+    private MonthRenderCache(Context context, Locale locale) {
+        mLocale = locale;
+        for (int i = 0; i < 7; i ++) {
+            mWeekTexts[i] = context.getString(WEEK_TEXT_IDS[i]);
+        }
+        mPastEventColor = context.getColor(R.color.colorPastEvent);
+        mFutureEventColor = context.getColor(R.color.colorFutureEvent);
+        mWeekendTextColor = context.getColor(R.color.week_bar_weekend_text_color);
+    }
+
+    /**
+     * Cache 를 돌려준다. View 를 만들때 얻어서 보관해두고 리용한다.
+     * @param context Context
+     */
+    public static MonthRenderCache getInstance(Context context) {
+        final Locale locale = context.getResources().getConfiguration().getLocales().get(0);
+        if (sInstance == null || !sInstance.mLocale.equals(locale)) {
+            sInstance = new MonthRenderCache(context.getApplicationContext(), locale);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param day 날자(1-31)
+     * @return 날자문자렬
+     */
+    public static String getDayString(int day) {
+        if (day >= 0 && day < DAY_STRINGS.length) {
+            return DAY_STRINGS[day];
+        }
+        return String.valueOf(day);
+    }
+
+    /**
+     * @param dayOfWeek 요일(0: 일요일 - 6: 토요일)
+     * @return 요일문자렬
+     */
+    public String getWeekText(int dayOfWeek) {
+        return mWeekTexts[dayOfWeek];
+    }
+
+    /**
+     * @return 과거일정만 가진 날자의 일정동그라미 색갈
+     */
+    public int getPastEventColor() {
+        return mPastEventColor;
+    }
+
+    /**
+     * @return 현재 혹은 앞으로의 일정을 가진 날자의 일정동그라미 색갈
+     */
+    public int getFutureEventColor() {
+        return mFutureEventColor;
+    }
+
+    /**
+     * @return 요일띠의 일요일 문자색갈
+     */
+    public int getWeekendTextColor() {
+        return mWeekendTextColor;
+    }
+
+    /**
+     * 칸의 중심으로부터 baseline 까지의 거리를 돌려준다. 칸의 가운데에 문자를 놓을때 (칸높이 / 2 + 거리)가 baseline 이다.
+     * @param paint 문자를 그리는 Paint
+     */
+    public float getBaseLineOffset(Paint paint) {
+        if (paint.getTextSize() != mMetricsTextSize || paint.getTypeface() != mMetricsTypeface) {
+            paint.getFontMetrics(mFontMetrics);
+            mBaseLineOffset = -mFontMetrics.descent + (mFontMetrics.bottom - mFontMetrics.top) / 2;
+            mMetricsTextSize = paint.getTextSize();
+            mMetricsTypeface = paint.getTypeface();
+        }
+        return mBaseLineOffset;
+    }
+
+    /**
+     * @param paint 날자를 그리는 Paint
+     * @param day 날자(1-31)
+     * @return 날자문자렬의 경계너비
+     */
+    public int getDayTextWidth(Paint paint, int day) {
+        measureDayText(paint, day);
+        return mDayTextWidths[day];
+    }
+
+    /**
+     * @param paint 날자를 그리는 Paint
+     * @param day 날자(1-31)
+     * @return 날자문자렬의 경계높이
+     */
+    public int getDayTextHeight(Paint paint, int day) {
+        measureDayText(paint, day);
+        return mDayTextHeights[day];
+    }
+
+    private void measureDayText(Paint paint, int day) {
+        if (paint.getTextSize() != mBoundsTextSize || paint.getTypeface() != mBoundsTypeface) {
+            Arrays.fill(mDayTextWidths, -1);
+            mBoundsTextSize = paint.getTextSize();
+            mBoundsTypeface = paint.getTypeface();
+        }
+        if (mDayTextWidths[day] < 0) {
+            final String dayString = DAY_STRINGS[day];
+            paint.getTextBounds(dayString, 0, dayString.length(), mBounds);
+            mDayTextWidths[day] = mBounds.width();
+            mDayTextHeights[day] = mBounds.height();
+        }
+    }
+}
@@ -24,7 +24,7 @@ import android.view.View;
 import com.android.calendar.utils.Utils;
 import com.android.calendar.event.EventManager;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import com.android.krcalendar.R;
 
@@ -37,11 +37,15 @@ import static com.android.calendar.utils.Utils.CALENDAR_TYPE2;
 public abstract class MonthView extends BaseMonthView {
 
     protected int mCalendarType;
+    //요일띠의 평일 문자색갈, 주제에 따라 다르므로 view 마다 한번 얻는다.
+    private final int mWeekdayTextColor;
+
     public MonthView(Context context) {
         this(context, null);
     }
     public MonthView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        mWeekdayTextColor = Utils.getThemeAttribute(context, R.attr.current_month_text_color);
     }
 
     /**
@@ -57,19 +61,16 @@ public abstract class MonthView extends BaseMonthView {
         canvas.save();
         if(mCalendarType == CALENDAR_TYPE1){
             //요일 그려주기
-            final int[] weekTexts = new int[]{R.string.sun, R.string.mon, R.string.tue, R.string.wed,
-                    R.string.thu, R.string.fri, R.string.sat};
-
             mWeekBarTextPaint.setTextSize(mDelegate.getWeekTextSize());
             mWeekBarTextPaint.setTextAlign(Paint.Align.CENTER);
             for (int i = 0; i < 7; i ++) {
-                String text = getResources().getString(weekTexts[i]);
+                String text = mRenderCache.getWeekText(i);
                 int x = i * mItemWidth + mItemWidth/2 + mDelegate.getCalendarPadding();
 
                 if(i == 0)
-                    mWeekBarTextPaint.setColor(getResources().getColor(R.color.week_bar_weekend_text_color, null));
+                    mWeekBarTextPaint.setColor(mRenderCache.getWeekendTextColor());
                 else
-                    mWeekBarTextPaint.setColor(Utils.getThemeAttribute(getContext(), R.attr.current_month_text_color));
+                    mWeekBarTextPaint.setColor(mWeekdayTextColor);
 
                 canvas.drawText(text, x, mTextBaseLine, mWeekBarTextPaint);
             }
@@ -128,14 +129,14 @@ public abstract class MonthView extends BaseMonthView {
         boolean isToday = calendar.isCurrentDay();
         boolean isSelected = d == mCurrentItem;
 
-        final ArrayList<EventManager.OneEvent> ev;
+        final List<EventManager.OneEvent> ev;
         final boolean hasScheme;    //일정을 가지고 있는가?
-        if(mEventList == null) {
+        if(mEventIndex == null) {
             hasScheme = false;
             ev = null;
         }
         else {
-            ev = EventManager.getEventsFromDate(mEventList, calendar.getYear(), calendar.getMonth(), calendar.getDay());
+            ev = mEventIndex.getEvents(calendar.getYear(), calendar.getMonth(), calendar.getDay());
             hasScheme = ev.size() != 0;
         }
 
@@ -160,12 +161,12 @@ public abstract class MonthView extends BaseMonthView {
 
             //과거일정을 포함하고 있으면 어두운 회색
             if(hasPastEvent){
-                calendar.setSchemeColor(getResources().getColor(R.color.colorPastEvent, null));
+                calendar.setSchemeColor(mRenderCache.getPastEventColor());
             }
 
             //그렇지 않으면 파란색
             else{
-                calendar.setSchemeColor(getResources().getColor(R.color.colorFutureEvent, null));
+                calendar.setSchemeColor(mRenderCache.getFutureEventColor());
             }
             onDrawScheme(canvas, calendar, x, y);
         }
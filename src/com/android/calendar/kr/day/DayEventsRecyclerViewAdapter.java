@@ -65,7 +65,7 @@ public class DayEventsRecyclerViewAdapter extends RecyclerView.Adapter<DayEvents
             @Override
             public void onClick(View v) {
                 mController.sendEventRelatedEvent(CalendarController.EventType.VIEW_EVENT, event.id,
-                        event.startTime.getMillis(), event.endTime.getMillis(),
+                        event.startMillis, event.endMillis,
                         -1);
             }
         });
@@ -70,6 +70,9 @@ public class DayFragmentContainerView extends RelativeLayout implements DayViewF
     Paint mDayTextPaint = new Paint();
     Paint mLunarTextPaint = new Paint();
 
+    //음력날자(일, 월, 년, 윤달), 그리기마다 재리용한다.
+    final int[] mLunarDay = new int[4];
+
     float mFadeAlpha = 1;   //Animation 을 진행할때의 fade alpha 값
     boolean mAnimationStart = true; //Animation 이 진행중인가?
 
@@ -122,8 +125,8 @@ public class DayFragmentContainerView extends RelativeLayout implements DayViewF
             return;
 
         //음력날자 현시
-        int[] lunarDay = LunarCoreHelper.convertSolar2Lunar(mDay, mMonth, mYear);
-        String lunarDayString = CalendarUtil.getLunarDayString(lunarDay, true, getContext());
+        LunarCoreHelper.convertSolar2Lunar(mDay, mMonth, mYear, mLunarDay);
+        String lunarDayString = CalendarUtil.getLunarDayString(mLunarDay, true, getContext());
 
         float lunarShowX = getResources().getDimension(R.dimen.month_text_left_padding);
         float lunarShowY = mBackgroundHeight - getResources().getDimension(R.dimen.lunar_text_bottom_padding);
@@ -74,7 +74,7 @@ public class GeneralDayEventListAdapter extends RecyclerView.Adapter<GeneralDayE
             @Override
             public void onClick(View v) {
                 mController.sendEventRelatedEvent(CalendarController.EventType.VIEW_EVENT, event.id,
-                        event.startTime.getMillis(), event.endTime.getMillis(),
+                        event.startMillis, event.endMillis,
                         -1);
             }
         });
@@ -87,6 +87,13 @@ public class GeneralMonthPagerAdapter extends RecyclerView.Adapter<GeneralMonthP
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        //화면에서 멀어진 월의 일정적재는 더 필요없다.
+        GeneralMonthViewContainer view = (GeneralMonthViewContainer) holder.itemView;
+        view.getMonthView().cancelLoading();
+    }
+
     @Override
     public int getItemCount() {
         return mMonthCount;
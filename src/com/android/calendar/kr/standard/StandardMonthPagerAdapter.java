@@ -89,6 +89,13 @@ public class StandardMonthPagerAdapter extends RecyclerView.Adapter<StandardMont
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        //화면에서 멀어진 월의 일정적재는 더 필요없다.
+        StandardMonthViewContainer view = (StandardMonthViewContainer) holder.itemView;
+        view.getMonthView().cancelLoading();
+    }
+
     @Override
     public int getItemCount() {
         return mMonthCount;
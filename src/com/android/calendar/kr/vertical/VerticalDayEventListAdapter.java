@@ -70,7 +70,7 @@ public class VerticalDayEventListAdapter extends RecyclerView.Adapter<VerticalDa
             @Override
             public void onClick(View v) {
                 mController.sendEventRelatedEvent(CalendarController.EventType.VIEW_EVENT, event.id,
-                        event.startTime.getMillis(), event.endTime.getMillis(),
+                        event.startMillis, event.endMillis,
                         -1);
             }
         });
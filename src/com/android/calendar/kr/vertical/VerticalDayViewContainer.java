@@ -31,6 +31,9 @@ public class VerticalDayViewContainer extends LinearLayout {
     private RecyclerView mEventListView;
     private TextView mDayNumber, mWeekDay, mLunarDay;
 
+    //음력날자 [일, 월, 년, 윤달여부], setup 때마다 재리용한다.
+    private final int[] mLunarDate = new int[4];
+
     public VerticalDayViewContainer(Context context) {
         this(context, null);
     }
@@ -59,8 +62,8 @@ public class VerticalDayViewContainer extends LinearLayout {
         mDayNumber.setText(String.valueOf(day));
         mWeekDay.setText(Utils.getWeekDayString(getContext(), dateTime.getDayOfWeek(), false));
 
-        int []lunar = LunarCoreHelper.convertSolar2Lunar(day, month, year);
-        mLunarDay.setText(CalendarUtil.getLunarDayString(lunar, false, getContext()));
+        LunarCoreHelper.convertSolar2Lunar(day, month, year, mLunarDate);
+        mLunarDay.setText(CalendarUtil.getLunarDayString(mLunarDate, false, getContext()));
 
         mDayLabelView.getBackground().mutate().setTint(delegate.getDayViewMainBackgroundColor());
 
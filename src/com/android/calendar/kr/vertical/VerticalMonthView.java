@@ -4,7 +4,6 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
@@ -13,13 +12,14 @@ import androidx.annotation.Nullable;
 
 import com.android.calendar.kr.common.Calendar;
 import com.android.calendar.kr.common.CalendarUtil;
+import com.android.calendar.kr.common.MonthRenderCache;
 import com.android.calendar.utils.Utils;
+import com.android.calendar.event.EventDayIndex;
 import com.android.calendar.event.EventManager;
 import com.android.krcalendar.R;
 
 import org.joda.time.DateTime;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -45,8 +45,8 @@ public class VerticalMonthView extends View implements View.OnClickListener {
     //한달의 날자들
     List<Calendar> mItems;
 
-    //일정목록
-    List<EventManager.OneEvent> mEventList = new ArrayList<>();
+    //날자별 일정색인
+    EventDayIndex mEventIndex = EventDayIndex.EMPTY;
 
     //Touch 할때 위치보관하기 위해 리용된다.
     float mX, mY;
@@ -56,6 +56,9 @@ public class VerticalMonthView extends View implements View.OnClickListener {
 
     private final float CLICK_OFFSET = getResources().getDimension(R.dimen.day_click_offset);
 
+    //날자문자렬, 색갈, 문자크기 cache
+    private final MonthRenderCache mRenderCache = MonthRenderCache.getInstance(getContext());
+
     public VerticalMonthView(Context context) {
         this(context, null);
     }
@@ -88,11 +91,8 @@ public class VerticalMonthView extends View implements View.OnClickListener {
         final float cy = mDelegate.getMonthItemHeight() * y + mDelegate.getMonthItemHeight()/2;
 
         //날자문자렬 얻기
-        String dayString = String.valueOf(calendar.getDay());
-
-        //Text의 크기를 얻는다.
-        Rect rect = new Rect();
-        mCurrentMonthPaint.getTextBounds(dayString, 0, dayString.length(), rect);
+        final int day = calendar.getDay();
+        String dayString = MonthRenderCache.getDayString(day);
 
         //날자, 오늘날자에 해당한 밑선을 그린다.
         if(calendar.isCurrentMonth()) {
@@ -107,9 +107,9 @@ public class VerticalMonthView extends View implements View.OnClickListener {
                 mShapePaint.setColor(mDelegate.getTodayUnderlineColor());
 
                 float left, top, right, bottom;
-                left = mDelegate.getMonthItemWidth() * x + (mDelegate.getMonthItemWidth() - rect.width()) / 2 - Utils.convertDpToPixel(1, getContext());
+                left = mDelegate.getMonthItemWidth() * x + (mDelegate.getMonthItemWidth() - mRenderCache.getDayTextWidth(mCurrentMonthPaint, day)) / 2 - Utils.convertDpToPixel(1, getContext());
                 right = mDelegate.getMonthItemWidth() * (x + 1);
-                top = textY + rect.height() / 2f;
+                top = textY + mRenderCache.getDayTextHeight(mCurrentMonthPaint, day) / 2f;
                 bottom = top + mDelegate.getTodayUnderlineHeight();
                 canvas.drawRect(left, top, right, bottom, mShapePaint);
             }
@@ -121,7 +121,7 @@ public class VerticalMonthView extends View implements View.OnClickListener {
         if(!calendar.isCurrentMonth())
             return;
 
-        ArrayList<EventManager.OneEvent> ev = EventManager.getEventsFromDate(mEventList, calendar.getYear(), calendar.getMonth(), calendar.getDay());
+        List<EventManager.OneEvent> ev = mEventIndex.getEvents(calendar.getYear(), calendar.getMonth(), calendar.getDay());
         if(ev.isEmpty())
             return;
 
@@ -135,14 +135,14 @@ public class VerticalMonthView extends View implements View.OnClickListener {
         }
 
         final float schemeX = mDelegate.getMonthItemWidth() * (x + 1) - SCHEME_CIRCLE_RADIUS - SCHEME_END_PADDING;
-        final float schemeY = textY - rect.height()/2f;
+        final float schemeY = textY - mRenderCache.getDayTextHeight(mCurrentMonthPaint, day)/2f;
 
         //일정동그라미색갈을 얻는다.
         if(pastEvents) {
-            mShapePaint.setColor(getResources().getColor(R.color.colorPastEvent, null));
+            mShapePaint.setColor(mRenderCache.getPastEventColor());
         }
         else {
-            mShapePaint.setColor(getResources().getColor(R.color.colorFutureEvent, null));
+            mShapePaint.setColor(mRenderCache.getFutureEventColor());
         }
 
         //일정동그라미를 그린다.
@@ -164,15 +164,14 @@ public class VerticalMonthView extends View implements View.OnClickListener {
         mCurrentMonthPaint.setTextAlign(Paint.Align.CENTER);
         mWeekendPaint.setTextAlign(Paint.Align.CENTER);
 
-        Paint.FontMetrics metrics = mCurrentMonthPaint.getFontMetrics();
-        mTextBaseLine = mDelegate.getMonthItemHeight() / 2 - metrics.descent + (metrics.bottom - metrics.top) / 2;
+        mTextBaseLine = mDelegate.getMonthItemHeight() / 2 + mRenderCache.getBaseLineOffset(mCurrentMonthPaint);
 
         mRadius = mDelegate.getMonthItemHeight()*0.4f;
 
         //날자들 얻기
         mItems = CalendarUtil.initCalendarForMonthView(mYear, mMonth, mDelegate.getCurrentDate());
         DateTime dateTime = new DateTime(year, month, 1, 0, 0);
-        mEventList = EventManager.getEvents(getContext(), dateTime.getMillis(), EventManager.MONTH);
+        mEventIndex = EventManager.getEventIndex(getContext(), dateTime.getMillis(), EventManager.MONTH);
 
         invalidate();
     }
@@ -1,8 +1,6 @@
 package com.android.calendar.kr.year;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.res.Resources;
 import android.util.AttributeSet;
 import android.view.View;
 
@@ -10,6 +8,7 @@ import androidx.constraintlayout.widget.ConstraintLayout;
 
 import com.android.calendar.helper.CalendarController;
 import com.android.calendar.utils.Utils;
+import com.android.krcalendar.R;
 import com.android.kr_common.Time;
 
 import org.joda.time.DateTime;
@@ -21,6 +20,17 @@ import org.joda.time.DateTime;
  * @see YearItemView
  */
 public class YearContainerView extends ConstraintLayout {
+    //달 view 들의 id (1월 ~ 12월)
+    private static final int[] MONTH_IDS = {
+            R.id.month1, R.id.month2, R.id.month3, R.id.month4, R.id.month5, R.id.month6,
+            R.id.month7, R.id.month8, R.id.month9, R.id.month10, R.id.month11, R.id.month12
+    };
+
+    //inflate 될때 한번 얻어두는 달 view 들 (1월 ~ 12월)
+    private final YearItemView[] mItemViews = new YearItemView[12];
+    //월 view 들에 마지막으로 설정한 일정개수들, 설정한적이 없으면 null
+    private int[] mEventCounts = null;
+
     private int mYear;
 
     private int mCurYear, mCurMonth;
@@ -37,27 +47,18 @@ public class YearContainerView extends ConstraintLayout {
         super(context, attrs, defStyleAttr);
     }
 
-    public void setup(int year) {
-        mYear = year;
-        DateTime dateTime = DateTime.now();
-        mCurYear = dateTime.getYear();
-        mCurMonth = dateTime.getMonthOfYear();
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
 
-        setMonthTexts();
-    }
+        //달 view 들을 얻고 년과 관계없는 월이름, click 동작은 여기서 한번만 설정한다.
+        final Context context = getContext();
+        for (int i = 0; i < 12; i ++) {
+            final YearItemView itemView = findViewById(MONTH_IDS[i]);
+            mItemViews[i] = itemView;
+            itemView.setMonthText(i + 1);
 
-    /**
-     * 월 view들 갱신
-     */
-    public void setMonthTexts() {
-        for (int i = 1; i <= 12; i ++) {
-            int id = getDayIdentifier(i, getContext());
-            final YearItemView itemView = findViewById(id);
-            itemView.setMonthText(i);
-            itemView.updateTodayView(mCurYear == mYear && mCurMonth == i);
-
-            final int month = i;
-            Context context = getContext();
+            final int month = i + 1;
             itemView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
@@ -72,27 +73,35 @@ public class YearContainerView extends ConstraintLayout {
         }
     }
 
+    public void setup(int year) {
+        mYear = year;
+        DateTime dateTime = DateTime.now();
+        mCurYear = dateTime.getYear();
+        mCurMonth = dateTime.getMonthOfYear();
+
+        setMonthTexts();
+    }
+
     /**
-     * 일정개수목록을 가지고 월 View들을 갱신한다.
-     * @param countArray 일정개수 목록
+     * 월 view들 갱신
      */
-    public void setEventCountTexts(Integer[] countArray) {
+    public void setMonthTexts() {
         for (int i = 0; i < 12; i ++) {
-            int id = getDayIdentifier(i + 1, getContext());
-            YearItemView itemView = findViewById(id);
-            itemView.applyInformation(countArray[i]);
+            mItemViews[i].updateTodayView(mCurYear == mYear && mCurMonth == i + 1);
         }
     }
 
     /**
-     * 해당 월 view의 Id를 돌려준다.
-     * @param monthNumber 월(1-12)
-     * @param context Context
-     * @return id (3월 -> R.id.month3)
+     * 일정개수목록을 가지고 월 View들을 갱신한다.
+     * 한번에 12개 달을 모두 설정하며 이미 보여주고 있는 개수와 같은 달은 건너뛴다.
+     * @param countArray 일정개수 목록
      */
-    int getDayIdentifier(int monthNumber, Context context){
-        @SuppressLint("DefaultLocale") String idName = String.format("month%1$d", monthNumber);
-        Resources resources = context.getResources();
-        return resources.getIdentifier(idName, "id", context.getPackageName());
+    public void setEventCountTexts(int[] countArray) {
+        for (int i = 0; i < 12; i ++) {
+            if(mEventCounts == null || mEventCounts[i] != countArray[i]) {
+                mItemViews[i].applyInformation(countArray[i]);
+            }
+        }
+        mEventCounts = countArray.clone();
     }
 }
@@ -8,14 +8,10 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.android.calendar.event.EventLoader;
 import com.android.calendar.event.EventManager;
 import com.android.krcalendar.R;
 
-import org.joda.time.DateTime;
-
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * 년보기
  * 년별 월현시를 위한 ViewPager에 리용되는 adapter
@@ -46,53 +42,25 @@ public class YearPagerAdapter extends RecyclerView.Adapter<YearPagerAdapter.View
         YearContainerView v = (YearContainerView) viewHolder.itemView;
         v.setup(year);
 
-        //년의 월별 일정개수들을 얻는다.
-        Runnable runnable = new Runnable() {
+        //년의 월별 일정개수들을 EventLoader 를 통해 얻는다.
+        final Context context = mContext.getApplicationContext();
+        EventLoader.load(v, "year:" + year, new EventLoader.Loader<int[]>() {
             @Override
-            public void run() {
-                DateTime startDay = new DateTime(year, 1, 1, 0, 0);
-                Integer []integerArr = new Integer[12];
-                Arrays.fill(integerArr, 0);
-
-                //해당 년의 일정들을 얻고 월별일정개수들을 계산한다.
-                List<EventManager.OneEvent> eventList = EventManager.getEvents(mContext, startDay.getMillis(), EventManager.YEAR);
-                int size = eventList.size();
-                for (int k = 0; k < size; k ++) {
-                    EventManager.OneEvent event = eventList.get(k);
-                    final DateTime endDate;
-
-                    if(event.allDay) {
-                        endDate = event.endTime.minusDays(1);
-                    }
-                    else {
-                        endDate = event.endTime;
-                    }
-
-                    int startMonth, endMonth;
-                    if(event.startTime.getYear() < year)
-                        startMonth = 0;
-                    else {
-                        startMonth = event.startTime.getMonthOfYear() - 1;
-                    }
-
-                    if(endDate.getYear() > year)
-                        endMonth = 11;
-                    else {
-                        endMonth = endDate.getMonthOfYear() - 1;
-                    }
-
-                    for (int l = startMonth; l <= endMonth; l ++) {
-                        integerArr[l] ++;
-                    }
-                }
-
-                v.setEventCountTexts(integerArr);
+            public int[] load() {
+                return EventManager.getMonthEventCounts(context, year);
+            }
+        }, new EventLoader.Callback<int[]>() {
+            @Override
+            public void onLoaded(int[] result) {
+                v.setEventCountTexts(result);
             }
-        };
+        });
+    }
 
-        //일정개수를 thread를 통해 얻는다.
-        Thread thread = new Thread(runnable);
-        thread.start();
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        //화면에서 멀어진 년의 일정적재는 더 필요없다.
+        EventLoader.cancel(holder.itemView);
     }
 
     @Override
@@ -6,10 +6,98 @@ import android.util.Log;
  * 양력-음력 변환을 위해 리용되는 클라스
  */
 public class LunarCoreHelper {
-    private static double LOCAL_TIME_ZONE = 8.0f;
+    private static final double LOCAL_TIME_ZONE = 8.0f;
     private static final double PI = Math.PI;
     private static String TAG ="LunarCoreHelper";
 
+    /*
+     * 음력년도별 달정보표
+     * LOCAL_TIME_ZONE 에서 달의 위치를 계산한 결과(computeSolar2Lunar)를 미리 구해둔것으로
+     * 앱이 지원하는 1800 - 2300년의 모든 날자를 포함한다.
+     *   bit 0-12: 년의 달들(윤달포함)을 차례로 30일이면 1, 29일이면 0
+     *   bit 13-16: 윤달(0이면 윤달이 없다), 윤달은 같은 번호의 달 다음에 온다.
+     */
+    private static final int TABLE_FIRST_YEAR = 1799;      //표의 첫 음력년도
+    private static final int TABLE_FIRST_DAY = 2378167;    //TABLE_FIRST_YEAR 음력 1월 1일의 Julian day
+    private static final int LEAP_MONTH_SHIFT = 13;
+    private static final int[] LUNAR_YEAR_INFO = {
+            0x00956, 0x08aad, 0x00ad6, 0x005d4, 0x04da9, 0x00ea9, 0x0ce8a, 0x0068b,
+            0x00d27, 0x0a956, 0x0095b, 0x00ada, 0x076d4, 0x00754, 0x17745, 0x00b45,
+            0x00a93, 0x0d52b, 0x004ad, 0x0096d, 0x08b6a, 0x00baa, 0x00ba4, 0x07b45,
+            0x00d45, 0x0fa95, 0x00a95, 0x0052d, 0x0aaad, 0x00ab5, 0x00daa, 0x07da4,
+            0x00ea2, 0x13d4a, 0x00d4a, 0x00a96, 0x0d536, 0x0055a, 0x00ad5, 0x096ca,
+            0x00752, 0x00ea5, 0x06d4a, 0x0054b, 0x0ea97, 0x00aab, 0x0055a, 0x0ab55,
+            0x00ba9, 0x00752, 0x09aa5, 0x00b25, 0x11a4b, 0x0094d, 0x00aad, 0x0d56a,
+            0x005b4, 0x00ba9, 0x09d52, 0x00d92, 0x00d25, 0x07a4d, 0x00956, 0x10ab5,
+            0x00ad6, 0x006d4, 0x0ada9, 0x00ec9, 0x00e92, 0x08d26, 0x00527, 0x10a57,
+            0x0095b, 0x00b5a, 0x0d6d4, 0x00754, 0x00749, 0x0b693, 0x00a93, 0x0052b,
+            0x04a5b, 0x00a6d, 0x0eb6a, 0x00daa, 0x00ba4, 0x0bb49, 0x00d49, 0x00a95,
+            0x0952b, 0x0052d, 0x14aad, 0x00ab5, 0x00daa, 0x0dda4, 0x00ea4, 0x00d4a,
+            0x0ba95, 0x00a96, 0x00556, 0x06ab5, 0x00ad5, 0x0f6d2, 0x00752, 0x00ea5,
+            0x0b64a, 0x0064b, 0x00a9b, 0x09556, 0x0056a, 0x00b59, 0x05752, 0x00752,
+            0x0db25, 0x00b25, 0x00a4b, 0x0b2ab, 0x00aad, 0x0056a, 0x04b69, 0x00da9,
+            0x0fd92, 0x00d92, 0x00d25, 0x0ba4d, 0x00a56, 0x002b6, 0x075b5, 0x006d4,
+            0x00ea9, 0x05e92, 0x00e92, 0x0cd26, 0x0052b, 0x00a57, 0x0b2b6, 0x00b5a,
+            0x006d4, 0x06ec9, 0x00749, 0x0f693, 0x00a93, 0x0052b, 0x0ca5b, 0x00aad,
+            0x0056a, 0x09b55, 0x00ba4, 0x15b49, 0x00d49, 0x00a95, 0x0f52d, 0x00536,
+            0x00aad, 0x0b5aa, 0x005b2, 0x00da5, 0x07d4a, 0x00d4a, 0x10a95, 0x00a97,
+            0x00556, 0x0cab5, 0x00ad5, 0x006d2, 0x08ea5, 0x00ea5, 0x1764a, 0x0064b,
+            0x00a9b, 0x0f55a, 0x0056a, 0x00b69, 0x0b752, 0x00b52, 0x00b25, 0x0964b,
+            0x00a4b, 0x114ab, 0x002ad, 0x0056d, 0x0cb69, 0x00da9, 0x00d92, 0x09d25,
+            0x00d25, 0x15a4d, 0x00a56, 0x002b6, 0x0c5b5, 0x006d5, 0x00ea9, 0x0be92,
+            0x00e92, 0x00d26, 0x06a56, 0x00a57, 0x114d6, 0x0035a, 0x006d5, 0x0b6c9,
+            0x00749, 0x00693, 0x0952b, 0x0052b, 0x00a5b, 0x0555a, 0x0056a, 0x0fb55,
+            0x00ba4, 0x00b49, 0x0ba93, 0x00a95, 0x0052d, 0x06aad, 0x00ab5, 0x115aa,
+            0x005d2, 0x00da5, 0x0bd4a, 0x00d4a, 0x00c95, 0x0952e, 0x00556, 0x00ab5,
+            0x055b2, 0x006d2, 0x0cea5, 0x00725, 0x0064b, 0x0ac97, 0x00cab, 0x0055a,
+            0x06ad6, 0x00b69, 0x0f752, 0x00b52, 0x00b25, 0x0da4b, 0x00a4b, 0x004ab,
+            0x0a55b, 0x005ad, 0x00b6a, 0x05b52, 0x00d92, 0x0fd25, 0x00d25, 0x00a55,
+            0x0b4ad, 0x004b6, 0x005b5, 0x06daa, 0x00ec9, 0x11e92, 0x00e92, 0x00d26,
+            0x0ca56, 0x00a57, 0x00556, 0x086d5, 0x00755, 0x00749, 0x04e93, 0x00693,
+            0x0f52b, 0x0052b, 0x00a5b, 0x0b55a, 0x0056a, 0x00b65, 0x0974a, 0x00b4a,
+            0x11a95, 0x00a95, 0x0052d, 0x0caad, 0x00ab5, 0x005aa, 0x08ba5, 0x00da5,
+            0x00d4a, 0x07c95, 0x00c96, 0x0f94e, 0x00556, 0x00ab5, 0x0b5b2, 0x006d2,
+            0x00ea5, 0x08e4a, 0x0068b, 0x10c97, 0x004ab, 0x0055b, 0x0cad6, 0x00b6a,
+            0x00752, 0x09725, 0x00b25, 0x00a8b, 0x0549b, 0x004ab, 0x0e95b, 0x005ad,
+            0x00baa, 0x0bb52, 0x00d92, 0x00d25, 0x09a4b, 0x00a55, 0x114ad, 0x004b6,
+            0x006b5, 0x0cdaa, 0x00ec9, 0x00e92, 0x09d26, 0x00d2a, 0x00a56, 0x074b6,
+            0x00556, 0x0ead5, 0x00b55, 0x0074a, 0x0ae93, 0x00695, 0x0052b, 0x08a57,
+            0x00a9b, 0x1355a, 0x0056a, 0x00b65, 0x0d74a, 0x00b4a, 0x00a95, 0x0b52b,
+            0x0054d, 0x00aad, 0x0556a, 0x005aa, 0x0eba5, 0x00da5, 0x00d4a, 0x0bd15,
+            0x00d16, 0x0094e, 0x08aad, 0x00ad6, 0x175b4, 0x006d2, 0x00ea5, 0x0ce8a,
+            0x0068b, 0x00d17, 0x0a956, 0x0095b, 0x00ada, 0x056d4, 0x00754, 0x0f745,
+            0x00b45, 0x00a8b, 0x0d52b, 0x004ad, 0x0096b, 0x08b5a, 0x00daa, 0x15b54,
+            0x00da2, 0x00d45, 0x0da95, 0x00a95, 0x0052d, 0x08aad, 0x00ab5, 0x00daa,
+            0x07da4, 0x00ea2, 0x0fd46, 0x00d4a, 0x00a96, 0x0d536, 0x0055a, 0x00ad5,
+            0x096ca, 0x00752, 0x10ea5, 0x006a5, 0x0054b, 0x0ca97, 0x00aab, 0x0055a,
+            0x0aad5, 0x00b65, 0x00752, 0x07aa5, 0x00b25, 0x0fa4b, 0x0094d, 0x00aad,
+            0x0b56a, 0x005b4, 0x00ba9, 0x07b52, 0x00d92, 0x11d25, 0x00d26, 0x00956,
+            0x0d2ad, 0x00ad6, 0x006d4, 0x08da9, 0x00ec9, 0x00e92, 0x06d26, 0x00527,
+            0x0ea57, 0x0095b, 0x00ada, 0x0b6d4, 0x00754, 0x00749, 0x0968b, 0x00a93,
+            0x1352b, 0x0052d, 0x0096d, 0x0eb6a, 0x00daa, 0x00ba4, 0x0bb49, 0x00d49,
+            0x00a95, 0x0752b, 0x0052d, 0x10aad, 0x00ab5, 0x00daa, 0x0bda4, 0x00ea4,
+            0x00d4a, 0x09a95, 0x00a96, 0x17536, 0x0055a, 0x00ad5, 0x0d6d2, 0x00752,
+            0x00ea5, 0x0b64a, 0x0064b, 0x00a97, 0x07556, 0x0055a, 0x0eb55, 0x00ba9,
+            0x00752, 0x0db25, 0x00b25, 0x00a4b, 0x0949b, 0x00aad, 0x0056a, 0x02b69,
+            0x00da9, 0x0dd52, 0x00d92, 0x00d25, 0x0ba4d, 0x00a56, 0x002b5, 0x075ad,
+            0x006d4, 0x0eda9, 0x00ec9, 0x00e92, 0x0cd26, 0x00527, 0x00a57, 0x092b6,
+            0x00b5a, 0x006d4, 0x04ea9, 0x00749, 0x0d693, 0x00a93, 0x0052b, 0x0aa5b,
+            0x00a6d, 0x0056a, 0x07b55, 0x00ba4, 0x0fb49, 0x00d49, 0x00a95, 0x0d52d,
+            0x0052e, 0x00aad, 0x0956a, 0x005b2, 0x00da5, 0x05d4a
+    };
+
+    //음력년도별 1월 1일의 Julian day, 마지막 원소는 표의 끝이다.
+    private static final int[] LUNAR_YEAR_START = new int[LUNAR_YEAR_INFO.length + 1];
+    static {
+        LUNAR_YEAR_START[0] = TABLE_FIRST_DAY;
+        for (int i = 0; i < LUNAR_YEAR_INFO.length; i ++) {
+            int info = LUNAR_YEAR_INFO[i];
+            int monthCount = (info >> LEAP_MONTH_SHIFT) == 0 ? 12 : 13;
+            int days = 29 * monthCount + Integer.bitCount(info & ((1 << monthCount) - 1));
+            LUNAR_YEAR_START[i + 1] = LUNAR_YEAR_START[i] + days;
+        }
+    }
+
     /**
      * @param dd 일
      * @param mm 월
@@ -190,7 +278,56 @@ public class LunarCoreHelper {
      * @return [lunarDay, lunarMonth, lunarYear, leapOrNot]의 옹근수배렬을 돌려준다.
      */
     public static int[] convertSolar2Lunar(int solarDay, int solarMonth, int solarYear) {
-        return convertSolar2Lunar(solarDay, solarMonth, solarYear, LOCAL_TIME_ZONE);
+        int[] lunar = new int[4];
+        convertSolar2Lunar(solarDay, solarMonth, solarYear, lunar);
+        return lunar;
+    }
+
+    /**
+     * 양력날자를 음력날자로 변환하여 주어진 배렬에 써넣는다.
+     * 매 그리기마다 호출하는 view 들에서 배렬을 재리용하여 객체생성을 없앤다.
+     * @param solarDay 일
+     * @param solarMonth 월
+     * @param solarYear 년
+     * @param outLunar [lunarDay, lunarMonth, lunarYear, leapOrNot]를 받을 길이 4이상의 배렬
+     */
+    public static void convertSolar2Lunar(int solarDay, int solarMonth, int solarYear, int[] outLunar) {
+        int dayNumber = jdFromDate(solarDay, solarMonth, solarYear);
+        if(dayNumber < TABLE_FIRST_DAY || dayNumber >= LUNAR_YEAR_START[LUNAR_YEAR_INFO.length]) {
+            computeSolar2Lunar(dayNumber, solarYear, LOCAL_TIME_ZONE, outLunar);
+            return;
+        }
+
+        //음력설은 양력 1, 2월에 있으므로 음력년도는 양력년도이거나 그 전해이다.
+        int index = Math.min(solarYear - TABLE_FIRST_YEAR, LUNAR_YEAR_INFO.length - 1);
+        if(dayNumber < LUNAR_YEAR_START[index])
+            index --;
+
+        int info = LUNAR_YEAR_INFO[index];
+        int leapMonth = info >> LEAP_MONTH_SHIFT;
+        int monthStart = LUNAR_YEAR_START[index];
+        int position = 0;
+        int length = 29 + (info & 1);
+        while (dayNumber >= monthStart + length) {
+            monthStart += length;
+            position ++;
+            length = 29 + ((info >> position) & 1);
+        }
+
+        outLunar[0] = dayNumber - monthStart + 1;
+        outLunar[2] = TABLE_FIRST_YEAR + index;
+        if(leapMonth == 0 || position < leapMonth) {
+            outLunar[1] = position + 1;
+            outLunar[3] = 0;
+        }
+        else if(position == leapMonth) {
+            outLunar[1] = leapMonth;
+            outLunar[3] = 1;
+        }
+        else {
+            outLunar[1] = position;
+            outLunar[3] = 0;
+        }
     }
 
     /**
@@ -203,13 +340,33 @@ public class LunarCoreHelper {
      */
     public static int[] convertSolar2Lunar(int solarDay, int solarMonth, int solarYear,
                                            double timeZone) {
+        int[] lunar = new int[4];
+        if(timeZone == LOCAL_TIME_ZONE)
+            convertSolar2Lunar(solarDay, solarMonth, solarYear, lunar);
+        else
+            computeSolar2Lunar(jdFromDate(solarDay, solarMonth, solarYear), solarYear, timeZone, lunar);
+        return lunar;
+    }
+
+    /**
+     * 달의 위치를 계산하여 양력날자를 음력날자로 변환한다.
+     * 표의 범위밖의 날자들과 다른 시간대에 대하여 리용하며 표를 검사하는데도 쓴다.
+     * @param dayNumber 양력날자의 Julian day
+     * @param solarYear 양력년도
+     * @param timeZone 시간대
+     * @param outLunar [lunarDay, lunarMonth, lunarYear, leapOrNot]를 받을 배렬
+     */
+    static void computeSolar2Lunar(int dayNumber, int solarYear, double timeZone, int[] outLunar) {
         int lunarDay, lunarMonth, lunarYear, lunarLeap;
-        int dayNumber = jdFromDate(solarDay, solarMonth, solarYear);
         int k = INT((dayNumber - 2415021.076998695) / 29.530588853);
         int monthStart = getNewMoonDay(k + 1, timeZone);
         if (monthStart > dayNumber) {
             monthStart = getNewMoonDay(k, timeZone);
         }
+        //k의 추정값이 한달 크게 나오는 경우가 있다. 이때 날자가 0일로 되지 않도록 그 전달을 취한다.
+        if (monthStart > dayNumber) {
+            monthStart = getNewMoonDay(k - 1, timeZone);
+        }
         int a11 = getLunarMonth11(solarYear, timeZone);
         int b11 = a11;
         if (a11 >= monthStart) {
@@ -239,7 +396,10 @@ public class LunarCoreHelper {
         if (lunarMonth >= 11 && diff < 4) {
             lunarYear -= 1;
         }
-        return new int[] { lunarDay, lunarMonth, lunarYear, lunarLeap };
+        outLunar[0] = lunarDay;
+        outLunar[1] = lunarMonth;
+        outLunar[2] = lunarYear;
+        outLunar[3] = lunarLeap;
     }
 
     /**
@@ -252,6 +412,36 @@ public class LunarCoreHelper {
      */
     public static int[] convertLunar2Solar(int lunarDay, int lunarMonth,
                                            int lunarYear, int lunarLeap, double timeZone) {
+        int index = lunarYear - TABLE_FIRST_YEAR;
+        if(timeZone != LOCAL_TIME_ZONE || index < 0 || index >= LUNAR_YEAR_INFO.length)
+            return computeLunar2Solar(lunarDay, lunarMonth, lunarYear, lunarLeap, timeZone);
+
+        int info = LUNAR_YEAR_INFO[index];
+        int leapMonth = info >> LEAP_MONTH_SHIFT;
+        int position = lunarMonth - 1;
+        if(lunarLeap != 0) {
+            //없는 윤달은 계산방법의 결과를 그대로 따른다.
+            if(lunarMonth != leapMonth)
+                return computeLunar2Solar(lunarDay, lunarMonth, lunarYear, lunarLeap, timeZone);
+            position = leapMonth;
+        }
+        else if(leapMonth != 0 && lunarMonth > leapMonth) {
+            position = lunarMonth;
+        }
+
+        int monthStart = LUNAR_YEAR_START[index];
+        for (int i = 0; i < position; i ++) {
+            monthStart += 29 + ((info >> i) & 1);
+        }
+        return jdToDate(monthStart + lunarDay - 1);
+    }
+
+    /**
+     * 달의 위치를 계산하여 음력날자를 양력날자로 변환한다.
+     * @see #convertLunar2Solar
+     */
+    static int[] computeLunar2Solar(int lunarDay, int lunarMonth,
+                                    int lunarYear, int lunarLeap, double timeZone) {
         int a11, b11;
         if (lunarMonth < 11) {
             a11 = getLunarMonth11(lunarYear - 1, timeZone);
@@ -1,10 +1,10 @@
 package com.android.calendar.widgets;
 
 import android.annotation.SuppressLint;
-import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
 import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
@@ -49,9 +49,13 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
     public static final String KEY_EVENT_START_MILLIS = "key-event-start-millis";
     public static final String KEY_EVENT_END_MILLIS = "key-event-end-millis";
 
+    /**
+     * Widget 하나를 갱신한다.
+     * @param event 앞으로의 첫 일정, 없으면 null
+     */
     @SuppressLint("DefaultLocale")
     void updateAppWidget(Context context, AppWidgetManager appWidgetManager,
-                         int appWidgetId) {
+                         int appWidgetId, EventManager.OneEvent event) {
 
         //RemoteViews 구축
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.event_view_widget);
@@ -60,9 +64,7 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
         setupIntent(context, views, VIEW_EVENT, R.id.result_events);
         setupIntent(context, views, VIEW_EVENT, R.id.event_image);
 
-        //앞으로의 일정을 얻는다.(최대 1개)
-        List<EventManager.OneEvent> upcomingEvents = EventManager.getUpcomingEvents(context, 1);
-        if(upcomingEvents.size() == 0){ //앞으로의 일정이 없을때
+        if(event == null){ //앞으로의 일정이 없을때
             //`일정없음`을 보여준다
             views.setTextViewText(R.id.event_day, getDayString(context, DateTime.now()));
             views.setViewVisibility(R.id.no_upcoming_events, VISIBLE);
@@ -74,8 +76,8 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
             views.setViewVisibility(R.id.no_upcoming_events, GONE);
             views.setViewVisibility(R.id.result_events, VISIBLE);
 
-            //일정을 얻는다.
-            EventManager.OneEvent event = upcomingEvents.get(0);
+            final DateTime startTime = event.getStartTime();
+            final DateTime endTime = event.getEndTime();
 
             //제목 label 설정
             if(event.title == null || event.title.isEmpty())
@@ -84,32 +86,32 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
                 views.setTextViewText(R.id.event_title, event.title);
 
             //날자 label 설정
-            views.setTextViewText(R.id.event_day, getDayString(context, event.startTime));
+            views.setTextViewText(R.id.event_day, getDayString(context, startTime));
 
             //일정시간 문자렬을 얻어서 설정한다.
             final String dateTimeString;
             if(event.allDay) { //`하루종일`일정일때
                 dateTimeString = String.format("%d.%d - %d.%d",
-                        event.startTime.getMonthOfYear(), event.startTime.getDayOfMonth(),
-                        event.endTime.getMonthOfYear(), event.endTime.getDayOfMonth());
+                        startTime.getMonthOfYear(), startTime.getDayOfMonth(),
+                        endTime.getMonthOfYear(), endTime.getDayOfMonth());
             }
             else {  //`하루종일`일정이 아닐때
                 //시작시간, 마감시간이 같은 날에 있을때
-                if(event.startTime.getYear() == event.endTime.getYear() && event.startTime.getMonthOfYear() == event.endTime.getMonthOfYear() &&
-                        event.startTime.getDayOfMonth() == event.endTime.getDayOfMonth()) {
+                if(startTime.getYear() == endTime.getYear() && startTime.getMonthOfYear() == endTime.getMonthOfYear() &&
+                        startTime.getDayOfMonth() == endTime.getDayOfMonth()) {
                     dateTimeString = String.format("%d.%d %02d:%02d - %02d:%02d",
-                            event.startTime.getMonthOfYear(), event.startTime.getDayOfMonth(),
-                            event.startTime.getHourOfDay(), event.startTime.getMinuteOfHour(),
-                            event.endTime.getHourOfDay(), event.endTime.getMinuteOfHour());
+                            startTime.getMonthOfYear(), startTime.getDayOfMonth(),
+                            startTime.getHourOfDay(), startTime.getMinuteOfHour(),
+                            endTime.getHourOfDay(), endTime.getMinuteOfHour());
                 }
 
                 //시작시간, 마감시간이 다른 날에 있을때
                 else {
                     dateTimeString = String.format("%d.%d %02d:%02d - %d.%d %02d:%02d",
-                            event.startTime.getMonthOfYear(), event.startTime.getDayOfMonth(),
-                            event.startTime.getHourOfDay(), event.startTime.getMinuteOfHour(),
-                            event.endTime.getMonthOfYear(), event.endTime.getDayOfMonth(),
-                            event.endTime.getHourOfDay(), event.endTime.getMinuteOfHour());
+                            startTime.getMonthOfYear(), startTime.getDayOfMonth(),
+                            startTime.getHourOfDay(), startTime.getMinuteOfHour(),
+                            endTime.getMonthOfYear(), endTime.getDayOfMonth(),
+                            endTime.getHourOfDay(), endTime.getMinuteOfHour());
                 }
             }
             views.setTextViewText(R.id.event_time, dateTimeString);
@@ -123,14 +125,6 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
             int eventColor = eventType.color;
             views.setImageViewResource(R.id.event_image, eventImage);
             views.setInt(R.id.event_image,"setColorFilter", context.getColor(eventColor));
-
-            //첫 일정을 Preference에 보관한다.
-            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-            @SuppressLint("CommitPrefEdits") SharedPreferences.Editor editor = prefs.edit();
-            editor.putInt(KEY_EVENT_ID, event.id);
-            editor.putLong(KEY_EVENT_START_MILLIS, event.startTime.getMillis());
-            editor.putLong(KEY_EVENT_END_MILLIS, event.endTime.getMillis());
-            editor.apply();
         }
 
         //Widget을 갱신한다.
@@ -138,44 +132,54 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
     }
 
     @Override
-    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        //Widget이 여러개 있을수 있다. 모든 widget들을 다 갱신한다.
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-        }
-        scheduleNextUpdate(context, appWidgetIds);
+    public void onUpdate(final Context context, final AppWidgetManager appWidgetManager, final int[] appWidgetIds) {
+        WidgetUpdateScheduler.runAsync(this, new Runnable() {
+            @Override
+            public void run() {
+                updateAppWidgets(context, appWidgetManager, appWidgetIds, true);
+            }
+        });
     }
 
-    public void onNextUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, boolean nextUpdate) {
-        //Widget이 여러개 있을수 있다. 모든 widget들을 다 갱신한다.
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-        }
-        if(nextUpdate)
-            scheduleNextUpdate(context, appWidgetIds);
+    public void onNextUpdate(final Context context, final AppWidgetManager appWidgetManager, final int[] appWidgetIds, final boolean nextUpdate) {
+        WidgetUpdateScheduler.runAsync(this, new Runnable() {
+            @Override
+            public void run() {
+                updateAppWidgets(context, appWidgetManager, appWidgetIds, nextUpdate);
+            }
+        });
     }
 
     /**
-     * 다음번의 Widget갱신을 예약
-     * @param context Context
-     * @param appWidgetIds Int[]
+     * 앞으로의 첫 일정을 한번 얻어서 모든 Widget들을 갱신한다. 배경 thread 에서 호출된다.
+     * @param nextUpdate true 이면 첫 일정이 시작될때 다시 갱신하도록 예약한다.
      */
-    private static void scheduleNextUpdate(Context context, int[] appWidgetIds) {
-        AlarmManager alarmManager =
-                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    private void updateAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, boolean nextUpdate) {
+        //앞으로의 일정을 얻는다.(최대 1개)
+        List<EventManager.OneEvent> upcomingEvents = EventManager.getUpcomingEvents(context, 1);
+        EventManager.OneEvent event = upcomingEvents.isEmpty() ? null : upcomingEvents.get(0);
 
-        //Widget을 갱신하는 intent창조
-        Intent intent = new Intent(context, EventViewWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-        intent.putExtra(WIDGET_IDS_KEY, appWidgetIds);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, 0);
+        if(event != null) {
+            //첫 일정을 Preference에 보관한다.
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            @SuppressLint("CommitPrefEdits") SharedPreferences.Editor editor = prefs.edit();
+            editor.putInt(KEY_EVENT_ID, event.id);
+            editor.putLong(KEY_EVENT_START_MILLIS, event.startMillis);
+            editor.putLong(KEY_EVENT_END_MILLIS, event.endMillis);
+            editor.apply();
+        }
 
-        //다음 분에 해당한 시간 얻기
-        DateTime dateTime = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0);
-        DateTime nextMinute = dateTime.plusMinutes(1);
+        //Widget이 여러개 있을수 있다. 모든 widget들을 다 갱신한다.
+        for (int appWidgetId : appWidgetIds) {
+            updateAppWidget(context, appWidgetManager, appWidgetId, event);
+        }
 
-        //다음 분에 widget이 갱신되도록 alarm 설정
-        alarmManager.setExact(AlarmManager.RTC_WAKEUP, nextMinute.getMillis(), pendingIntent);
+        //첫 일정은 시작시간이 지나면 다음 일정으로 바뀐다. 일정이 없으면 자정에 날자만 바뀐다.
+        if(nextUpdate) {
+            long nextChange = event == null ? Long.MAX_VALUE : WidgetUpdateScheduler.ceilMinute(event.startMillis);
+            WidgetUpdateScheduler.scheduleUpdate(context, EventViewWidgetProvider.class, WIDGET_IDS_KEY,
+                    appWidgetIds, nextChange);
+        }
     }
 
     /**
@@ -234,6 +238,13 @@ public class EventViewWidgetProvider extends AppWidgetProvider {
                     super.onReceive(context, intent);
                 }
                 break;
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case Intent.ACTION_TIME_CHANGED:
+                //시간대, 시간이 바뀌였으면 바로 갱신하고 다시 예약한다.
+                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+                this.onNextUpdate(context, appWidgetManager,
+                        appWidgetManager.getAppWidgetIds(new ComponentName(context, EventViewWidgetProvider.class)), true);
+                break;
             default:
                 super.onReceive(context, intent);
                 break;
@@ -1,17 +1,20 @@
 package com.android.calendar.widgets;
 
 import android.annotation.SuppressLint;
-import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.res.Resources;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 import android.widget.RemoteViews;
 
+import com.android.calendar.event.EventDayIndex;
 import com.android.calendar.event.EventManager;
 
 import org.joda.time.DateTime;
@@ -29,6 +32,8 @@ import static com.android.calendar.widgets.EventViewWidgetProvider.NEXT_NOT_UPDA
  */
 public class MonthViewWidgetProvider extends AppWidgetProvider {
 
+    private static final String TAG = "MonthViewWidget";
+
     public static final String WIDGET_IDS_KEY ="monthwidgetproviderwidgetids";
 
     //가로, 세로 날자수
@@ -39,155 +44,263 @@ public class MonthViewWidgetProvider extends AppWidgetProvider {
     private static final String PREV = "prev";
     private static final String NEXT = "next";
 
-    private final SimpleMonthDate[] mMonthDateArray = new SimpleMonthDate[DAYS_PER_ROW * DAYS_ROW_COUNT];
+    //날자칸들의 TextView, 일정동그라미 ImageView id 들 (R.id.day_01 ~ R.id.day_42, R.id.event_01 ~ R.id.event_42)
+    private static final int[] DAY_IDS = {
+            R.id.day_01, R.id.day_02, R.id.day_03, R.id.day_04, R.id.day_05, R.id.day_06, R.id.day_07,
+            R.id.day_08, R.id.day_09, R.id.day_10, R.id.day_11, R.id.day_12, R.id.day_13, R.id.day_14,
+            R.id.day_15, R.id.day_16, R.id.day_17, R.id.day_18, R.id.day_19, R.id.day_20, R.id.day_21,
+            R.id.day_22, R.id.day_23, R.id.day_24, R.id.day_25, R.id.day_26, R.id.day_27, R.id.day_28,
+            R.id.day_29, R.id.day_30, R.id.day_31, R.id.day_32, R.id.day_33, R.id.day_34, R.id.day_35,
+            R.id.day_36, R.id.day_37, R.id.day_38, R.id.day_39, R.id.day_40, R.id.day_41, R.id.day_42
+    };
+    private static final int[] EVENT_IDS = {
+            R.id.event_01, R.id.event_02, R.id.event_03, R.id.event_04, R.id.event_05, R.id.event_06, R.id.event_07,
+            R.id.event_08, R.id.event_09, R.id.event_10, R.id.event_11, R.id.event_12, R.id.event_13, R.id.event_14,
+            R.id.event_15, R.id.event_16, R.id.event_17, R.id.event_18, R.id.event_19, R.id.event_20, R.id.event_21,
+            R.id.event_22, R.id.event_23, R.id.event_24, R.id.event_25, R.id.event_26, R.id.event_27, R.id.event_28,
+            R.id.event_29, R.id.event_30, R.id.event_31, R.id.event_32, R.id.event_33, R.id.event_34, R.id.event_35,
+            R.id.event_36, R.id.event_37, R.id.event_38, R.id.event_39, R.id.event_40, R.id.event_41, R.id.event_42
+    };
+
+    //날자칸 상태값: 0 이면 다른 달의 날자(숨김), 아니면 (날자 << 3) | 아래 기발들
+    private static final int CELL_HIDDEN = 0;
+    private static final int CELL_TODAY = 1;
+    private static final int CELL_HAS_EVENT = 1 << 1;
+    private static final int CELL_ALL_PAST = 1 << 2;
+    private static final int CELL_DAY_SHIFT = 3;
+
+    //Widget id 별로 마지막에 보낸 달({@link #getMonthKey})과 날자칸 상태들
+    //같은 달이면 상태가 바뀐 날자칸들만 partiallyUpdateAppWidget 으로 보낸다.
+    private static final SparseArray<int[]> sRenderedStates = new SparseArray<>();
+
+    //전체갱신, 부분갱신, 바뀐것이 없어 건너뛴 회수, 보낸 날자칸수, 갱신에 걸린 시간(nano 초)
+    private static int sFullUpdateCount = 0;
+    private static int sPartialUpdateCount = 0;
+    private static int sSkippedUpdateCount = 0;
+    private static int sSentCellCount = 0;
+    private static long sUpdateNanos = 0;
+
     private static DateTime mTargetDate = DateTime.now().withDayOfMonth(1);
 
+    /**
+     * Widget 하나를 갱신한다.
+     * 마지막에 보낸 상태와 비교하여 바뀐 날자칸들만 보내며 처음이거나 달이 바뀌였으면 전체를 보낸다.
+     * @param cellStates 날자칸 상태들({@link #buildCellStates})
+     * @param fullUpdate true 이면 마지막 상태와 관계없이 전체를 보낸다.
+     */
     @SuppressLint("DefaultLocale")
     void updateAppWidget(Context context, AppWidgetManager appWidgetManager,
-                                int appWidgetId)    {
+                                int appWidgetId, int[] cellStates, boolean fullUpdate)    {
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
+        final int monthKey = getMonthKey(mTargetDate);
+
+        //마지막으로 보낸 상태, 첫 원소는 달이다.
+        int[] rendered;
+        synchronized (sRenderedStates) {
+            rendered = sRenderedStates.get(appWidgetId);
+        }
+        final boolean partial = !fullUpdate && rendered != null && rendered[0] == monthKey;
 
-        //Widget설정을 위한 RemoteViews 구축
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.month_view_widget);
+        if(!partial) {
+            //`앞으로`, `뒤로`단추들의 동작들 추가
+            setupIntent(context, views, PREV, R.id.go_prev);
+            setupIntent(context, views, NEXT, R.id.go_next);
+
+            //년.월 label 설정
+            String monthString = String.format("%1$d.%2$02d", mTargetDate.getYear(), mTargetDate.getMonthOfYear());
+            views.setTextViewText(R.id.widget_current_month, monthString);
+        }
 
-        //`앞으로`, `뒤로`단추들의 동작들 추가
-        setupIntent(context, views, PREV, R.id.go_prev);
-        setupIntent(context, views, NEXT, R.id.go_next);
+        //상태가 바뀐 날자칸들을 UI에 반영한다.
+        final int pastColor = context.getColor(R.color.colorPastEvent);
+        final int futureColor = context.getColor(R.color.colorFutureEvent);
+        int sentCells = 0;
+        for (int i = 0; i < DAYS_PER_ROW * DAYS_ROW_COUNT; i ++){
+            final int state = cellStates[i];
+            if(partial && rendered[i + 1] == state)
+                continue;
+            sentCells ++;
 
-        //년.월 label 설정
-        String monthString = String.format("%1$d.%2$02d", mTargetDate.getYear(), mTargetDate.getMonthOfYear());
-        views.setTextViewText(R.id.widget_current_month, monthString);
+            final int day_id = DAY_IDS[i];
+            final int event_id = EVENT_IDS[i];
+            if(state == CELL_HIDDEN){ //다른 달의 날자들은 현시해주지 않는다.
+                views.setViewVisibility(day_id, View.INVISIBLE);
+                views.setViewVisibility(event_id, View.INVISIBLE);
+                continue;
+            }
 
-        //한달일정 얻기
-        List<EventManager.OneEvent> eventList = EventManager.getEvents(context, mTargetDate.getMillis(), EventManager.MONTH);
+            views.setViewVisibility(day_id, View.VISIBLE);
+            views.setTextViewText(day_id, String.valueOf(state >> CELL_DAY_SHIFT));
+
+            //오늘 날자에는 동그라미배경을 않힌다.
+            views.setInt(day_id, "setBackgroundResource",
+                    (state & CELL_TODAY) != 0 ? R.drawable.month_widget_today_bg : 0);
+
+            //날자에 일정이 있는 경우에는 날자아래의 동그라미에 해당한 ImageView를 보여준다.(VISIBLE 설정)
+            if((state & CELL_HAS_EVENT) != 0) {
+                views.setViewVisibility(event_id, View.VISIBLE);
+                //과거일정만 가지고 있을때와 현재 진행중, 혹은 앞으로의 일정을 하나라도 가지고 있을때의 색
+                views.setInt(event_id, "setColorFilter",
+                        (state & CELL_ALL_PAST) != 0 ? pastColor : futureColor);
+            } else {
+                views.setViewVisibility(event_id, View.INVISIBLE);
+            }
+        }
+
+        //Widget 설정
+        if(!partial) {
+            appWidgetManager.updateAppWidget(appWidgetId, views);
+        } else if(sentCells > 0) {
+            appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+        }
 
-        //날자들을 얻기
-        int i;
-        for (i = 0; i < DAYS_PER_ROW * DAYS_ROW_COUNT; i ++){
-            mMonthDateArray[i] = new SimpleMonthDate();
+        if(rendered == null) {
+            rendered = new int[DAYS_PER_ROW * DAYS_ROW_COUNT + 1];
+        }
+        rendered[0] = monthKey;
+        System.arraycopy(cellStates, 0, rendered, 1, cellStates.length);
+        synchronized (sRenderedStates) {
+            sRenderedStates.put(appWidgetId, rendered);
+            if(!partial) {
+                sFullUpdateCount ++;
+            } else if(sentCells > 0) {
+                sPartialUpdateCount ++;
+            } else {
+                sSkippedUpdateCount ++;
+            }
+            sSentCellCount += sentCells;
+            sUpdateNanos += SystemClock.elapsedRealtimeNanos() - startNanos;
         }
 
+        if(Log.isLoggable(TAG, Log.DEBUG)) {
+            //RemoteViews 가 binder 로 보내지는 크기를 잰다.
+            Parcel parcel = Parcel.obtain();
+            views.writeToParcel(parcel, 0);
+            Log.d(TAG, "widget " + appWidgetId + (partial ? " partial" : " full") + ": cells=" + sentCells
+                    + ", bytes=" + parcel.dataSize() + ", " + getStatistics());
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * 보여주는 달의 날자칸 상태들을 계산한다. 모든 Widget 들이 함께 리용한다.
+     * @param eventIndex 보여주는 달의 날자별 일정색인
+     * @return 42개 날자칸의 상태값들
+     */
+    private static int[] buildCellStates(EventDayIndex eventIndex) {
+        int[] cellStates = new int[DAYS_PER_ROW * DAYS_ROW_COUNT];
+
         int start_date_week_day = mTargetDate.getDayOfWeek() % 7;
         YearMonth yearMonth = YearMonth.of(mTargetDate.getYear(), mTargetDate.getMonthOfYear());
         int month_day_count = yearMonth.lengthOfMonth();
 
-        //전달의 날자들
-        for (i = 0; i < start_date_week_day; i ++){
-            mMonthDateArray[i].otherMonth = true;
-        }
-
+        //전달과 다음달의 날자들은 CELL_HIDDEN 으로 남겨둔다.
         //그달의 날자들
-        for (i = start_date_week_day; i < start_date_week_day + month_day_count; i ++){
-            mMonthDateArray[i].otherMonth = false;
-            mMonthDateArray[i].dateTime = mTargetDate.plusDays(i - start_date_week_day);
+        DateTime today = DateTime.now();
+        for (int i = start_date_week_day; i < start_date_week_day + month_day_count; i ++){
+            DateTime dateTime = mTargetDate.plusDays(i - start_date_week_day);
+            int state = dateTime.getDayOfMonth() << CELL_DAY_SHIFT;
+
+            if(today.getYear() == dateTime.getYear() &&
+                    today.getMonthOfYear() == dateTime.getMonthOfYear() &&
+                    today.getDayOfMonth() == dateTime.getDayOfMonth()) {
+                state |= CELL_TODAY;
+            }
 
             //날자에 해당한 일정들을 얻는다.
-            List<EventManager.OneEvent> dayEvents = EventManager.getEventsFromDate(eventList, mMonthDateArray[i].dateTime.getYear(),
-                    mMonthDateArray[i].dateTime.getMonthOfYear(), mMonthDateArray[i].dateTime.getDayOfMonth());
-
-            if(dayEvents.size() == 0) { //일정이 없을때
-                mMonthDateArray[i].hasEvent = false;
-            } else {    //일정이 있을때
-                mMonthDateArray[i].hasEvent = true;
-                mMonthDateArray[i].allPastEvents = true;
+            List<EventManager.OneEvent> dayEvents = eventIndex.getEvents(dateTime.getYear(),
+                    dateTime.getMonthOfYear(), dateTime.getDayOfMonth());
+            if(dayEvents.size() > 0) {   //일정이 있을때
+                state |= CELL_HAS_EVENT | CELL_ALL_PAST;
                 for (EventManager.OneEvent event:dayEvents){
-                    //과거의 일정들만 포함하고 있는가를 검사하고 allPastEvents에 설정한다.
+                    //과거의 일정들만 포함하고 있는가를 검사한다.
                     if(!event.pastOrFutureCurrent()){
-                        mMonthDateArray[i].allPastEvents = false;
+                        state &= ~CELL_ALL_PAST;
                         break;
                     }
                 }
             }
+            cellStates[i] = state;
         }
+        return cellStates;
+    }
 
-        //다음달의 날자들
-        for (i = start_date_week_day + month_day_count; i < DAYS_PER_ROW * DAYS_ROW_COUNT; i ++){
-            mMonthDateArray[i].otherMonth = true;
-        }
-
-        //일정, 날자들을 얻은다음 UI에 반영한다.
-        DateTime dateTime = DateTime.now();
-        for (i = 0; i < DAYS_PER_ROW * DAYS_ROW_COUNT; i ++){
-            SimpleMonthDate monthDate = mMonthDateArray[i];
-            int day_id = getDayIdentifier(i + 1, context);
-            int event_id = getEventIdentifier(i + 1, context);
-
-            if(monthDate.otherMonth){ //다른 달의 날자들은 현시해주지 않는다.
-                views.setViewVisibility(day_id, View.INVISIBLE);
-                views.setViewVisibility(event_id, View.INVISIBLE);
-                continue;
-            }
-
-            views.setViewVisibility(day_id, View.VISIBLE);
-            views.setTextViewText(day_id, monthDate.dateTime.getDayOfMonth() + "");
-
-            //오늘 날자에는 동그라미배경을 않힌다.
-            if(dateTime.getYear() == monthDate.dateTime.getYear() &&
-                    dateTime.getMonthOfYear() == monthDate.dateTime.getMonthOfYear() &&
-                    dateTime.getDayOfMonth() == monthDate.dateTime.getDayOfMonth()) {
-                views.setInt(day_id, "setBackgroundResource", R.drawable.month_widget_today_bg);
-            } else {
-                views.setInt(day_id, "setBackgroundResource", 0);
-            }
+    private static int getMonthKey(DateTime dateTime) {
+        return dateTime.getYear() * 12 + dateTime.getMonthOfYear();
+    }
 
-            //날자에 일정이 있는 경우에는 날자아래의 동그라미에 해당한 ImageView를 보여준다.(VISIBLE 설정)
-            if(monthDate.hasEvent) {
-                views.setViewVisibility(event_id, View.VISIBLE);
-                if(monthDate.allPastEvents) {   //과거일정만 가지고 있을때
-                    views.setInt(event_id, "setColorFilter", context.getColor(R.color.colorPastEvent));
-                } else {    //현재 진행중, 혹은 앞으로의 일정을 하나라도 가지고 있을때
-                    views.setInt(event_id, "setColorFilter", context.getColor(R.color.colorFutureEvent));
-                }
-            } else {
-                views.setViewVisibility(event_id, View.INVISIBLE);
-            }
+    /**
+     * @return 갱신회수, 보낸 날자칸수, 평균갱신시간에 대한 문자렬
+     */
+    static String getStatistics() {
+        synchronized (sRenderedStates) {
+            final int count = sFullUpdateCount + sPartialUpdateCount + sSkippedUpdateCount;
+            return "full=" + sFullUpdateCount + ", partial=" + sPartialUpdateCount
+                    + ", skipped=" + sSkippedUpdateCount + ", sentCells=" + sSentCellCount
+                    + ", avgMicros=" + (count == 0 ? 0 : sUpdateNanos / count / 1000);
         }
-
-        //Widget 설정
-        appWidgetManager.updateAppWidget(appWidgetId, views);
     }
 
     @Override
-    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        //Widget이 여러개 있을수 있다. 모든 widget들을 다 갱신한다.
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-        }
+    public void onUpdate(final Context context, final AppWidgetManager appWidgetManager, final int[] appWidgetIds) {
+        WidgetUpdateScheduler.runAsync(this, new Runnable() {
+            @Override
+            public void run() {
+                //Widget들을 갱신하고 다음번 갱신을 예정해놓는다.
+                //체계가 보낸 갱신이므로 Widget 이 새로 만들어졌을수 있다. 전체를 보낸다.
+                updateAppWidgets(context, appWidgetManager, appWidgetIds, true, true);
+            }
+        });
+    }
 
-        //다음번 갱신을 예정해놓는다.
-        scheduleNextUpdate(context, appWidgetIds);
+    public void onNextUpdate(final Context context, final AppWidgetManager appWidgetManager, final int[] appWidgetIds, final boolean nextUpdate) {
+        WidgetUpdateScheduler.runAsync(this, new Runnable() {
+            @Override
+            public void run() {
+                updateAppWidgets(context, appWidgetManager, appWidgetIds, nextUpdate, false);
+            }
+        });
     }
 
-    public void onNextUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds, boolean nextUpdate) {
+    /**
+     * 한달일정을 한번 얻어서 모든 Widget들을 갱신한다. 배경 thread 에서 호출된다.
+     * @param nextUpdate true 이면 보이는 내용이 바뀌는 다음 시각에 다시 갱신하도록 예약한다.
+     * @param fullUpdate true 이면 바뀌지 않은 날자칸들까지 전체를 보낸다.
+     */
+    private void updateAppWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                  boolean nextUpdate, boolean fullUpdate) {
+        //한달일정 얻기
+        EventDayIndex eventIndex = EventManager.getEventIndex(context, mTargetDate.getMillis(), EventManager.MONTH);
+        int[] cellStates = buildCellStates(eventIndex);
+
         //Widget이 여러개 있을수 있다. 모든 widget들을 다 갱신한다.
         for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+            updateAppWidget(context, appWidgetManager, appWidgetId, cellStates, fullUpdate);
         }
 
-        if(nextUpdate)  //다음번 갱신을 예정해놓는다.
-            scheduleNextUpdate(context, appWidgetIds);
+        if(nextUpdate)
+            WidgetUpdateScheduler.scheduleUpdate(context, MonthViewWidgetProvider.class, WIDGET_IDS_KEY,
+                    appWidgetIds, getNextChangeMillis(eventIndex));
     }
 
     /**
-     * 다음번의 Widget갱신을 예약
-     * @param context Context
-     * @param appWidgetIds Int[]
+     * 일정동그라미의 색은 날자의 일정들이 모두 끝나면 과거일정색으로 바뀐다.
+     * 하루종일 일정은 자정에 바뀌고 나머지 일정은 마감시간이 지난 다음 분에 바뀐다.
+     * @param eventIndex 보여주는 달의 날자별 일정색인
+     * @return 아직 끝나지 않은 일정중 제일 먼저 끝나는 일정때문에 Widget이 바뀌는 시각, 없으면 Long.MAX_VALUE
      */
-    private static void scheduleNextUpdate(Context context, int[] appWidgetIds) {
-        AlarmManager alarmManager =
-                (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        //Widget을 갱신하는 intent창조
-        Intent intent = new Intent(context, MonthViewWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-        intent.putExtra(WIDGET_IDS_KEY, appWidgetIds);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, 0);
-
-        //다음 분에 해당한 시간 얻기
-        DateTime dateTime = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0);
-        DateTime nextMinute = dateTime.plusMinutes(1);
-
-        //다음 분에 widget이 갱신되도록 alarm 설정
-        alarmManager.setExact(AlarmManager.RTC_WAKEUP, nextMinute.getMillis(), pendingIntent);
+    private static long getNextChangeMillis(EventDayIndex eventIndex) {
+        final long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for (EventManager.OneEvent event : eventIndex.getAllEvents()) {
+            if(event.allDay)
+                continue;
+            long change = WidgetUpdateScheduler.ceilMinute(event.endMillis + 1);
+            if(change > now && change < next)
+                next = change;
+        }
+        return next;
     }
 
     /**
@@ -212,13 +325,11 @@ public class MonthViewWidgetProvider extends AppWidgetProvider {
         switch (intent.getAction()){
             case PREV:  //`이전`단추를 눌렀을때
                 //이전달을 보여준다.
-                mTargetDate = mTargetDate.minusMonths(1);
-                performUpdate(context);
+                performUpdate(context, -1);
                 break;
             case NEXT:  //`다음`단추를 눌렀을때
                 //다음달을 보여준다.
-                mTargetDate = mTargetDate.plusMonths(1);
-                performUpdate(context);
+                performUpdate(context, 1);
                 break;
             case AppWidgetManager.ACTION_APPWIDGET_UPDATE:  //Widget갱신
                 if(intent.hasExtra(WIDGET_IDS_KEY)){    //App내부에서 프로그람적으로 보내온것
@@ -233,6 +344,13 @@ public class MonthViewWidgetProvider extends AppWidgetProvider {
                     super.onReceive(context, intent);
                 }
                 break;
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case Intent.ACTION_TIME_CHANGED:
+                //시간대, 시간이 바뀌였으면 바로 갱신하고 다시 예약한다.
+                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+                this.onNextUpdate(context, appWidgetManager,
+                        appWidgetManager.getAppWidgetIds(getComponentName(context)), true);
+                break;
             default:
                 super.onReceive(context, intent);
         }
@@ -240,53 +358,34 @@ public class MonthViewWidgetProvider extends AppWidgetProvider {
 
     /**
      * 이전/다음 단추를 눌렀을때 호출되는 Widget갱신함수
+     * 달은 배경 thread 에서 바꾸므로 앞서 요청된 갱신들과 순서가 뒤바뀌지 않는다.
      * @param context Context
+     * @param monthOffset 옮겨갈 달수(-1: 이전달, 1: 다음달)
      */
-    private void performUpdate(Context context){
-        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-        ComponentName componentName = getComponentName(context);
-
-        for (int appWidgetId : appWidgetManager.getAppWidgetIds(componentName)) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
-        }
-    }
-
-    /**
-     * 날자를 보여주는 TextView의 Id를 돌려준다
-     * @see R.id#day_01
-     * @param dayNumber 날자(1-31)
-     * @param context Context
-     */
-    int getDayIdentifier(int dayNumber, Context context){
-        @SuppressLint("DefaultLocale") String idName = String.format("day_%1$02d", dayNumber);
-        Resources resources = context.getResources();
-        return resources.getIdentifier(idName, "id", context.getPackageName());
+    private void performUpdate(final Context context, final int monthOffset){
+        WidgetUpdateScheduler.runAsync(this, new Runnable() {
+            @Override
+            public void run() {
+                mTargetDate = mTargetDate.plusMonths(monthOffset);
+
+                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+                int[] appWidgetIds = appWidgetManager.getAppWidgetIds(getComponentName(context));
+                updateAppWidgets(context, appWidgetManager, appWidgetIds, true, false);
+            }
+        });
     }
 
-    /**
-     * 일정동그라미를 보여주는 ImageView의 Id를 돌려준다
-     * @see R.id#event_01
-     * @param dayNumber 날자(1-31)
-     * @param context Context
-     */
-    int getEventIdentifier(int dayNumber, Context context){
-        @SuppressLint("DefaultLocale") String idName = String.format("event_%1$02d", dayNumber);
-        Resources resources = context.getResources();
-        return resources.getIdentifier(idName, "id", context.getPackageName());
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        synchronized (sRenderedStates) {
+            for (int appWidgetId : appWidgetIds) {
+                sRenderedStates.delete(appWidgetId);
+            }
+        }
     }
 
     private ComponentName getComponentName(Context context){
         return new ComponentName(context, MonthViewWidgetProvider.class);
     }
-
-    /**
-     * 월 Widget에서 한개 날자를 그려주는데 리용되는 Model클라스
-     */
-    private static class SimpleMonthDate {
-        boolean otherMonth = false;     //다른 달인가?
-        boolean allPastEvents = false;  //과거의 일정만 가지고 있는가?
-        boolean hasEvent = false;       //일정이 있는가?
-        DateTime dateTime;              //날자
-    }
 }
 
@@ -0,0 +1,132 @@
+package com.android.calendar.widgets;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+import android.text.format.DateUtils;
+import android.util.Log;
+
+import org.joda.time.DateTime;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 일정, 월 Widget 들의 갱신을 예약하고 실행하는 클라스
+ * 매분 갱신하지 않고 Widget 에 보이는 내용이 바뀌는 다음 시각(일정의 시작/마감, 자정)에만 갱신한다.
+ *  - 일정이 변하였거나 시간, 시간대가 바뀌였을때에는 {@link #requestUpdate}로 바로 갱신한다.
+ *  - 예약은 장치를 깨우지 않는 RTC alarm 으로 한다. 화면이 꺼져있을때에는 Widget 이 보이지 않으므로 깨여난 다음 갱신하면 된다.
+ *  - 일정 query 와 RemoteViews 구축은 broadcast 를 받은 main thread 가 아니라 한개의 배경 thread 에서 순서대로 진행한다.
+ */
+public final class WidgetUpdateScheduler {
+    private static final String TAG = "WidgetUpdateScheduler";
+
+    //할일이 없는 thread 를 끝내기까지의 시간(초)
+    private static final int KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService sExecutor;
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "WidgetUpdate");
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        sExecutor = executor;
+    }
+
+    private WidgetUpdateScheduler() {}
+
+    /**
+     * 모든 Widget 들을 바로 갱신하고 다음 갱신을 다시 예약하게 한다.
+     * 일정이 변하였거나 시간이 바뀌였을때 호출한다.
+     * @param context Context
+     */
+    public static void requestUpdate(Context context) {
+        sendUpdate(context, EventViewWidgetProvider.class, EventViewWidgetProvider.WIDGET_IDS_KEY);
+        sendUpdate(context, MonthViewWidgetProvider.class, MonthViewWidgetProvider.WIDGET_IDS_KEY);
+    }
+
+    private static void sendUpdate(Context context, Class<?> provider, String idsKey) {
+        int[] ids = AppWidgetManager.getInstance(context).getAppWidgetIds(new ComponentName(context, provider));
+        if(ids == null || ids.length == 0)
+            return;
+
+        Intent intent = new Intent(context, provider);
+        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+        intent.putExtra(idsKey, ids);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Broadcast 를 받은 receiver 의 작업을 배경 thread 에서 실행한다.
+     * 작업이 끝날때까지 receiver 의 process 가 유지된다.
+     * @param receiver onReceive 를 실행중인 receiver
+     * @param work 작업
+     */
+    static void runAsync(BroadcastReceiver receiver, final Runnable work) {
+        final BroadcastReceiver.PendingResult result = receiver.goAsync();
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to update widgets", e);
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * 다음번의 Widget갱신을 예약한다. 이전 예약은 바뀐다.
+     * @param context Context
+     * @param provider Widget 의 AppWidgetProvider 클라스
+     * @param idsKey Widget id 들을 넣는 extra 열쇠
+     * @param appWidgetIds 갱신할 Widget id 들
+     * @param triggerMillis Widget 내용이 바뀌는 다음 시각, 자정보다 늦으면 자정에 갱신한다.
+     */
+    static void scheduleUpdate(Context context, Class<?> provider, String idsKey, int[] appWidgetIds,
+                               long triggerMillis) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        Intent intent = new Intent(context, provider);
+        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
+        intent.putExtra(idsKey, appWidgetIds);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT);
+
+        //날자표시는 자정에 바뀐다. 분단위로 표시하므로 다음 분보다 빨리 갱신할 필요는 없다.
+        final long now = System.currentTimeMillis();
+        final long nextMinute = ceilMinute(now + 1);
+        final long nextMidnight = new DateTime(now).plusDays(1).withTimeAtStartOfDay().getMillis();
+        final long time = Math.max(nextMinute, Math.min(triggerMillis, nextMidnight));
+
+        alarmManager.setExact(AlarmManager.RTC, time, pendingIntent);
+    }
+
+    /**
+     * @return 주어진 시각과 같거나 그 뒤의 첫 분경계
+     */
+    static long ceilMinute(long millis) {
+        return (millis + DateUtils.MINUTE_IN_MILLIS - 1) / DateUtils.MINUTE_IN_MILLIS * DateUtils.MINUTE_IN_MILLIS;
+    }
+}
@@ -31,6 +31,7 @@ import android.test.suitebuilder.annotation.SmallTest;
 import android.text.format.DateUtils;
 import com.android.kr_common.Time;
 import android.util.Log;
+import android.util.SparseArray;
 
 import junit.framework.Assert;
 
@@ -52,6 +53,7 @@ public class AlarmSchedulerTest extends AndroidTestCase {
         private ArrayList<EventInfo> mEvents = new ArrayList<EventInfo>();
         private ArrayList<String> mExpectedRemindersQueries = new ArrayList<String>();
         private int mCurrentReminderQueryIndex = 0;
+        private int mInstancesQueryCount = 0;
 
         /**
          * Contains info for a test event and its reminder.
@@ -115,6 +117,7 @@ public class AlarmSchedulerTest extends AndroidTestCase {
         public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                 String sortOrder) {
             if (uri.toString().startsWith(Instances.CONTENT_URI.toString())) {
+                mInstancesQueryCount++;
                 return getInstancesCursor();
             } else if (Reminders.CONTENT_URI.equals(uri)) {
                 if (mExpectedRemindersQueries.size() > 0) {
@@ -136,6 +139,21 @@ public class AlarmSchedulerTest extends AndroidTestCase {
             }
         }
 
+        /**
+         * Removes the event/reminder data of the specified event.
+         */
+        void removeEventInfo(long eventId) {
+            for (int i = mEvents.size() - 1; i >= 0; i--) {
+                if (mEvents.get(i).mEventId == eventId) {
+                    mEvents.remove(i);
+                }
+            }
+        }
+
+        int getInstancesQueryCount() {
+            return mInstancesQueryCount;
+        }
+
         /**
          * Optionally set up expectation for the reminders query selection.
          */
@@ -229,14 +247,28 @@ public class AlarmSchedulerTest extends AndroidTestCase {
         assertFalse(mMockAlarmManager.isAlarmSet());
     }
 
-    public void testAlarmMax() {
+    public void testAlarmBeyondOneDay() {
         // Set up mock test data for a reminder greater than 1 day in the future.
-        // This will be maxed out to 1 day out.
+        // This is within the lookahead window, so it is not maxed out.
         long currentMillis = System.currentTimeMillis();
         long startMillis = currentMillis + DateUtils.DAY_IN_MILLIS * 3;
         int reminderMin = (int) DateUtils.DAY_IN_MILLIS / (1000 * 60);
         mMockProvider.addEventInfo(1, false, startMillis, reminderMin);
-        expectAlarmAt(currentMillis + DateUtils.DAY_IN_MILLIS);
+        expectAlarmAt(currentMillis + DateUtils.DAY_IN_MILLIS * 2);
+
+        // Invoke scheduleNextAlarm and verify alarm was set at the expected time.
+        AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, BATCH_SIZE,
+                currentMillis);
+        assertTrue(mMockAlarmManager.isAlarmSet());
+    }
+
+    public void testReminderBeyondLookahead() {
+        // Event in 20 days, with an 18 day reminder.  The lookahead window is extended by the
+        // longest reminder, so the alarm is set on time.
+        long currentMillis = System.currentTimeMillis();
+        mMockProvider.addEventInfo(1, false, currentMillis + DateUtils.DAY_IN_MILLIS * 20,
+                (int) DateUtils.DAY_IN_MILLIS * 18 / (1000 * 60) /* 18 day reminder */);
+        expectAlarmAt(currentMillis + DateUtils.DAY_IN_MILLIS * 2);
 
         // Invoke scheduleNextAlarm and verify alarm was set at the expected time.
         AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, BATCH_SIZE,
@@ -244,6 +276,71 @@ public class AlarmSchedulerTest extends AndroidTestCase {
         assertTrue(mMockAlarmManager.isAlarmSet());
     }
 
+    public void testAlarmAfterHorizon() {
+        // A reminder more than 1 week out is preceded by a checkpoint alarm at the end of
+        // the week, to look for reminders that were not in the window.
+        long currentMillis = System.currentTimeMillis();
+        mMockProvider.addEventInfo(1, false, currentMillis + DateUtils.WEEK_IN_MILLIS * 3, 10);
+        expectAlarmAt(currentMillis + DateUtils.WEEK_IN_MILLIS);
+
+        // Invoke scheduleNextAlarm and verify alarm was set at the expected time.
+        AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, BATCH_SIZE,
+                currentMillis);
+        assertTrue(mMockAlarmManager.isAlarmSet());
+    }
+
+    public void testIndexReused() {
+        long currentMillis = System.currentTimeMillis();
+        mMockProvider.addEventInfo(1, false, currentMillis + DateUtils.HOUR_IN_MILLIS, 10);
+        mMockProvider.addEventInfo(2, false, currentMillis + DateUtils.HOUR_IN_MILLIS * 2, 10);
+        AlarmIndex index = new AlarmIndex();
+
+        expectAlarmAt(currentMillis + DateUtils.MINUTE_IN_MILLIS * 50);
+        AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, index,
+                BATCH_SIZE, currentMillis);
+        assertEquals(1, mMockProvider.getInstancesQueryCount());
+
+        // After the first alarm fires, the next one comes from the index without a query.
+        currentMillis += DateUtils.MINUTE_IN_MILLIS * 51;
+        expectAlarmAt(currentMillis + DateUtils.MINUTE_IN_MILLIS * 59);
+        AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, index,
+                BATCH_SIZE, currentMillis);
+        assertEquals(1, mMockProvider.getInstancesQueryCount());
+
+        // A calendar change makes the index scan again.
+        mMockProvider.removeEventInfo(2);
+        mMockProvider.addEventInfo(3, false, currentMillis + DateUtils.HOUR_IN_MILLIS * 3, 30);
+        index.invalidate();
+        expectAlarmAt(currentMillis + DateUtils.MINUTE_IN_MILLIS * 150);
+        AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, index,
+                BATCH_SIZE, currentMillis);
+        assertEquals(2, mMockProvider.getInstancesQueryCount());
+    }
+
+    public void testIndexInvalidatedDuringScan() {
+        long currentMillis = System.currentTimeMillis();
+        AlarmIndex index = new AlarmIndex();
+        SparseArray<long[]> startTimes = new SparseArray<long[]>();
+        startTimes.put(1, new long[] { currentMillis + DateUtils.HOUR_IN_MILLIS });
+        SparseArray<int[]> reminders = new SparseArray<int[]>();
+        reminders.put(1, new int[] { 10 });
+        String timeZone = Time.getCurrentTimezone();
+
+        // A change observed while the provider is queried must not be lost.
+        synchronized (index) {
+            int generation = index.getGeneration();
+            index.invalidate();
+            index.update(currentMillis, currentMillis + DateUtils.DAY_IN_MILLIS, timeZone, 10,
+                    startTimes, reminders, generation, true);
+            assertTrue(index.needsScan(currentMillis, timeZone));
+
+            generation = index.getGeneration();
+            index.update(currentMillis, currentMillis + DateUtils.DAY_IN_MILLIS, timeZone, 10,
+                    startTimes, reminders, generation, true);
+            assertFalse(index.needsScan(currentMillis, timeZone));
+        }
+    }
+
     public void testMultipleEvents() {
         // Set up multiple events where a later event time has an earlier reminder time.
         long currentMillis = System.currentTimeMillis();
@@ -307,10 +404,12 @@ public class AlarmSchedulerTest extends AndroidTestCase {
 
         // Set up expectations for the batch queries.
         expectAlarmAt(currentMillis + DateUtils.MINUTE_IN_MILLIS * 50);
-        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (19,18,17,16,15)");
-        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (14,13,12,11,10)");
-        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (9,8,7,6,5)");
-        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (4,3,2,1)");
+        // The first query looks up the longest reminder to size the lookahead window.
+        mMockProvider.addExpectedRemindersQuery("method=1");
+        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (?,?,?,?,?)");
+        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (?,?,?,?,?)");
+        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (?,?,?,?,?)");
+        mMockProvider.addExpectedRemindersQuery("method=1 AND event_id IN (?,?,?,?)");
 
         // Invoke scheduleNextAlarm and verify alarm and reminder query batches.
         AlarmScheduler.scheduleNextAlarm(mIsolatedContext, mMockAlarmManager, batchSize,
@@ -21,6 +21,7 @@ import static android.app.Notification.PRIORITY_HIGH;
 import static android.app.Notification.PRIORITY_MIN;
 
 import android.app.AlarmManager;
+import android.app.NotificationChannel;
 import android.content.SharedPreferences;
 import android.database.MatrixCursor;
 import android.provider.CalendarContract.Attendees;
@@ -384,6 +385,30 @@ public class AlertServiceTest extends AndroidTestCase {
         }
     }
 
+    class CountingNotificationManager extends NotificationMgr {
+        int mPosts;
+        int mCancels;
+
+        @Override
+        public void notify(int id, NotificationWrapper nw) {
+            mPosts++;
+        }
+
+        @Override
+        public void cancel(int id) {
+            mCancels++;
+        }
+
+        @Override
+        public void createNotificationChannel(NotificationChannel channel) {
+        }
+
+        void reset() {
+            mPosts = 0;
+            mCancels = 0;
+        }
+    }
+
     // TODO
     // Catch updates of new state, notify time, and received time
     // Test ringer, vibrate,
@@ -1030,4 +1055,48 @@ public class AlertServiceTest extends AndroidTestCase {
         assertEquals(2, low.get(3).eventId);
         assertEquals(1, low.get(4).eventId);
     }
+
+    @SmallTest
+    public void testGenerateAlerts_unchangedNotificationsNotReposted() {
+        MockSharedPreferences prefs = new MockSharedPreferences();
+        MockAlarmManager alarmMgr = new MockAlarmManager(mContext);
+        AlertsTable at = new AlertsTable();
+        CountingNotificationManager ntm = new CountingNotificationManager();
+        PostedNotifications posted = new PostedNotifications();
+
+        // An already fired alert for an upcoming event.
+        at.addAlertRow(100, FIRED, ACCEPTED, 0, 2000000, 3000000, 1700000);
+
+        // First refresh: the previously posted notifications are unknown, so every other ID is
+        // cancelled.
+        long currentTime = 1800000;
+        AlertService.generateAlerts(mContext, ntm, alarmMgr, prefs, at.getAlertCursor(),
+                currentTime, AlertService.MAX_NOTIFICATIONS, posted);
+        assertEquals(1, ntm.mPosts);
+        assertEquals(AlertService.MAX_NOTIFICATIONS, ntm.mCancels);
+        ntm.reset();
+
+        // Nothing changed: nothing is posted or cancelled.
+        AlertService.generateAlerts(mContext, ntm, alarmMgr, prefs, at.getAlertCursor(),
+                currentTime, AlertService.MAX_NOTIFICATIONS, posted);
+        assertEquals(0, ntm.mPosts);
+        assertEquals(0, ntm.mCancels);
+        assertEquals(1, posted.getSkippedPostCount());
+        ntm.reset();
+
+        // The event ended: it moves to the digest and only its old notification is cancelled.
+        currentTime = 4000000;
+        AlertService.generateAlerts(mContext, ntm, alarmMgr, prefs, at.getAlertCursor(),
+                currentTime, AlertService.MAX_NOTIFICATIONS, posted);
+        assertEquals(1, ntm.mPosts);
+        assertEquals(1, ntm.mCancels);
+        ntm.reset();
+
+        // A notification cancelled elsewhere is posted again.
+        posted.forgetAll();
+        AlertService.generateAlerts(mContext, ntm, alarmMgr, prefs, at.getAlertCursor(),
+                currentTime, AlertService.MAX_NOTIFICATIONS, posted);
+        assertEquals(1, ntm.mPosts);
+        assertEquals(0, ntm.mCancels);
+    }
 }
@@ -0,0 +1,189 @@
+package com.android.calendar.alerts;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+import android.test.mock.MockContext;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.calendar.FakeSharedPreferences;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * {@link FiredAlertStore}의 파일형식, 끊어진 파일의 복구, SharedPreferences 로부터의 이전, 오래된 기록지우기 시험
+ */
+@SmallTest
+public class FiredAlertStoreTest extends AndroidTestCase {
+    private static final int RECORD_BYTES = 24;
+
+    private FakeSharedPreferences mPrefs;
+    private Context mMockContext;
+    private File mFile;
+    private File mBackupFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = new FakeSharedPreferences();
+        mMockContext = new MockContext() {
+            @Override
+            public SharedPreferences getSharedPreferences(String name, int mode) {
+                return mPrefs;
+            }
+        };
+        mFile = new File(getContext().getCacheDir(), "fired_alerts_test");
+        mBackupFile = new File(mFile.getPath() + ".bak");
+        mFile.delete();
+        mBackupFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        mBackupFile.delete();
+        super.tearDown();
+    }
+
+    private FiredAlertStore newStore() {
+        return new FiredAlertStore(mMockContext, mFile);
+    }
+
+    public void testRecordFormat() throws IOException {
+        FiredAlertStore store = newStore();
+        store.add(7, 1000, 900);
+        store.add(3, 2000, 1900);
+        //같은 기록은 다시 쓰지 않는다.
+        store.add(7, 1000, 900);
+
+        //기록들은 추가한 순서로 (일정 id, 시작시간, 미리알림시각) 24 byte 씩 덧붙여진다.
+        assertEquals(2 * RECORD_BYTES, mFile.length());
+        long[] values = readLongs(mFile);
+        assertEquals(7, values[0]);
+        assertEquals(1000, values[1]);
+        assertEquals(900, values[2]);
+        assertEquals(3, values[3]);
+        assertEquals(2000, values[4]);
+        assertEquals(1900, values[5]);
+
+        FiredAlertStore reloaded = newStore();
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.contains(7, 1000, 900));
+        assertTrue(reloaded.contains(3, 2000, 1900));
+        assertFalse(reloaded.contains(7, 1000, 901));
+        assertEquals(900, reloaded.getMinAlarmTime());
+    }
+
+    public void testTornTrailingRecord() throws IOException {
+        //온전한 기록 하나와 덧붙이다가 끊어진 기록
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mFile));
+        out.writeLong(1);
+        out.writeLong(100);
+        out.writeLong(50);
+        out.writeLong(2);
+        out.writeShort(0);
+        out.close();
+
+        FiredAlertStore store = newStore();
+        assertEquals(1, store.size());
+        assertTrue(store.contains(1, 100, 50));
+        //끊어진 기록은 버리고 파일을 다시 쓴다.
+        assertEquals(RECORD_BYTES, mFile.length());
+
+        //그 다음 덧붙인 기록은 기록단위에 맞게 쓰인다.
+        store.add(2, 200, 150);
+        assertEquals(2 * RECORD_BYTES, mFile.length());
+        FiredAlertStore reloaded = newStore();
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.contains(2, 200, 150));
+    }
+
+    public void testInterruptedRewriteRestoresBackup() throws IOException {
+        //다시 쓰기가 끊어지면 예비파일에는 이전 기록들이, 기본파일에는 쓰다만 내용이 남는다.
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mBackupFile));
+        out.writeLong(1);
+        out.writeLong(100);
+        out.writeLong(50);
+        out.writeLong(2);
+        out.writeLong(200);
+        out.writeLong(150);
+        out.close();
+        out = new DataOutputStream(new FileOutputStream(mFile));
+        out.writeLong(1);
+        out.close();
+
+        FiredAlertStore store = newStore();
+        assertEquals(2, store.size());
+        assertTrue(store.contains(1, 100, 50));
+        assertTrue(store.contains(2, 200, 150));
+        assertFalse(mBackupFile.exists());
+
+        store.add(3, 300, 250);
+        FiredAlertStore reloaded = newStore();
+        assertEquals(3, reloaded.size());
+    }
+
+    public void testMigrateSharedPrefs() throws IOException {
+        final String prefix = AlertUtils.KEY_FIRED_ALERT_PREFIX;
+        mPrefs.edit()
+                .putLong(prefix + "5_1000_900", 900)
+                .putLong(prefix + "6_2000_1900", 1900)
+                .putLong(prefix + "bad_key", 0)
+                .putLong("preference_flushTimeMs", 1)
+                .commit();
+
+        FiredAlertStore store = newStore();
+        assertEquals(2, store.size());
+        assertTrue(store.contains(5, 1000, 900));
+        assertTrue(store.contains(6, 2000, 1900));
+
+        //옮겨온 기록들은 파일에 쓰고 SharedPreferences 는 비운다.
+        assertTrue(mPrefs.getAll().isEmpty());
+        assertEquals(2 * RECORD_BYTES, mFile.length());
+        assertEquals(2, newStore().size());
+    }
+
+    public void testExpire() throws IOException {
+        FiredAlertStore store = newStore();
+        store.add(1, 100, 10);
+        store.add(2, 200, 20);
+        store.add(3, 300, 30);
+
+        //지울것이 없으면 파일을 건드리지 않는다.
+        assertEquals(0, store.expire(5));
+        assertEquals(3 * RECORD_BYTES, mFile.length());
+
+        assertEquals(2, store.expire(20));
+        assertEquals(1, store.size());
+        assertEquals(30, store.getMinAlarmTime());
+        assertFalse(store.contains(1, 100, 10));
+        assertTrue(store.contains(3, 300, 30));
+        assertEquals(RECORD_BYTES, mFile.length());
+
+        FiredAlertStore reloaded = newStore();
+        assertEquals(1, reloaded.size());
+        assertTrue(reloaded.contains(3, 300, 30));
+
+        assertEquals(1, reloaded.expire(30));
+        assertEquals(Long.MAX_VALUE, reloaded.getMinAlarmTime());
+        assertEquals(0, newStore().size());
+    }
+
+    private static long[] readLongs(File file) throws IOException {
+        final long[] values = new long[(int) (file.length() / 8)];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readLong();
+            }
+        } finally {
+            in.close();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,218 @@
+package com.android.calendar.ics;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.provider.CalendarContract.Events;
+import android.provider.CalendarContract.Reminders;
+import android.test.AndroidTestCase;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * {@link IcsImporter}의 TEXT escape 풀기, VEVENT 로부터 Events 값만들기, 미리알림의 back-reference 시험
+ */
+@SmallTest
+public class IcsImporterTest extends AndroidTestCase {
+    private static final long CALENDAR_ID = 3;
+    private static final DateTimeZone TOKYO = DateTimeZone.forID("Asia/Tokyo");
+
+    /**
+     * 들어온 연산들을 ContentProvider 처럼 차례로 처리하고 넣은 값들을 기록하는 provider
+     */
+    private static class RecordingProvider extends MockContentProvider {
+        final ArrayList<Uri> mUris = new ArrayList<>();
+        final ArrayList<ContentValues> mValues = new ArrayList<>();
+        int mBatchCount = 0;
+        private long mNextId = 100;
+
+        @Override
+        public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+                throws OperationApplicationException {
+            mBatchCount ++;
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            for (int i = 0; i < operations.size(); i ++) {
+                results[i] = operations.get(i).apply(this, results, i);
+            }
+            return results;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            mUris.add(uri);
+            mValues.add(new ContentValues(values));
+            return ContentUris.withAppendedId(uri, mNextId ++);
+        }
+    }
+
+    private RecordingProvider mProvider;
+    private IcsImporter mImporter;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mProvider = new RecordingProvider();
+        MockContentResolver resolver = new MockContentResolver();
+        resolver.addProvider(CalendarContract.AUTHORITY, mProvider);
+        mImporter = new IcsImporter(resolver, CALENDAR_ID);
+    }
+
+    private IcsImporter.Progress importText(String ics) throws Exception {
+        byte[] bytes = ics.getBytes(StandardCharsets.UTF_8);
+        return mImporter.importFrom(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    public void testUnescapeText() {
+        assertNull(IcsImporter.unescapeText(null));
+        assertEquals("plain", IcsImporter.unescapeText("plain"));
+        assertEquals("a,b", IcsImporter.unescapeText("a\\,b"));
+        assertEquals("a;b", IcsImporter.unescapeText("a\\;b"));
+        assertEquals("a\nb\nc", IcsImporter.unescapeText("a\\nb\\Nc"));
+        assertEquals("a\\b", IcsImporter.unescapeText("a\\\\b"));
+        //\\ 다음의 n 은 줄바꾸기가 아니다.
+        assertEquals("\\n", IcsImporter.unescapeText("\\\\n"));
+        //끝의 \ 는 그대로 둔다.
+        assertEquals("a\\", IcsImporter.unescapeText("a\\"));
+    }
+
+    public void testEventValues() throws Exception {
+        IcsImporter.Progress progress = importText("BEGIN:VCALENDAR\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "UID:timed@example.com\r\n"
+                + "DTSTART;TZID=Asia/Tokyo:20200310T100000\r\n"
+                + "DTEND;TZID=Asia/Tokyo:20200310T113000\r\n"
+                + "SUMMARY:Review\\, planning\r\n"
+                + "DESCRIPTION:First line\\nSecond\\; line\r\n"
+                + "LOCATION:Room \\\\1\r\n"
+                + "END:VEVENT\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "DTSTART;VALUE=DATE:20200305\r\n"
+                + "SUMMARY:Holiday\r\n"
+                + "END:VEVENT\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "DTSTART;TZID=Asia/Tokyo:20200106T090000\r\n"
+                + "DURATION:PT1H\r\n"
+                + "RRULE:FREQ=WEEKLY;BYDAY=MO\r\n"
+                + "SUMMARY:Weekly\r\n"
+                + "END:VEVENT\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "SUMMARY:No start\r\n"
+                + "END:VEVENT\r\n"
+                + "END:VCALENDAR\r\n");
+
+        assertEquals(3, progress.eventCount);
+        assertEquals(1, progress.skippedCount);
+        assertEquals(0, progress.reminderCount);
+        assertEquals(3, mProvider.mValues.size());
+
+        ContentValues timed = mProvider.mValues.get(0);
+        assertEquals(Events.CONTENT_URI, mProvider.mUris.get(0));
+        assertEquals(CALENDAR_ID, (long) timed.getAsLong(Events.CALENDAR_ID));
+        assertEquals("timed@example.com", timed.getAsString(Events.UID_2445));
+        assertEquals("Review, planning", timed.getAsString(Events.TITLE));
+        assertEquals("First line\nSecond; line", timed.getAsString(Events.DESCRIPTION));
+        assertEquals("Room \\1", timed.getAsString(Events.EVENT_LOCATION));
+        assertEquals(new DateTime(2020, 3, 10, 10, 0, TOKYO).getMillis(),
+                (long) timed.getAsLong(Events.DTSTART));
+        assertEquals(new DateTime(2020, 3, 10, 11, 30, TOKYO).getMillis(),
+                (long) timed.getAsLong(Events.DTEND));
+        assertEquals("Asia/Tokyo", timed.getAsString(Events.EVENT_TIMEZONE));
+        assertEquals(0, (int) timed.getAsInteger(Events.ALL_DAY));
+        assertEquals(0, (int) timed.getAsInteger(Events.HAS_ALARM));
+
+        //마감시간이 없는 하루종일일정은 UTC 로 하루동안이다.
+        ContentValues allDay = mProvider.mValues.get(1);
+        assertEquals("Holiday", allDay.getAsString(Events.TITLE));
+        assertEquals(1, (int) allDay.getAsInteger(Events.ALL_DAY));
+        assertEquals(Events.CONTENT_URI, mProvider.mUris.get(1));
+        assertEquals(new DateTime(2020, 3, 5, 0, 0, DateTimeZone.UTC).getMillis(),
+                (long) allDay.getAsLong(Events.DTSTART));
+        assertEquals(new DateTime(2020, 3, 6, 0, 0, DateTimeZone.UTC).getMillis(),
+                (long) allDay.getAsLong(Events.DTEND));
+        assertEquals("UTC", allDay.getAsString(Events.EVENT_TIMEZONE));
+
+        //반복일정은 DTEND 대신 DURATION 을 가지고 시작시간은 TZID 로 계산한다.
+        ContentValues recurring = mProvider.mValues.get(2);
+        assertEquals("FREQ=WEEKLY;BYDAY=MO", recurring.getAsString(Events.RRULE));
+        assertEquals("PT1H", recurring.getAsString(Events.DURATION));
+        assertFalse(recurring.containsKey(Events.DTEND));
+        assertEquals(new DateTime(2020, 1, 6, 9, 0, TOKYO).getMillis(),
+                (long) recurring.getAsLong(Events.DTSTART));
+        assertEquals("Asia/Tokyo", recurring.getAsString(Events.EVENT_TIMEZONE));
+    }
+
+    public void testReminderBackReferences() throws Exception {
+        IcsImporter.Progress progress = importText("BEGIN:VCALENDAR\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "DTSTART;TZID=Asia/Tokyo:20200310T100000\r\n"
+                + "SUMMARY:First\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:DISPLAY\r\n"
+                + "TRIGGER:-PT10M\r\n"
+                + "END:VALARM\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:EMAIL\r\n"
+                + "TRIGGER:-P1D\r\n"
+                + "END:VALARM\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:DISPLAY\r\n"
+                + "TRIGGER:-PT10M\r\n"
+                + "END:VALARM\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:DISPLAY\r\n"
+                + "TRIGGER;VALUE=DATE-TIME:20200310T090000Z\r\n"
+                + "END:VALARM\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:DISPLAY\r\n"
+                + "TRIGGER;RELATED=END:-PT5M\r\n"
+                + "END:VALARM\r\n"
+                + "END:VEVENT\r\n"
+                + "BEGIN:VEVENT\r\n"
+                + "DTSTART;TZID=Asia/Tokyo:20200311T100000\r\n"
+                + "SUMMARY:Second\r\n"
+                + "BEGIN:VALARM\r\n"
+                + "ACTION:DISPLAY\r\n"
+                + "TRIGGER:-PT30M\r\n"
+                + "END:VALARM\r\n"
+                + "END:VEVENT\r\n"
+                + "END:VCALENDAR\r\n");
+
+        //같은 미리알림, 절대시각과 마감시간에 대한 TRIGGER 는 건너뛴다.
+        assertEquals(2, progress.eventCount);
+        assertEquals(3, progress.reminderCount);
+        assertEquals(1, mProvider.mBatchCount);
+
+        //연산순서: 일정1, 일정1의 미리알림들, 일정2, 일정2의 미리알림
+        assertEquals(5, mProvider.mUris.size());
+        assertEquals(Events.CONTENT_URI, mProvider.mUris.get(0));
+        assertEquals(Reminders.CONTENT_URI, mProvider.mUris.get(1));
+        assertEquals(Reminders.CONTENT_URI, mProvider.mUris.get(2));
+        assertEquals(Events.CONTENT_URI, mProvider.mUris.get(3));
+        assertEquals(Reminders.CONTENT_URI, mProvider.mUris.get(4));
+
+        //provider 는 100 부터 id 를 준다.
+        assertEquals(1, (int) mProvider.mValues.get(0).getAsInteger(Events.HAS_ALARM));
+        assertReminder(mProvider.mValues.get(1), 100, 10, Reminders.METHOD_ALERT);
+        assertReminder(mProvider.mValues.get(2), 100, 24 * 60, Reminders.METHOD_EMAIL);
+        assertEquals(1, (int) mProvider.mValues.get(3).getAsInteger(Events.HAS_ALARM));
+        assertReminder(mProvider.mValues.get(4), 103, 30, Reminders.METHOD_ALERT);
+    }
+
+    private static void assertReminder(ContentValues values, long eventId, int minutes, int method) {
+        assertEquals(eventId, (long) values.getAsLong(Reminders.EVENT_ID));
+        assertEquals(minutes, (int) values.getAsInteger(Reminders.MINUTES));
+        assertEquals(method, (int) values.getAsInteger(Reminders.METHOD));
+    }
+}
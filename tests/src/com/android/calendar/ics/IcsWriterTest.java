@@ -0,0 +1,119 @@
+package com.android.calendar.ics;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link IcsWriter}의 75 octet 행접기와 TEXT escape 시험
+ */
+public class IcsWriterTest extends TestCase {
+    private static final int MAX_LINE_OCTETS = 75;
+    //UTF-8 로 3 octet 인 문자 '가'
+    private static final String HANGUL = "가";
+    //UTF-16 surrogate pair 이고 UTF-8 로 4 octet 인 문자
+    private static final String EMOJI = "😀";
+
+    private static String write(String line) throws IOException {
+        StringWriter out = new StringWriter();
+        IcsWriter writer = new IcsWriter(out);
+        writer.writeLine(line);
+        writer.flush();
+        return out.toString();
+    }
+
+    /**
+     * 접힌 출력을 물리적인 행들로 가르고 매 행이 75 octet 을 넘지 않는가를 검사한다.
+     */
+    private static String[] splitLines(String output) {
+        assertTrue(output.endsWith("\r\n"));
+        String[] lines = output.substring(0, output.length() - 2).split("\r\n", -1);
+        for (int i = 0; i < lines.length; i ++) {
+            assertTrue(lines[i], lines[i].getBytes(StandardCharsets.UTF_8).length <= MAX_LINE_OCTETS);
+            if(i > 0)
+                assertTrue(lines[i], lines[i].startsWith(" "));
+        }
+        return lines;
+    }
+
+    private static String unfold(String output) {
+        return output.replace("\r\n ", "");
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i ++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    @SmallTest
+    public void testShortLineNotFolded() throws IOException {
+        String line = "SUMMARY:" + repeat("x", MAX_LINE_OCTETS - 8);
+        assertEquals(line + "\r\n", write(line));
+    }
+
+    @SmallTest
+    public void testFoldAt75Octets() throws IOException {
+        String line = "DESCRIPTION:" + repeat("x", 200);
+        String output = write(line);
+
+        String[] lines = splitLines(output);
+        assertEquals(3, lines.length);
+        assertEquals(MAX_LINE_OCTETS, lines[0].length());
+        assertEquals(MAX_LINE_OCTETS, lines[1].length());
+        assertEquals(line + "\r\n", unfold(output));
+    }
+
+    @SmallTest
+    public void testFoldKeepsMultiByteCharacters() throws IOException {
+        //10 octet + 3 octet 문자 21개 = 73 octet, 22번째 문자는 다음 행으로 간다.
+        String line = "SUMMARY:ab" + repeat(HANGUL, 30);
+        String output = write(line);
+
+        String[] lines = splitLines(output);
+        assertEquals(2, lines.length);
+        assertEquals("SUMMARY:ab" + repeat(HANGUL, 21), lines[0]);
+        assertEquals(" " + repeat(HANGUL, 9), lines[1]);
+        assertEquals(line + "\r\n", unfold(output));
+
+        //72 octet 다음의 4 octet 문자는 surrogate pair 를 가르지 않고 다음 행으로 간다.
+        line = "SUMMARY:" + repeat("x", 64) + EMOJI + "y";
+        output = write(line);
+        lines = splitLines(output);
+        assertEquals(2, lines.length);
+        assertEquals("SUMMARY:" + repeat("x", 64), lines[0]);
+        assertEquals(" " + EMOJI + "y", lines[1]);
+        assertEquals(line + "\r\n", unfold(output));
+    }
+
+    @SmallTest
+    public void testRefoldFoldedValue() throws IOException {
+        //이미 접혀있는 값은 풀어서 다시 접는다.
+        String output = write("DESCRIPTION:first\r\n second");
+        assertEquals("DESCRIPTION:firstsecond\r\n", output);
+    }
+
+    @SmallTest
+    public void testEscapeText() {
+        StringBuilder sb = new StringBuilder();
+        IcsWriter.appendEscapedText(sb, "a\\b;c,d\ne\r\nf\rg");
+        assertEquals("a\\\\b\\;c\\,d\\ne\\nf\\ng", sb.toString());
+    }
+
+    @SmallTest
+    public void testWriteText() throws IOException {
+        StringWriter out = new StringWriter();
+        IcsWriter writer = new IcsWriter(out);
+        writer.writeText("SUMMARY", null);
+        writer.writeText("SUMMARY", "");
+        writer.writeText("LOCATION", "Room 1, Floor 2; East");
+        writer.flush();
+        assertEquals("LOCATION:Room 1\\, Floor 2\\; East\r\n", out.toString());
+    }
+}
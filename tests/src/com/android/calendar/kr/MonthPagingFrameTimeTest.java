@@ -0,0 +1,160 @@
+package com.android.calendar.kr;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.viewpager2.widget.ViewPager2;
+
+import com.android.calendar.activities.AllInOneActivity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 월보기에서 달들을 넘길때의 frame 시간을 재는 시험
+ * 기본화면의 첫 ViewPager2(달 pager)를 앞으로 몇달, 다시 뒤로 몇달 넘기면서 Choreographer 로 frame 간격을 모은다.
+ * 결과(평균, 90%, 최대 frame 시간과 늦어진 frame 수)는 instrumentation 상태와 log 로 내보낸다.
+ */
+public class MonthPagingFrameTimeTest extends ActivityInstrumentationTestCase2<AllInOneActivity> {
+    private static final String TAG = "MonthPagingFrameTime";
+
+    //넘기는 달수(한방향)
+    private static final int PAGE_COUNT = 12;
+    //한번 넘기기가 끝나기를 기다리는 최대시간(ms)
+    private static final long PAGE_TIMEOUT_MILLIS = 3000;
+    //이 시간(ns)보다 긴 frame 을 늦어진 frame 으로 센다.
+    private static final long JANK_FRAME_NANOS = 25000000;
+
+    //기록중인 frame 간격들(ns), main thread 에서만 리용한다.
+    private final List<Long> mFrameNanos = new ArrayList<>();
+    private long mLastFrameTimeNanos = 0;
+    private boolean mRecording = false;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRecording) {
+                return;
+            }
+            if (mLastFrameTimeNanos != 0) {
+                mFrameNanos.add(frameTimeNanos - mLastFrameTimeNanos);
+            }
+            mLastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    public MonthPagingFrameTimeTest() {
+        super(AllInOneActivity.class);
+    }
+
+    @LargeTest
+    public void testMonthPagingFrameTime() {
+        final AllInOneActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+
+        final ViewPager2 pager = findPager(activity.getWindow().getDecorView());
+        assertNotNull("No month pager", pager);
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mFrameNanos.clear();
+                mLastFrameTimeNanos = 0;
+                mRecording = true;
+                Choreographer.getInstance().postFrameCallback(mFrameCallback);
+            }
+        });
+
+        for (int i = 0; i < PAGE_COUNT; i ++) {
+            scrollBy(pager, 1);
+        }
+        for (int i = 0; i < PAGE_COUNT; i ++) {
+            scrollBy(pager, -1);
+        }
+
+        final List<Long> frames = new ArrayList<>();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mRecording = false;
+                frames.addAll(mFrameNanos);
+            }
+        });
+        assertFalse("No frames recorded", frames.isEmpty());
+
+        long total = 0;
+        int jankCount = 0;
+        for (long frame : frames) {
+            total += frame;
+            if (frame > JANK_FRAME_NANOS) {
+                jankCount ++;
+            }
+        }
+        Collections.sort(frames);
+
+        Bundle results = new Bundle();
+        results.putInt("frame_count", frames.size());
+        results.putDouble("frame_avg_ms", total / (double) frames.size() / 1e6);
+        results.putDouble("frame_90th_ms", frames.get(frames.size() * 9 / 10) / 1e6);
+        results.putDouble("frame_max_ms", frames.get(frames.size() - 1) / 1e6);
+        results.putInt("jank_count", jankCount);
+        Log.i(TAG, results.toString());
+        getInstrumentation().sendStatus(0, results);
+    }
+
+    /**
+     * 달 pager 를 한 페지 넘기고 넘기기가 끝날때까지 기다린다.
+     * @param pager 달 pager
+     * @param delta 넘길 페지수(1: 다음달, -1: 이전달)
+     */
+    private void scrollBy(final ViewPager2 pager, final int delta) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                pager.setCurrentItem(pager.getCurrentItem() + delta, true);
+            }
+        });
+
+        final long deadline = SystemClock.uptimeMillis() + PAGE_TIMEOUT_MILLIS;
+        final boolean[] idle = new boolean[1];
+        do {
+            SystemClock.sleep(16);
+            getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    idle[0] = pager.getScrollState() == ViewPager2.SCROLL_STATE_IDLE;
+                }
+            });
+        } while (!idle[0] && SystemClock.uptimeMillis() < deadline);
+    }
+
+    /**
+     * @return view 계층에서 보이는 첫 ViewPager2, 없으면 null
+     */
+    private static ViewPager2 findPager(View view) {
+        if (view.getVisibility() != View.VISIBLE) {
+            return null;
+        }
+        if (view instanceof ViewPager2) {
+            return (ViewPager2) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i ++) {
+                ViewPager2 pager = findPager(group.getChildAt(i));
+                if (pager != null) {
+                    return pager;
+                }
+            }
+        }
+        return null;
+    }
+}
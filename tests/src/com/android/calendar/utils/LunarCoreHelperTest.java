@@ -0,0 +1,63 @@
+package com.android.calendar.utils;
+
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link LunarCoreHelper}의 음력날자표를 달의 위치계산 결과와 비교하는 시험
+ */
+public class LunarCoreHelperTest extends TestCase {
+    private static final double TIME_ZONE = 8.0;
+
+    @SmallTest
+    public void testKnownDates() {
+        //음력설
+        assertLunar(2020, 1, 25, 1, 1, 2020, 0);
+        assertLunar(2021, 2, 12, 1, 1, 2021, 0);
+        //2020년 윤4월
+        assertLunar(2020, 5, 23, 1, 4, 2020, 1);
+        assertLunar(2020, 6, 20, 29, 4, 2020, 1);
+        assertLunar(2020, 6, 21, 1, 5, 2020, 0);
+        //양력 1월이지만 음력으로는 전해 12월
+        assertLunar(2021, 1, 1, 18, 11, 2020, 0);
+        assertLunar(2021, 2, 11, 30, 12, 2020, 0);
+    }
+
+    @LargeTest
+    public void testTableMatchesComputation() {
+        int[] table = new int[4];
+        int[] computed = new int[4];
+
+        //지원하는 범위(1800 - 2300년)의 모든 날자
+        for (int jd = 2378497; jd <= 2561482; jd ++) {
+            int[] date = jdToDate(jd);
+            LunarCoreHelper.convertSolar2Lunar(date[0], date[1], date[2], table);
+            LunarCoreHelper.computeSolar2Lunar(jd, date[2], TIME_ZONE, computed);
+            assertTrue(Arrays.toString(date), Arrays.equals(computed, table));
+
+            int[] solar = LunarCoreHelper.convertLunar2Solar(table[0], table[1], table[2], table[3], TIME_ZONE);
+            assertTrue(Arrays.toString(date), Arrays.equals(date, solar));
+        }
+    }
+
+    private static void assertLunar(int year, int month, int day,
+                                    int lunarDay, int lunarMonth, int lunarYear, int leap) {
+        int[] lunar = LunarCoreHelper.convertSolar2Lunar(day, month, year);
+        assertTrue(year + "-" + month + "-" + day + " " + Arrays.toString(lunar),
+                Arrays.equals(new int[] { lunarDay, lunarMonth, lunarYear, leap }, lunar));
+    }
+
+    private static int[] jdToDate(int jd) {
+        int a = jd + 32044;
+        int b = (4 * a + 3) / 146097;
+        int c = a - (b * 146097) / 4;
+        int d = (4 * c + 3) / 1461;
+        int e = c - (1461 * d) / 4;
+        int m = (5 * e + 2) / 153;
+        return new int[] { e - (153 * m + 2) / 5 + 1, m + 3 - 12 * (m / 10), b * 100 + d - 4800 + m / 10 };
+    }
+}